@@ -66,6 +66,7 @@ CREATE TABLE Products (
     thumbnail_url NVARCHAR(500),
     gallery_images NVARCHAR(MAX),
     stock_quantity INT NOT NULL DEFAULT 0,
+    low_stock_threshold INT NULL,
     status NVARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
     category_id INT NOT NULL,
     brand_id INT NOT NULL,
@@ -75,7 +76,8 @@ CREATE TABLE Products (
     CONSTRAINT FK_Products_Brand FOREIGN KEY (brand_id) REFERENCES Brands(brand_id),
     CONSTRAINT CHK_Products_Status CHECK (status IN ('ACTIVE', 'INACTIVE', 'DISCONTINUED')),
     CONSTRAINT CHK_Products_Price CHECK (price >= 0),
-    CONSTRAINT CHK_Products_StockQuantity CHECK (stock_quantity >= 0)
+    CONSTRAINT CHK_Products_StockQuantity CHECK (stock_quantity >= 0),
+    CONSTRAINT CHK_Products_LowStockThreshold CHECK (low_stock_threshold >= 0)
 );
 
 -- Bảng Sizes
@@ -139,15 +141,21 @@ CREATE TABLE Carts (
 );
 
 -- Bảng CartItems
+-- Một dòng cho mỗi (product, biến thể) trong giỏ: CartService ghi bằng MERGE theo khoá này; variant_id NULL = không chọn biến thể
 CREATE TABLE CartItems (
     cart_item_id INT IDENTITY(1,1) PRIMARY KEY,
     cart_id INT NOT NULL,
-    variant_id INT NOT NULL,
+    product_id INT NOT NULL,
+    variant_id INT NULL,
     quantity INT NOT NULL DEFAULT 1,
+    price DECIMAL(18,2) NOT NULL,
+    created_at DATETIME2 DEFAULT GETDATE(),
+    updated_at DATETIME2 DEFAULT GETDATE(),
     CONSTRAINT FK_CartItems_Cart FOREIGN KEY (cart_id) REFERENCES Carts(cart_id),
+    CONSTRAINT FK_CartItems_Product FOREIGN KEY (product_id) REFERENCES Products(product_id),
     CONSTRAINT FK_CartItems_Variant FOREIGN KEY (variant_id) REFERENCES ProductVariants(variant_id),
     CONSTRAINT CHK_CartItems_Quantity CHECK (quantity > 0),
-    CONSTRAINT UQ_CartItems_Unique UNIQUE (cart_id, variant_id)
+    CONSTRAINT UQ_CartItems_Unique UNIQUE (cart_id, product_id, variant_id)
 );
 
 -- Bảng Orders
@@ -190,6 +198,38 @@ CREATE TABLE Payments (
     CONSTRAINT CHK_Payments_Amount CHECK (amount >= 0)
 );
 
+-- Bảng InventoryLedgerCheckpoints: sequence WAL cuối cùng đã ghi vào ProductVariants.stock
+-- (cập nhật cùng transaction với batch UPDATE stock của InventoryService)
+CREATE TABLE InventoryLedgerCheckpoints (
+    ledger_name NVARCHAR(50) PRIMARY KEY,
+    last_sequence BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME2 DEFAULT GETDATE()
+);
+
+-- Bảng InventoryMovements: nhật ký biến động tồn kho (append-only, movement_id là số thứ tự)
+-- quantity là delta có dấu; RESERVATION / RELEASE là delta của phần đang giữ, không đổi tồn thực tế.
+-- Không khoá ngoại tới ProductVariants để lịch sử còn lại sau khi xoá biến thể
+CREATE TABLE InventoryMovements (
+    movement_id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    variant_id BIGINT NOT NULL,
+    movement_type NVARCHAR(20) NOT NULL,
+    quantity INT NOT NULL,
+    reference NVARCHAR(100),
+    created_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+    CONSTRAINT CHK_InventoryMovements_Type CHECK (movement_type IN ('RECEIPT', 'SALE', 'CANCELLATION', 'ADJUSTMENT', 'RESERVATION', 'RELEASE'))
+);
+
+-- Bảng InventorySnapshots: tồn của biến thể sau mọi biến động có movement_id <= last_movement_id
+-- (InventoryJournalService gộp định kỳ; snapshot mở đầu có last_movement_id = 0)
+CREATE TABLE InventorySnapshots (
+    snapshot_id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    variant_id BIGINT NOT NULL,
+    last_movement_id BIGINT NOT NULL,
+    stock INT NOT NULL,
+    taken_at DATETIME2 NOT NULL,
+    CONSTRAINT UQ_InventorySnapshots_Variant UNIQUE (variant_id, last_movement_id)
+);
+
 -- =============================================
 -- Tạo Indexes để tối ưu hiệu suất
 -- =============================================
@@ -197,6 +237,9 @@ CREATE TABLE Payments (
 CREATE INDEX IX_Products_Category ON Products(category_id);
 CREATE INDEX IX_Products_Brand ON Products(brand_id);
 CREATE INDEX IX_Products_Status ON Products(status);
+-- Keyset pagination: seek theo (sort key, product_id)
+CREATE INDEX IX_Products_Price_Id ON Products(price, product_id);
+CREATE INDEX IX_Products_CreatedAt_Id ON Products(created_at, product_id);
 CREATE INDEX IX_ProductImages_ProductId ON ProductImages(product_id);
 CREATE INDEX IX_ProductImages_IsPrimary ON ProductImages(product_id, is_primary);
 CREATE INDEX IX_ProductImages_SortOrder ON ProductImages(product_id, sort_order);
@@ -206,6 +249,9 @@ CREATE INDEX IX_Orders_User ON Orders(user_id);
 CREATE INDEX IX_Orders_Status ON Orders(status);
 CREATE INDEX IX_OrderItems_Order ON OrderItems(order_id);
 CREATE INDEX IX_CartItems_Cart ON CartItems(cart_id);
+-- Lịch sử theo biến thể (keyset theo movement_id) và mốc movement_id đã ghi trước một thời điểm (snapshot)
+CREATE INDEX IX_InventoryMovements_Variant ON InventoryMovements(variant_id, movement_id);
+CREATE INDEX IX_InventoryMovements_CreatedAt ON InventoryMovements(created_at);
 
 -- =============================================
 -- Thêm dữ liệu mẫu
@@ -300,11 +346,11 @@ INSERT INTO Carts (user_id) VALUES
 (3);  -- customer2
 
 -- Thêm CartItems mẫu
-INSERT INTO CartItems (cart_id, variant_id, quantity) VALUES 
-(1, 1, 2),  -- customer1: 2 áo thun S Black
-(1, 5, 1),  -- customer1: 1 áo thun M White
-(2, 7, 1),  -- customer2: 1 áo thun M Red
-(2, 12, 1); -- customer2: 1 quần jean M Black
+INSERT INTO CartItems (cart_id, product_id, variant_id, quantity, price) VALUES 
+(1, 1, 1, 2, 199000),  -- customer1: 2 áo thun S Black
+(1, 1, 5, 1, 199000),  -- customer1: 1 áo thun M White
+(2, 1, 7, 1, 199000),  -- customer2: 1 áo thun M Red
+(2, 2, 12, 1, 599000); -- customer2: 1 quần jean M Black
 
 -- Thêm Orders mẫu
 INSERT INTO Orders (user_id, total_amount, status) VALUES 
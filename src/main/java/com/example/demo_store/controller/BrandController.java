@@ -1,8 +1,13 @@
 package com.example.demo_store.controller;
 
 import com.example.demo_store.entity.Brand;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
 import com.example.demo_store.repository.BrandRepository;
+import com.example.demo_store.service.CatalogVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,12 +21,25 @@ public class BrandController {
     @Autowired
     private BrandRepository brandRepository;
     
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     // GET /api/brands - Lấy tất cả brands
+    // Trả 304 ngay khi If-None-Match khớp phiên bản bảng, không query database
     @GetMapping
-    public ResponseEntity<List<Brand>> getAllBrands() {
+    public ResponseEntity<List<Brand>> getAllBrands(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String etag = catalogVersionService.collectionETag(ReferenceDataChangedEvent.Type.BRAND);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).build();
+            }
             List<Brand> brands = brandRepository.findAll();
-            return ResponseEntity.ok(brands);
+            return ResponseEntity.ok().eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).body(brands);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -56,6 +74,7 @@ public class BrandController {
     public ResponseEntity<Brand> createBrand(@RequestBody Brand brand) {
         try {
             Brand savedBrand = brandRepository.save(brand);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.brand(savedBrand.getBrandId()));
             return ResponseEntity.ok(savedBrand);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -72,6 +91,7 @@ public class BrandController {
                 brand.setBrandName(brandDetails.getBrandName());
                 
                 Brand updatedBrand = brandRepository.save(brand);
+                eventPublisher.publishEvent(ReferenceDataChangedEvent.brand(id));
                 return ResponseEntity.ok(updatedBrand);
             } else {
                 return ResponseEntity.notFound().build();
@@ -87,6 +107,7 @@ public class BrandController {
         try {
             if (brandRepository.existsById(id)) {
                 brandRepository.deleteById(id);
+                eventPublisher.publishEvent(ReferenceDataChangedEvent.brand(id));
                 return ResponseEntity.ok().build();
             } else {
                 return ResponseEntity.notFound().build();
@@ -1,21 +1,16 @@
 package com.example.demo_store.controller;
 
-import com.example.demo_store.entity.Cart;
-import com.example.demo_store.entity.CartItem;
-import com.example.demo_store.entity.Product;
-import com.example.demo_store.entity.User;
-import com.example.demo_store.repository.CartRepository;
-import com.example.demo_store.repository.CartItemRepository;
-import com.example.demo_store.repository.UserRepository;
-import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.dto.CartLineOperation;
+import com.example.demo_store.dto.CartView;
+import com.example.demo_store.service.CartHoldService;
+import com.example.demo_store.service.CartService;
+import com.example.demo_store.service.inventory.InventoryLedger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/carts")
@@ -23,88 +18,65 @@ import java.util.Optional;
 public class CartController {
 
     @Autowired
-    private CartRepository cartRepository;
+    private CartService cartService;
 
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CartHoldService cartHoldService;
 
-    @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private ProductRepository productRepository;
-
-    // GET /api/carts/user/{userId} - Lấy giỏ hàng của user
+    // GET /api/carts/user/{userId} - Lấy giỏ hàng của user (từ bộ nhớ, tạo giỏ rỗng nếu chưa có)
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getCartByUser(@PathVariable Long userId) {
         try {
-            Optional<Cart> cart = cartRepository.findByUserUserId(userId);
-            if (cart.isPresent()) {
-                List<CartItem> items = cartItemRepository.findByCartCartIdOrderByCreatedAtAsc(cart.get().getCartId());
-                CartResponse response = new CartResponse();
-                response.setCart(cart.get());
-                response.setItems(items);
-                response.setTotalItems(items.size());
-                response.setTotalAmount(calculateTotalAmount(items));
-                return ResponseEntity.ok(response);
-            } else {
-                // Create new cart if not exists
-                Cart newCart = createNewCart(userId);
-                CartResponse response = new CartResponse();
-                response.setCart(newCart);
-                response.setItems(List.of());
-                response.setTotalItems(0);
-                response.setTotalAmount(BigDecimal.ZERO);
-                return ResponseEntity.ok(response);
-            }
+            return ResponseEntity.ok(cartService.getCart(userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch cart: " + e.getMessage()));
         }
     }
 
-    // POST /api/carts/user/{userId}/items - Thêm sản phẩm vào giỏ hàng
+    // POST /api/carts/user/{userId}/items - Thêm sản phẩm vào giỏ hàng (một câu MERGE, giỏ trả về dựng từ bộ nhớ)
+    // Có variantId và bật giữ hàng thì giữ số lượng trên tồn kho, hết hàng trả 409
     @PostMapping("/user/{userId}/items")
     public ResponseEntity<?> addItemToCart(@PathVariable Long userId, @RequestBody AddItemRequest request) {
         try {
-            // Validate user exists
-            if (!userRepository.existsById(userId)) {
-                return ResponseEntity.badRequest().body(new ErrorResponse("User not found"));
+            if (request.getProductId() == null) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Product is required"));
             }
-
-            // Validate product exists
-            if (!productRepository.existsById(request.getProductId())) {
-                return ResponseEntity.badRequest().body(new ErrorResponse("Product not found"));
+            if (request.getQuantity() == null || request.getQuantity() <= 0) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Quantity must be at least 1"));
             }
+            CartView cart = cartService.addItem(userId, request.getProductId(), request.getVariantId(), request.getQuantity());
+            return ResponseEntity.ok(cart);
+        } catch (CartService.HoldRejectedException e) {
+            return holdRejection(e.getOutcome());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to add item to cart: " + e.getMessage()));
+        }
+    }
 
-            // Get or create cart
-            Cart cart = cartRepository.findByUserUserId(userId).orElse(createNewCart(userId));
-
-            // Check if item already exists in cart
-            Optional<CartItem> existingItem = cartItemRepository.findByCartCartIdAndProductProductId(cart.getCartId(), request.getProductId());
-            
-            if (existingItem.isPresent()) {
-                // Update quantity
-                CartItem item = existingItem.get();
-                item.setQuantity(item.getQuantity() + request.getQuantity());
-                item.setUpdatedAt(LocalDateTime.now());
-                cartItemRepository.save(item);
-            } else {
-                // Create new cart item
-                Product product = productRepository.findById(request.getProductId()).get();
-                CartItem cartItem = new CartItem();
-                cartItem.setCart(cart);
-                cartItem.setProduct(product);
-                cartItem.setQuantity(request.getQuantity());
-                cartItem.setPrice(product.getPrice());
-                cartItem.setCreatedAt(LocalDateTime.now());
-                cartItem.setUpdatedAt(LocalDateTime.now());
-                cartItemRepository.save(cartItem);
+    // PATCH /api/carts/user/{userId} - Thêm / sửa / xoá nhiều dòng trong một lần (một transaction, trả về giỏ một lần)
+    // Body: [{"op": "add" | "set" | "remove", "cartItemId" hoặc "productId" + "variantId", "quantity"}]
+    @PatchMapping("/user/{userId}")
+    public ResponseEntity<?> applyCartOperations(@PathVariable Long userId, @RequestBody List<CartLineOperation> operations) {
+        try {
+            if (operations == null || operations.isEmpty()) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Operations are required"));
             }
-
-            // Return updated cart
-            return getCartByUser(userId);
+            if (operations.size() > CartService.MAX_BATCH_OPERATIONS) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("At most " + CartService.MAX_BATCH_OPERATIONS + " operations per request"));
+            }
+            return ResponseEntity.ok(cartService.applyOperations(userId, operations));
+        } catch (CartService.HoldRejectedException e) {
+            return holdRejection(e.getOutcome());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to add item to cart: " + e.getMessage()));
+            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to update cart: " + e.getMessage()));
         }
     }
 
@@ -112,23 +84,18 @@ public class CartController {
     @PutMapping("/items/{itemId}")
     public ResponseEntity<?> updateCartItem(@PathVariable Long itemId, @RequestBody UpdateItemRequest request) {
         try {
-            Optional<CartItem> itemOptional = cartItemRepository.findById(itemId);
-            if (itemOptional.isEmpty()) {
+            if (request.getQuantity() == null) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Quantity is required"));
+            }
+            if (!cartService.updateItem(itemId, request.getQuantity())) {
                 return ResponseEntity.notFound().build();
             }
-
-            CartItem item = itemOptional.get();
             if (request.getQuantity() <= 0) {
-                // Remove item if quantity is 0 or negative
-                cartItemRepository.delete(item);
                 return ResponseEntity.ok(new SuccessResponse("Item removed from cart"));
             }
-
-            item.setQuantity(request.getQuantity());
-            item.setUpdatedAt(LocalDateTime.now());
-            cartItemRepository.save(item);
-
             return ResponseEntity.ok(new SuccessResponse("Cart item updated successfully"));
+        } catch (CartService.HoldRejectedException e) {
+            return holdRejection(e.getOutcome());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to update cart item: " + e.getMessage()));
         }
@@ -138,11 +105,9 @@ public class CartController {
     @DeleteMapping("/items/{itemId}")
     public ResponseEntity<?> removeItemFromCart(@PathVariable Long itemId) {
         try {
-            if (!cartItemRepository.existsById(itemId)) {
+            if (!cartService.removeItem(itemId)) {
                 return ResponseEntity.notFound().build();
             }
-
-            cartItemRepository.deleteById(itemId);
             return ResponseEntity.ok(new SuccessResponse("Item removed from cart"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to remove item from cart: " + e.getMessage()));
@@ -153,9 +118,7 @@ public class CartController {
     @DeleteMapping("/user/{userId}")
     public ResponseEntity<?> clearCart(@PathVariable Long userId) {
         try {
-            Optional<Cart> cart = cartRepository.findByUserUserId(userId);
-            if (cart.isPresent()) {
-                cartItemRepository.deleteByCartCartId(cart.get().getCartId());
+            if (cartService.clear(userId)) {
                 return ResponseEntity.ok(new SuccessResponse("Cart cleared successfully"));
             } else {
                 return ResponseEntity.ok(new SuccessResponse("Cart is already empty"));
@@ -169,32 +132,43 @@ public class CartController {
     @GetMapping("/user/{userId}/count")
     public ResponseEntity<?> getCartItemCount(@PathVariable Long userId) {
         try {
-            Optional<Cart> cart = cartRepository.findByUserUserId(userId);
-            if (cart.isPresent()) {
-                long count = cartItemRepository.countByCartCartId(cart.get().getCartId());
-                return ResponseEntity.ok(new CartCountResponse(count));
-            } else {
-                return ResponseEntity.ok(new CartCountResponse(0));
-            }
+            return ResponseEntity.ok(new CartCountResponse(cartService.countItems(userId)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to get cart count: " + e.getMessage()));
         }
     }
 
-    // Helper methods
-    private Cart createNewCart(Long userId) {
-        User user = userRepository.findById(userId).get();
-        Cart cart = new Cart();
-        cart.setUser(user);
-        cart.setCreatedAt(LocalDateTime.now());
-        cart.setUpdatedAt(LocalDateTime.now());
-        return cartRepository.save(cart);
+    // GET /api/carts/cache/stats - Thống kê cache giỏ hàng (số giỏ, hit / miss, bị đẩy ra)
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCartCacheStats() {
+        return ResponseEntity.ok(cartService.stats());
     }
 
-    private BigDecimal calculateTotalAmount(List<CartItem> items) {
-        return items.stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // GET /api/carts/user/{userId}/holds - Số lượng đang giữ theo biến thể của user
+    @GetMapping("/user/{userId}/holds")
+    public ResponseEntity<Map<Long, Integer>> getCartHolds(@PathVariable Long userId) {
+        return ResponseEntity.ok(cartHoldService.holds(userId));
+    }
+
+    // GET /api/carts/holds/stats - Thống kê giữ hàng (số hold, số đã hết hạn)
+    @GetMapping("/holds/stats")
+    public ResponseEntity<Map<String, Object>> getCartHoldStats() {
+        return ResponseEntity.ok(cartHoldService.stats());
+    }
+
+    // Helper methods
+    // null nếu giữ hàng thành công
+    private ResponseEntity<?> holdRejection(InventoryLedger.Outcome outcome) {
+        switch (outcome) {
+            case OK:
+                return null;
+            case INSUFFICIENT_STOCK:
+                return ResponseEntity.status(409).body(new ErrorResponse("Not enough stock for this variant"));
+            case NOT_READY:
+                return ResponseEntity.status(503).body(new ErrorResponse("Inventory is not ready yet"));
+            default:
+                return ResponseEntity.badRequest().body(new ErrorResponse("Could not hold stock: " + outcome));
+        }
     }
 
     // Response classes
@@ -220,26 +194,6 @@ public class CartController {
         public void setMessage(String message) { this.message = message; }
     }
 
-    public static class CartResponse {
-        private Cart cart;
-        private List<CartItem> items;
-        private int totalItems;
-        private BigDecimal totalAmount;
-
-        // Getters and setters
-        public Cart getCart() { return cart; }
-        public void setCart(Cart cart) { this.cart = cart; }
-        
-        public List<CartItem> getItems() { return items; }
-        public void setItems(List<CartItem> items) { this.items = items; }
-        
-        public int getTotalItems() { return totalItems; }
-        public void setTotalItems(int totalItems) { this.totalItems = totalItems; }
-        
-        public BigDecimal getTotalAmount() { return totalAmount; }
-        public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
-    }
-
     public static class CartCountResponse {
         private long count;
 
@@ -253,12 +207,16 @@ public class CartController {
 
     public static class AddItemRequest {
         private Long productId;
+        private Long variantId;
         private Integer quantity;
 
         // Getters and setters
         public Long getProductId() { return productId; }
         public void setProductId(Long productId) { this.productId = productId; }
         
+        public Long getVariantId() { return variantId; }
+        public void setVariantId(Long variantId) { this.variantId = variantId; }
+        
         public Integer getQuantity() { return quantity; }
         public void setQuantity(Integer quantity) { this.quantity = quantity; }
     }
@@ -1,13 +1,23 @@
 package com.example.demo_store.controller;
 
+import com.example.demo_store.dto.CategorySummary;
+import com.example.demo_store.dto.CategoryTreeNode;
 import com.example.demo_store.entity.Category;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
 import com.example.demo_store.repository.CategoryRepository;
+import com.example.demo_store.service.CatalogVersionService;
+import com.example.demo_store.service.CategoryTreeService;
+import com.example.demo_store.service.category.CategoryTree;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -16,12 +26,84 @@ public class CategoryController {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     // GET /api/categories - Lấy tất cả categories
+    // Trả 304 ngay khi If-None-Match khớp phiên bản bảng, không query database
     @GetMapping
-    public ResponseEntity<List<Category>> getAllCategories() {
+    public ResponseEntity<List<Category>> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String etag = catalogVersionService.collectionETag(ReferenceDataChangedEvent.Type.CATEGORY);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).build();
+            }
             List<Category> categories = categoryRepository.findAll();
-            return ResponseEntity.ok(categories);
+            return ResponseEntity.ok().eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).body(categories);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/categories/tree - Toàn bộ cây category từ snapshot trong bộ nhớ
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTreeNode>> getCategoryTree(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            String etag = catalogVersionService.collectionETag(ReferenceDataChangedEvent.Type.CATEGORY);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).build();
+            }
+            List<CategoryTreeNode> roots = categoryTreeService.getTree().getRoots();
+            return ResponseEntity.ok().eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).body(roots);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/categories/{id}/breadcrumb - Chuỗi category từ gốc tới category hiện tại
+    @GetMapping("/{id}/breadcrumb")
+    public ResponseEntity<List<CategorySummary>> getCategoryBreadcrumb(@PathVariable Long id) {
+        try {
+            CategoryTree tree = categoryTreeService.getTree();
+            if (!tree.contains(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(tree.getBreadcrumb(id));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/categories/{id}/subtree - Category và toàn bộ category con cháu
+    @GetMapping("/{id}/subtree")
+    public ResponseEntity<CategoryTreeNode> getCategorySubtree(@PathVariable Long id) {
+        try {
+            CategoryTreeNode node = categoryTreeService.getTree().getNode(id);
+            return node != null ? ResponseEntity.ok(node) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/categories/{id}/descendant-ids - ID của category và mọi category con cháu
+    @GetMapping("/{id}/descendant-ids")
+    public ResponseEntity<Set<Long>> getCategoryDescendantIds(@PathVariable Long id) {
+        try {
+            CategoryTree tree = categoryTreeService.getTree();
+            if (!tree.contains(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(tree.getDescendantIds(id));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -79,6 +161,7 @@ public class CategoryController {
             }
             
             Category savedCategory = categoryRepository.save(category);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.category(savedCategory.getCategoryId()));
             return ResponseEntity.ok(savedCategory);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -107,6 +190,7 @@ public class CategoryController {
                 }
                 
                 Category updatedCategory = categoryRepository.save(category);
+                eventPublisher.publishEvent(ReferenceDataChangedEvent.category(id));
                 return ResponseEntity.ok(updatedCategory);
             } else {
                 return ResponseEntity.notFound().build();
@@ -122,6 +206,7 @@ public class CategoryController {
         try {
             if (categoryRepository.existsById(id)) {
                 categoryRepository.deleteById(id);
+                eventPublisher.publishEvent(ReferenceDataChangedEvent.category(id));
                 return ResponseEntity.ok().build();
             } else {
                 return ResponseEntity.notFound().build();
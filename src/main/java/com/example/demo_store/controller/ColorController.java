@@ -1,8 +1,13 @@
 package com.example.demo_store.controller;
 
 import com.example.demo_store.entity.Color;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
 import com.example.demo_store.repository.ColorRepository;
+import com.example.demo_store.service.CatalogVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,12 +23,25 @@ public class ColorController {
     @Autowired
     private ColorRepository colorRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     // GET /api/colors - Lấy tất cả màu sắc
+    // Trả 304 ngay khi If-None-Match khớp phiên bản bảng, không query database
     @GetMapping
-    public ResponseEntity<List<Color>> getAllColors() {
+    public ResponseEntity<List<Color>> getAllColors(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String etag = catalogVersionService.collectionETag(ReferenceDataChangedEvent.Type.COLOR);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).build();
+            }
             List<Color> colors = colorRepository.findAll();
-            return ResponseEntity.ok(colors);
+            return ResponseEntity.ok().eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).body(colors);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -61,6 +79,7 @@ public class ColorController {
             color.setColorName(request.getColorName());
             
             Color savedColor = colorRepository.save(color);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.color(savedColor.getColorId()));
             return ResponseEntity.ok(savedColor);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -80,6 +99,7 @@ public class ColorController {
             color.setColorName(request.getColorName());
             
             Color updatedColor = colorRepository.save(color);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.color(id));
             return ResponseEntity.ok(updatedColor);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -95,6 +115,7 @@ public class ColorController {
             }
 
             colorRepository.deleteById(id);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.color(id));
             return ResponseEntity.ok(new SuccessResponse("Color deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to delete color: " + e.getMessage()));
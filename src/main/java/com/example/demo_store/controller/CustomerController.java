@@ -12,6 +12,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
@@ -146,7 +147,7 @@ public class CustomerController {
             customer.setCustomerType(request.getCustomerType());
             customer.setLoyaltyPoints(0);
             customer.setTotalOrders(0);
-            customer.setTotalSpent(0.0);
+            customer.setTotalSpent(BigDecimal.ZERO);
             customer.setRegistrationDate(LocalDateTime.now());
             customer.setIsActive(true);
             customer.setNotes(request.getNotes());
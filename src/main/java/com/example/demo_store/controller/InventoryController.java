@@ -0,0 +1,176 @@
+package com.example.demo_store.controller;
+
+import com.example.demo_store.event.StockAlertEvent;
+import com.example.demo_store.service.InventoryJournalService;
+import com.example.demo_store.service.InventoryService;
+import com.example.demo_store.service.StockAlertService;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import com.example.demo_store.service.inventory.StockThresholdDetector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryController {
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private StockAlertService stockAlertService;
+    
+    @Autowired
+    private InventoryJournalService inventoryJournalService;
+    
+    private static final int MAX_HISTORY_LIMIT = 500;
+    
+    // GET /api/inventory/stats - Thống kê sổ tồn kho (WAL, checkpoint, flush)
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(inventoryService.stats());
+    }
+    
+    // GET /api/inventory/alerts?level=&productId=&limit= - Biến thể đang sắp hết / hết hàng (đọc từ bộ nhớ, không quét bảng)
+    @GetMapping("/alerts")
+    public ResponseEntity<?> getAlerts(
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        try {
+            StockAlertEvent.Level alertLevel = level != null ? StockAlertEvent.Level.valueOf(level.toUpperCase()) : null;
+            if (alertLevel == StockAlertEvent.Level.IN_STOCK || limit <= 0) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("level must be LOW_STOCK or OUT_OF_STOCK and limit must be positive"));
+            }
+            Optional<List<StockThresholdDetector.Alert>> alerts = stockAlertService.alerts(alertLevel, productId, Math.min(limit, 1000));
+            if (alerts.isEmpty()) {
+                return ResponseEntity.status(503).body(new ErrorResponse("Stock alerts are not ready yet"));
+            }
+            return ResponseEntity.ok(alerts.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Unknown alert level: " + level));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/inventory/alerts/stats - Thống kê cảnh báo tồn kho
+    @GetMapping("/alerts/stats")
+    public ResponseEntity<Map<String, Object>> getAlertStats() {
+        return ResponseEntity.ok(stockAlertService.stats());
+    }
+    
+    // GET /api/inventory/{variantId} - Tồn thực tế, đang giữ và còn bán được của biến thể (đọc từ bộ nhớ)
+    @GetMapping("/{variantId}")
+    public ResponseEntity<?> getLevel(@PathVariable Long variantId) {
+        try {
+            if (!inventoryService.isReady()) {
+                return ResponseEntity.status(503).body(new ErrorResponse("Inventory is not ready yet"));
+            }
+            Optional<InventoryLedger.Level> level = inventoryService.level(variantId);
+            if (level.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(level.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/inventory/journal/stats - Thống kê nhật ký kho (số biến động đã ghi, snapshot)
+    @GetMapping("/journal/stats")
+    public ResponseEntity<Map<String, Object>> getJournalStats() {
+        return ResponseEntity.ok(inventoryJournalService.stats());
+    }
+    
+    // GET /api/inventory/{variantId}/history?after={cursor}&limit={n} - Lịch sử biến động tồn, mới nhất trước (phân trang keyset)
+    @GetMapping("/{variantId}/history")
+    public ResponseEntity<?> getHistory(
+            @PathVariable Long variantId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        try {
+            if (limit <= 0) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("limit must be positive"));
+            }
+            Long before = after != null ? Long.valueOf(after) : null;
+            return ResponseEntity.ok(inventoryJournalService.history(variantId, before, Math.min(limit, MAX_HISTORY_LIMIT)));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid cursor: " + after));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/inventory/{variantId}/stock-as-of?at=2024-01-31T23:59:59 - Tồn tại một thời điểm (snapshot + phần nhật ký sau nó)
+    @GetMapping("/{variantId}/stock-as-of")
+    public ResponseEntity<?> getStockAsOf(@PathVariable Long variantId, @RequestParam String at) {
+        try {
+            Optional<InventoryJournalService.StockAsOf> stock = inventoryJournalService.stockAsOf(variantId, LocalDateTime.parse(at));
+            if (stock.isEmpty()) {
+                return ResponseEntity.status(404).body(new ErrorResponse("No inventory snapshot for variant " + variantId + " at " + at));
+            }
+            return ResponseEntity.ok(stock.get());
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid date-time: " + at));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // POST /api/inventory/{variantId}/receipts - Nhập hàng: cộng vào tồn và ghi biến động RECEIPT
+    @PostMapping("/{variantId}/receipts")
+    public ResponseEntity<?> receive(@PathVariable Long variantId, @RequestBody ReceiptRequest request) {
+        try {
+            if (request.getQuantity() == null || request.getQuantity() <= 0) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Quantity must be at least 1"));
+            }
+            if (request.getReference() != null && request.getReference().length() > 100) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Reference must be at most 100 characters"));
+            }
+            InventoryLedger.Outcome outcome = inventoryService.receive(variantId, request.getQuantity(), request.getReference());
+            if (outcome == InventoryLedger.Outcome.NOT_READY) {
+                return ResponseEntity.status(503).body(new ErrorResponse("Inventory is not ready yet"));
+            }
+            if (outcome == InventoryLedger.Outcome.UNKNOWN_VARIANT) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(inventoryService.level(variantId).orElse(null));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(new ErrorResponse("Failed to receive stock: " + e.getMessage()));
+        }
+    }
+    
+    // Request classes
+    public static class ReceiptRequest {
+        private Integer quantity;
+        // Ví dụ số phiếu nhập
+        private String reference;
+        
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+        
+        public String getReference() { return reference; }
+        public void setReference(String reference) { this.reference = reference; }
+    }
+    
+    // Response classes
+    public static class ErrorResponse {
+        private String error;
+        
+        public ErrorResponse(String error) {
+            this.error = error;
+        }
+        
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+}
@@ -2,21 +2,36 @@ package com.example.demo_store.controller;
 
 import com.example.demo_store.entity.Order;
 import com.example.demo_store.entity.OrderItem;
+import com.example.demo_store.event.OrderCancelledEvent;
+import com.example.demo_store.event.OrderCreatedEvent;
+import com.example.demo_store.event.OrderLine;
 import com.example.demo_store.repository.OrderRepository;
 import com.example.demo_store.repository.OrderItemRepository;
 import com.example.demo_store.repository.UserRepository;
 import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.repository.ProductVariantRepository;
+import com.example.demo_store.service.CheckoutStockService;
+import com.example.demo_store.util.Money;
+import com.example.demo_store.util.MoneyTotal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -36,6 +51,18 @@ public class OrderController {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private CheckoutStockService checkoutStockService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${store.currency:VND}")
+    private String currencyCode;
+
     // GET /api/orders - Lấy tất cả đơn hàng với pagination
     @GetMapping
     public ResponseEntity<?> getAllOrders(
@@ -95,6 +122,8 @@ public class OrderController {
     }
 
     // POST /api/orders - Tạo đơn hàng mới
+    // Các dòng được giữ hàng trên ledger tồn kho trước (409 nếu hết hàng), rồi đơn và phần trừ stock trong database
+    // được ghi cùng một transaction; ledger chỉ chuyển phần đã giữ thành đã bán sau khi transaction commit
     @PostMapping
     public ResponseEntity<?> createOrder(@RequestBody OrderCreateRequest request) {
         try {
@@ -103,42 +132,53 @@ public class OrderController {
                 return ResponseEntity.badRequest().body(new ErrorResponse("Customer not found"));
             }
 
-            // Create order
-            Order order = new Order();
-            order.setUser(userRepository.findById(request.getCustomerId()).get());
-            order.setStatus(Order.OrderStatus.PENDING);
-            order.setTotalAmount(BigDecimal.ZERO);
-            order.setShippingAddress(request.getShippingAddress());
-            order.setNotes(request.getNotes());
-            order.setCreatedAt(LocalDateTime.now());
-            order.setUpdatedAt(LocalDateTime.now());
-
-            Order savedOrder = orderRepository.save(order);
-
-            // Create order items
-            BigDecimal totalAmount = BigDecimal.ZERO;
+            // Kiểm tra hết các dòng trước khi ghi gì xuống database
+            Currency currency = Currency.getInstance(currencyCode);
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            List<Money> prices = new ArrayList<>();
             for (OrderItemRequest itemRequest : request.getItems()) {
                 if (!productRepository.existsById(itemRequest.getProductId())) {
                     return ResponseEntity.badRequest().body(new ErrorResponse("Product not found: " + itemRequest.getProductId()));
                 }
-
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrder(savedOrder);
-                orderItem.setProduct(productRepository.findById(itemRequest.getProductId()).get());
-                orderItem.setQuantity(itemRequest.getQuantity());
-                orderItem.setPrice(itemRequest.getPrice());
-                orderItem.setCreatedAt(LocalDateTime.now());
-                orderItem.setUpdatedAt(LocalDateTime.now());
-
-                orderItemRepository.save(orderItem);
-                totalAmount = totalAmount.add(itemRequest.getPrice().multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
+                if (itemRequest.getQuantity() == null || itemRequest.getQuantity() <= 0) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("Quantity must be at least 1"));
+                }
+                if (itemRequest.getPrice() == null || itemRequest.getPrice().signum() < 0) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("Price must not be negative"));
+                }
+                try {
+                    prices.add(Money.of(itemRequest.getPrice(), currency));
+                } catch (ArithmeticException e) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("Price must have at most " + Money.DECIMAL_SCALE + " decimal places"));
+                }
+                if (itemRequest.getVariantId() != null) {
+                    quantities.merge(itemRequest.getVariantId(), itemRequest.getQuantity(), Integer::sum);
+                }
+            }
+            if (!quantities.isEmpty()) {
+                Map<Long, Long> productByVariant = new HashMap<>();
+                for (Object[] row : productVariantRepository.findVariantAndProductIds(quantities.keySet())) {
+                    productByVariant.put((Long) row[0], (Long) row[1]);
+                }
+                for (OrderItemRequest itemRequest : request.getItems()) {
+                    if (itemRequest.getVariantId() != null
+                            && !itemRequest.getProductId().equals(productByVariant.get(itemRequest.getVariantId()))) {
+                        return ResponseEntity.badRequest().body(new ErrorResponse("Variant not found for product: " + itemRequest.getVariantId()));
+                    }
+                }
             }
 
-            // Update total amount
-            savedOrder.setTotalAmount(totalAmount);
-            orderRepository.save(savedOrder);
+            List<OrderLine> lines = new ArrayList<>();
+            // Hàng đang giữ trong giỏ của khách được dùng trước cho đơn
+            Order savedOrder = checkoutStockService.placeWithStock(request.getCustomerId(), quantities,
+                    () -> saveOrder(request, prices, lines), order -> orderReference(order.getOrderId()));
+            eventPublisher.publishEvent(new OrderCreatedEvent(savedOrder.getOrderId(), savedOrder.getCreatedAt(), lines));
 
             return ResponseEntity.ok(savedOrder);
+        } catch (CheckoutStockService.InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse("Insufficient stock for variant: " + e.getVariantId()));
+        } catch (CheckoutStockService.InventoryNotReadyException e) {
+            return ResponseEntity.status(503).body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to create order: " + e.getMessage()));
         }
@@ -154,6 +194,7 @@ public class OrderController {
             }
 
             Order order = orderOptional.get();
+            Order.OrderStatus previousStatus = order.getStatus();
             if (request.getStatus() != null) {
                 order.setStatus(Order.OrderStatus.valueOf(request.getStatus()));
             }
@@ -165,8 +206,41 @@ public class OrderController {
             }
             order.setUpdatedAt(LocalDateTime.now());
 
-            Order updatedOrder = orderRepository.save(order);
+            boolean wasCancelled = previousStatus == Order.OrderStatus.CANCELLED;
+            boolean isCancelled = order.getStatus() == Order.OrderStatus.CANCELLED;
+            List<OrderItem> items = wasCancelled != isCancelled
+                    ? orderItemRepository.findByOrderOrderIdOrderByCreatedAtAsc(id)
+                    : List.of();
+            Map<Long, Integer> quantities = variantQuantities(items);
+
+            Order updatedOrder;
+            if (wasCancelled && !isCancelled) {
+                // Mở lại đơn đã huỷ: trừ lại tồn như lúc đặt hàng, chỉ khi đơn vẫn còn đang huỷ
+                updatedOrder = checkoutStockService.placeWithStock(null, quantities,
+                        () -> orderRepository.changeStatusIf(id, Order.OrderStatus.CANCELLED, order.getStatus(), order.getUpdatedAt()) == 1,
+                        () -> orderRepository.save(order), saved -> orderReference(id));
+            } else if (!wasCancelled && isCancelled) {
+                // Huỷ đơn: hàng về lại kho cùng transaction ghi trạng thái huỷ; request huỷ / xoá đồng thời chỉ một cái trả hàng
+                updatedOrder = checkoutStockService.cancelWithStock(quantities,
+                        () -> orderRepository.changeStatus(id, Order.OrderStatus.CANCELLED, order.getUpdatedAt()) == 1,
+                        () -> orderRepository.save(order), orderReference(id));
+            } else {
+                updatedOrder = orderRepository.save(order);
+            }
+            
+            // Thống kê bán hàng trừ hoặc cộng lại các dòng của đơn
+            if (!wasCancelled && isCancelled) {
+                eventPublisher.publishEvent(new OrderCancelledEvent(id, updatedOrder.getCreatedAt(), orderLines(items)));
+            } else if (wasCancelled && !isCancelled) {
+                eventPublisher.publishEvent(new OrderCreatedEvent(id, updatedOrder.getCreatedAt(), orderLines(items)));
+            }
             return ResponseEntity.ok(updatedOrder);
+        } catch (CheckoutStockService.ConcurrentChangeException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        } catch (CheckoutStockService.InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse("Insufficient stock for variant: " + e.getVariantId()));
+        } catch (CheckoutStockService.InventoryNotReadyException e) {
+            return ResponseEntity.status(503).body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to update order: " + e.getMessage()));
         }
@@ -176,16 +250,39 @@ public class OrderController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteOrder(@PathVariable Long id) {
         try {
-            if (!orderRepository.existsById(id)) {
+            Optional<Order> order = orderRepository.findById(id);
+            if (order.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
-
-            // Delete order items first
-            orderItemRepository.deleteByOrderOrderId(id);
-            // Delete order
-            orderRepository.deleteById(id);
+            // Xoá đơn chưa huỷ: như huỷ đơn, hàng về lại kho
+            boolean wasCancelled = order.get().getStatus() == Order.OrderStatus.CANCELLED;
+            List<OrderItem> items = !wasCancelled
+                    ? orderItemRepository.findByOrderOrderIdOrderByCreatedAtAsc(id)
+                    : List.of();
+            Map<Long, Integer> quantities = variantQuantities(items);
+            List<OrderLine> lines = orderLines(items);
+
+            // Chiếm đơn trước khi xoá: đơn chưa huỷ được đánh dấu huỷ (huỷ đồng thời không trả hàng lần hai),
+            // đơn đã huỷ phải còn đang huỷ (không bị mở lại và bán lại trong lúc xoá)
+            LocalDateTime now = LocalDateTime.now();
+            checkoutStockService.cancelWithStock(quantities, () -> (wasCancelled
+                    ? orderRepository.changeStatusIf(id, Order.OrderStatus.CANCELLED, Order.OrderStatus.CANCELLED, now)
+                    : orderRepository.changeStatus(id, Order.OrderStatus.CANCELLED, now)) == 1, () -> {
+                // Delete order items first
+                orderItemRepository.deleteByOrderOrderId(id);
+                // Delete order
+                orderRepository.deleteById(id);
+                return null;
+            }, orderReference(id));
+            if (!lines.isEmpty()) {
+                eventPublisher.publishEvent(new OrderCancelledEvent(id, order.get().getCreatedAt(), lines));
+            }
 
             return ResponseEntity.ok(new SuccessResponse("Order deleted successfully"));
+        } catch (CheckoutStockService.ConcurrentChangeException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        } catch (CheckoutStockService.InventoryNotReadyException e) {
+            return ResponseEntity.status(503).body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to delete order: " + e.getMessage()));
         }
@@ -223,6 +320,70 @@ public class OrderController {
         }
     }
 
+    // reference của biến động tồn trong nhật ký kho
+    private static String orderReference(Long orderId) {
+        return "order:" + orderId;
+    }
+
+    // Các dòng của đơn cho event thống kê (chỉ đọc id của product, không nạp entity Product)
+    private List<OrderLine> orderLines(List<OrderItem> items) {
+        List<OrderLine> lines = new ArrayList<>();
+        for (OrderItem item : items) {
+            lines.add(new OrderLine(item.getProduct().getProductId(), item.getQuantity()));
+        }
+        return lines;
+    }
+
+    // variantId -> tổng số lượng của các dòng có biến thể (dòng đơn cũ không có biến thể không trừ / trả tồn)
+    private Map<Long, Integer> variantQuantities(List<OrderItem> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            if (item.getVariantId() != null) {
+                quantities.merge(item.getVariantId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    // Ghi đơn và các dòng đơn (chạy trong transaction đã trừ tồn); prices là đơn giá đã kiểm tra, cùng thứ tự với request.getItems()
+    private Order saveOrder(OrderCreateRequest request, List<Money> prices, List<OrderLine> lines) {
+        Order order = new Order();
+        order.setUser(userRepository.findById(request.getCustomerId()).get());
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setTotalAmount(BigDecimal.ZERO);
+        order.setShippingAddress(request.getShippingAddress());
+        order.setNotes(request.getNotes());
+        order.setCreatedAt(LocalDateTime.now());
+        order.setUpdatedAt(LocalDateTime.now());
+
+        Order savedOrder = orderRepository.save(order);
+
+        // Create order items
+        MoneyTotal totalAmount = new MoneyTotal(Currency.getInstance(currencyCode));
+        for (int i = 0; i < request.getItems().size(); i++) {
+            OrderItemRequest itemRequest = request.getItems().get(i);
+            Money price = prices.get(i);
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(savedOrder);
+            orderItem.setProduct(productRepository.findById(itemRequest.getProductId()).get());
+            if (itemRequest.getVariantId() != null) {
+                orderItem.setVariant(productVariantRepository.getReferenceById(itemRequest.getVariantId()));
+            }
+            orderItem.setQuantity(itemRequest.getQuantity());
+            orderItem.setPrice(price.toBigDecimal());
+            orderItem.setCreatedAt(LocalDateTime.now());
+            orderItem.setUpdatedAt(LocalDateTime.now());
+
+            orderItemRepository.save(orderItem);
+            lines.add(new OrderLine(itemRequest.getProductId(), itemRequest.getQuantity()));
+            totalAmount.add(price, itemRequest.getQuantity());
+        }
+
+        // Update total amount
+        savedOrder.setTotalAmount(totalAmount.toMoney().toBigDecimal());
+        return orderRepository.save(savedOrder);
+    }
+
     // Response classes
     public static class ErrorResponse {
         private String error;
@@ -268,6 +429,7 @@ public class OrderController {
 
     public static class OrderItemRequest {
         private Long productId;
+        private Long variantId;
         private Integer quantity;
         private BigDecimal price;
 
@@ -275,6 +437,9 @@ public class OrderController {
         public Long getProductId() { return productId; }
         public void setProductId(Long productId) { this.productId = productId; }
         
+        public Long getVariantId() { return variantId; }
+        public void setVariantId(Long variantId) { this.variantId = variantId; }
+        
         public Integer getQuantity() { return quantity; }
         public void setQuantity(Integer quantity) { this.quantity = quantity; }
         
@@ -4,7 +4,9 @@ import com.example.demo_store.entity.Payment;
 import com.example.demo_store.entity.Order;
 import com.example.demo_store.repository.PaymentRepository;
 import com.example.demo_store.repository.OrderRepository;
+import com.example.demo_store.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -14,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Currency;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +31,9 @@ public class PaymentController {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Value("${store.currency:VND}")
+    private String currencyCode;
+
     // GET /api/payments - Lấy tất cả thanh toán với pagination
     @GetMapping
     public ResponseEntity<?> getAllPayments(
@@ -95,12 +101,23 @@ public class PaymentController {
                 return ResponseEntity.badRequest().body(new ErrorResponse("Order not found"));
             }
 
+            if (request.getAmount() == null || request.getAmount().signum() < 0) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Amount must not be negative"));
+            }
+            // Đổi chính xác sang Money (không làm tròn) trước khi ghi cột DECIMAL(18,2)
+            Money amount;
+            try {
+                amount = Money.of(request.getAmount(), Currency.getInstance(currencyCode));
+            } catch (ArithmeticException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Amount must have at most " + Money.DECIMAL_SCALE + " decimal places"));
+            }
+
             Order order = orderRepository.findById(request.getOrderId()).get();
 
             // Create payment
             Payment payment = new Payment();
             payment.setOrder(order);
-            payment.setAmount(request.getAmount());
+            payment.setAmount(amount.toBigDecimal());
             payment.setPaymentMethod(request.getPaymentMethod());
             payment.setStatus(Payment.PaymentStatus.PENDING);
             payment.setTransactionId(request.getTransactionId());
@@ -1,25 +1,65 @@
 package com.example.demo_store.controller;
 
+import com.example.demo_store.dto.BulkImportResult;
+import com.example.demo_store.dto.CursorPage;
+import com.example.demo_store.dto.FacetSearchResult;
+import com.example.demo_store.dto.ProductCursor;
+import com.example.demo_store.dto.ProductDTO;
+import com.example.demo_store.dto.ProductDetailResponse;
+import com.example.demo_store.dto.ProductFilter;
 import com.example.demo_store.entity.Product;
 import com.example.demo_store.entity.Category;
 import com.example.demo_store.entity.Brand;
 import com.example.demo_store.entity.ProductImage;
+import com.example.demo_store.event.ProductChangedEvent;
 import com.example.demo_store.repository.ProductRepository;
 import com.example.demo_store.repository.CategoryRepository;
 import com.example.demo_store.repository.BrandRepository;
+import com.example.demo_store.service.CatalogVersionService;
+import com.example.demo_store.service.CoPurchaseService;
+import com.example.demo_store.service.CategoryTreeService;
 import com.example.demo_store.service.FileStorageService;
+import com.example.demo_store.service.ProductDetailService;
+import com.example.demo_store.service.ProductExportService;
+import com.example.demo_store.service.ProductFacetService;
+import com.example.demo_store.service.ProductImportService;
+import com.example.demo_store.service.ProductResponseCache;
+import com.example.demo_store.service.VariantMatrixService;
 import com.example.demo_store.service.ProductImageService;
+import com.example.demo_store.service.ProductSearchService;
+import com.example.demo_store.service.SkuIndexService;
+import com.example.demo_store.service.TopSellersService;
+import com.example.demo_store.service.copurchase.CoPurchaseMatrix;
+import com.example.demo_store.service.facet.ProductFacetIndex;
+import com.example.demo_store.service.search.InvertedIndex;
+import com.example.demo_store.service.topsellers.SalesBuckets;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/products")
@@ -40,46 +80,278 @@ public class ProductController {
     @Autowired
     private ProductImageService productImageService;
     
+    @Autowired
+    private ProductSearchService productSearchService;
+    
+    @Autowired
+    private ProductFacetService productFacetService;
+    
+    @Autowired
+    private ProductExportService productExportService;
+    
+    @Autowired
+    private ProductImportService productImportService;
+    
+    @Autowired
+    private ProductResponseCache productResponseCache;
+    
+    @Autowired
+    private VariantMatrixService variantMatrixService;
+    
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+    
+    @Autowired
+    private SkuIndexService skuIndexService;
+    
+    @Autowired
+    private ProductDetailService productDetailService;
+    
+    @Autowired
+    private CoPurchaseService coPurchaseService;
+    
+    @Autowired
+    private TopSellersService topSellersService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private static final int DEFAULT_PAGE_LIMIT = 20;
+    private static final int MAX_PAGE_LIMIT = 100;
+    // Search không phân trang qua index trả tối đa chừng này kết quả (xếp theo BM25): header X-Total-Count cho tổng
+    // số kết quả, X-Result-Truncated: true khi bị cắt, muốn lấy hết thì dùng page/size
+    private static final int MAX_UNPAGED_SEARCH_RESULTS = 1000;
+    private static final int MAX_BATCH_IDS = 500;
+    
     // GET /api/products - Lấy tất cả products
+    // GET /api/products?after={cursor}&limit={n}&sort={id|price_asc|price_desc|newest} - Phân trang keyset
+    // Mọi endpoint danh sách nhận view=summary: trả ProductDTO từ constructor projection (một query join mỗi trang)
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Long brandId,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice) {
         try {
-            List<Product> products = productRepository.findAll();
-            return ResponseEntity.ok(products);
+            ProductFilter filter = new ProductFilter(
+                    status != null ? Product.ProductStatus.valueOf(status.toUpperCase()) : null,
+                    categoryId, brandId, keyword, minPrice, maxPrice, null);
+            boolean summary = isSummaryView(view);
+            if (after == null && limit == null && sort == null && filter.isEmpty()) {
+                if (summary) {
+                    return ResponseEntity.ok(productRepository.findSummaries(filter));
+                }
+                List<Product> products = productRepository.findAll();
+                return ResponseEntity.ok(products);
+            }
+            return ResponseEntity.ok(findProductPage(filter, sort, after, limit, summary));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
     
-    // GET /api/products/{id} - Lấy product theo ID
+    // GET /api/products/{id} - Lấy product theo ID (trả JSON đã serialize sẵn từ cache)
+    // ETag tính từ bộ đếm phiên bản, If-None-Match khớp thì trả 304 mà không đọc cache hay database
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getProductById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String etag = catalogVersionService.productETag(id);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag).cacheControl(catalogVersionService.productCacheControl()).build();
+            }
+            byte[] cached = productResponseCache.getById(id);
+            if (cached != null) {
+                return jsonResponse(cached, etag);
+            }
+            long generation = productResponseCache.currentGeneration();
             Optional<Product> product = productRepository.findById(id);
-            return product.map(ResponseEntity::ok)
-                        .orElse(ResponseEntity.notFound().build());
+            if (product.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return jsonResponse(cacheProduct(product.get(), generation), etag);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/products/batch?ids=1,2,3 - Lấy nhiều product một lần (giữ thứ tự ids, báo các id không tồn tại)
+    // Đọc từ cache trước, các id còn thiếu lấy bằng một query IN
+    @GetMapping("/batch")
+    public ResponseEntity<?> getProductsByIds(@RequestParam List<Long> ids) {
+        return batchResponse(ids);
+    }
+    
+    // POST /api/products/batch - Như GET nhưng nhận {"ids": [...]} cho danh sách dài
+    @PostMapping("/batch")
+    public ResponseEntity<?> getProductsByIdsPost(@RequestBody BatchRequest request) {
+        return batchResponse(request.getIds());
+    }
+    
+    // GET /api/products/{id}/full - Product + ảnh + biến thể (tên size / màu) cho trang chi tiết, 3 query cố định
+    @GetMapping("/{id}/full")
+    public ResponseEntity<ProductDetailResponse> getProductDetail(@PathVariable Long id) {
+        try {
+            Optional<ProductDetailResponse> detail = productDetailService.getProductDetail(id);
+            if (detail.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(detail.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/products/{id}/variant-matrix - Lưới size x màu (variantId, giá, tồn, trạng thái) cho bộ chọn biến thể, cache theo product
+    @GetMapping("/{id}/variant-matrix")
+    public ResponseEntity<byte[]> getVariantMatrix(@PathVariable Long id) {
+        try {
+            Optional<byte[]> matrix = variantMatrixService.getMatrixJson(id);
+            if (matrix.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return jsonResponse(matrix.get(), null);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
     
+    // GET /api/products/variant-matrix/stats - Thống kê cache lưới biến thể
+    @GetMapping("/variant-matrix/stats")
+    public ResponseEntity<Map<String, Object>> getVariantMatrixStats() {
+        return ResponseEntity.ok(variantMatrixService.stats());
+    }
+    
+    // GET /api/products/{id}/bought-together?limit=N - Product thường được mua cùng (đọc từ bộ nhớ)
+    @GetMapping("/{id}/bought-together")
+    public ResponseEntity<?> getBoughtTogether(
+            @PathVariable Long id,
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        try {
+            int size = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+            Optional<List<CoPurchaseMatrix.Neighbor>> neighbors = coPurchaseService.boughtTogether(id, size);
+            if (neighbors.isEmpty()) {
+                return ResponseEntity.status(503).body(new ErrorResponse("Co-purchase data is not ready yet"));
+            }
+            return ResponseEntity.ok(neighbors.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/products/bought-together/stats - Thống kê ma trận đồng mua
+    @GetMapping("/bought-together/stats")
+    public ResponseEntity<Map<String, Object>> getBoughtTogetherStats() {
+        return ResponseEntity.ok(coPurchaseService.stats());
+    }
+    
+    // GET /api/products/top-sellers?window=24h|7d|30d&limit=N&categoryId=&brandId= - Bán chạy nhất theo cửa sổ thời gian
+    @GetMapping("/top-sellers")
+    public ResponseEntity<?> getTopSellers(
+            @RequestParam(required = false, defaultValue = "7d") String window,
+            @RequestParam(required = false, defaultValue = "10") int limit,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Long brandId) {
+        try {
+            SalesBuckets.Window salesWindow = SalesBuckets.Window.fromCode(window);
+            if (salesWindow == null) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("window must be one of 24h, 7d, 30d"));
+            }
+            int size = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+            Optional<List<SalesBuckets.TopSeller>> topSellers = topSellersService.topSellers(salesWindow, size, categoryId, brandId);
+            if (topSellers.isEmpty()) {
+                return ResponseEntity.status(503).body(new ErrorResponse("Top sellers data is not ready yet"));
+            }
+            return ResponseEntity.ok(topSellers.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/products/top-sellers/stats - Thống kê bộ đếm top sellers
+    @GetMapping("/top-sellers/stats")
+    public ResponseEntity<Map<String, Object>> getTopSellersStats() {
+        return ResponseEntity.ok(topSellersService.stats());
+    }
+    
     // GET /api/products/sku/{sku} - Lấy product theo SKU
+    // SKU không có trong Bloom filter thì trả 404 ngay; có trong index thì đọc theo khoá chính
+    // (so khớp không phân biệt hoa thường / khoảng trắng cuối như collation của database)
     @GetMapping("/sku/{sku}")
-    public ResponseEntity<Product> getProductBySku(@PathVariable String sku) {
+    public ResponseEntity<byte[]> getProductBySku(@PathVariable String sku) {
         try {
-            Optional<Product> product = productRepository.findBySku(sku);
-            return product.map(ResponseEntity::ok)
-                        .orElse(ResponseEntity.notFound().build());
+            byte[] cached = productResponseCache.getBySku(sku);
+            if (cached != null) {
+                return jsonResponse(cached, null);
+            }
+            SkuIndexService.Result lookup = skuIndexService.lookup(sku);
+            if (lookup.getLookup() == SkuIndexService.Lookup.ABSENT) {
+                return ResponseEntity.notFound().build();
+            }
+            long generation = productResponseCache.currentGeneration();
+            Optional<Product> product = Optional.empty();
+            if (lookup.getLookup() == SkuIndexService.Lookup.FOUND) {
+                // Index có thể chậm hơn database một nhịp (event chưa tới): kiểm tra lại SKU
+                product = productRepository.findById(lookup.getProductId())
+                        .filter(p -> p.getSku() != null && SkuIndexService.normalize(sku).equals(SkuIndexService.normalize(p.getSku())));
+            }
+            if (product.isEmpty()) {
+                product = productRepository.findBySku(sku);
+            }
+            if (product.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return jsonResponse(cacheProduct(product.get(), generation), null);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
     
+    // GET /api/products/sku-index/stats - Thống kê SKU index và Bloom filter
+    @GetMapping("/sku-index/stats")
+    public ResponseEntity<Map<String, Object>> getSkuIndexStats() {
+        return ResponseEntity.ok(skuIndexService.stats());
+    }
+    
+    // GET /api/products/cache/stats - Thống kê cache product (hit / miss / kích thước)
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(productResponseCache.stats());
+    }
+    
     // GET /api/products/status/{status} - Lấy products theo status
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Product>> getProductsByStatus(@PathVariable String status) {
+    public ResponseEntity<?> getProductsByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
         try {
             Product.ProductStatus productStatus = Product.ProductStatus.valueOf(status.toUpperCase());
+            boolean summary = isSummaryView(view);
+            if (isCursorRequest(after, limit, sort)) {
+                return ResponseEntity.ok(findProductPage(ProductFilter.byStatus(productStatus), sort, after, limit, summary));
+            }
+            if (summary) {
+                return ResponseEntity.ok(productRepository.findSummaries(ProductFilter.byStatus(productStatus)));
+            }
             List<Product> products = productRepository.findByStatus(productStatus);
             return ResponseEntity.ok(products);
         } catch (Exception e) {
@@ -88,11 +360,42 @@ public class ProductController {
     }
     
     // GET /api/products/category/{categoryId} - Lấy products theo category
+    // includeSubcategories=true: lấy cả cây con bằng một query IN trên tập id con cháu tính sẵn
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<?> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false, defaultValue = "false") boolean includeSubcategories,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
         try {
+            boolean summary = isSummaryView(view);
+            if (includeSubcategories) {
+                Set<Long> categoryIds = categoryTreeService.getTree().getDescendantIds(categoryId);
+                if (categoryIds.isEmpty()) {
+                    return ResponseEntity.ok(isCursorRequest(after, limit, sort)
+                            ? findProductPage(ProductFilter.byCategory(categoryId), sort, after, limit, summary)
+                            : List.of());
+                }
+                if (isCursorRequest(after, limit, sort)) {
+                    return ResponseEntity.ok(findProductPage(ProductFilter.byCategories(categoryIds), sort, after, limit, summary));
+                }
+                if (summary) {
+                    return ResponseEntity.ok(productRepository.findSummaries(ProductFilter.byCategories(categoryIds)));
+                }
+                return ResponseEntity.ok(productRepository.findAllWithCategoryAndBrandByCategoryIdIn(categoryIds));
+            }
+            if (isCursorRequest(after, limit, sort)) {
+                return ResponseEntity.ok(findProductPage(ProductFilter.byCategory(categoryId), sort, after, limit, summary));
+            }
+            if (summary) {
+                return ResponseEntity.ok(productRepository.findSummaries(ProductFilter.byCategory(categoryId)));
+            }
             List<Product> products = productRepository.findByCategoryCategoryId(categoryId);
             return ResponseEntity.ok(products);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -100,21 +403,146 @@ public class ProductController {
     
     // GET /api/products/brand/{brandId} - Lấy products theo brand
     @GetMapping("/brand/{brandId}")
-    public ResponseEntity<List<Product>> getProductsByBrand(@PathVariable Long brandId) {
+    public ResponseEntity<?> getProductsByBrand(
+            @PathVariable Long brandId,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
         try {
+            boolean summary = isSummaryView(view);
+            if (isCursorRequest(after, limit, sort)) {
+                return ResponseEntity.ok(findProductPage(ProductFilter.byBrand(brandId), sort, after, limit, summary));
+            }
+            if (summary) {
+                return ResponseEntity.ok(productRepository.findSummaries(ProductFilter.byBrand(brandId)));
+            }
             List<Product> products = productRepository.findByBrandBrandId(brandId);
             return ResponseEntity.ok(products);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
     
-    // GET /api/products/search?keyword={keyword} - Tìm kiếm products
+    // GET /api/products/search?keyword={keyword}&page={page}&size={size} - Tìm kiếm products
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
         try {
-            List<Product> products = productRepository.findByKeyword(keyword);
-            return ResponseEntity.ok(products);
+            boolean summary = isSummaryView(view);
+            if (isCursorRequest(after, limit, sort)) {
+                return ResponseEntity.ok(findProductPage(ProductFilter.byKeyword(keyword), sort, after, limit, summary));
+            }
+            
+            boolean paged = page != null || size != null;
+            int pageNumber = page != null ? Math.max(page, 0) : 0;
+            int pageSize = paged ? (size != null ? Math.max(1, Math.min(size, MAX_PAGE_LIMIT)) : DEFAULT_PAGE_LIMIT)
+                    : MAX_UNPAGED_SEARCH_RESULTS;
+            
+            Optional<InvertedIndex.Hits> hits = productSearchService.search(keyword, pageNumber * pageSize, pageSize);
+            if (hits.isEmpty()) {
+                // Index chưa sẵn sàng - fallback về LIKE trên database
+                List<?> products = summary
+                        ? productRepository.findSummaries(ProductFilter.byKeyword(keyword))
+                        : productRepository.findByKeyword(keyword);
+                if (!paged) {
+                    return ResponseEntity.ok(products);
+                }
+                int from = Math.min(pageNumber * pageSize, products.size());
+                int to = Math.min(from + pageSize, products.size());
+                return ResponseEntity.ok(new PageImpl<>(products.subList(from, to),
+                        PageRequest.of(pageNumber, pageSize), products.size()));
+            }
+            
+            List<?> products = findProductsInOrder(hits.get().getDocIds(), summary);
+            if (!paged) {
+                int totalHits = hits.get().getTotalHits();
+                return ResponseEntity.ok()
+                        .header("X-Total-Count", String.valueOf(totalHits))
+                        .header("X-Result-Truncated", String.valueOf(totalHits > MAX_UNPAGED_SEARCH_RESULTS))
+                        .body(products);
+            }
+            return ResponseEntity.ok(new PageImpl<>(products, PageRequest.of(pageNumber, pageSize),
+                    hits.get().getTotalHits()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/products/export?format={ndjson|csv} - Xuất toàn bộ catalog dạng stream
+    @GetMapping("/export")
+    public ResponseEntity<?> exportProducts(@RequestParam(required = false) String format) {
+        try {
+            ProductExportService.Format exportFormat = ProductExportService.Format.fromParam(format);
+            StreamingResponseBody body = out -> productExportService.export(exportFormat, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"products." + exportFormat.getExtension() + "\"")
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    // GET /api/products/search/stats - Thống kê search index
+    @GetMapping("/search/stats")
+    public ResponseEntity<Map<String, Object>> getSearchIndexStats() {
+        return ResponseEntity.ok(productSearchService.getStats());
+    }
+    
+    // GET /api/products/facets?category=&brand=&size=&color=&priceBand=&inStock=&status=&after=&limit=
+    // Lọc kết hợp nhiều facet (giá trị cách nhau bởi dấu phẩy) và trả về count của từng facet
+    @GetMapping("/facets")
+    public ResponseEntity<?> getProductFacets(
+            @RequestParam(required = false) List<Long> category,
+            @RequestParam(required = false) List<Long> brand,
+            @RequestParam(required = false) List<Long> size,
+            @RequestParam(required = false) List<Long> color,
+            @RequestParam(required = false) List<Long> priceBand,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false, defaultValue = "ACTIVE") String status,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            boolean summary = isSummaryView(view);
+            ProductFacetIndex.Query query = new ProductFacetIndex.Query();
+            query.setCategoryIds(category);
+            query.setBrandIds(brand);
+            query.setSizeIds(size);
+            query.setColorIds(color);
+            query.setPriceBands(priceBand);
+            query.setInStock(inStock);
+            query.setStatus("ALL".equalsIgnoreCase(status) ? null : Product.ProductStatus.valueOf(status.toUpperCase()).name());
+            
+            ProductCursor.SortKey sortKey = ProductCursor.SortKey.ID;
+            ProductCursor cursor = after != null && !after.isBlank() ? ProductCursor.decode(after, sortKey) : null;
+            int pageSize = limit == null ? DEFAULT_PAGE_LIMIT : Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+            
+            Optional<ProductFacetIndex.Result> result = productFacetService.search(
+                    query, cursor != null ? cursor.getLastId() : null, pageSize);
+            if (result.isEmpty()) {
+                return ResponseEntity.status(503).body(new ErrorResponse("Facet index is not ready yet"));
+            }
+            
+            ProductFacetIndex.Result facets = result.get();
+            Long nextAfter = facets.getNextAfter();
+            String nextCursor = nextAfter != null ? ProductCursor.after(sortKey, nextAfter, null, null).encode() : null;
+            return ResponseEntity.ok(new FacetSearchResult<>(findProductsInOrder(facets.getProductIds(), summary),
+                    facets.getTotal(), nextCursor, nextAfter != null, pageSize, facets.getFacets()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -122,12 +550,26 @@ public class ProductController {
     
     // GET /api/products/price-range?min={min}&max={max} - Lấy products theo khoảng giá
     @GetMapping("/price-range")
-    public ResponseEntity<List<Product>> getProductsByPriceRange(
+    public ResponseEntity<?> getProductsByPriceRange(
             @RequestParam Double minPrice, 
-            @RequestParam Double maxPrice) {
+            @RequestParam Double maxPrice,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
         try {
+            boolean summary = isSummaryView(view);
+            ProductFilter filter = ProductFilter.byPriceRange(BigDecimal.valueOf(minPrice), BigDecimal.valueOf(maxPrice));
+            if (isCursorRequest(after, limit, sort)) {
+                return ResponseEntity.ok(findProductPage(filter, sort, after, limit, summary));
+            }
+            if (summary) {
+                return ResponseEntity.ok(productRepository.findSummaries(filter));
+            }
             List<Product> products = productRepository.findByPriceRange(minPrice, maxPrice);
             return ResponseEntity.ok(products);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -143,6 +585,7 @@ public class ProductController {
             product.setSku(request.getSku());
             product.setPrice(new BigDecimal(request.getPrice()));
             product.setStockQuantity(request.getStockQuantity());
+            product.setLowStockThreshold(request.getLowStockThreshold());
             product.setStatus(Product.ProductStatus.valueOf(request.getStatus()));
             product.setImageUrl(request.getImageUrl());
             
@@ -163,12 +606,30 @@ public class ProductController {
             }
             
             Product savedProduct = productRepository.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.created(savedProduct.getProductId(), savedProduct.getSku()));
             return ResponseEntity.ok(savedProduct);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
     
+    // POST /api/products/bulk?format={ndjson|csv} - Import hàng loạt product từ body CSV / NDJSON
+    // Không có format thì dựa vào Content-Type (text/csv => CSV, còn lại NDJSON)
+    @PostMapping("/bulk")
+    public ResponseEntity<?> bulkImportProducts(@RequestParam(required = false) String format,
+                                                HttpServletRequest request) {
+        try {
+            ProductImportService.Format importFormat =
+                    ProductImportService.Format.fromParam(format, request.getContentType());
+            BulkImportResult result = productImportService.importProducts(request.getInputStream(), importFormat);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(new ErrorResponse("Bulk import failed: " + e.getMessage()));
+        }
+    }
+    
     // POST /api/products/upload-image - Upload ảnh sản phẩm
     @PostMapping("/upload-image")
     public ResponseEntity<?> uploadProductImage(@RequestParam("file") MultipartFile file) {
@@ -188,13 +649,16 @@ public class ProductController {
             Optional<Product> productOptional = productRepository.findById(id);
             if (productOptional.isPresent()) {
                 Product product = productOptional.get();
+                String previousSku = product.getSku();
                 product.setProductName(productDetails.getProductName());
                 product.setDescription(productDetails.getDescription());
                 product.setSku(productDetails.getSku());
                 product.setPrice(productDetails.getPrice());
+                product.setLowStockThreshold(productDetails.getLowStockThreshold());
                 product.setStatus(productDetails.getStatus());
                 
                 Product updatedProduct = productRepository.save(product);
+                eventPublisher.publishEvent(ProductChangedEvent.updated(id, updatedProduct.getSku(), previousSku));
                 return ResponseEntity.ok(updatedProduct);
             } else {
                 return ResponseEntity.notFound().build();
@@ -208,8 +672,10 @@ public class ProductController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
         try {
-            if (productRepository.existsById(id)) {
+            Optional<String> sku = productRepository.findSkuByProductId(id);
+            if (sku.isPresent()) {
                 productRepository.deleteById(id);
+                eventPublisher.publishEvent(ProductChangedEvent.deleted(id, sku.get()));
                 return ResponseEntity.ok().build();
             } else {
                 return ResponseEntity.notFound().build();
@@ -219,6 +685,140 @@ public class ProductController {
         }
     }
     
+    // Helper methods
+    private byte[] cacheProduct(Product product, long generation) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(product);
+        productResponseCache.put(product.getProductId(), product.getSku(), json, generation);
+        return json;
+    }
+    
+    private ResponseEntity<byte[]> jsonResponse(byte[] json, String etag) {
+        if (etag == null) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag).cacheControl(catalogVersionService.productCacheControl()).body(json);
+    }
+    
+    private boolean isCursorRequest(String after, Integer limit, String sort) {
+        return after != null || limit != null || sort != null;
+    }
+    
+    // Ghép trực tiếp JSON đã serialize của từng product: {"items":[...],"missingIds":[...]}
+    private ResponseEntity<?> batchResponse(List<Long> ids) {
+        try {
+            if (ids == null || ids.isEmpty()) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("ids is required"));
+            }
+            Set<Long> uniqueIds = new LinkedHashSet<>();
+            for (Long id : ids) {
+                if (id != null) {
+                    uniqueIds.add(id);
+                }
+            }
+            if (uniqueIds.size() > MAX_BATCH_IDS) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponse("At most " + MAX_BATCH_IDS + " ids per batch"));
+            }
+            
+            Map<Long, byte[]> found = productResponseCache.getAllById(uniqueIds);
+            List<Long> misses = new ArrayList<>();
+            for (Long id : uniqueIds) {
+                if (!found.containsKey(id)) {
+                    misses.add(id);
+                }
+            }
+            if (!misses.isEmpty()) {
+                long generation = productResponseCache.currentGeneration();
+                for (Product product : productRepository.findAllWithCategoryAndBrandByProductIdIn(misses)) {
+                    found.put(product.getProductId(), cacheProduct(product, generation));
+                }
+            }
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write("{\"items\":[".getBytes(StandardCharsets.UTF_8));
+            List<Long> missingIds = new ArrayList<>();
+            boolean first = true;
+            for (Long id : uniqueIds) {
+                byte[] json = found.get(id);
+                if (json == null) {
+                    missingIds.add(id);
+                    continue;
+                }
+                if (!first) {
+                    out.write(',');
+                }
+                out.write(json);
+                first = false;
+            }
+            out.write("],\"missingIds\":".getBytes(StandardCharsets.UTF_8));
+            out.write(objectMapper.writeValueAsBytes(missingIds));
+            out.write('}');
+            return jsonResponse(out.toByteArray(), null);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // view=summary: ProductDTO từ constructor projection; mặc định (full) trả entity Product như trước
+    private boolean isSummaryView(String view) {
+        if (view == null || view.isBlank() || view.equalsIgnoreCase("full")) {
+            return false;
+        }
+        if (view.equalsIgnoreCase("summary")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unsupported view: " + view + " (expected full or summary)");
+    }
+    
+    // Lấy products theo danh sách ID bằng một query IN, giữ nguyên thứ tự đầu vào
+    private List<?> findProductsInOrder(List<Long> ids, boolean summary) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        if (summary) {
+            return inOrder(ids, productRepository.findSummariesByProductIdIn(ids), ProductDTO::getProductId);
+        }
+        return inOrder(ids, productRepository.findAllWithCategoryAndBrandByProductIdIn(ids), Product::getProductId);
+    }
+    
+    private static <T> List<T> inOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+    
+    // Seek theo (sort key, product_id): trang 5000 tốn chi phí như trang 1
+    private CursorPage<?> findProductPage(ProductFilter filter, String sort, String after, Integer limit, boolean summary) {
+        ProductCursor.SortKey sortKey = ProductCursor.SortKey.fromParam(sort);
+        ProductCursor cursor = after != null && !after.isBlank() ? ProductCursor.decode(after, sortKey) : null;
+        int pageSize = limit == null ? DEFAULT_PAGE_LIMIT : Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+        
+        if (summary) {
+            return cursorPage(productRepository.findSummaryPageAfter(filter, sortKey, cursor, pageSize), pageSize,
+                    dto -> ProductCursor.after(sortKey, dto.getProductId(), dto.getPrice(), dto.getCreatedAt()));
+        }
+        return cursorPage(productRepository.findPageAfter(filter, sortKey, cursor, pageSize), pageSize,
+                product -> ProductCursor.after(sortKey, product));
+    }
+    
+    // Repository trả về tối đa pageSize + 1 dòng: dòng thừa chỉ để biết còn trang sau
+    private static <T> CursorPage<T> cursorPage(List<T> rows, int pageSize, Function<T, ProductCursor> cursorOf) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? cursorOf.apply(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor, hasMore, pageSize);
+    }
+    
     // GET /api/products/count - Đếm số lượng products
     @GetMapping("/count")
     public ResponseEntity<Long> getProductCount() {
@@ -250,6 +850,9 @@ public class ProductController {
         @Min(value = 0, message = "Stock quantity must be non-negative")
         private Integer stockQuantity;
         
+        @Min(value = 0, message = "Low stock threshold must be non-negative")
+        private Integer lowStockThreshold;
+        
         private String status;
         private String imageUrl;
         
@@ -275,6 +878,9 @@ public class ProductController {
         public Integer getStockQuantity() { return stockQuantity; }
         public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
         
+        public Integer getLowStockThreshold() { return lowStockThreshold; }
+        public void setLowStockThreshold(Integer lowStockThreshold) { this.lowStockThreshold = lowStockThreshold; }
+        
         public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
         
@@ -288,6 +894,13 @@ public class ProductController {
         public void setBrandId(Long brandId) { this.brandId = brandId; }
     }
     
+    public static class BatchRequest {
+        private List<Long> ids;
+        
+        public List<Long> getIds() { return ids; }
+        public void setIds(List<Long> ids) { this.ids = ids; }
+    }
+    
     public static class ImageUploadResponse {
         private String fileName;
         private String imageUrl;
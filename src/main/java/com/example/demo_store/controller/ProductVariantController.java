@@ -1,14 +1,22 @@
 package com.example.demo_store.controller;
 
+import com.example.demo_store.dto.BulkVariantUpdateResult;
 import com.example.demo_store.entity.ProductVariant;
 import com.example.demo_store.entity.Product;
 import com.example.demo_store.entity.Size;
 import com.example.demo_store.entity.Color;
+import com.example.demo_store.event.ProductVariantChangedEvent;
 import com.example.demo_store.repository.ProductVariantRepository;
 import com.example.demo_store.repository.ProductRepository;
 import com.example.demo_store.repository.SizeRepository;
 import com.example.demo_store.repository.ColorRepository;
+import com.example.demo_store.service.InventoryService;
+import com.example.demo_store.service.StockAlertService;
+import com.example.demo_store.service.VariantBulkUpdateService;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -37,6 +45,18 @@ public class ProductVariantController {
     @Autowired
     private ColorRepository colorRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockAlertService stockAlertService;
+
+    @Autowired
+    private VariantBulkUpdateService variantBulkUpdateService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // GET /api/product-variants - Lấy tất cả biến thể sản phẩm với pagination
     @GetMapping
     public ResponseEntity<?> getAllProductVariants(
@@ -136,6 +156,7 @@ public class ProductVariantController {
             variant.setStatus(request.getStatus());
 
             ProductVariant savedVariant = productVariantRepository.save(variant);
+            eventPublisher.publishEvent(new ProductVariantChangedEvent(savedVariant.getVariantId(), product.getProductId()));
             return ResponseEntity.ok(savedVariant);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to create product variant: " + e.getMessage()));
@@ -143,6 +164,8 @@ public class ProductVariantController {
     }
 
     // PUT /api/product-variants/{id} - Cập nhật biến thể sản phẩm
+    // Stock không ghi qua entity mà qua sổ tồn kho (nguyên tử, không mất cập nhật đồng thời).
+    // Stock ghi WAL là bền vững ngay nên đặt sau cùng, khi giá / trạng thái đã lưu thành công
     @PutMapping("/{id}")
     public ResponseEntity<?> updateProductVariant(@PathVariable Long id, @RequestBody ProductVariantUpdateRequest request) {
         try {
@@ -152,32 +175,68 @@ public class ProductVariantController {
             }
 
             ProductVariant variant = variantOptional.get();
+            if (request.getStock() != null) {
+                if (request.getStock() < 0) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("Stock must not be negative"));
+                }
+                if (!inventoryService.isReady()) {
+                    return ResponseEntity.status(503).body(new ErrorResponse("Inventory is not ready yet"));
+                }
+            }
             if (request.getPrice() != null) {
                 variant.setPrice(request.getPrice());
             }
-            if (request.getStock() != null) {
-                variant.setStock(request.getStock());
-            }
             if (request.getStatus() != null) {
                 variant.setStatus(request.getStatus());
             }
 
             ProductVariant updatedVariant = productVariantRepository.save(variant);
+            if (request.getStock() != null) {
+                InventoryLedger.Outcome outcome = inventoryService.setStock(id, request.getStock());
+                if (outcome != InventoryLedger.Outcome.OK) {
+                    eventPublisher.publishEvent(new ProductVariantChangedEvent(id, updatedVariant.getProduct().getProductId()));
+                    return ResponseEntity.status(outcome == InventoryLedger.Outcome.NOT_READY ? 503 : 400)
+                            .body(new ErrorResponse("Variant saved but stock was not updated: " + outcome));
+                }
+            }
+            inventoryService.level(id).ifPresent(level -> updatedVariant.setStock(level.getOnHand()));
+            updatedVariant.setStatus(stockAlertService.effectiveStatus(id, updatedVariant.getStatus()));
+            eventPublisher.publishEvent(new ProductVariantChangedEvent(id, updatedVariant.getProduct().getProductId()));
             return ResponseEntity.ok(updatedVariant);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to update product variant: " + e.getMessage()));
         }
     }
 
+    // PUT /api/product-variants/bulk - Cập nhật tồn / giá / trạng thái hàng loạt (mảng JSON, đọc streaming)
+    // Mỗi phần tử: variantId hoặc sku + size + color, cùng stock / price / status cần đổi
+    @PutMapping("/bulk")
+    public ResponseEntity<?> bulkUpdateProductVariants(HttpServletRequest request) {
+        if (!inventoryService.isReady()) {
+            return ResponseEntity.status(503).body(new ErrorResponse("Inventory is not ready yet"));
+        }
+        try {
+            BulkVariantUpdateResult result = variantBulkUpdateService.update(request.getInputStream());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(new ErrorResponse("Bulk update failed: " + e.getMessage()));
+        }
+    }
+
     // DELETE /api/product-variants/{id} - Xóa biến thể sản phẩm
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteProductVariant(@PathVariable Long id) {
         try {
-            if (!productVariantRepository.existsById(id)) {
+            Optional<ProductVariant> variant = productVariantRepository.findById(id);
+            if (variant.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
 
+            Long productId = variant.get().getProduct().getProductId();
             productVariantRepository.deleteById(id);
+            eventPublisher.publishEvent(ProductVariantChangedEvent.deleted(id, productId));
             return ResponseEntity.ok(new SuccessResponse("Product variant deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to delete product variant: " + e.getMessage()));
@@ -1,8 +1,13 @@
 package com.example.demo_store.controller;
 
 import com.example.demo_store.entity.Size;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
 import com.example.demo_store.repository.SizeRepository;
+import com.example.demo_store.service.CatalogVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,12 +24,25 @@ public class SizeController {
     @Autowired
     private SizeRepository sizeRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     // GET /api/sizes - Lấy tất cả kích thước
+    // Trả 304 ngay khi If-None-Match khớp phiên bản bảng, không query database
     @GetMapping
-    public ResponseEntity<List<Size>> getAllSizes() {
+    public ResponseEntity<List<Size>> getAllSizes(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String etag = catalogVersionService.collectionETag(ReferenceDataChangedEvent.Type.SIZE);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).build();
+            }
             List<Size> sizes = sizeRepository.findAll();
-            return ResponseEntity.ok(sizes);
+            return ResponseEntity.ok().eTag(etag).cacheControl(catalogVersionService.referenceCacheControl()).body(sizes);
         } catch (Exception e) {
             e.printStackTrace();
             Map<String, Object> error = new HashMap<>();
@@ -66,6 +84,7 @@ public class SizeController {
             size.setSizeName(request.getSizeName());
             
             Size savedSize = sizeRepository.save(size);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.size(savedSize.getSizeId()));
             return ResponseEntity.ok(savedSize);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -85,6 +104,7 @@ public class SizeController {
             size.setSizeName(request.getSizeName());
             
             Size updatedSize = sizeRepository.save(size);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.size(id));
             return ResponseEntity.ok(updatedSize);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
@@ -100,6 +120,7 @@ public class SizeController {
             }
 
             sizeRepository.deleteById(id);
+            eventPublisher.publishEvent(ReferenceDataChangedEvent.size(id));
             return ResponseEntity.ok(new SuccessResponse("Size deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to delete size: " + e.getMessage()));
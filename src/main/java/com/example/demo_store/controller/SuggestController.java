@@ -0,0 +1,58 @@
+package com.example.demo_store.controller;
+
+import com.example.demo_store.dto.Suggestion;
+import com.example.demo_store.service.SuggestService;
+import com.example.demo_store.service.suggest.SuggestTrie;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/suggest")
+public class SuggestController {
+    
+    @Autowired
+    private SuggestService suggestService;
+    
+    // GET /api/suggest?q=ao th&limit=10 - Gợi ý tên product / brand / category theo prefix (không phân biệt dấu)
+    @GetMapping
+    public ResponseEntity<?> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            if (limit < 1 || limit > SuggestTrie.MAX_LIMIT) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponse("limit must be between 1 and " + SuggestTrie.MAX_LIMIT));
+            }
+            Optional<List<Suggestion>> suggestions = suggestService.suggest(q, limit);
+            if (suggestions.isEmpty()) {
+                return ResponseEntity.status(503).body(new ErrorResponse("Suggest index is not ready yet"));
+            }
+            return ResponseEntity.ok(suggestions.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // GET /api/suggest/stats - Thống kê trie gợi ý
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(suggestService.stats());
+    }
+    
+    // Response classes
+    public static class ErrorResponse {
+        private String error;
+        
+        public ErrorResponse(String error) {
+            this.error = error;
+        }
+        
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResult {
+
+    private long totalRows;
+    private long inserted;
+    private long failed;
+    private long elapsedMs;
+    // Chỉ giữ tối đa một số lỗi đầu tiên để response không phình theo file
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String sku;
+        private List<String> messages;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// PUT /api/product-variants/bulk: số dòng đã áp dụng / áp dụng một phần / không đổi / bị từ chối
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkVariantUpdateResult {
+
+    private long totalRows;
+    private long applied;
+    // Giá / trạng thái đã ghi nhưng tồn thì không: dòng có mặt trong errors kèm các cột đã áp
+    private long partiallyApplied;
+    private long unchanged;
+    private long rejected;
+    private long elapsedMs;
+    // Chỉ giữ tối đa một số lỗi đầu tiên để response không phình theo body
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        // variantId hoặc "sku/size/color" như trong request
+        private String key;
+        private List<String> messages;
+        // Các cột đã ghi dù dòng có lỗi (price / status), rỗng nếu không cột nào được ghi
+        private List<String> appliedFields;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Một thao tác trên dòng giỏ hàng của PATCH /api/carts/user/{userId}
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLineOperation {
+
+    // "add" (cộng quantity, tạo dòng nếu chưa có), "set" (đặt quantity, <= 0 thì xoá dòng), "remove"
+    private String op;
+    // Dòng cần sửa: cartItemId, hoặc productId + variantId
+    private Long cartItemId;
+    private Long productId;
+    private Long variantId;
+    private Integer quantity;
+}
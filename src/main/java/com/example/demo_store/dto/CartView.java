@@ -0,0 +1,44 @@
+package com.example.demo_store.dto;
+
+import com.example.demo_store.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Giỏ hàng trả về cho client, dựng từ giỏ trong bộ nhớ của CartService (không đọc lại database)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartView {
+
+    private CartInfo cart;
+    private List<Line> items;
+    private int totalItems;
+    private Money totalAmount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CartInfo {
+        private Long cartId;
+        private Long userId;
+        private LocalDateTime createdAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long cartItemId;
+        private Long productId;
+        private Long variantId;
+        private int quantity;
+        // Giá product lúc thêm vào giỏ
+        private Money price;
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategorySummary {
+
+    private Long categoryId;
+    private String categoryName;
+    private Long parentId;
+    private int depth;
+}
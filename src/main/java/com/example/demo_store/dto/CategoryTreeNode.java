@@ -0,0 +1,21 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryTreeNode {
+
+    private Long categoryId;
+    private String categoryName;
+    private String imageUrl;
+    private String description;
+    private Long parentId;
+    private int depth;
+    private List<CategoryTreeNode> children;
+}
@@ -0,0 +1,22 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetSearchResult<T> {
+
+    private List<T> items;
+    private long total;
+    private String nextCursor;
+    private boolean hasMore;
+    private int limit;
+    // facet -> (giá trị facet -> số product khớp)
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,124 @@
+package com.example.demo_store.dto;
+
+import com.example.demo_store.entity.Product;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Cursor keyset cho danh sách sản phẩm: giá trị sort key và product_id của dòng cuối
+// trang trước, mã hoá base64url để client chỉ coi nó là token.
+public class ProductCursor {
+
+    private static final String VERSION = "v1";
+
+    public enum SortKey {
+        ID("id"),
+        PRICE_ASC("price_asc"),
+        PRICE_DESC("price_desc"),
+        NEWEST("newest");
+
+        private final String param;
+
+        SortKey(String param) {
+            this.param = param;
+        }
+
+        public String getParam() { return param; }
+
+        public static SortKey fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            for (SortKey key : values()) {
+                if (key.param.equalsIgnoreCase(value) || key.name().equalsIgnoreCase(value)) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported sort: " + value);
+        }
+    }
+
+    private final SortKey sortKey;
+    private final Object lastValue;
+    private final Long lastId;
+
+    private ProductCursor(SortKey sortKey, Object lastValue, Long lastId) {
+        this.sortKey = sortKey;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    public static ProductCursor after(SortKey sortKey, Product product) {
+        return after(sortKey, product.getProductId(), product.getPrice(), product.getCreatedAt());
+    }
+
+    public static ProductCursor after(SortKey sortKey, Long productId, BigDecimal price, LocalDateTime createdAt) {
+        switch (sortKey) {
+            case PRICE_ASC:
+            case PRICE_DESC:
+                return new ProductCursor(sortKey, price, productId);
+            case NEWEST:
+                return new ProductCursor(sortKey, createdAt, productId);
+            default:
+                return new ProductCursor(sortKey, null, productId);
+        }
+    }
+
+    public SortKey getSortKey() { return sortKey; }
+
+    public Object getLastValue() { return lastValue; }
+
+    public Long getLastId() { return lastId; }
+
+    public String encode() {
+        String value = lastValue == null ? "" : lastValue.toString();
+        if (lastValue instanceof BigDecimal) {
+            value = ((BigDecimal) lastValue).toPlainString();
+        }
+        String raw = VERSION + "|" + sortKey.name() + "|" + value + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, SortKey expectedSort) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+
+        String[] parts = raw.split("\\|", -1);
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+
+        SortKey sortKey;
+        try {
+            sortKey = SortKey.valueOf(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (sortKey != expectedSort) {
+            throw new IllegalArgumentException("Cursor was issued for sort '" + sortKey.getParam()
+                    + "', not '" + expectedSort.getParam() + "'");
+        }
+
+        try {
+            Long lastId = Long.valueOf(parts[3]);
+            switch (sortKey) {
+                case PRICE_ASC:
+                case PRICE_DESC:
+                    return new ProductCursor(sortKey, new BigDecimal(parts[2]), lastId);
+                case NEWEST:
+                    return new ProductCursor(sortKey, LocalDateTime.parse(parts[2]), lastId);
+                default:
+                    return new ProductCursor(sortKey, null, lastId);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+    }
+}
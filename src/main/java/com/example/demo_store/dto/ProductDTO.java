@@ -18,12 +18,27 @@ public class ProductDTO {
     private String description;
     private String sku;
     private BigDecimal price;
+    private Integer stockQuantity;
     private String status;
+    private String imageUrl;
+    private Long categoryId;
     private String categoryName;
+    private Long brandId;
     private String brandName;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
+    // Dùng cho constructor projection (SELECT new ...ProductDTO(...)): chỉ đọc đúng các cột cần,
+    // không nạp entity Category / Brand (và chuỗi parent EAGER của Category)
+    public ProductDTO(Long productId, String productName, String description, String sku, BigDecimal price,
+                      Integer stockQuantity, Product.ProductStatus status, String imageUrl,
+                      Long categoryId, String categoryName, Long brandId, String brandName,
+                      LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(productId, productName, description, sku, price, stockQuantity,
+                status != null ? status.toString() : null, imageUrl,
+                categoryId, categoryName, brandId, brandName, createdAt, updatedAt);
+    }
+    
     public static ProductDTO fromEntity(Product product) {
         if (product == null) {
             return null;
@@ -35,8 +50,12 @@ public class ProductDTO {
         dto.setDescription(product.getDescription());
         dto.setSku(product.getSku());
         dto.setPrice(product.getPrice());
+        dto.setStockQuantity(product.getStockQuantity());
         dto.setStatus(product.getStatus().toString());
+        dto.setImageUrl(product.getImageUrl());
+        dto.setCategoryId(product.getCategory() != null ? product.getCategory().getCategoryId() : null);
         dto.setCategoryName(product.getCategory() != null ? product.getCategory().getCategoryName() : null);
+        dto.setBrandId(product.getBrand() != null ? product.getBrand().getBrandId() : null);
         dto.setBrandName(product.getBrand() != null ? product.getBrand().getBrandName() : null);
         dto.setCreatedAt(product.getCreatedAt());
         dto.setUpdatedAt(product.getUpdatedAt());
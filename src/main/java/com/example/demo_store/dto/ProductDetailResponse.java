@@ -0,0 +1,44 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// GET /api/products/{id}/full: product + ảnh theo thứ tự hiển thị + biến thể kèm tên size / màu
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDetailResponse {
+
+    private ProductDTO product;
+    private List<Image> images;
+    private List<Variant> variants;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Image {
+        private Long imageId;
+        private String imageUrl;
+        private String imageName;
+        private Boolean isPrimary;
+        private Integer sortOrder;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variant {
+        private Long variantId;
+        private Long sizeId;
+        private String sizeName;
+        private Long colorId;
+        private String colorName;
+        private BigDecimal price;
+        private Integer stock;
+        private String status;
+    }
+}
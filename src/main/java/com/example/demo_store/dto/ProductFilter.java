@@ -0,0 +1,71 @@
+package com.example.demo_store.dto;
+
+import com.example.demo_store.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+
+    private Product.ProductStatus status;
+    private Long categoryId;
+    private Long brandId;
+    private String keyword;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    // Danh sách category (vd. cả cây con); dùng thay cho categoryId khi khác null
+    private Collection<Long> categoryIds;
+
+    public static ProductFilter empty() {
+        return new ProductFilter();
+    }
+
+    public static ProductFilter byStatus(Product.ProductStatus status) {
+        ProductFilter filter = new ProductFilter();
+        filter.setStatus(status);
+        return filter;
+    }
+
+    public static ProductFilter byCategory(Long categoryId) {
+        ProductFilter filter = new ProductFilter();
+        filter.setCategoryId(categoryId);
+        return filter;
+    }
+
+    public static ProductFilter byCategories(Collection<Long> categoryIds) {
+        ProductFilter filter = new ProductFilter();
+        filter.setCategoryIds(categoryIds);
+        return filter;
+    }
+
+    public static ProductFilter byBrand(Long brandId) {
+        ProductFilter filter = new ProductFilter();
+        filter.setBrandId(brandId);
+        return filter;
+    }
+
+    public static ProductFilter byKeyword(String keyword) {
+        ProductFilter filter = new ProductFilter();
+        filter.setKeyword(keyword);
+        return filter;
+    }
+
+    public static ProductFilter byPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        ProductFilter filter = new ProductFilter();
+        filter.setMinPrice(minPrice);
+        filter.setMaxPrice(maxPrice);
+        return filter;
+    }
+
+    public boolean isEmpty() {
+        return status == null && categoryId == null && categoryIds == null && brandId == null
+                && (keyword == null || keyword.isBlank())
+                && minPrice == null && maxPrice == null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suggestion {
+
+    // PRODUCT, BRAND hoặc CATEGORY
+    private String type;
+    private Long id;
+    private String text;
+    // Độ phổ biến (tổng số lượng đã bán)
+    private long weight;
+}
@@ -0,0 +1,33 @@
+package com.example.demo_store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// GET /api/products/{id}/variant-matrix: lưới size x màu cho bộ chọn biến thể.
+// Ô (i, j) ứng với sizes[i] và colors[j], nằm ở vị trí i * colors.size() + j của các mảng song song;
+// ô không có biến thể là null. Giá tính theo đơn vị nhỏ nhất: price / 10^priceScale
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantMatrix {
+
+    private Long productId;
+    private int priceScale;
+    private List<Axis> sizes;
+    private List<Axis> colors;
+    private Long[] variantIds;
+    private Long[] prices;
+    private Integer[] stock;
+    private String[] statuses;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Axis {
+        private Long id;
+        private String name;
+    }
+}
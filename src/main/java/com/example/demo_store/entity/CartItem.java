@@ -1,5 +1,7 @@
 package com.example.demo_store.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Data;
@@ -31,6 +33,12 @@ public class CartItem {
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
     
+    // Biến thể (size / màu) đã chọn; null với dòng giỏ cũ chỉ có product
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id")
+    private ProductVariant variant;
+    
     @NotNull(message = "Quantity is required")
     @Min(value = 1, message = "Quantity must be at least 1")
     @Column(name = "quantity", nullable = false)
@@ -48,4 +56,10 @@ public class CartItem {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+    
+    // JSON chỉ trả id của biến thể (không khởi tạo proxy)
+    @JsonProperty("variantId")
+    public Long getVariantId() {
+        return variant != null ? variant.getVariantId() : null;
+    }
 }
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -71,7 +72,7 @@ public class Customer {
     private Integer totalOrders = 0;
     
     @Column(name = "total_spent")
-    private Double totalSpent = 0.0;
+    private BigDecimal totalSpent = BigDecimal.ZERO;
     
     @Column(name = "registration_date")
     private LocalDateTime registrationDate;
@@ -0,0 +1,52 @@
+package com.example.demo_store.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Nhật ký biến động tồn kho (append-only): chỉ được ghi bằng batch INSERT của InventoryJournalService, entity chỉ để đọc.
+// movement_id tăng dần là số thứ tự của nhật ký; không khoá ngoại tới ProductVariants để lịch sử còn sau khi xoá biến thể
+@Entity
+@Table(name = "InventoryMovements", indexes = {
+        @Index(name = "IX_InventoryMovements_Variant", columnList = "variant_id, movement_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "movement_id")
+    private Long movementId;
+
+    @Column(name = "variant_id", nullable = false, updatable = false)
+    private Long variantId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, updatable = false, length = 20)
+    private MovementType movementType;
+
+    // Delta có dấu: của tồn thực tế, hoặc của phần đang giữ với RESERVATION / RELEASE
+    @Column(name = "quantity", nullable = false, updatable = false)
+    private Integer quantity;
+
+    // Ví dụ "order:123"; null với cập nhật tay
+    @Column(name = "reference", length = 100, updatable = false)
+    private String reference;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum MovementType {
+        RECEIPT, SALE, CANCELLATION, ADJUSTMENT, RESERVATION, RELEASE;
+
+        // RESERVATION / RELEASE không đổi tồn thực tế nên không tính khi dựng lại tồn
+        public boolean affectsOnHand() {
+            return this != RESERVATION && this != RELEASE;
+        }
+    }
+}
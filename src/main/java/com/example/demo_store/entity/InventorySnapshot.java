@@ -0,0 +1,38 @@
+package com.example.demo_store.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Tồn của biến thể sau mọi biến động có movement_id <= last_movement_id (snapshot mở đầu: last_movement_id = 0).
+// Tồn hiện tại / tại một thời điểm = snapshot gần nhất + các biến động sau nó
+@Entity
+@Table(name = "InventorySnapshots", uniqueConstraints = {
+        @UniqueConstraint(name = "UQ_InventorySnapshots_Variant", columnNames = {"variant_id", "last_movement_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "snapshot_id")
+    private Long snapshotId;
+
+    @Column(name = "variant_id", nullable = false, updatable = false)
+    private Long variantId;
+
+    @Column(name = "last_movement_id", nullable = false, updatable = false)
+    private Long lastMovementId;
+
+    @Column(name = "stock", nullable = false, updatable = false)
+    private Integer stock;
+
+    // Mọi biến động mà snapshot đã gộp đều được ghi trước thời điểm này
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private LocalDateTime takenAt;
+}
@@ -58,6 +58,11 @@ public class Product {
     @Column(name = "stock_quantity", nullable = false)
     private Integer stockQuantity = 0;
     
+    // Ngưỡng sắp hết hàng cho các biến thể của product; null = dùng ngưỡng mặc định (store.inventory.low-stock-threshold)
+    @Min(value = 0, message = "Low stock threshold must be non-negative")
+    @Column(name = "low_stock_threshold")
+    private Integer lowStockThreshold;
+    
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false, length = 20)
     private ProductStatus status = ProductStatus.ACTIVE;
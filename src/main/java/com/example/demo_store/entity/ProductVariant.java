@@ -5,13 +5,16 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// Chỉ ghi các cột đã đổi: status còn được StockAlertService tự chuyển ngoài entity, không ghi đè bằng giá trị cũ
 @Entity
 @Table(name = "ProductVariants")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,7 +40,8 @@ public class ProductVariant {
     @Column(name = "price", nullable = false)
     private BigDecimal price;
     
-    @Column(name = "stock", nullable = false)
+    // Chỉ ghi khi insert; mọi thay đổi sau đó đi qua InventoryService (UPDATE stock = stock + delta)
+    @Column(name = "stock", nullable = false, updatable = false)
     private Integer stock = 0;
     
     @Enumerated(EnumType.STRING)
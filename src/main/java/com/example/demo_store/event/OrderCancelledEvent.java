@@ -0,0 +1,34 @@
+package com.example.demo_store.event;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Phát ra khi đơn chuyển sang CANCELLED hoặc bị xoá khi chưa huỷ: các bộ đếm trừ lại phần đã cộng lúc tạo đơn
+public class OrderCancelledEvent {
+
+    private final Long orderId;
+    private final LocalDateTime createdAt;
+    private final List<OrderLine> lines;
+
+    public OrderCancelledEvent(Long orderId, LocalDateTime createdAt, List<OrderLine> lines) {
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+        this.lines = lines;
+    }
+
+    public Long getOrderId() { return orderId; }
+
+    // Thời điểm tạo đơn (không phải thời điểm huỷ) để trừ đúng bucket đã cộng
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public List<OrderLine> getLines() { return lines; }
+
+    public List<Long> getProductIds() {
+        List<Long> productIds = new ArrayList<>(lines.size());
+        for (OrderLine line : lines) {
+            productIds.add(line.getProductId());
+        }
+        return productIds;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo_store.event;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Phát ra khi tạo đơn hàng xong (hoặc khi đơn đã huỷ được mở lại), kèm các dòng của đơn
+public class OrderCreatedEvent {
+
+    private final Long orderId;
+    private final LocalDateTime createdAt;
+    private final List<OrderLine> lines;
+
+    public OrderCreatedEvent(Long orderId, LocalDateTime createdAt, List<OrderLine> lines) {
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+        this.lines = lines;
+    }
+
+    public Long getOrderId() { return orderId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public List<OrderLine> getLines() { return lines; }
+
+    // Có thể trùng nếu đơn có nhiều dòng cùng product
+    public List<Long> getProductIds() {
+        List<Long> productIds = new ArrayList<>(lines.size());
+        for (OrderLine line : lines) {
+            productIds.add(line.getProductId());
+        }
+        return productIds;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo_store.event;
+
+// Một dòng đơn hàng trong các event đơn hàng: product và số lượng
+public class OrderLine {
+
+    private final Long productId;
+    private final int quantity;
+
+    public OrderLine(Long productId, int quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() { return productId; }
+
+    public int getQuantity() { return quantity; }
+}
@@ -0,0 +1,59 @@
+package com.example.demo_store.event;
+
+// Phát ra khi một product được tạo / cập nhật / xoá; các index trong bộ nhớ lắng nghe
+// sau khi transaction commit
+public class ProductChangedEvent {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Long productId;
+    private final ChangeType changeType;
+    // SKU sau thay đổi và SKU trước đó (nếu biết); null khi thay đổi không liên quan tới SKU
+    private final String sku;
+    private final String previousSku;
+
+    public ProductChangedEvent(Long productId, ChangeType changeType) {
+        this(productId, changeType, null, null);
+    }
+
+    public ProductChangedEvent(Long productId, ChangeType changeType, String sku, String previousSku) {
+        this.productId = productId;
+        this.changeType = changeType;
+        this.sku = sku;
+        this.previousSku = previousSku;
+    }
+
+    public static ProductChangedEvent created(Long productId) {
+        return new ProductChangedEvent(productId, ChangeType.CREATED);
+    }
+
+    public static ProductChangedEvent created(Long productId, String sku) {
+        return new ProductChangedEvent(productId, ChangeType.CREATED, sku, null);
+    }
+
+    public static ProductChangedEvent updated(Long productId) {
+        return new ProductChangedEvent(productId, ChangeType.UPDATED);
+    }
+
+    public static ProductChangedEvent updated(Long productId, String sku, String previousSku) {
+        return new ProductChangedEvent(productId, ChangeType.UPDATED, sku, previousSku);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(productId, ChangeType.DELETED);
+    }
+
+    public static ProductChangedEvent deleted(Long productId, String sku) {
+        return new ProductChangedEvent(productId, ChangeType.DELETED, null, sku);
+    }
+
+    public Long getProductId() { return productId; }
+
+    public ChangeType getChangeType() { return changeType; }
+
+    public String getSku() { return sku; }
+
+    public String getPreviousSku() { return previousSku; }
+}
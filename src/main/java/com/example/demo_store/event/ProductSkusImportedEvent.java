@@ -0,0 +1,16 @@
+package com.example.demo_store.event;
+
+import java.util.List;
+
+// Phát ra sau mỗi batch bulk import đã commit (trước ProductsImportedEvent của cả lần import),
+// để SKU vừa ghi không bị coi là không tồn tại trong lúc các index chưa rebuild
+public class ProductSkusImportedEvent {
+
+    private final List<String> skus;
+
+    public ProductSkusImportedEvent(List<String> skus) {
+        this.skus = skus;
+    }
+
+    public List<String> getSkus() { return skus; }
+}
@@ -0,0 +1,29 @@
+package com.example.demo_store.event;
+
+// Phát ra khi biến thể sản phẩm (size/color/stock/status) thay đổi
+public class ProductVariantChangedEvent {
+
+    private final Long variantId;
+    private final Long productId;
+    private final boolean deleted;
+
+    public ProductVariantChangedEvent(Long variantId, Long productId) {
+        this(variantId, productId, false);
+    }
+
+    public ProductVariantChangedEvent(Long variantId, Long productId, boolean deleted) {
+        this.variantId = variantId;
+        this.productId = productId;
+        this.deleted = deleted;
+    }
+
+    public static ProductVariantChangedEvent deleted(Long variantId, Long productId) {
+        return new ProductVariantChangedEvent(variantId, productId, true);
+    }
+
+    public Long getVariantId() { return variantId; }
+
+    public Long getProductId() { return productId; }
+
+    public boolean isDeleted() { return deleted; }
+}
@@ -0,0 +1,14 @@
+package com.example.demo_store.event;
+
+// Phát ra sau khi bulk import ghi xong; thay vì hàng nghìn ProductChangedEvent,
+// các index trong bộ nhớ rebuild một lần
+public class ProductsImportedEvent {
+
+    private final int insertedCount;
+
+    public ProductsImportedEvent(int insertedCount) {
+        this.insertedCount = insertedCount;
+    }
+
+    public int getInsertedCount() { return insertedCount; }
+}
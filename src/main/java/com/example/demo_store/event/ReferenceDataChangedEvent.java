@@ -0,0 +1,38 @@
+package com.example.demo_store.event;
+
+// Phát ra khi dữ liệu danh mục (category / brand / size / color) được tạo, sửa hoặc xoá.
+// Product nhúng category và brand trong JSON nên cache / index phụ thuộc vào chúng cần làm mới
+public class ReferenceDataChangedEvent {
+
+    public enum Type {
+        CATEGORY, BRAND, SIZE, COLOR
+    }
+
+    private final Type type;
+    private final Long id;
+
+    public ReferenceDataChangedEvent(Type type, Long id) {
+        this.type = type;
+        this.id = id;
+    }
+
+    public static ReferenceDataChangedEvent category(Long categoryId) {
+        return new ReferenceDataChangedEvent(Type.CATEGORY, categoryId);
+    }
+
+    public static ReferenceDataChangedEvent brand(Long brandId) {
+        return new ReferenceDataChangedEvent(Type.BRAND, brandId);
+    }
+
+    public static ReferenceDataChangedEvent size(Long sizeId) {
+        return new ReferenceDataChangedEvent(Type.SIZE, sizeId);
+    }
+
+    public static ReferenceDataChangedEvent color(Long colorId) {
+        return new ReferenceDataChangedEvent(Type.COLOR, colorId);
+    }
+
+    public Type getType() { return type; }
+
+    public Long getId() { return id; }
+}
@@ -0,0 +1,38 @@
+package com.example.demo_store.event;
+
+// Phát ra khi tồn của biến thể vượt qua ngưỡng: xuống dưới ngưỡng sắp hết, về 0, hoặc có hàng trở lại.
+// Chỉ phát khi mức thay đổi, không phát cho mỗi lần tồn thay đổi trong cùng một mức
+public class StockAlertEvent {
+
+    public enum Level {
+        IN_STOCK, LOW_STOCK, OUT_OF_STOCK
+    }
+
+    private final Long variantId;
+    private final Long productId;
+    private final Level previousLevel;
+    private final Level level;
+    private final int stock;
+    private final int threshold;
+
+    public StockAlertEvent(Long variantId, Long productId, Level previousLevel, Level level, int stock, int threshold) {
+        this.variantId = variantId;
+        this.productId = productId;
+        this.previousLevel = previousLevel;
+        this.level = level;
+        this.stock = stock;
+        this.threshold = threshold;
+    }
+
+    public Long getVariantId() { return variantId; }
+
+    public Long getProductId() { return productId; }
+
+    public Level getPreviousLevel() { return previousLevel; }
+
+    public Level getLevel() { return level; }
+
+    public int getStock() { return stock; }
+
+    public int getThreshold() { return threshold; }
+}
@@ -0,0 +1,14 @@
+package com.example.demo_store.event;
+
+// Phát ra sau khi tồn thực tế của biến thể trên sổ tồn kho thay đổi (cập nhật tay, đặt hàng, huỷ đơn);
+// người nghe đọc lại mức tồn hiện tại từ InventoryService nên event đến trễ / lệch thứ tự vẫn cho kết quả đúng
+public class StockLevelChangedEvent {
+
+    private final Long variantId;
+
+    public StockLevelChangedEvent(Long variantId) {
+        this.variantId = variantId;
+    }
+
+    public Long getVariantId() { return variantId; }
+}
@@ -2,12 +2,18 @@ package com.example.demo_store.repository;
 
 import com.example.demo_store.entity.Brand;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BrandRepository extends JpaRepository<Brand, Long> {
     
     Optional<Brand> findByBrandName(String brandName);
+    
+    // [brandId, brandName] cho lookup trong bộ nhớ khi bulk import
+    @Query("SELECT b.brandId, b.brandName FROM Brand b")
+    List<Object[]> findAllIdAndName();
 }
@@ -21,6 +21,18 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     // Find cart item by cart ID and product ID
     Optional<CartItem> findByCartCartIdAndProductProductId(Long cartId, Long productId);
     
+    // Dòng giỏ của product và biến thể (variantId null = dòng không chọn biến thể)
+    Optional<CartItem> findByCartCartIdAndProductProductIdAndVariantVariantId(Long cartId, Long productId, Long variantId);
+    
+    // Các dòng của giỏ dạng projection (không nạp entity Product / ProductVariant), theo thứ tự thêm vào giỏ
+    @Query("SELECT ci.cartItemId AS cartItemId, ci.product.productId AS productId, v.variantId AS variantId, " +
+           "ci.quantity AS quantity, ci.price AS price, ci.createdAt AS createdAt, ci.updatedAt AS updatedAt " +
+           "FROM CartItem ci LEFT JOIN ci.variant v WHERE ci.cart.cartId = :cartId ORDER BY ci.cartItemId")
+    List<CartLineRow> findCartLines(@Param("cartId") Long cartId);
+    
+    @Query("SELECT ci.cart.user.userId FROM CartItem ci WHERE ci.cartItemId = :cartItemId")
+    Optional<Long> findUserIdByCartItemId(@Param("cartItemId") Long cartItemId);
+    
     // Find cart items by product ID
     List<CartItem> findByProductProductId(Long productId);
     
@@ -49,4 +61,14 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     // Find cart items created after a specific date
     @Query("SELECT ci FROM CartItem ci WHERE ci.createdAt >= :date")
     List<CartItem> findCartItemsCreatedAfter(@Param("date") java.time.LocalDateTime date);
+    
+    interface CartLineRow {
+        Long getCartItemId();
+        Long getProductId();
+        Long getVariantId();
+        Integer getQuantity();
+        java.math.BigDecimal getPrice();
+        java.time.LocalDateTime getCreatedAt();
+        java.time.LocalDateTime getUpdatedAt();
+    }
 }
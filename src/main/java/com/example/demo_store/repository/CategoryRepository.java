@@ -2,6 +2,7 @@ package com.example.demo_store.repository;
 
 import com.example.demo_store.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +13,21 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     List<Category> findByParentCategoryId(Long parentId);
     
     List<Category> findByParentIsNull();
+    
+    // Toàn bộ bảng Categories trong một query (LEFT JOIN parent, không kéo chuỗi EAGER) để dựng cây
+    @Query("SELECT c.categoryId AS categoryId, c.categoryName AS categoryName, c.imageUrl AS imageUrl, " +
+           "c.description AS description, p.categoryId AS parentId FROM Category c LEFT JOIN c.parent p")
+    List<TreeRow> findAllTreeRows();
+    
+    // [categoryId, categoryName] cho lookup trong bộ nhớ khi bulk import
+    @Query("SELECT c.categoryId, c.categoryName FROM Category c")
+    List<Object[]> findAllIdAndName();
+    
+    interface TreeRow {
+        Long getCategoryId();
+        String getCategoryName();
+        String getImageUrl();
+        String getDescription();
+        Long getParentId();
+    }
 }
@@ -60,8 +60,8 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     // Find customers by total spent range
     @Query("SELECT c FROM Customer c WHERE c.totalSpent BETWEEN :minAmount AND :maxAmount")
-    List<Customer> findByTotalSpentBetween(@Param("minAmount") Double minAmount, 
-                                         @Param("maxAmount") Double maxAmount);
+    List<Customer> findByTotalSpentBetween(@Param("minAmount") java.math.BigDecimal minAmount, 
+                                         @Param("maxAmount") java.math.BigDecimal maxAmount);
     
     // Get top customers by total spent
     @Query("SELECT c FROM Customer c ORDER BY c.totalSpent DESC")
@@ -0,0 +1,28 @@
+package com.example.demo_store.repository;
+
+import com.example.demo_store.entity.InventoryMovement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long> {
+
+    // Keyset: trang đầu (mới nhất trước) và các trang sau movement_id của dòng cuối trang trước (index variant_id, movement_id)
+    List<InventoryMovement> findByVariantIdOrderByMovementIdDesc(Long variantId, Pageable pageable);
+
+    List<InventoryMovement> findByVariantIdAndMovementIdLessThanOrderByMovementIdDesc(Long variantId, Long movementId, Pageable pageable);
+
+    // Tổng delta tồn thực tế sau một snapshot, tính tới thời điểm at
+    @Query("SELECT COALESCE(SUM(m.quantity), 0) FROM InventoryMovement m WHERE m.variantId = :variantId " +
+           "AND m.movementId > :afterMovementId AND m.createdAt <= :at AND m.movementType IN :types")
+    long sumQuantityAfter(@Param("variantId") Long variantId,
+                          @Param("afterMovementId") Long afterMovementId,
+                          @Param("at") LocalDateTime at,
+                          @Param("types") List<InventoryMovement.MovementType> types);
+}
@@ -0,0 +1,15 @@
+package com.example.demo_store.repository;
+
+import com.example.demo_store.entity.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Long> {
+
+    // Snapshot mới nhất đã có tại thời điểm at
+    Optional<InventorySnapshot> findFirstByVariantIdAndTakenAtLessThanEqualOrderByLastMovementIdDesc(Long variantId, LocalDateTime at);
+}
@@ -1,12 +1,17 @@
 package com.example.demo_store.repository;
 
 import com.example.demo_store.entity.OrderItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
@@ -40,8 +45,37 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
            "ORDER BY totalQuantity DESC")
     List<Object[]> findTopSellingProducts();
     
+    // Tổng số lượng đã bán theo product (bỏ qua đơn ở trạng thái excludedStatus), dùng làm độ phổ biến
+    @Query("SELECT oi.product.productId, SUM(oi.quantity) FROM OrderItem oi " +
+           "WHERE oi.order.status <> :excludedStatus GROUP BY oi.product.productId")
+    List<Object[]> sumQuantityByProduct(@Param("excludedStatus") com.example.demo_store.entity.Order.OrderStatus excludedStatus);
+    
+    // (orderId, productId) của các đơn trong khoảng id, sắp theo orderId để gom theo đơn khi đọc tuần tự
+    @Query("SELECT oi.order.orderId, oi.product.productId FROM OrderItem oi " +
+           "WHERE oi.order.orderId BETWEEN :fromOrderId AND :toOrderId AND oi.order.status <> :excludedStatus " +
+           "ORDER BY oi.order.orderId")
+    List<Object[]> findOrderProductPairs(@Param("fromOrderId") Long fromOrderId,
+                                         @Param("toOrderId") Long toOrderId,
+                                         @Param("excludedStatus") com.example.demo_store.entity.Order.OrderStatus excludedStatus);
+    
+    // Số lượng bán theo dòng đơn từ mốc since tới đơn maxOrderId, đọc forward-only một lượt khi nạp top sellers
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT oi.order.orderId AS orderId, oi.product.productId AS productId, oi.quantity AS quantity, oi.order.createdAt AS createdAt " +
+           "FROM OrderItem oi WHERE oi.order.createdAt >= :since AND oi.order.orderId <= :maxOrderId " +
+           "AND oi.order.status <> :excludedStatus")
+    Stream<SalesRow> streamSalesSince(@Param("since") LocalDateTime since,
+                                      @Param("maxOrderId") Long maxOrderId,
+                                      @Param("excludedStatus") com.example.demo_store.entity.Order.OrderStatus excludedStatus);
+    
     // Find order items by date range
     @Query("SELECT oi FROM OrderItem oi WHERE oi.createdAt BETWEEN :startDate AND :endDate")
     List<OrderItem> findByDateRange(@Param("startDate") java.time.LocalDateTime startDate, 
                                    @Param("endDate") java.time.LocalDateTime endDate);
+    
+    interface SalesRow {
+        Long getOrderId();
+        Long getProductId();
+        Integer getQuantity();
+        LocalDateTime getCreatedAt();
+    }
 }
@@ -4,6 +4,7 @@ import com.example.demo_store.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -50,4 +51,23 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // Get order statistics
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     long countOrdersByStatus(@Param("status") Order.OrderStatus status);
+    
+    // Khoảng order_id để chia partition khi rebuild dữ liệu từ lịch sử đơn hàng
+    @Query("SELECT MIN(o.orderId) FROM Order o")
+    Long findMinOrderId();
+    
+    @Query("SELECT MAX(o.orderId) FROM Order o")
+    Long findMaxOrderId();
+    
+    // Đổi sang status nếu đơn chưa ở status đó (huỷ đơn: trả về 1 cho đúng một trong các request huỷ / xoá đồng thời)
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.updatedAt = :now WHERE o.orderId = :orderId AND o.status <> :status")
+    int changeStatus(@Param("orderId") Long orderId, @Param("status") Order.OrderStatus status,
+                     @Param("now") java.time.LocalDateTime now);
+    
+    // Đổi status nếu đơn còn đúng trạng thái đã đọc (mở lại đơn đã huỷ, hoặc khoá đơn đã huỷ trước khi xoá)
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.updatedAt = :now WHERE o.orderId = :orderId AND o.status = :expected")
+    int changeStatusIf(@Param("orderId") Long orderId, @Param("expected") Order.OrderStatus expected,
+                       @Param("status") Order.OrderStatus status, @Param("now") java.time.LocalDateTime now);
 }
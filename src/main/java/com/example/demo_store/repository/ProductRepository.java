@@ -1,16 +1,22 @@
 package com.example.demo_store.repository;
 
+import com.example.demo_store.dto.ProductDTO;
 import com.example.demo_store.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     
     List<Product> findByStatus(Product.ProductStatus status);
     
@@ -27,4 +33,137 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByPriceRange(@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice);
     
     Optional<Product> findBySku(String sku);
+    
+    @Query("SELECT p.sku FROM Product p WHERE p.productId = :productId")
+    Optional<String> findSkuByProductId(@Param("productId") Long productId);
+
+    // (productId, price, variantId) cho thao tác hàng loạt trên giỏ: mỗi product một dòng (variantId null)
+    // hoặc một dòng cho mỗi biến thể trong variantIds thuộc product đó
+    @Query("SELECT p.productId, p.price, v.variantId FROM Product p " +
+           "LEFT JOIN ProductVariant v ON v.product = p AND v.variantId IN :variantIds " +
+           "WHERE p.productId IN :productIds")
+    List<Object[]> findCartLineTargets(@Param("productIds") Collection<Long> productIds,
+                                       @Param("variantIds") Collection<Long> variantIds);
+    
+    // Empty khi product không tồn tại hoặc không đặt ngưỡng riêng
+    @Query("SELECT p.lowStockThreshold FROM Product p WHERE p.productId = :productId")
+    Optional<Integer> findLowStockThresholdByProductId(@Param("productId") Long productId);
+    
+    // (productId, sku) của toàn bộ catalog để dựng SKU index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT p.productId AS productId, p.sku AS sku FROM Product p")
+    Stream<SkuRow> streamSkuRows();
+    
+    // Lấy nhiều product theo danh sách ID, join sẵn category, brand và images (JSON của product gồm cả images:
+    // để lazy thì mỗi product thêm một query khi serialize)
+    @Query("SELECT DISTINCT p FROM Product p JOIN FETCH p.category JOIN FETCH p.brand LEFT JOIN FETCH p.images "
+            + "WHERE p.productId IN :ids")
+    List<Product> findAllWithCategoryAndBrandByProductIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Constructor projection cho các id lấy từ index (search / facet), một query join duy nhất
+    @Query("SELECT new com.example.demo_store.dto.ProductDTO(p.productId, p.productName, p.description, p.sku, " +
+           "p.price, p.stockQuantity, p.status, p.imageUrl, c.categoryId, c.categoryName, b.brandId, b.brandName, " +
+           "p.createdAt, p.updatedAt) FROM Product p JOIN p.category c JOIN p.brand b WHERE p.productId IN :ids")
+    List<ProductDTO> findSummariesByProductIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Một product dạng ProductDTO (không nạp Category / Brand entity)
+    @Query("SELECT new com.example.demo_store.dto.ProductDTO(p.productId, p.productName, p.description, p.sku, " +
+           "p.price, p.stockQuantity, p.status, p.imageUrl, c.categoryId, c.categoryName, b.brandId, b.brandName, " +
+           "p.createdAt, p.updatedAt) FROM Product p JOIN p.category c JOIN p.brand b WHERE p.productId = :productId")
+    Optional<ProductDTO> findSummaryById(@Param("productId") Long productId);
+    
+    // Product thuộc một tập category (cây con lấy từ CategoryTreeService), một query IN dùng IX_Products_Category
+    @Query("SELECT p FROM Product p JOIN FETCH p.category JOIN FETCH p.brand WHERE p.category.categoryId IN :categoryIds")
+    List<Product> findAllWithCategoryAndBrandByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+    
+    // Dữ liệu văn bản để build search index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.productId AS productId, p.productName AS productName, p.description AS description, " +
+           "b.brandName AS brandName, c.categoryName AS categoryName " +
+           "FROM Product p JOIN p.brand b JOIN p.category c")
+    Stream<SearchDocument> streamSearchDocuments();
+    
+    @Query("SELECT p.productId AS productId, p.productName AS productName, p.description AS description, " +
+           "b.brandName AS brandName, c.categoryName AS categoryName " +
+           "FROM Product p JOIN p.brand b JOIN p.category c WHERE p.productId = :productId")
+    Optional<SearchDocument> findSearchDocument(@Param("productId") Long productId);
+    
+    // Thuộc tính dùng cho facet index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.productId AS productId, p.category.categoryId AS categoryId, p.brand.brandId AS brandId, " +
+           "p.price AS price, p.status AS status FROM Product p")
+    Stream<FacetRow> streamFacetRows();
+    
+    @Query("SELECT p.productId AS productId, p.category.categoryId AS categoryId, p.brand.brandId AS brandId, " +
+           "p.price AS price, p.status AS status FROM Product p WHERE p.productId = :productId")
+    Optional<FacetRow> findFacetRow(@Param("productId") Long productId);
+    
+    // Toàn bộ catalog cho export, đọc forward-only theo product_id
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.productId AS productId, p.sku AS sku, p.productName AS productName, p.description AS description, " +
+           "p.price AS price, p.stockQuantity AS stockQuantity, p.status AS status, " +
+           "c.categoryId AS categoryId, c.categoryName AS categoryName, b.brandId AS brandId, b.brandName AS brandName, " +
+           "p.imageUrl AS imageUrl, p.createdAt AS createdAt, p.updatedAt AS updatedAt " +
+           "FROM Product p JOIN p.category c JOIN p.brand b ORDER BY p.productId")
+    Stream<ExportRow> streamExportRows();
+    
+    // Toàn bộ SKU hiện có, để bulk import phát hiện trùng trước khi insert
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT p.sku FROM Product p")
+    Stream<String> streamAllSkus();
+    
+    // Dữ liệu dựng trie gợi ý: chỉ product đang bán
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT p.productId AS productId, p.productName AS productName, " +
+           "p.category.categoryId AS categoryId, p.brand.brandId AS brandId " +
+           "FROM Product p WHERE p.status = :status")
+    Stream<SuggestRow> streamSuggestRows(@Param("status") Product.ProductStatus status);
+    
+    interface SkuRow {
+        Long getProductId();
+        String getSku();
+    }
+    
+    interface SuggestRow {
+        Long getProductId();
+        String getProductName();
+        Long getCategoryId();
+        Long getBrandId();
+    }
+    
+    interface SearchDocument {
+        Long getProductId();
+        String getProductName();
+        String getDescription();
+        String getBrandName();
+        String getCategoryName();
+    }
+    
+    interface FacetRow {
+        Long getProductId();
+        Long getCategoryId();
+        Long getBrandId();
+        java.math.BigDecimal getPrice();
+        Product.ProductStatus getStatus();
+    }
+    
+    interface ExportRow {
+        Long getProductId();
+        String getSku();
+        String getProductName();
+        String getDescription();
+        java.math.BigDecimal getPrice();
+        Integer getStockQuantity();
+        Product.ProductStatus getStatus();
+        Long getCategoryId();
+        String getCategoryName();
+        Long getBrandId();
+        String getBrandName();
+        String getImageUrl();
+        java.time.LocalDateTime getCreatedAt();
+        java.time.LocalDateTime getUpdatedAt();
+    }
 }
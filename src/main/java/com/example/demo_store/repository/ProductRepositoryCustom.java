@@ -0,0 +1,21 @@
+package com.example.demo_store.repository;
+
+import com.example.demo_store.dto.ProductCursor;
+import com.example.demo_store.dto.ProductDTO;
+import com.example.demo_store.dto.ProductFilter;
+import com.example.demo_store.entity.Product;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    // Keyset pagination: seek theo (sort key, product_id), trả về tối đa limit + 1 dòng
+    // để biết còn trang tiếp theo hay không
+    List<Product> findPageAfter(ProductFilter filter, ProductCursor.SortKey sortKey, ProductCursor after, int limit);
+
+    // Như findPageAfter nhưng chỉ SELECT các cột của ProductDTO trong một query join category / brand
+    List<ProductDTO> findSummaryPageAfter(ProductFilter filter, ProductCursor.SortKey sortKey, ProductCursor after, int limit);
+
+    // Toàn bộ kết quả lọc (không phân trang) dạng ProductDTO, sắp xếp theo product_id
+    List<ProductDTO> findSummaries(ProductFilter filter);
+}
@@ -0,0 +1,159 @@
+package com.example.demo_store.repository;
+
+import com.example.demo_store.dto.ProductCursor;
+import com.example.demo_store.dto.ProductDTO;
+import com.example.demo_store.dto.ProductFilter;
+import com.example.demo_store.entity.Brand;
+import com.example.demo_store.entity.Category;
+import com.example.demo_store.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> findPageAfter(ProductFilter filter, ProductCursor.SortKey sortKey, ProductCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> product = query.from(Product.class);
+        product.fetch("category", JoinType.INNER);
+        product.fetch("brand", JoinType.INNER);
+
+        List<Predicate> predicates = filterPredicates(cb, product, filter);
+        if (after != null) {
+            predicates.add(seekPredicate(cb, product, sortKey, after));
+        }
+
+        query.select(product)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(orderBy(cb, product, sortKey));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit + 1)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductDTO> findSummaryPageAfter(ProductFilter filter, ProductCursor.SortKey sortKey, ProductCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductDTO> query = cb.createQuery(ProductDTO.class);
+        Root<Product> product = query.from(Product.class);
+
+        List<Predicate> predicates = filterPredicates(cb, product, filter);
+        if (after != null) {
+            predicates.add(seekPredicate(cb, product, sortKey, after));
+        }
+
+        query.select(summary(cb, product))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(orderBy(cb, product, sortKey));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit + 1)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductDTO> findSummaries(ProductFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductDTO> query = cb.createQuery(ProductDTO.class);
+        Root<Product> product = query.from(Product.class);
+
+        query.select(summary(cb, product))
+                .where(filterPredicates(cb, product, filter).toArray(new Predicate[0]))
+                .orderBy(orderBy(cb, product, ProductCursor.SortKey.ID));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Join thường (không fetch) nên chỉ các cột được chọn xuất hiện trong SELECT
+    static CompoundSelection<ProductDTO> summary(CriteriaBuilder cb, Root<Product> product) {
+        Join<Product, Category> category = product.join("category", JoinType.INNER);
+        Join<Product, Brand> brand = product.join("brand", JoinType.INNER);
+        return cb.construct(ProductDTO.class,
+                product.get("productId"), product.get("productName"), product.get("description"),
+                product.get("sku"), product.get("price"), product.get("stockQuantity"), product.get("status"),
+                product.get("imageUrl"), category.get("categoryId"), category.get("categoryName"),
+                brand.get("brandId"), brand.get("brandName"), product.get("createdAt"), product.get("updatedAt"));
+    }
+
+    static List<Predicate> filterPredicates(CriteriaBuilder cb, Root<Product> product, ProductFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter == null) {
+            return predicates;
+        }
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(product.get("status"), filter.getStatus()));
+        }
+        if (filter.getCategoryIds() != null) {
+            predicates.add(product.get("category").get("categoryId").in(filter.getCategoryIds()));
+        } else if (filter.getCategoryId() != null) {
+            predicates.add(cb.equal(product.get("category").get("categoryId"), filter.getCategoryId()));
+        }
+        if (filter.getBrandId() != null) {
+            predicates.add(cb.equal(product.get("brand").get("brandId"), filter.getBrandId()));
+        }
+        if (filter.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(product.get("price"), filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(product.get("price"), filter.getMaxPrice()));
+        }
+        if (filter.getKeyword() != null && !filter.getKeyword().isBlank()) {
+            String pattern = "%" + filter.getKeyword() + "%";
+            predicates.add(cb.or(
+                    cb.like(product.get("productName"), pattern),
+                    cb.like(product.get("description"), pattern)));
+        }
+        return predicates;
+    }
+
+    static Predicate seekPredicate(CriteriaBuilder cb, Root<Product> product, ProductCursor.SortKey sortKey, ProductCursor after) {
+        Path<Long> id = product.get("productId");
+        switch (sortKey) {
+            case PRICE_ASC: {
+                Path<BigDecimal> price = product.get("price");
+                BigDecimal last = (BigDecimal) after.getLastValue();
+                return cb.or(cb.greaterThan(price, last),
+                        cb.and(cb.equal(price, last), cb.greaterThan(id, after.getLastId())));
+            }
+            case PRICE_DESC: {
+                Path<BigDecimal> price = product.get("price");
+                BigDecimal last = (BigDecimal) after.getLastValue();
+                return cb.or(cb.lessThan(price, last),
+                        cb.and(cb.equal(price, last), cb.lessThan(id, after.getLastId())));
+            }
+            case NEWEST: {
+                Path<LocalDateTime> createdAt = product.get("createdAt");
+                LocalDateTime last = (LocalDateTime) after.getLastValue();
+                return cb.or(cb.lessThan(createdAt, last),
+                        cb.and(cb.equal(createdAt, last), cb.lessThan(id, after.getLastId())));
+            }
+            default:
+                return cb.greaterThan(id, after.getLastId());
+        }
+    }
+
+    static List<Order> orderBy(CriteriaBuilder cb, Root<Product> product, ProductCursor.SortKey sortKey) {
+        Path<Long> id = product.get("productId");
+        switch (sortKey) {
+            case PRICE_ASC:
+                return List.of(cb.asc(product.get("price")), cb.asc(id));
+            case PRICE_DESC:
+                return List.of(cb.desc(product.get("price")), cb.desc(id));
+            case NEWEST:
+                return List.of(cb.desc(product.get("createdAt")), cb.desc(id));
+            default:
+                return List.of(cb.asc(id));
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.example.demo_store.repository;
 
 import com.example.demo_store.entity.ProductVariant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
@@ -17,6 +22,11 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     // Find variants by product ID
     List<ProductVariant> findByProductProductIdOrderByCreatedAtAsc(Long productId);
     
+    // Biến thể của product kèm size và color trong cùng một query (tránh N+1 khi đọc tên size / màu)
+    @EntityGraph(attributePaths = {"size", "color"})
+    @Query("SELECT pv FROM ProductVariant pv WHERE pv.product.productId = :productId ORDER BY pv.createdAt ASC, pv.variantId ASC")
+    List<ProductVariant> findWithSizeAndColorByProductId(@Param("productId") Long productId);
+    
     // Find variants by product ID with pagination
     Page<ProductVariant> findByProductProductId(Long productId, Pageable pageable);
     
@@ -74,4 +84,96 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     
     // Find variants by product and color
     List<ProductVariant> findByProductProductIdAndColorColorId(Long productId, Long colorId);
+    
+    // Size/color/stock của biến thể dùng cho facet index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT pv.product.productId AS productId, pv.size.sizeId AS sizeId, pv.color.colorId AS colorId, " +
+           "pv.stock AS stock, pv.status AS status FROM ProductVariant pv ORDER BY pv.product.productId")
+    Stream<VariantFacetRow> streamVariantFacetRows();
+    
+    @Query("SELECT pv.product.productId AS productId, pv.size.sizeId AS sizeId, pv.color.colorId AS colorId, " +
+           "pv.stock AS stock, pv.status AS status FROM ProductVariant pv WHERE pv.product.productId = :productId")
+    List<VariantFacetRow> findVariantFacetRows(@Param("productId") Long productId);
+    
+    // Tồn của mọi biến thể, nạp vào sổ tồn kho trong bộ nhớ khi khởi động
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT pv.variantId AS variantId, pv.stock AS stock FROM ProductVariant pv")
+    Stream<StockRow> streamStockRows();
+    
+    @Query("SELECT pv.stock FROM ProductVariant pv WHERE pv.variantId = :variantId")
+    Optional<Integer> findStockById(@Param("variantId") Long variantId);
+    
+    // (variantId, productId) của các biến thể trong danh sách
+    @Query("SELECT pv.variantId, pv.product.productId FROM ProductVariant pv WHERE pv.variantId IN :variantIds")
+    List<Object[]> findVariantAndProductIds(@Param("variantIds") java.util.Collection<Long> variantIds);
+    
+    // Tồn, trạng thái và ngưỡng sắp hết (của product) cho bộ phát hiện cảnh báo tồn kho, nạp một lần khi khởi động
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT pv.variantId AS variantId, pv.product.productId AS productId, pv.stock AS stock, " +
+           "pv.status AS status, pv.product.lowStockThreshold AS lowStockThreshold FROM ProductVariant pv")
+    Stream<StockAlertRow> streamStockAlertRows();
+    
+    @Query("SELECT pv.variantId AS variantId, pv.product.productId AS productId, pv.stock AS stock, " +
+           "pv.status AS status, pv.product.lowStockThreshold AS lowStockThreshold FROM ProductVariant pv " +
+           "WHERE pv.variantId = :variantId")
+    Optional<StockAlertRow> findStockAlertRow(@Param("variantId") Long variantId);
+    
+    // Một dòng cho mỗi biến thể kèm size / màu, dựng lưới size x màu cho trang sản phẩm
+    @Query("SELECT pv.variantId AS variantId, s.sizeId AS sizeId, s.sizeName AS sizeName, c.colorId AS colorId, " +
+           "c.colorName AS colorName, pv.price AS price, pv.stock AS stock, pv.status AS status " +
+           "FROM ProductVariant pv JOIN pv.size s JOIN pv.color c WHERE pv.product.productId = :productId")
+    List<MatrixRow> findMatrixRows(@Param("productId") Long productId);
+    
+    // Khoá (id hoặc sku + size + màu) và giá / trạng thái hiện tại cho cập nhật hàng loạt, mỗi batch một query
+    @Query("SELECT pv.variantId AS variantId, p.productId AS productId, p.sku AS sku, s.sizeName AS sizeName, " +
+           "c.colorName AS colorName, pv.price AS price, pv.status AS status " +
+           "FROM ProductVariant pv JOIN pv.product p JOIN pv.size s JOIN pv.color c WHERE pv.variantId IN :variantIds")
+    List<BulkKeyRow> findBulkKeyRowsByIds(@Param("variantIds") java.util.Collection<Long> variantIds);
+    
+    @Query("SELECT pv.variantId AS variantId, p.productId AS productId, p.sku AS sku, s.sizeName AS sizeName, " +
+           "c.colorName AS colorName, pv.price AS price, pv.status AS status " +
+           "FROM ProductVariant pv JOIN pv.product p JOIN pv.size s JOIN pv.color c WHERE p.sku IN :skus")
+    List<BulkKeyRow> findBulkKeyRowsBySkus(@Param("skus") java.util.Collection<String> skus);
+    
+    interface VariantFacetRow {
+        Long getProductId();
+        Long getSizeId();
+        Long getColorId();
+        Integer getStock();
+        ProductVariant.VariantStatus getStatus();
+    }
+    
+    interface StockRow {
+        Long getVariantId();
+        Integer getStock();
+    }
+    
+    interface StockAlertRow {
+        Long getVariantId();
+        Long getProductId();
+        Integer getStock();
+        ProductVariant.VariantStatus getStatus();
+        Integer getLowStockThreshold();
+    }
+    
+    interface MatrixRow {
+        Long getVariantId();
+        Long getSizeId();
+        String getSizeName();
+        Long getColorId();
+        String getColorName();
+        java.math.BigDecimal getPrice();
+        Integer getStock();
+        ProductVariant.VariantStatus getStatus();
+    }
+    
+    interface BulkKeyRow {
+        Long getVariantId();
+        Long getProductId();
+        String getSku();
+        String getSizeName();
+        String getColorName();
+        java.math.BigDecimal getPrice();
+        ProductVariant.VariantStatus getStatus();
+    }
 }
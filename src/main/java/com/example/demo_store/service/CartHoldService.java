@@ -0,0 +1,178 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.service.inventory.HashedTimingWheel;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Giữ hàng cho giỏ hàng: thêm vào giỏ thì giữ (reserve) số lượng của biến thể trên sổ tồn kho trong ttl,
+// mỗi lần giỏ thay đổi gia hạn lại; hết hạn thì trả lại. Hạn được quản lý bằng một hashed timing wheel
+// quay theo lịch nên hết hạn hàng nghìn hold mỗi giây không cần thread hay query riêng cho từng hold.
+// Hold chỉ nằm trong bộ nhớ (mất khi khởi động lại, như reserved của ledger).
+@Service
+public class CartHoldService {
+
+    private static final class Hold {
+        private final long userId;
+        private final long variantId;
+        private int quantity;
+        private HashedTimingWheel.Timeout<Hold> timeout;
+
+        private Hold(long userId, long variantId) {
+            this.userId = userId;
+            this.variantId = variantId;
+        }
+    }
+
+    private final InventoryService inventoryService;
+    private final boolean enabled;
+    private final long ttlMillis;
+
+    private final HashedTimingWheel<Hold> wheel;
+    private final Map<Long, Map<Long, Hold>> holdsByUser = new HashMap<>();
+    private long expired;
+
+    public CartHoldService(InventoryService inventoryService,
+                           @Value("${store.cart-hold.enabled:false}") boolean enabled,
+                           @Value("${store.cart-hold.ttl-seconds:900}") long ttlSeconds,
+                           @Value("${store.cart-hold.tick-ms:100}") long tickMillis) {
+        this.inventoryService = inventoryService;
+        this.enabled = enabled;
+        this.ttlMillis = ttlSeconds * 1000L;
+        // Một vòng khoảng một phút, hold dài hơn nằm qua nhiều vòng
+        this.wheel = new HashedTimingWheel<>(tickMillis, (int) Math.max(64, 60_000L / tickMillis), System.currentTimeMillis());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Cộng thêm delta vào số đang giữ của user cho biến thể (thêm vào giỏ)
+    public synchronized InventoryLedger.Outcome add(Long userId, Long variantId, int delta) {
+        Hold hold = find(userId, variantId);
+        return set(userId, variantId, (hold != null ? hold.quantity : 0) + delta);
+    }
+
+    // Đặt số đang giữ về quantity (cập nhật số lượng trong giỏ); 0 = bỏ giữ
+    public synchronized InventoryLedger.Outcome set(Long userId, Long variantId, int quantity) {
+        Hold hold = find(userId, variantId);
+        int current = hold != null ? hold.quantity : 0;
+        int diff = Math.max(0, quantity) - current;
+        if (diff > 0) {
+            InventoryLedger.Outcome outcome = inventoryService.reserve(variantId, diff);
+            if (outcome != InventoryLedger.Outcome.OK) {
+                return outcome;
+            }
+        } else if (diff < 0) {
+            inventoryService.release(variantId, -diff);
+        }
+
+        if (quantity <= 0) {
+            if (hold != null) {
+                remove(hold);
+            }
+            return InventoryLedger.Outcome.OK;
+        }
+        if (hold == null) {
+            hold = new Hold(userId, variantId);
+            holdsByUser.computeIfAbsent(userId, id -> new HashMap<>()).put(variantId, hold);
+        } else {
+            wheel.cancel(hold.timeout);
+        }
+        hold.quantity = quantity;
+        hold.timeout = wheel.schedule(hold, ttlMillis, System.currentTimeMillis());
+        return InventoryLedger.Outcome.OK;
+    }
+
+    // Bỏ toàn bộ hold của user (xoá giỏ)
+    public synchronized void releaseAll(Long userId) {
+        Map<Long, Hold> holds = holdsByUser.get(userId);
+        if (holds == null) {
+            return;
+        }
+        for (Hold hold : holds.values().toArray(new Hold[0])) {
+            inventoryService.release(hold.variantId, hold.quantity);
+            remove(hold);
+        }
+    }
+
+    // Lấy hold ra để checkout chuyển thành đã bán: số lượng vẫn đang reserved trên ledger, người gọi phải commit / release
+    public synchronized int take(Long userId, Long variantId) {
+        Hold hold = find(userId, variantId);
+        if (hold == null) {
+            return 0;
+        }
+        remove(hold);
+        return hold.quantity;
+    }
+
+    // Đặt lại hold đã take khi checkout không thành công: số lượng vẫn đang reserved trên ledger nên không reserve lại
+    public synchronized void restore(Long userId, Long variantId, int quantity) {
+        if (userId == null || quantity <= 0) {
+            return;
+        }
+        Hold hold = find(userId, variantId);
+        if (hold == null) {
+            hold = new Hold(userId, variantId);
+            holdsByUser.computeIfAbsent(userId, id -> new HashMap<>()).put(variantId, hold);
+        } else {
+            wheel.cancel(hold.timeout);
+        }
+        hold.quantity += quantity;
+        hold.timeout = wheel.schedule(hold, ttlMillis, System.currentTimeMillis());
+    }
+
+    // variantId -> số lượng đang giữ của user
+    public synchronized Map<Long, Integer> holds(Long userId) {
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        Map<Long, Hold> holds = holdsByUser.get(userId);
+        if (holds != null) {
+            holds.forEach((variantId, hold) -> result.put(variantId, hold.quantity));
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${store.cart-hold.tick-ms:100}")
+    public synchronized void expireHolds() {
+        wheel.advance(System.currentTimeMillis(), hold -> {
+            inventoryService.release(hold.variantId, hold.quantity);
+            removeFromUser(hold);
+            expired++;
+        });
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("holds", wheel.size());
+        stats.put("users", holdsByUser.size());
+        stats.put("expired", expired);
+        stats.put("ttlMillis", ttlMillis);
+        return stats;
+    }
+
+    private Hold find(Long userId, Long variantId) {
+        Map<Long, Hold> holds = holdsByUser.get(userId);
+        return holds != null ? holds.get(variantId) : null;
+    }
+
+    private void remove(Hold hold) {
+        wheel.cancel(hold.timeout);
+        removeFromUser(hold);
+    }
+
+    private void removeFromUser(Hold hold) {
+        Map<Long, Hold> holds = holdsByUser.get(hold.userId);
+        if (holds != null) {
+            holds.remove(hold.variantId);
+            if (holds.isEmpty()) {
+                holdsByUser.remove(hold.userId);
+            }
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.CartLineOperation;
+import com.example.demo_store.dto.CartView;
+import com.example.demo_store.entity.Cart;
+import com.example.demo_store.entity.User;
+import com.example.demo_store.repository.CartItemRepository;
+import com.example.demo_store.repository.CartRepository;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.repository.UserRepository;
+import com.example.demo_store.service.cart.CartState;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import com.example.demo_store.util.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Giỏ hàng theo user giữ trong bộ nhớ (LRU, tối đa maxCarts giỏ), ghi xuyên xuống Carts / CartItems:
+// thêm / sửa / xoá một dòng là đúng một câu lệnh (MERGE / UPDATE / DELETE) rồi cập nhật giỏ trong bộ nhớ,
+// và giỏ trả về được dựng từ bộ nhớ. Chỉ lần đầu chạm tới giỏ của user (hoặc sau khi bị đẩy khỏi cache) mới đọc database.
+// Mọi thao tác trên giỏ của một user (kể cả nạp từ database) chạy trong lock của user đó, nên lần nạp lại
+// luôn thấy các lần ghi trước. Giả định chỉ một instance ghi giỏ hàng (như sổ tồn kho).
+@Service
+public class CartService {
+
+    private static final int LOCK_STRIPES = 1024;
+    // Số thao tác tối đa của một PATCH /api/carts/user/{userId}
+    public static final int MAX_BATCH_OPERATIONS = 200;
+
+    // Kiểm tra product (và biến thể thuộc product) ngay trong nguồn của MERGE: không có dòng trả về = không tìm thấy.
+    // HOLDLOCK để hai lần thêm cùng lúc không cùng INSERT một dòng
+    private static final String MERGE_ITEM_SQL =
+            "MERGE CartItems WITH (HOLDLOCK) AS t " +
+            "USING (SELECT p.product_id, p.price FROM Products p WHERE p.product_id = ? " +
+            "AND (? IS NULL OR EXISTS (SELECT 1 FROM ProductVariants v WHERE v.variant_id = ? AND v.product_id = p.product_id))) AS s " +
+            "ON t.cart_id = ? AND t.product_id = s.product_id AND (t.variant_id = ? OR (t.variant_id IS NULL AND ? IS NULL)) " +
+            "WHEN MATCHED THEN UPDATE SET quantity = t.quantity + ?, updated_at = ? " +
+            "WHEN NOT MATCHED THEN INSERT (cart_id, product_id, variant_id, quantity, price, created_at, updated_at) " +
+            "VALUES (?, s.product_id, ?, ?, s.price, ?, ?) " +
+            "OUTPUT inserted.cart_item_id, inserted.product_id, inserted.variant_id, inserted.quantity, inserted.price, " +
+            "inserted.created_at, inserted.updated_at;";
+    private static final String UPDATE_QUANTITY_SQL =
+            "UPDATE CartItems SET quantity = ?, updated_at = ? WHERE cart_item_id = ? AND cart_id = ?";
+    private static final String DELETE_ITEM_SQL =
+            "DELETE FROM CartItems WHERE cart_item_id = ? AND cart_id = ?";
+    private static final String DELETE_CART_ITEMS_SQL =
+            "DELETE FROM CartItems WHERE cart_id = ?";
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO CartItems (cart_id, product_id, variant_id, quantity, price, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_CART_LINES_SQL =
+            "SELECT cart_item_id, product_id, variant_id, quantity, price, created_at, updated_at FROM CartItems WHERE cart_id = ?";
+
+    // Không giữ được hàng cho số lượng mới (hết hàng / sổ tồn kho chưa sẵn sàng): giỏ giữ nguyên
+    public static class HoldRejectedException extends RuntimeException {
+        private final InventoryLedger.Outcome outcome;
+
+        public HoldRejectedException(InventoryLedger.Outcome outcome) {
+            super("Could not hold stock: " + outcome);
+            this.outcome = outcome;
+        }
+
+        public InventoryLedger.Outcome getOutcome() { return outcome; }
+    }
+
+    // Một dòng giỏ hàng là một cặp product + biến thể (variantId null = không chọn biến thể)
+    private static final class LineKey {
+        private final long productId;
+        private final Long variantId;
+
+        private LineKey(long productId, Long variantId) {
+            this.productId = productId;
+            this.variantId = variantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LineKey)) {
+                return false;
+            }
+            LineKey other = (LineKey) o;
+            return productId == other.productId && Objects.equals(variantId, other.variantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(productId) * 31 + Objects.hashCode(variantId);
+        }
+    }
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CartHoldService cartHoldService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final int maxCarts;
+    private final Currency currency;
+    private final LinkedHashMap<Long, CartState> carts = new LinkedHashMap<>(1024, 0.75f, true);
+    // cartItemId -> userId cho PUT / DELETE /api/carts/items/{itemId}; có thể còn id của giỏ đã bị đẩy ra
+    // (khi dùng luôn kiểm tra lại trong giỏ của user)
+    private final Map<Long, Long> userByItem = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public CartService(@Value("${store.cart.cache.max-carts:100000}") int maxCarts,
+                       @Value("${store.currency:VND}") String currencyCode) {
+        this.maxCarts = maxCarts;
+        this.currency = Currency.getInstance(currencyCode);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Giỏ của user, tạo giỏ rỗng nếu chưa có
+    public CartView getCart(Long userId) {
+        synchronized (lock(userId)) {
+            return state(userId, true).view();
+        }
+    }
+
+    // Số dòng trong giỏ; không tạo giỏ
+    public int countItems(Long userId) {
+        synchronized (lock(userId)) {
+            CartState state = state(userId, false);
+            return state != null ? state.size() : 0;
+        }
+    }
+
+    // Cộng quantity vào dòng của product + biến thể (tạo dòng nếu chưa có): một câu MERGE
+    public CartView addItem(Long userId, Long productId, Long variantId, int quantity) {
+        synchronized (lock(userId)) {
+            CartState state = state(userId, true);
+            CartView.Line existing = state.find(productId, variantId);
+            int previous = existing != null ? existing.getQuantity() : 0;
+            hold(userId, variantId, previous + quantity);
+
+            List<CartView.Line> merged;
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                merged = jdbcTemplate.query(MERGE_ITEM_SQL, ps -> {
+                    ps.setLong(1, productId);
+                    setNullableLong(ps, 2, variantId);
+                    setNullableLong(ps, 3, variantId);
+                    ps.setLong(4, state.getCartId());
+                    setNullableLong(ps, 5, variantId);
+                    setNullableLong(ps, 6, variantId);
+                    ps.setInt(7, quantity);
+                    ps.setTimestamp(8, Timestamp.valueOf(now));
+                    ps.setLong(9, state.getCartId());
+                    setNullableLong(ps, 10, variantId);
+                    ps.setInt(11, quantity);
+                    ps.setTimestamp(12, Timestamp.valueOf(now));
+                    ps.setTimestamp(13, Timestamp.valueOf(now));
+                }, this::mapLine);
+            } catch (RuntimeException e) {
+                restoreHold(userId, variantId, previous);
+                evict(userId);
+                throw e;
+            }
+            if (merged.isEmpty()) {
+                restoreHold(userId, variantId, previous);
+                throw new IllegalArgumentException("Product or variant not found");
+            }
+            CartView.Line line = merged.get(0);
+            state.put(line);
+            userByItem.put(line.getCartItemId(), userId);
+            return state.view();
+        }
+    }
+
+    // Đặt số lượng của dòng (<= 0 thì xoá dòng); false nếu không có dòng
+    public boolean updateItem(Long cartItemId, int quantity) {
+        if (quantity <= 0) {
+            return removeItem(cartItemId);
+        }
+        Long userId = owner(cartItemId);
+        if (userId == null) {
+            return false;
+        }
+        synchronized (lock(userId)) {
+            CartState state = state(userId, false);
+            CartView.Line line = state != null ? state.get(cartItemId) : null;
+            if (line == null) {
+                return false;
+            }
+            hold(userId, line.getVariantId(), quantity);
+            int updated;
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                updated = jdbcTemplate.update(UPDATE_QUANTITY_SQL, quantity, Timestamp.valueOf(now), cartItemId, state.getCartId());
+            } catch (RuntimeException e) {
+                restoreHold(userId, line.getVariantId(), line.getQuantity());
+                evict(userId);
+                throw e;
+            }
+            if (updated == 0) {
+                // Dòng đã bị xoá ngoài CartService
+                restoreHold(userId, line.getVariantId(), 0);
+                evict(userId);
+                return false;
+            }
+            line.setQuantity(quantity);
+            line.setUpdatedAt(now);
+            return true;
+        }
+    }
+
+    public boolean removeItem(Long cartItemId) {
+        Long userId = owner(cartItemId);
+        if (userId == null) {
+            return false;
+        }
+        synchronized (lock(userId)) {
+            CartState state = state(userId, false);
+            CartView.Line line = state != null ? state.get(cartItemId) : null;
+            if (line == null) {
+                return false;
+            }
+            try {
+                jdbcTemplate.update(DELETE_ITEM_SQL, cartItemId, state.getCartId());
+            } catch (RuntimeException e) {
+                evict(userId);
+                throw e;
+            }
+            state.remove(cartItemId);
+            userByItem.remove(cartItemId);
+            restoreHold(userId, line.getVariantId(), 0);
+            return true;
+        }
+    }
+
+    // Xoá mọi dòng và bỏ giữ hàng của user; false nếu user chưa có giỏ
+    public boolean clear(Long userId) {
+        synchronized (lock(userId)) {
+            cartHoldService.releaseAll(userId);
+            CartState state = state(userId, false);
+            if (state == null) {
+                return false;
+            }
+            try {
+                jdbcTemplate.update(DELETE_CART_ITEMS_SQL, state.getCartId());
+            } catch (RuntimeException e) {
+                evict(userId);
+                throw e;
+            }
+            state.cartItemIds().forEach(userByItem::remove);
+            state.clear();
+            return true;
+        }
+    }
+
+    // Áp dụng lần lượt các thao tác (add / set / remove) lên giỏ rồi ghi kết quả cuối của mỗi dòng trong một transaction:
+    // product / biến thể của các dòng mới kiểm tra bằng một câu IN, ghi bằng batch DELETE / UPDATE / INSERT.
+    // Một thao tác không hợp lệ (hoặc không giữ được hàng) thì không áp dụng thao tác nào
+    public CartView applyOperations(Long userId, List<CartLineOperation> operations) {
+        synchronized (lock(userId)) {
+            CartState state = state(userId, true);
+            Map<LineKey, CartView.Line> current = new HashMap<>();
+            for (Long cartItemId : state.cartItemIds()) {
+                CartView.Line line = state.get(cartItemId);
+                current.put(new LineKey(line.getProductId(), line.getVariantId()), line);
+            }
+
+            // Số lượng cuối của mỗi dòng bị chạm tới, theo thứ tự thao tác
+            Map<LineKey, Integer> targets = new LinkedHashMap<>();
+            List<String> errors = new ArrayList<>();
+            for (int i = 0; i < operations.size(); i++) {
+                CartLineOperation operation = operations.get(i);
+                String op = operation.getOp() != null ? operation.getOp().trim().toLowerCase(Locale.ROOT) : "";
+                if (!op.equals("add") && !op.equals("set") && !op.equals("remove")) {
+                    errors.add("operations[" + i + "]: op must be add, set or remove");
+                    continue;
+                }
+                LineKey key;
+                if (operation.getCartItemId() != null) {
+                    CartView.Line line = state.get(operation.getCartItemId());
+                    if (line == null) {
+                        errors.add("operations[" + i + "]: cart item " + operation.getCartItemId() + " not found in cart");
+                        continue;
+                    }
+                    key = new LineKey(line.getProductId(), line.getVariantId());
+                } else if (operation.getProductId() != null) {
+                    key = new LineKey(operation.getProductId(), operation.getVariantId());
+                } else {
+                    errors.add("operations[" + i + "]: cartItemId or productId is required");
+                    continue;
+                }
+                Integer quantity = operation.getQuantity();
+                if (op.equals("add") && (quantity == null || quantity <= 0)) {
+                    errors.add("operations[" + i + "]: quantity must be at least 1");
+                    continue;
+                }
+                if (op.equals("set") && quantity == null) {
+                    errors.add("operations[" + i + "]: quantity is required");
+                    continue;
+                }
+                CartView.Line line = current.get(key);
+                int before = targets.getOrDefault(key, line != null ? line.getQuantity() : 0);
+                int after = op.equals("add") ? before + quantity : op.equals("set") ? Math.max(quantity, 0) : 0;
+                targets.put(key, after);
+            }
+            if (!errors.isEmpty()) {
+                throw new IllegalArgumentException(String.join("; ", errors));
+            }
+
+            List<CartView.Line> deletes = new ArrayList<>();
+            List<CartView.Line> updates = new ArrayList<>();
+            List<LineKey> inserts = new ArrayList<>();
+            for (Map.Entry<LineKey, Integer> target : targets.entrySet()) {
+                CartView.Line line = current.get(target.getKey());
+                int quantity = target.getValue();
+                if (line == null) {
+                    if (quantity > 0) {
+                        inserts.add(target.getKey());
+                    }
+                } else if (quantity == 0) {
+                    deletes.add(line);
+                } else if (quantity != line.getQuantity()) {
+                    updates.add(line);
+                }
+            }
+            Map<Long, BigDecimal> prices = validateNewLines(inserts);
+
+            // Giữ hàng theo số lượng cuối; bị từ chối thì trả lại số lượng đang giữ của các dòng đã đặt
+            Map<LineKey, Integer> held = new LinkedHashMap<>();
+            try {
+                for (Map.Entry<LineKey, Integer> target : targets.entrySet()) {
+                    held.put(target.getKey(), target.getValue());
+                    hold(userId, target.getKey().variantId, target.getValue());
+                }
+            } catch (HoldRejectedException e) {
+                restoreHolds(userId, held.keySet(), current);
+                throw e;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp timestamp = Timestamp.valueOf(now);
+            List<CartView.Line> reloaded;
+            try {
+                reloaded = new TransactionTemplate(transactionManager).execute(status -> {
+                    if (!deletes.isEmpty()) {
+                        jdbcTemplate.batchUpdate(DELETE_ITEM_SQL, deletes, deletes.size(), (ps, line) -> {
+                            ps.setLong(1, line.getCartItemId());
+                            ps.setLong(2, state.getCartId());
+                        });
+                    }
+                    if (!updates.isEmpty()) {
+                        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_QUANTITY_SQL, updates, updates.size(), (ps, line) -> {
+                            ps.setInt(1, targets.get(new LineKey(line.getProductId(), line.getVariantId())));
+                            ps.setTimestamp(2, timestamp);
+                            ps.setLong(3, line.getCartItemId());
+                            ps.setLong(4, state.getCartId());
+                        });
+                        for (int count : counts[0]) {
+                            if (count == 0) {
+                                // Dòng đã bị xoá ngoài CartService: rollback, giỏ được nạp lại
+                                throw new IllegalStateException("Cart was modified concurrently, please retry");
+                            }
+                        }
+                    }
+                    if (inserts.isEmpty()) {
+                        return null;
+                    }
+                    jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, inserts, inserts.size(), (ps, key) -> {
+                        ps.setLong(1, state.getCartId());
+                        ps.setLong(2, key.productId);
+                        setNullableLong(ps, 3, key.variantId);
+                        ps.setInt(4, targets.get(key));
+                        ps.setBigDecimal(5, prices.get(key.productId));
+                        ps.setTimestamp(6, timestamp);
+                        ps.setTimestamp(7, timestamp);
+                    });
+                    // Batch INSERT không trả về cart_item_id: đọc lại các dòng của giỏ trong cùng transaction
+                    return jdbcTemplate.query(SELECT_CART_LINES_SQL, this::mapLine, state.getCartId());
+                });
+            } catch (RuntimeException e) {
+                restoreHolds(userId, held.keySet(), current);
+                evict(userId);
+                throw e;
+            }
+
+            if (reloaded != null) {
+                state.cartItemIds().forEach(itemId -> userByItem.remove(itemId, userId));
+                state.clear();
+                for (CartView.Line line : reloaded) {
+                    state.put(line);
+                    userByItem.put(line.getCartItemId(), userId);
+                }
+            } else {
+                for (CartView.Line line : deletes) {
+                    state.remove(line.getCartItemId());
+                    userByItem.remove(line.getCartItemId());
+                }
+                for (CartView.Line line : updates) {
+                    line.setQuantity(targets.get(new LineKey(line.getProductId(), line.getVariantId())));
+                    line.setUpdatedAt(now);
+                }
+            }
+            batches.incrementAndGet();
+            return state.view();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        synchronized (carts) {
+            stats.put("carts", carts.size());
+        }
+        stats.put("maxCarts", maxCarts);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    // Gọi trong lock của user: giỏ trong cache, hoặc nạp từ database (tạo giỏ rỗng nếu create)
+    private CartState state(Long userId, boolean create) {
+        CartState cached;
+        synchronized (carts) {
+            cached = carts.get(userId);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        Optional<Cart> cart = cartRepository.findByUserUserId(userId);
+        if (cart.isEmpty()) {
+            if (!create) {
+                return null;
+            }
+            cart = Optional.of(createCart(userId));
+        }
+        CartState state = new CartState(userId, cart.get().getCartId(), cart.get().getCreatedAt(), currency);
+        for (CartItemRepository.CartLineRow row : cartItemRepository.findCartLines(state.getCartId())) {
+            state.put(new CartView.Line(row.getCartItemId(), row.getProductId(), row.getVariantId(),
+                    row.getQuantity(), Money.of(row.getPrice(), currency), row.getCreatedAt(), row.getUpdatedAt()));
+            userByItem.put(row.getCartItemId(), userId);
+        }
+
+        synchronized (carts) {
+            carts.put(userId, state);
+            while (carts.size() > maxCarts) {
+                Map.Entry<Long, CartState> eldest = carts.entrySet().iterator().next();
+                carts.remove(eldest.getKey());
+                eldest.getValue().cartItemIds().forEach(itemId -> userByItem.remove(itemId, eldest.getKey()));
+                evictions.incrementAndGet();
+            }
+        }
+        return state;
+    }
+
+    private Cart createCart(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+        User user = userRepository.getReferenceById(userId);
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setCreatedAt(LocalDateTime.now());
+        cart.setUpdatedAt(LocalDateTime.now());
+        try {
+            return cartRepository.save(cart);
+        } catch (DataIntegrityViolationException e) {
+            // Giỏ vừa được tạo ở nơi khác (user_id là UNIQUE)
+            return cartRepository.findByUserUserId(userId).orElseThrow(() -> e);
+        }
+    }
+
+    // Ghi database thất bại: bỏ giỏ trong bộ nhớ, lần sau nạp lại
+    private void evict(Long userId) {
+        synchronized (carts) {
+            CartState removed = carts.remove(userId);
+            if (removed != null) {
+                removed.cartItemIds().forEach(itemId -> userByItem.remove(itemId, userId));
+            }
+        }
+    }
+
+    private Long owner(Long cartItemId) {
+        Long userId = userByItem.get(cartItemId);
+        return userId != null ? userId : cartItemRepository.findUserIdByCartItemId(cartItemId).orElse(null);
+    }
+
+    // Giá theo productId của các dòng sắp thêm; product không tồn tại hoặc biến thể không thuộc product thì IllegalArgumentException
+    private Map<Long, BigDecimal> validateNewLines(List<LineKey> inserts) {
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        if (inserts.isEmpty()) {
+            return prices;
+        }
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> variantIds = new HashSet<>();
+        for (LineKey key : inserts) {
+            productIds.add(key.productId);
+            if (key.variantId != null) {
+                variantIds.add(key.variantId);
+            }
+        }
+        // IN rỗng không hợp lệ trên mọi database: -1 không khớp biến thể nào
+        Set<LineKey> found = new HashSet<>();
+        for (Object[] row : productRepository.findCartLineTargets(productIds, variantIds.isEmpty() ? List.of(-1L) : variantIds)) {
+            Long productId = (Long) row[0];
+            prices.put(productId, (BigDecimal) row[1]);
+            found.add(new LineKey(productId, (Long) row[2]));
+        }
+        List<String> errors = new ArrayList<>();
+        for (LineKey key : inserts) {
+            if (!prices.containsKey(key.productId)) {
+                errors.add("Product " + key.productId + " not found");
+            } else if (key.variantId != null && !found.contains(key)) {
+                errors.add("Variant " + key.variantId + " not found for product " + key.productId);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return prices;
+    }
+
+    private void restoreHolds(Long userId, Set<LineKey> keys, Map<LineKey, CartView.Line> current) {
+        for (LineKey key : keys) {
+            CartView.Line line = current.get(key);
+            restoreHold(userId, key.variantId, line != null ? line.getQuantity() : 0);
+        }
+    }
+
+    private void hold(Long userId, Long variantId, int quantity) {
+        if (variantId != null && cartHoldService.isEnabled()) {
+            InventoryLedger.Outcome outcome = cartHoldService.set(userId, variantId, quantity);
+            if (outcome != InventoryLedger.Outcome.OK) {
+                throw new HoldRejectedException(outcome);
+            }
+        }
+    }
+
+    private void restoreHold(Long userId, Long variantId, int quantity) {
+        if (variantId != null && cartHoldService.isEnabled()) {
+            cartHoldService.set(userId, variantId, quantity);
+        }
+    }
+
+    // Dòng trả về từ OUTPUT của MERGE / SELECT_CART_LINES_SQL
+    private CartView.Line mapLine(ResultSet rs, int rowNum) throws SQLException {
+        return new CartView.Line(
+                rs.getLong(1),
+                rs.getLong(2),
+                rs.getObject(3) != null ? rs.getLong(3) : null,
+                rs.getInt(4),
+                Money.of(rs.getBigDecimal(5), currency),
+                rs.getTimestamp(6).toLocalDateTime(),
+                rs.getTimestamp(7).toLocalDateTime());
+    }
+
+    private Object lock(Long userId) {
+        return locks[(int) ((userId * 0x9E3779B97F4A7C15L) >>> 54)];
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bộ đếm phiên bản cho từng bảng danh mục và từng product, dùng làm ETag.
+// Kiểm tra If-None-Match chỉ cần so chuỗi nên request 304 không chạm vào database.
+// Epoch đổi mỗi lần khởi động vì bộ đếm nằm trong bộ nhớ: ETag cũ từ trước khi restart luôn bị coi là khác.
+@Service
+public class CatalogVersionService {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<ReferenceDataChangedEvent.Type, AtomicLong> tableVersions = new EnumMap<>(ReferenceDataChangedEvent.Type.class);
+    private final ConcurrentHashMap<Long, Long> productVersions = new ConcurrentHashMap<>();
+
+    private final CacheControl productCacheControl;
+    private final CacheControl referenceCacheControl;
+
+    public CatalogVersionService(@Value("${store.http.cache.product-max-age:0}") long productMaxAgeSeconds,
+                                 @Value("${store.http.cache.reference-max-age:300}") long referenceMaxAgeSeconds) {
+        for (ReferenceDataChangedEvent.Type type : ReferenceDataChangedEvent.Type.values()) {
+            tableVersions.put(type, new AtomicLong());
+        }
+        this.productCacheControl = cacheControl(productMaxAgeSeconds);
+        this.referenceCacheControl = cacheControl(referenceMaxAgeSeconds);
+    }
+
+    // Sau khi ProductResponseCache đã bỏ JSON cũ
+    @Order(ProductResponseCache.LISTENER_ORDER + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        productVersions.merge(event.getProductId(), 1L, Long::sum);
+    }
+
+    @Order(ProductResponseCache.LISTENER_ORDER + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        tableVersions.get(event.getType()).incrementAndGet();
+    }
+
+    // ETag cho cả danh sách một bảng (vd. GET /api/categories)
+    public String collectionETag(ReferenceDataChangedEvent.Type type) {
+        return "\"" + type.name().toLowerCase(Locale.ROOT) + "-" + epoch + "-" + tableVersions.get(type).get() + "\"";
+    }
+
+    // JSON product nhúng category và brand nên ETag gồm cả phiên bản của hai bảng đó
+    public String productETag(Long productId) {
+        return "\"product-" + productId + "-" + epoch + "-" + productVersions.getOrDefault(productId, 0L)
+                + "." + tableVersions.get(ReferenceDataChangedEvent.Type.CATEGORY).get()
+                + "." + tableVersions.get(ReferenceDataChangedEvent.Type.BRAND).get() + "\"";
+    }
+
+    public CacheControl productCacheControl() {
+        return productCacheControl;
+    }
+
+    public CacheControl referenceCacheControl() {
+        return referenceCacheControl;
+    }
+
+    // If-None-Match có thể là "*" hoặc danh sách ETag phân cách bởi dấu phẩy (so sánh weak theo RFC 9110)
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CacheControl cacheControl(long maxAgeSeconds) {
+        if (maxAgeSeconds <= 0) {
+            return CacheControl.noCache();
+        }
+        return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).mustRevalidate();
+    }
+}
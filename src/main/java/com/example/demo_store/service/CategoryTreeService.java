@@ -0,0 +1,62 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.event.ReferenceDataChangedEvent;
+import com.example.demo_store.repository.CategoryRepository;
+import com.example.demo_store.service.category.CategoryTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Service
+public class CategoryTreeService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryTreeService.class);
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private volatile CategoryTree tree;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Could not build category tree, it will be loaded on first use: {}", e.getMessage());
+        }
+    }
+
+    // Bảng Categories nhỏ nên dựng lại toàn bộ snapshot sau mỗi lần ghi
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.getType() != ReferenceDataChangedEvent.Type.CATEGORY) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            tree = null;
+            log.warn("Could not rebuild category tree: {}", e.getMessage());
+        }
+    }
+
+    public synchronized CategoryTree rebuild() {
+        long start = System.currentTimeMillis();
+        CategoryTree fresh = CategoryTree.build(categoryRepository.findAllTreeRows());
+        tree = fresh;
+        log.debug("Category tree built: {} categories in {} ms", fresh.size(), System.currentTimeMillis() - start);
+        return fresh;
+    }
+
+    // Trả về snapshot hiện tại, dựng lần đầu nếu chưa có
+    public CategoryTree getTree() {
+        CategoryTree current = tree;
+        return current != null ? current : rebuild();
+    }
+}
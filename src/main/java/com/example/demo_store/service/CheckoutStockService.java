@@ -0,0 +1,170 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.service.inventory.InventoryLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Trừ tồn kho khi đặt hàng qua sổ tồn kho (InventoryService), cùng nguồn sự thật với giữ hàng trong giỏ:
+// mỗi dòng dùng phần user đang giữ trong giỏ rồi giữ thêm phần còn thiếu (reserve kiểm tra onHand - reserved nên hai người mua
+// và các hold khác không thể cùng lấy một đơn vị). Thiếu hàng ở một dòng thì trả lại toàn bộ phần đã giữ, không ghi gì.
+// Đủ hàng thì ghi đơn (work), trừ stock trong database và ghi biến động SALE trong cùng một transaction; chỉ sau khi
+// transaction commit phần đã giữ mới thành đã bán trong ledger, nên crash ở giữa không để lại lần bán của đơn chưa ghi.
+@Service
+public class CheckoutStockService {
+
+    public static class InsufficientStockException extends RuntimeException {
+        private final Long variantId;
+
+        public InsufficientStockException(Long variantId) {
+            super("Not enough stock for variant " + variantId);
+            this.variantId = variantId;
+        }
+
+        public Long getVariantId() { return variantId; }
+    }
+
+    // Một request khác đã đổi trạng thái đơn trước (huỷ / xoá / mở lại đồng thời): không đổi tồn kho lần nữa
+    public static class ConcurrentChangeException extends RuntimeException {
+        public ConcurrentChangeException() {
+            super("Order was changed by another request");
+        }
+    }
+
+    // Ledger chưa nạp xong (vừa khởi động)
+    public static class InventoryNotReadyException extends RuntimeException {
+        public InventoryNotReadyException() {
+            super("Inventory is not ready yet");
+        }
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CartHoldService cartHoldService;
+
+    // Trừ tồn cho các biến thể (variantId -> số lượng) rồi chạy work trong cùng transaction
+    public <T> T placeWithStock(Map<Long, Integer> quantities, Supplier<T> work) {
+        return placeWithStock(null, quantities, work, result -> null);
+    }
+
+    public <T> T placeWithStock(Map<Long, Integer> quantities, Supplier<T> work, Function<? super T, String> reference) {
+        return placeWithStock(null, quantities, work, reference);
+    }
+
+    // userId: chủ giỏ hàng có hold được dùng cho đơn (null = không dùng hold);
+    // reference: mã của kết quả (đơn vừa ghi) cho biến động SALE trong nhật ký kho
+    public <T> T placeWithStock(Long userId, Map<Long, Integer> quantities, Supplier<T> work,
+                                Function<? super T, String> reference) {
+        return placeWithStock(userId, quantities, () -> true, work, reference);
+    }
+
+    // claim: chạy đầu transaction, false thì rollback và ném ConcurrentChangeException (mở lại đơn đã huỷ)
+    public <T> T placeWithStock(Long userId, Map<Long, Integer> quantities, BooleanSupplier claim, Supplier<T> work,
+                                Function<? super T, String> reference) {
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        Map<Long, Integer> held = new HashMap<>();
+        Map<Long, Integer> extra = new HashMap<>();
+        try {
+            ordered.forEach((variantId, quantity) -> {
+                int fromHold = userId != null ? cartHoldService.take(userId, variantId) : 0;
+                held.put(variantId, fromHold);
+                int missing = quantity - fromHold;
+                if (missing > 0) {
+                    InventoryLedger.Outcome outcome = inventoryService.reserve(variantId, missing);
+                    if (outcome == InventoryLedger.Outcome.NOT_READY) {
+                        throw new InventoryNotReadyException();
+                    }
+                    if (outcome != InventoryLedger.Outcome.OK) {
+                        throw new InsufficientStockException(variantId);
+                    }
+                    extra.put(variantId, missing);
+                }
+            });
+        } catch (RuntimeException e) {
+            undoReservations(userId, held, extra);
+            throw e;
+        }
+
+        T result;
+        try {
+            inventoryService.flushPendingIncreases(ordered.keySet());
+            result = new TransactionTemplate(transactionManager).execute(status -> {
+                claimOrThrow(claim);
+                T placed = work.get();
+                inventoryService.sellInTransaction(ordered, reference.apply(placed)).ifPresent(variantId -> {
+                    throw new InsufficientStockException(variantId);
+                });
+                return placed;
+            });
+        } catch (RuntimeException e) {
+            undoReservations(userId, held, extra);
+            throw e;
+        }
+        inventoryService.sold(ordered);
+        releaseSurplus(ordered, held);
+        return result;
+    }
+
+    // Huỷ / xoá đơn: chạy work (ghi trạng thái huỷ hoặc xoá đơn) và cộng lại stock các dòng trong cùng một transaction,
+    // ledger chỉ nhận phần trả lại sau khi transaction đã commit.
+    // claim (UPDATE có điều kiện trên trạng thái đơn) chạy đầu transaction: hai request huỷ / xoá cùng một đơn thì
+    // request thua nhận ConcurrentChangeException, không trả hàng lần hai
+    public <T> T cancelWithStock(Map<Long, Integer> quantities, BooleanSupplier claim, Supplier<T> work, String reference) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        if (quantities.isEmpty()) {
+            return tx.execute(status -> {
+                claimOrThrow(claim);
+                return work.get();
+            });
+        }
+        if (!inventoryService.isReady()) {
+            throw new InventoryNotReadyException();
+        }
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        // Variant chưa có trong ledger được nạp trước: nạp sau khi commit sẽ đọc stock đã cộng rồi cộng thêm lần nữa
+        ordered.keySet().forEach(inventoryService::level);
+        T result = tx.execute(status -> {
+            claimOrThrow(claim);
+            T cancelled = work.get();
+            inventoryService.restockInTransaction(ordered, reference);
+            return cancelled;
+        });
+        inventoryService.returned(ordered);
+        return result;
+    }
+
+    private static void claimOrThrow(BooleanSupplier claim) {
+        if (!claim.getAsBoolean()) {
+            throw new ConcurrentChangeException();
+        }
+    }
+
+    // Trả phần giữ thêm cho đơn và đặt lại hold đã lấy từ giỏ
+    private void undoReservations(Long userId, Map<Long, Integer> held, Map<Long, Integer> extra) {
+        extra.forEach(inventoryService::release);
+        held.forEach((variantId, quantity) -> cartHoldService.restore(userId, variantId, quantity));
+    }
+
+    // Giỏ giữ nhiều hơn số lượng đặt: phần dư được trả lại
+    private void releaseSurplus(Map<Long, Integer> ordered, Map<Long, Integer> held) {
+        held.forEach((variantId, quantity) -> {
+            int surplus = quantity - ordered.get(variantId);
+            if (surplus > 0) {
+                inventoryService.release(variantId, surplus);
+            }
+        });
+    }
+}
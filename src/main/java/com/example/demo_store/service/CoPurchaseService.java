@@ -0,0 +1,256 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.entity.Order;
+import com.example.demo_store.event.OrderCancelledEvent;
+import com.example.demo_store.event.OrderCreatedEvent;
+import com.example.demo_store.repository.OrderItemRepository;
+import com.example.demo_store.repository.OrderRepository;
+import com.example.demo_store.service.copurchase.CoPurchaseMatrix;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// "Thường được mua cùng": đếm số đơn hàng chứa đồng thời từng cặp product.
+// Đơn mới được cộng dồn ngay sau khi tạo, đơn huỷ được trừ lại; rebuild từ lịch sử chia khoảng order_id thành các partition
+// và xử lý song song bằng fork-join, mỗi partition một ma trận riêng rồi merge lại.
+@Service
+public class CoPurchaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(CoPurchaseService.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    // Mỗi partition giữ một connection trong lúc đọc nên giữ thấp hơn kích thước pool Hikari
+    @Value("${store.co-purchase.rebuild-parallelism:3}")
+    private int rebuildParallelism;
+
+    // Số order_id mỗi partition
+    @Value("${store.co-purchase.partition-size:5000}")
+    private int partitionSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private CoPurchaseMatrix matrix;
+
+    // Các đơn tạo / huỷ trong lúc rebuild, áp lên ma trận mới sau khi hoán đổi
+    private final Object rebuildLock = new Object();
+    private List<PendingOrder> pendingDuringRebuild;
+
+    private static final class PendingOrder {
+        private final long orderId;
+        private final long[] productIds;
+        private final boolean cancelled;
+
+        private PendingOrder(long orderId, long[] productIds, boolean cancelled) {
+            this.orderId = orderId;
+            this.productIds = productIds;
+            this.cancelled = cancelled;
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                return;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, rebuildParallelism));
+        try {
+            long start = System.currentTimeMillis();
+            Long minOrderId = orderRepository.findMinOrderId();
+            Long maxOrderId = orderRepository.findMaxOrderId();
+            // Các đơn lần đọc đã cộng vào ma trận, để đối chiếu với đơn tạo / huỷ trong lúc rebuild
+            RoaringBitmap counted = new RoaringBitmap();
+            CoPurchaseMatrix fresh = minOrderId == null
+                    ? new CoPurchaseMatrix()
+                    : pool.invoke(new PartitionTask(minOrderId, maxOrderId, counted));
+
+            lock.writeLock().lock();
+            try {
+                List<PendingOrder> replay;
+                synchronized (rebuildLock) {
+                    matrix = fresh;
+                    replay = pendingDuringRebuild;
+                    pendingDuringRebuild = null;
+                }
+                // Đơn mới hơn maxOrderId áp toàn bộ. Đơn trong khoảng vừa đọc thì lần đọc có thể thấy trạng thái trước
+                // hoặc sau khi tạo / huỷ, nên chỉ áp sự kiện cuối cùng của đơn khi nó khác với việc lần đọc đã đếm đơn hay chưa
+                Map<Long, PendingOrder> lastInRange = new LinkedHashMap<>();
+                for (PendingOrder pending : replay) {
+                    if (maxOrderId == null || pending.orderId > maxOrderId) {
+                        apply(fresh, pending);
+                    } else {
+                        lastInRange.put(pending.orderId, pending);
+                    }
+                }
+                for (PendingOrder pending : lastInRange.values()) {
+                    if (pending.cancelled == counted.contains(Math.toIntExact(pending.orderId))) {
+                        apply(fresh, pending);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Co-purchase matrix built: {} orders, {} products in {} ms",
+                    fresh.getOrderCount(), fresh.productCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (rebuildLock) {
+                pendingDuringRebuild = null;
+            }
+            log.warn("Could not build co-purchase matrix: {}", e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        record(new PendingOrder(event.getOrderId(), toArray(event.getProductIds()), false));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        record(new PendingOrder(event.getOrderId(), toArray(event.getProductIds()), true));
+    }
+
+    // Trả về empty nếu ma trận chưa sẵn sàng
+    public Optional<List<CoPurchaseMatrix.Neighbor>> boughtTogether(Long productId, int limit) {
+        lock.readLock().lock();
+        try {
+            if (matrix == null) {
+                return Optional.empty();
+            }
+            return Optional.of(matrix.top(productId, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("ready", matrix != null);
+            if (matrix != null) {
+                stats.put("orders", matrix.getOrderCount());
+                stats.put("products", matrix.productCount());
+                stats.put("pairs", matrix.getPairCount());
+            }
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void record(PendingOrder order) {
+        lock.writeLock().lock();
+        try {
+            synchronized (rebuildLock) {
+                if (pendingDuringRebuild != null) {
+                    pendingDuringRebuild.add(order);
+                    return;
+                }
+            }
+            if (matrix != null) {
+                apply(matrix, order);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(CoPurchaseMatrix target, PendingOrder order) {
+        if (order.cancelled) {
+            target.removeOrder(order.productIds);
+        } else {
+            target.addOrder(order.productIds);
+        }
+    }
+
+    private static long[] toArray(List<Long> productIds) {
+        return productIds.stream().filter(id -> id != null).mapToLong(Long::longValue).toArray();
+    }
+
+    // Chia đôi khoảng order_id cho tới khi đủ nhỏ, đọc (orderId, productId) của partition và dựng ma trận riêng
+    private final class PartitionTask extends RecursiveTask<CoPurchaseMatrix> {
+
+        private final long fromOrderId;
+        private final long toOrderId;
+        private final RoaringBitmap counted;
+
+        private PartitionTask(long fromOrderId, long toOrderId, RoaringBitmap counted) {
+            this.fromOrderId = fromOrderId;
+            this.toOrderId = toOrderId;
+            this.counted = counted;
+        }
+
+        @Override
+        protected CoPurchaseMatrix compute() {
+            if (toOrderId - fromOrderId < partitionSize) {
+                return load();
+            }
+            long middle = fromOrderId + (toOrderId - fromOrderId) / 2;
+            PartitionTask left = new PartitionTask(fromOrderId, middle, counted);
+            PartitionTask right = new PartitionTask(middle + 1, toOrderId, counted);
+            left.fork();
+            CoPurchaseMatrix result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+
+        private CoPurchaseMatrix load() {
+            CoPurchaseMatrix partition = new CoPurchaseMatrix();
+            List<Object[]> rows = orderItemRepository.findOrderProductPairs(fromOrderId, toOrderId, Order.OrderStatus.CANCELLED);
+            RoaringBitmap orderIds = new RoaringBitmap();
+            List<Long> productIds = new ArrayList<>();
+            Long currentOrderId = null;
+            for (Object[] row : rows) {
+                Long orderId = (Long) row[0];
+                if (!orderId.equals(currentOrderId)) {
+                    if (!productIds.isEmpty()) {
+                        partition.addOrder(toArray(productIds));
+                    }
+                    productIds.clear();
+                    currentOrderId = orderId;
+                    orderIds.add(Math.toIntExact(orderId));
+                }
+                productIds.add((Long) row[1]);
+            }
+            if (!productIds.isEmpty()) {
+                partition.addOrder(toArray(productIds));
+            }
+            synchronized (counted) {
+                counted.or(orderIds);
+            }
+            return partition;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.CursorPage;
+import com.example.demo_store.entity.InventoryMovement;
+import com.example.demo_store.entity.InventorySnapshot;
+import com.example.demo_store.repository.InventoryMovementRepository;
+import com.example.demo_store.repository.InventorySnapshotRepository;
+import com.example.demo_store.service.inventory.StockMovement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Nhật ký biến động tồn kho (InventoryMovements) và snapshot gộp nhật ký (InventorySnapshots).
+// Biến động được ghi bằng batch INSERT trong chính transaction thay đổi ProductVariants.stock (flush của InventoryService)
+// nên tồn trong database luôn bằng snapshot + các biến động sau nó.
+// Định kỳ mỗi biến thể có biến động mới được gộp thành một snapshot bằng một câu INSERT ... SELECT, nên dựng lại tồn
+// (hiện tại hoặc tại một thời điểm) chỉ đọc một snapshot và phần đuôi nhật ký sau nó.
+@Service
+public class InventoryJournalService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryJournalService.class);
+
+    private static final List<InventoryMovement.MovementType> ON_HAND_TYPES = Arrays.stream(InventoryMovement.MovementType.values())
+            .filter(InventoryMovement.MovementType::affectsOnHand)
+            .toList();
+    private static final String ON_HAND_TYPES_SQL = ON_HAND_TYPES.stream()
+            .map(type -> "'" + type.name() + "'")
+            .collect(Collectors.joining(", "));
+
+    private static final String INSERT_MOVEMENT_SQL =
+            "INSERT INTO InventoryMovements (variant_id, movement_type, quantity, reference, created_at) VALUES (?, ?, ?, ?, ?)";
+    // Snapshot mở đầu cho biến thể chưa có snapshot: tồn trước mọi biến động đã ghi trong nhật ký
+    private static final String OPENING_SNAPSHOT_SQL =
+            "INSERT INTO InventorySnapshots (variant_id, last_movement_id, stock, taken_at) " +
+            "SELECT v.variant_id, 0, v.stock - COALESCE((SELECT SUM(m.quantity) FROM InventoryMovements m " +
+            "WHERE m.variant_id = v.variant_id AND m.movement_type IN (" + ON_HAND_TYPES_SQL + ")), 0), " +
+            "COALESCE((SELECT MIN(m.created_at) FROM InventoryMovements m WHERE m.variant_id = v.variant_id), ?) " +
+            "FROM ProductVariants v " +
+            "WHERE NOT EXISTS (SELECT 1 FROM InventorySnapshots s WHERE s.variant_id = v.variant_id)";
+    private static final String LAST_SETTLED_MOVEMENT_SQL =
+            "SELECT MAX(movement_id) FROM InventoryMovements WHERE created_at < ?";
+    // Snapshot mới = snapshot gần nhất + tổng delta tồn thực tế sau nó (tới movement_id đã chốt)
+    private static final String SNAPSHOT_SQL =
+            "INSERT INTO InventorySnapshots (variant_id, last_movement_id, stock, taken_at) " +
+            "SELECT s.variant_id, MAX(m.movement_id), s.stock + SUM(m.quantity), ? " +
+            "FROM InventorySnapshots s " +
+            "JOIN InventoryMovements m ON m.variant_id = s.variant_id " +
+            "AND m.movement_id > s.last_movement_id AND m.movement_id <= ? " +
+            "AND m.movement_type IN (" + ON_HAND_TYPES_SQL + ") " +
+            "WHERE s.last_movement_id = (SELECT MAX(s2.last_movement_id) FROM InventorySnapshots s2 WHERE s2.variant_id = s.variant_id) " +
+            "GROUP BY s.variant_id, s.stock";
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private InventorySnapshotRepository inventorySnapshotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${store.inventory.journal.batch-size:500}")
+    private int batchSize;
+
+    // movement_id cấp lúc INSERT nhưng các transaction commit không theo thứ tự đó: chỉ gộp biến động đã ghi
+    // trước thời điểm này đủ lâu (transaction ghi nhật ký đều ngắn) để không bỏ sót dòng commit muộn có id nhỏ hơn
+    @Value("${store.inventory.snapshot-grace-seconds:60}")
+    private long snapshotGraceSeconds;
+
+    private final AtomicLong appendedMovements = new AtomicLong();
+    // Compaction giữ lock riêng: append (trong transaction đặt hàng) không phải chờ
+    private final Object compactLock = new Object();
+    private long snapshotRuns;
+    private long snapshotRows;
+    private long failedSnapshotRuns;
+    private long lastSnapshotMovementId;
+
+    // Tồn của biến thể tại một thời điểm, dựng từ snapshot và phần nhật ký sau nó
+    public static class StockAsOf {
+        private final Long variantId;
+        private final LocalDateTime at;
+        private final int stock;
+        private final Long snapshotMovementId;
+        private final LocalDateTime snapshotTakenAt;
+
+        public StockAsOf(Long variantId, LocalDateTime at, int stock, Long snapshotMovementId, LocalDateTime snapshotTakenAt) {
+            this.variantId = variantId;
+            this.at = at;
+            this.stock = stock;
+            this.snapshotMovementId = snapshotMovementId;
+            this.snapshotTakenAt = snapshotTakenAt;
+        }
+
+        public Long getVariantId() { return variantId; }
+
+        public LocalDateTime getAt() { return at; }
+
+        public int getStock() { return stock; }
+
+        public Long getSnapshotMovementId() { return snapshotMovementId; }
+
+        public LocalDateTime getSnapshotTakenAt() { return snapshotTakenAt; }
+    }
+
+    // Ghi trong transaction của người gọi (cùng transaction với thay đổi tồn), mỗi JDBC batch tối đa batchSize dòng
+    public void append(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_MOVEMENT_SQL, movements, batchSize, (ps, movement) -> {
+            ps.setLong(1, movement.getVariantId());
+            ps.setString(2, movement.getType().name());
+            ps.setInt(3, movement.getQuantity());
+            ps.setString(4, movement.getReference());
+            ps.setTimestamp(5, now);
+        });
+        appendedMovements.addAndGet(movements.size());
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        compact();
+    }
+
+    @Scheduled(fixedDelayString = "${store.inventory.snapshot-interval-ms:3600000}",
+               initialDelayString = "${store.inventory.snapshot-interval-ms:3600000}")
+    public void compact() {
+        synchronized (compactLock) {
+            compactNow();
+        }
+    }
+
+    private void compactNow() {
+        try {
+            long start = System.currentTimeMillis();
+            LocalDateTime cutoff = LocalDateTime.now().minusSeconds(snapshotGraceSeconds);
+            int[] rows = new int[2];
+            Long upTo = new TransactionTemplate(transactionManager).execute(status -> {
+                rows[0] = jdbcTemplate.update(OPENING_SNAPSHOT_SQL, Timestamp.valueOf(LocalDateTime.now()));
+                Long settled = jdbcTemplate.queryForObject(LAST_SETTLED_MOVEMENT_SQL, Long.class, Timestamp.valueOf(cutoff));
+                if (settled != null && settled > lastSnapshotMovementId) {
+                    rows[1] = jdbcTemplate.update(SNAPSHOT_SQL, Timestamp.valueOf(cutoff), settled);
+                }
+                return settled;
+            });
+            synchronized (this) {
+                snapshotRuns++;
+                snapshotRows += rows[0] + rows[1];
+                if (upTo != null) {
+                    lastSnapshotMovementId = Math.max(lastSnapshotMovementId, upTo);
+                }
+            }
+            log.info("Inventory snapshots: {} opening, {} compacted up to movement {} in {} ms",
+                    rows[0], rows[1], lastSnapshotMovementId, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (this) {
+                failedSnapshotRuns++;
+            }
+            log.warn("Could not compact inventory journal: {}", e.getMessage());
+        }
+    }
+
+    // Mới nhất trước; cursor là movement_id của dòng cuối trang
+    public CursorPage<InventoryMovement> history(Long variantId, Long before, int limit) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<InventoryMovement> rows = before == null
+                ? inventoryMovementRepository.findByVariantIdOrderByMovementIdDesc(variantId, page)
+                : inventoryMovementRepository.findByVariantIdAndMovementIdLessThanOrderByMovementIdDesc(variantId, before, page);
+        boolean hasMore = rows.size() > limit;
+        List<InventoryMovement> items = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).getMovementId()) : null;
+        return new CursorPage<>(items, nextCursor, hasMore, limit);
+    }
+
+    // Empty nếu chưa có snapshot nào tại thời điểm at (trước khi nhật ký bắt đầu ghi cho biến thể)
+    public Optional<StockAsOf> stockAsOf(Long variantId, LocalDateTime at) {
+        Optional<InventorySnapshot> snapshot =
+                inventorySnapshotRepository.findFirstByVariantIdAndTakenAtLessThanEqualOrderByLastMovementIdDesc(variantId, at);
+        return snapshot.map(base -> {
+            long tail = inventoryMovementRepository.sumQuantityAfter(variantId, base.getLastMovementId(), at, ON_HAND_TYPES);
+            return new StockAsOf(variantId, at, (int) (base.getStock() + tail), base.getLastMovementId(), base.getTakenAt());
+        });
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("appendedMovements", appendedMovements.get());
+        stats.put("snapshotRuns", snapshotRuns);
+        stats.put("snapshotRows", snapshotRows);
+        stats.put("failedSnapshotRuns", failedSnapshotRuns);
+        stats.put("lastSnapshotMovementId", lastSnapshotMovementId);
+        return stats;
+    }
+}
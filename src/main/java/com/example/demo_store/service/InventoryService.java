@@ -0,0 +1,490 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.entity.InventoryMovement;
+import com.example.demo_store.event.ProductVariantChangedEvent;
+import com.example.demo_store.event.StockLevelChangedEvent;
+import com.example.demo_store.repository.ProductVariantRepository;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import com.example.demo_store.service.inventory.InventoryWal;
+import com.example.demo_store.service.inventory.StockMovement;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Sổ tồn kho trong bộ nhớ là nguồn sự thật cho ProductVariants.stock: reserve / release / commit / setStock
+// kiểm tra và cập nhật nguyên tử trên ledger, delta được ghi vào WAL (fsync) trước khi trả về,
+// rồi định kỳ gom lại ghi xuống database bằng batch "stock = stock + delta".
+// Batch UPDATE và checkpoint (sequence WAL cuối đã ghi) nằm chung một transaction nên khi khởi động lại
+// chỉ cần áp các bản ghi WAL sau checkpoint lên tồn đọc từ database, không mất và không áp trùng.
+// Mỗi thay đổi kèm một biến động (nhập / bán / huỷ đơn / điều chỉnh / giữ hàng) được gom lại và ghi vào InventoryMovements
+// trong cùng transaction với batch UPDATE đó.
+// Riêng bán / huỷ đơn ghi stock và biến động thẳng vào database trong transaction ghi đơn, rồi mới cập nhật ledger
+// sau khi commit (không qua WAL), để đơn và tồn kho không lệch nhau khi crash giữa hai lần ghi.
+// Giả định chỉ một instance ghi tồn kho (WAL nằm trên đĩa cục bộ).
+@Service
+public class InventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    // Delta của ledger đã được kiểm tra trong bộ nhớ nên không chặn ở 0: lệch thì CHECK (stock >= 0) báo lỗi
+    private static final String UPDATE_STOCK_SQL =
+            "UPDATE ProductVariants SET stock = stock + ? WHERE variant_id = ?";
+    // Bán trong transaction ghi đơn: ledger đã giữ hàng, điều kiện chỉ là chốt chặn cuối cho database
+    private static final String SELL_STOCK_SQL =
+            "UPDATE ProductVariants SET stock = stock - ? WHERE variant_id = ? AND stock >= ?";
+    private static final String SELECT_CHECKPOINT_SQL =
+            "SELECT last_sequence FROM InventoryLedgerCheckpoints WHERE ledger_name = ?";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO InventoryLedgerCheckpoints (ledger_name, last_sequence) VALUES (?, 0)";
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE InventoryLedgerCheckpoints SET last_sequence = ?, updated_at = CURRENT_TIMESTAMP WHERE ledger_name = ?";
+
+    private static final int PUBLISH_CHUNK = 1000;
+    // Delta áp lại từ WAL khi khởi động: không còn biết loại biến động ban đầu
+    private static final String WAL_RECOVERY_REFERENCE = "wal-recovery";
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private InventoryJournalService inventoryJournalService;
+
+    @Value("${store.inventory.wal-dir:data/inventory-wal}")
+    private String walDir;
+
+    @Value("${store.inventory.ledger-name:default}")
+    private String ledgerName;
+
+    // Thao tác ghi giữ read lock, flush giữ write lock trong lúc lấy delta và chốt sequence:
+    // mọi bản ghi WAL có sequence <= sequence đã chốt đều nằm trong phần delta lấy ra
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private volatile InventoryLedger ledger;
+    private InventoryWal wal;
+    private long checkpointSequence;
+    private long flushes;
+    private long flushedVariants;
+    private long failedFlushes;
+    private final Object recoverLock = new Object();
+    // Biến động chưa ghi vào nhật ký; biến động tồn thực tế được thêm trong read lock nên flush lấy đúng phần của sequence đã chốt
+    private final ConcurrentLinkedQueue<StockMovement> movements = new ConcurrentLinkedQueue<>();
+    // Phần đã lấy ra nhưng ghi database thất bại, ghi lại ở lần flush sau (chỉ dùng trong flush)
+    private final List<StockMovement> unflushedMovements = new ArrayList<>();
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        recover();
+    }
+
+    // Nạp tồn từ database rồi áp phần WAL chưa checkpoint
+    public void recover() {
+        synchronized (recoverLock) {
+            if (ledger == null) {
+                loadLedger();
+            }
+        }
+    }
+
+    private void loadLedger() {
+        try {
+            long start = System.currentTimeMillis();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            InventoryLedger fresh = new InventoryLedger((int) Math.min(Integer.MAX_VALUE, productVariantRepository.count()));
+            long checkpoint = tx.execute(status -> {
+                List<Long> sequences = jdbcTemplate.queryForList(SELECT_CHECKPOINT_SQL, Long.class, ledgerName);
+                if (sequences.isEmpty()) {
+                    jdbcTemplate.update(INSERT_CHECKPOINT_SQL, ledgerName);
+                    return 0L;
+                }
+                return sequences.get(0);
+            });
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<ProductVariantRepository.StockRow> rows = productVariantRepository.streamStockRows()) {
+                    rows.forEach(row -> fresh.putIfAbsent(row.getVariantId(), row.getStock()));
+                }
+            });
+            Set<Long> replayed = new HashSet<>();
+            wal = InventoryWal.open(Paths.get(walDir), checkpoint, (variantId, delta) -> {
+                fresh.applyRecovered(variantId, delta);
+                movements.add(new StockMovement(variantId, InventoryMovement.MovementType.ADJUSTMENT, delta, WAL_RECOVERY_REFERENCE));
+                replayed.add(variantId);
+            });
+            checkpointSequence = checkpoint;
+            ledger = fresh;
+            // Tồn áp từ WAL chưa có trong database: báo cho những nơi đã đọc tồn từ database
+            replayed.forEach(variantId -> eventPublisher.publishEvent(new StockLevelChangedEvent(variantId)));
+            log.info("Inventory ledger loaded: {} variants, {} WAL records replayed in {} ms",
+                    fresh.size(), wal.lastSequence() - checkpoint, System.currentTimeMillis() - start);
+            flush();
+        } catch (Exception e) {
+            log.warn("Could not load inventory ledger: {}", e.getMessage());
+        }
+    }
+
+    // Giữ hàng (chỉ trong bộ nhớ, không ghi WAL): mất khi khởi động lại
+    public InventoryLedger.Outcome reserve(Long variantId, int quantity) {
+        InventoryLedger current = ledger;
+        if (current == null) {
+            return InventoryLedger.Outcome.NOT_READY;
+        }
+        InventoryLedger.Outcome outcome = current.reserve(variantId, quantity);
+        if (outcome == InventoryLedger.Outcome.UNKNOWN_VARIANT && load(current, variantId)) {
+            outcome = current.reserve(variantId, quantity);
+        }
+        if (outcome == InventoryLedger.Outcome.OK) {
+            movements.add(new StockMovement(variantId, InventoryMovement.MovementType.RESERVATION, quantity, null));
+        }
+        return outcome;
+    }
+
+    public InventoryLedger.Outcome release(Long variantId, int quantity) {
+        InventoryLedger current = ledger;
+        if (current == null) {
+            return InventoryLedger.Outcome.NOT_READY;
+        }
+        InventoryLedger.Outcome outcome = current.release(variantId, quantity);
+        if (outcome == InventoryLedger.Outcome.OK) {
+            movements.add(new StockMovement(variantId, InventoryMovement.MovementType.RELEASE, -quantity, null));
+        }
+        return outcome;
+    }
+
+    // Phần đã giữ thành đã bán; trả về sau khi delta đã bền vững trong WAL
+    public InventoryLedger.Outcome commit(Long variantId, int quantity) {
+        return changed(variantId, write(InventoryMovement.MovementType.SALE, null,
+                (current, journal) -> current.commit(variantId, quantity, journal)));
+    }
+
+    // Hàng trả lại kho ngoài luồng đơn hàng (ghi WAL như setStock); huỷ đơn dùng restockInTransaction
+    public InventoryLedger.Outcome restock(Long variantId, int quantity, String reference) {
+        return add(InventoryMovement.MovementType.CANCELLATION, variantId, quantity, reference);
+    }
+
+    // Đơn hàng (CheckoutStockService) ghi stock thẳng xuống database trong transaction ghi đơn, không qua WAL:
+    // crash trước khi commit thì cả đơn lẫn phần trừ tồn cùng mất, sau khi commit thì database đã có cả hai.
+    // Delta pending dương (nhập hàng / trả hàng chưa flush) làm stock trong database thấp hơn ledger và có thể làm
+    // điều kiện "stock >= ?" của lệnh bán thất bại oan, nên được ghi xuống trước khi mở transaction ghi đơn
+    public void flushPendingIncreases(Collection<Long> variantIds) {
+        InventoryLedger current = ledger;
+        if (current != null && variantIds.stream().anyMatch(variantId -> current.pending(variantId) > 0)) {
+            flush();
+        }
+    }
+
+    // Trừ stock các dòng của đơn và ghi biến động SALE, trong transaction của caller. Trả về variant đầu tiên
+    // database không đủ hàng (caller rollback cả transaction), empty nếu đã trừ đủ mọi dòng
+    public Optional<Long> sellInTransaction(Map<Long, Integer> quantities, String reference) {
+        return writeInTransaction(SELL_STOCK_SQL, InventoryMovement.MovementType.SALE, quantities, reference, -1);
+    }
+
+    // Cộng lại stock các dòng của đơn bị huỷ / xoá và ghi biến động CANCELLATION, trong transaction của caller
+    public void restockInTransaction(Map<Long, Integer> quantities, String reference) {
+        writeInTransaction(UPDATE_STOCK_SQL, InventoryMovement.MovementType.CANCELLATION, quantities, reference, 1);
+    }
+
+    private Optional<Long> writeInTransaction(String sql, InventoryMovement.MovementType type,
+                                              Map<Long, Integer> quantities, String reference, int sign) {
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Object[]> batch = new ArrayList<>(ordered.size());
+        List<StockMovement> journal = new ArrayList<>(ordered.size());
+        ordered.forEach((variantId, quantity) -> {
+            batch.add(sign < 0 ? new Object[]{quantity, variantId, quantity} : new Object[]{quantity, variantId});
+            journal.add(new StockMovement(variantId, type, sign * quantity, reference));
+        });
+        int[] updated = jdbcTemplate.batchUpdate(sql, batch);
+        int line = 0;
+        for (Long variantId : ordered.keySet()) {
+            if (updated[line++] == 0) {
+                return Optional.of(variantId);
+            }
+        }
+        inventoryJournalService.append(journal);
+        return Optional.empty();
+    }
+
+    // Sau khi transaction ghi đơn commit: phần đã giữ thành đã bán trong ledger
+    public void sold(Map<Long, Integer> quantities) {
+        InventoryLedger current = ledger;
+        if (current == null) {
+            return;
+        }
+        quantities.forEach((variantId, quantity) -> changed(variantId, current.sold(variantId, quantity)));
+        publishFlushed(new TreeMap<>(quantities).keySet());
+    }
+
+    // Sau khi transaction huỷ / xoá đơn commit: hàng trả lại có trong ledger. Variant chưa có trong ledger
+    // sẽ đọc stock đã cộng từ database khi được nạp
+    public void returned(Map<Long, Integer> quantities) {
+        InventoryLedger current = ledger;
+        if (current == null) {
+            return;
+        }
+        quantities.forEach((variantId, quantity) -> changed(variantId, current.returned(variantId, quantity)));
+        publishFlushed(new TreeMap<>(quantities).keySet());
+    }
+
+    // Nhập hàng vào kho
+    public InventoryLedger.Outcome receive(Long variantId, int quantity, String reference) {
+        return add(InventoryMovement.MovementType.RECEIPT, variantId, quantity, reference);
+    }
+
+    // Đặt tồn tuyệt đối (cập nhật tay / kiểm kê)
+    public InventoryLedger.Outcome setStock(Long variantId, int stock) {
+        return setStock(variantId, stock, null);
+    }
+
+    public InventoryLedger.Outcome setStock(Long variantId, int stock, String reference) {
+        InventoryMovement.MovementType type = InventoryMovement.MovementType.ADJUSTMENT;
+        InventoryLedger.Outcome outcome = write(type, reference, (current, journal) -> current.setOnHand(variantId, stock, journal));
+        if (outcome == InventoryLedger.Outcome.UNKNOWN_VARIANT && load(ledger, variantId)) {
+            outcome = write(type, reference, (current, journal) -> current.setOnHand(variantId, stock, journal));
+        }
+        return changed(variantId, outcome);
+    }
+
+    // Đặt tồn cho nhiều biến thể một lần (đồng bộ kho hàng loạt): cả nhóm chỉ chờ một lần fsync WAL
+    public Map<Long, InventoryLedger.Outcome> setStocks(Map<Long, Integer> stocks, String reference) {
+        Map<Long, InventoryLedger.Outcome> outcomes = new HashMap<>();
+        InventoryLedger.Outcome ready = write(InventoryMovement.MovementType.ADJUSTMENT, reference, (current, journal) -> {
+            for (Map.Entry<Long, Integer> entry : stocks.entrySet()) {
+                outcomes.put(entry.getKey(), current.setOnHand(entry.getKey(), entry.getValue(), journal));
+            }
+            return InventoryLedger.Outcome.OK;
+        });
+        if (ready != InventoryLedger.Outcome.OK) {
+            stocks.keySet().forEach(variantId -> outcomes.put(variantId, ready));
+            return outcomes;
+        }
+        outcomes.forEach((variantId, outcome) -> {
+            if (outcome == InventoryLedger.Outcome.UNKNOWN_VARIANT) {
+                outcomes.put(variantId, setStock(variantId, stocks.get(variantId), reference));
+            } else {
+                changed(variantId, outcome);
+            }
+        });
+        return outcomes;
+    }
+
+    // Trả về empty nếu ledger chưa sẵn sàng hoặc không có variant
+    public Optional<InventoryLedger.Level> level(Long variantId) {
+        InventoryLedger current = ledger;
+        if (current == null) {
+            return Optional.empty();
+        }
+        InventoryLedger.Level level = current.get(variantId);
+        if (level == null && load(current, variantId)) {
+            level = current.get(variantId);
+        }
+        return Optional.ofNullable(level);
+    }
+
+    public boolean isReady() {
+        return ledger != null;
+    }
+
+    // Variant mới tạo được nạp ngay; variant đã xoá còn lại trong ledger cũng vô hại (UPDATE không khớp dòng nào)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVariantChanged(ProductVariantChangedEvent event) {
+        InventoryLedger current = ledger;
+        if (current != null && event.getVariantId() != null && current.get(event.getVariantId()) == null) {
+            load(current, event.getVariantId());
+        }
+    }
+
+    // Ghi delta xuống ProductVariants theo thứ tự variant_id, cùng transaction với checkpoint
+    @Scheduled(fixedDelayString = "${store.inventory.flush-interval-ms:200}")
+    public synchronized void flush() {
+        InventoryLedger current = ledger;
+        if (current == null) {
+            return;
+        }
+        TreeMap<Long, Integer> deltas = new TreeMap<>();
+        long sequence;
+        flushLock.writeLock().lock();
+        try {
+            sequence = wal.lastSequence();
+            if (sequence == checkpointSequence && movements.isEmpty() && unflushedMovements.isEmpty()) {
+                return;
+            }
+            current.drainPending(deltas::put);
+            for (StockMovement movement; (movement = movements.poll()) != null; ) {
+                unflushedMovements.add(movement);
+            }
+            // Segment mới chỉ chứa bản ghi sau sequence đã chốt, các segment cũ xoá được sau khi checkpoint
+            try {
+                wal.rotate();
+            } catch (IOException e) {
+                log.warn("Could not rotate inventory WAL: {}", e.getMessage());
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        try {
+            List<Object[]> batch = new ArrayList<>(deltas.size());
+            deltas.forEach((variantId, delta) -> batch.add(new Object[]{delta, variantId}));
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                if (!batch.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_STOCK_SQL, batch);
+                }
+                inventoryJournalService.append(unflushedMovements);
+                jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, sequence, ledgerName);
+            });
+            unflushedMovements.clear();
+            checkpointSequence = sequence;
+            flushes++;
+            flushedVariants += deltas.size();
+        } catch (Exception e) {
+            // Delta chưa vào database: trả lại ledger, WAL chưa bị xoá nên vẫn khôi phục được nếu crash;
+            // biến động nằm lại trong unflushedMovements
+            deltas.forEach(current::restorePending);
+            failedFlushes++;
+            log.warn("Could not flush inventory deltas: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            wal.deleteSegmentsUpTo(sequence);
+        } catch (IOException e) {
+            log.warn("Could not delete inventory WAL segments: {}", e.getMessage());
+        }
+        publishFlushed(deltas.keySet());
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (ledger == null) {
+            return;
+        }
+        flush();
+        try {
+            wal.close();
+        } catch (IOException e) {
+            log.warn("Could not close inventory WAL: {}", e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        InventoryLedger current = ledger;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", current != null);
+        if (current != null) {
+            stats.put("variants", current.size());
+            stats.put("reservedUnits", current.reservedTotal());
+            stats.put("walSequence", wal.lastSequence());
+            stats.put("checkpointSequence", checkpointSequence);
+            stats.put("flushes", flushes);
+            stats.put("flushedVariants", flushedVariants);
+            stats.put("failedFlushes", failedFlushes);
+            stats.put("pendingMovements", movements.size() + unflushedMovements.size());
+        }
+        return stats;
+    }
+
+    private interface LedgerWrite {
+        InventoryLedger.Outcome apply(InventoryLedger ledger, InventoryLedger.Journal journal) throws IOException;
+    }
+
+    private InventoryLedger.Outcome write(InventoryMovement.MovementType type, String reference, LedgerWrite operation) {
+        InventoryLedger current = ledger;
+        if (current == null) {
+            return InventoryLedger.Outcome.NOT_READY;
+        }
+        long[] sequence = new long[1];
+        InventoryLedger.Outcome outcome;
+        flushLock.readLock().lock();
+        try {
+            outcome = operation.apply(current, (variantId, delta) -> {
+                sequence[0] = wal.append(variantId, delta);
+                movements.add(new StockMovement(variantId, type, delta, reference));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write inventory WAL", e);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        if (sequence[0] > 0) {
+            try {
+                wal.sync(sequence[0]);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not sync inventory WAL", e);
+            }
+        }
+        return outcome;
+    }
+
+    private InventoryLedger.Outcome add(InventoryMovement.MovementType type, Long variantId, int quantity, String reference) {
+        InventoryLedger.Outcome outcome = write(type, reference, (current, journal) -> current.restock(variantId, quantity, journal));
+        if (outcome == InventoryLedger.Outcome.UNKNOWN_VARIANT && load(ledger, variantId)) {
+            outcome = write(type, reference, (current, journal) -> current.restock(variantId, quantity, journal));
+        }
+        return changed(variantId, outcome);
+    }
+
+    private InventoryLedger.Outcome changed(Long variantId, InventoryLedger.Outcome outcome) {
+        if (outcome == InventoryLedger.Outcome.OK) {
+            eventPublisher.publishEvent(new StockLevelChangedEvent(variantId));
+        }
+        return outcome;
+    }
+
+    private boolean load(InventoryLedger current, Long variantId) {
+        if (current == null || variantId == null) {
+            return false;
+        }
+        Optional<Integer> stock = productVariantRepository.findStockById(variantId);
+        stock.ifPresent(value -> current.putIfAbsent(variantId, value));
+        return stock.isPresent();
+    }
+
+    // Các index đọc stock từ database (facet) cần biết stock vừa được ghi xuống
+    private void publishFlushed(Iterable<Long> variantIds) {
+        List<Long> ids = new ArrayList<>();
+        variantIds.forEach(ids::add);
+        // Chia nhỏ danh sách IN (SQL Server giới hạn 2100 tham số mỗi câu lệnh)
+        for (int from = 0; from < ids.size(); from += PUBLISH_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + PUBLISH_CHUNK));
+            for (Object[] row : productVariantRepository.findVariantAndProductIds(chunk)) {
+                eventPublisher.publishEvent(new ProductVariantChangedEvent((Long) row[0], (Long) row[1]));
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.ProductDTO;
+import com.example.demo_store.dto.ProductDetailResponse;
+import com.example.demo_store.entity.ProductImage;
+import com.example.demo_store.entity.ProductVariant;
+import com.example.demo_store.repository.ProductImageRepository;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.repository.ProductVariantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class ProductDetailService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    // Số query cố định (3) bất kể số ảnh / biến thể: product dạng projection, danh sách ảnh,
+    // biến thể join sẵn size và color. Chỉ đọc cột của ảnh nên không chạm vào association product (LAZY).
+    @Transactional(readOnly = true)
+    public Optional<ProductDetailResponse> getProductDetail(Long productId) {
+        Optional<ProductDTO> product = productRepository.findSummaryById(productId);
+        if (product.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<ProductDetailResponse.Image> images = new ArrayList<>();
+        for (ProductImage image : productImageRepository.findByProductProductIdOrderBySortOrderAscImageIdAsc(productId)) {
+            images.add(new ProductDetailResponse.Image(image.getImageId(), image.getImageUrl(), image.getImageName(),
+                    image.getIsPrimary(), image.getSortOrder()));
+        }
+
+        List<ProductDetailResponse.Variant> variants = new ArrayList<>();
+        for (ProductVariant variant : productVariantRepository.findWithSizeAndColorByProductId(productId)) {
+            variants.add(new ProductDetailResponse.Variant(variant.getVariantId(),
+                    variant.getSize().getSizeId(), variant.getSize().getSizeName(),
+                    variant.getColor().getColorId(), variant.getColor().getColorName(),
+                    variant.getPrice(), variant.getStock(), variant.getStatus().toString()));
+        }
+
+        return Optional.of(new ProductDetailResponse(product.get(), images, variants));
+    }
+}
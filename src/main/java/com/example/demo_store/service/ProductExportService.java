@@ -0,0 +1,173 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Export catalog theo từng dòng: đọc bằng cursor forward-only và ghi ngay ra response,
+// không giữ danh sách product trong bộ nhớ nên heap không tăng theo kích thước catalog
+@Service
+public class ProductExportService {
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private static final String[] CSV_HEADER = {
+        "product_id", "sku", "product_name", "description", "price", "stock_quantity", "status",
+        "category_id", "category_name", "brand_id", "brand_name", "image_url", "created_at", "updated_at"
+    };
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+
+        public String getExtension() { return extension; }
+
+        public static Format fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return NDJSON;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + value);
+        }
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Chạy trong transaction read-only riêng vì StreamingResponseBody ghi trên thread async
+    public void export(Format format, OutputStream out) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.executeWithoutResult(status -> {
+            try (Stream<ProductRepository.ExportRow> rows = productRepository.streamExportRows()) {
+                if (format == Format.CSV) {
+                    writeCsv(rows.iterator(), out);
+                } else {
+                    writeNdjson(rows.iterator(), out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeNdjson(Iterator<ProductRepository.ExportRow> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        int count = 0;
+        while (rows.hasNext()) {
+            ProductRepository.ExportRow row = rows.next();
+            generator.writeStartObject();
+            generator.writeNumberField("productId", row.getProductId());
+            generator.writeStringField("sku", row.getSku());
+            generator.writeStringField("productName", row.getProductName());
+            generator.writeStringField("description", row.getDescription());
+            generator.writeNumberField("price", row.getPrice());
+            writeNumberOrNull(generator, "stockQuantity", row.getStockQuantity());
+            generator.writeStringField("status", row.getStatus() != null ? row.getStatus().name() : null);
+            generator.writeNumberField("categoryId", row.getCategoryId());
+            generator.writeStringField("categoryName", row.getCategoryName());
+            generator.writeNumberField("brandId", row.getBrandId());
+            generator.writeStringField("brandName", row.getBrandName());
+            generator.writeStringField("imageUrl", row.getImageUrl());
+            generator.writeStringField("createdAt", row.getCreatedAt() != null ? row.getCreatedAt().toString() : null);
+            generator.writeStringField("updatedAt", row.getUpdatedAt() != null ? row.getUpdatedAt().toString() : null);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                generator.flush();
+                entityManager.clear();
+            }
+        }
+        generator.flush();
+    }
+
+    private void writeCsv(Iterator<ProductRepository.ExportRow> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writeCsvLine(writer, (Object[]) CSV_HEADER);
+        int count = 0;
+        while (rows.hasNext()) {
+            ProductRepository.ExportRow row = rows.next();
+            writeCsvLine(writer,
+                    row.getProductId(), row.getSku(), row.getProductName(), row.getDescription(),
+                    row.getPrice() != null ? row.getPrice().toPlainString() : null, row.getStockQuantity(),
+                    row.getStatus(), row.getCategoryId(), row.getCategoryName(), row.getBrandId(),
+                    row.getBrandName(), row.getImageUrl(), row.getCreatedAt(), row.getUpdatedAt());
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+                entityManager.clear();
+            }
+        }
+        writer.flush();
+    }
+
+    private static void writeNumberOrNull(JsonGenerator generator, String field, Integer value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(field, value);
+        } else {
+            generator.writeNullField(field);
+        }
+    }
+
+    // RFC 4180: bọc trong dấu nháy kép khi có dấu phẩy, nháy hoặc xuống dòng
+    private static void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            boolean quote = text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                    || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+            if (quote) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.entity.ProductVariant;
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductsImportedEvent;
+import com.example.demo_store.event.ProductVariantChangedEvent;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.repository.ProductVariantRepository;
+import com.example.demo_store.service.facet.ProductFacetIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Service
+public class ProductFacetService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Mốc bắt đầu của từng khoảng giá, khoảng cuối không có cận trên
+    @Value("${store.facets.price-bands:0,100000,200000,500000,1000000}")
+    private BigDecimal[] priceBands;
+
+    private volatile ProductFacetIndex index;
+
+    // Product id bị thay đổi trong lúc rebuild, nạp lại lên index mới sau khi hoán đổi
+    private final Object rebuildLock = new Object();
+    private Set<Long> pendingDuringRebuild;
+    private boolean rebuildRequested;
+
+    // Build bitmap khi ứng dụng khởi động xong, không chặn startup
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Bulk import ghi thẳng bằng JDBC nên rebuild một lần thay vì cập nhật từng product
+    @Async
+    @EventListener(ProductsImportedEvent.class)
+    public void onProductsImported() {
+        rebuild();
+    }
+
+    // Không chạy song song: gọi khi đang rebuild (vd. import commit trong lúc lần trước đang đọc database) thì
+    // lần đang chạy được đánh dấu để chạy thêm một lần sau khi hoán đổi, dữ liệu mới không bị bỏ qua
+    public void rebuild() {
+        while (rebuildOnce() && takeRebuildRequest()) {
+            // lặp lại cho tới khi không còn yêu cầu rebuild mới
+        }
+    }
+
+    private boolean takeRebuildRequest() {
+        synchronized (rebuildLock) {
+            boolean requested = rebuildRequested;
+            rebuildRequested = false;
+            return requested;
+        }
+    }
+
+    // false nếu đang có lần rebuild khác chạy (đã ghi nhận yêu cầu cho lần đó)
+    private boolean rebuildOnce() {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                rebuildRequested = true;
+                return false;
+            }
+            pendingDuringRebuild = new HashSet<>();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            ProductFacetIndex fresh = new ProductFacetIndex(priceBands);
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                Map<Long, FacetBuilder> builders = new HashMap<>();
+                try (Stream<ProductRepository.FacetRow> rows = productRepository.streamFacetRows()) {
+                    rows.forEach(row -> builders.put(row.getProductId(), new FacetBuilder(row)));
+                }
+                try (Stream<ProductVariantRepository.VariantFacetRow> rows = productVariantRepository.streamVariantFacetRows()) {
+                    rows.forEach(row -> {
+                        FacetBuilder builder = builders.get(row.getProductId());
+                        if (builder != null) {
+                            builder.add(row);
+                        }
+                    });
+                }
+                builders.forEach((productId, builder) -> fresh.put(productId, builder.build()));
+            });
+
+            Set<Long> replay;
+            synchronized (rebuildLock) {
+                index = fresh;
+                replay = pendingDuringRebuild;
+                pendingDuringRebuild = null;
+            }
+            replay.forEach(productId -> reload(fresh, productId));
+            log.info("Product facet index built: {} products in {} ms", fresh.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (rebuildLock) {
+                pendingDuringRebuild = null;
+            }
+            log.warn("Could not build product facet index: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+            track(event.getProductId());
+            ProductFacetIndex current = index;
+            if (current != null) {
+                current.remove(event.getProductId());
+            }
+            return;
+        }
+        refresh(event.getProductId());
+    }
+
+    // Stock / status / size / color của biến thể đổi => tính lại facet của product cha
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVariantChanged(ProductVariantChangedEvent event) {
+        if (event.getProductId() != null) {
+            refresh(event.getProductId());
+        }
+    }
+
+    // Trả về empty nếu bitmap chưa build xong
+    public Optional<ProductFacetIndex.Result> search(ProductFacetIndex.Query query, Long afterProductId, int limit) {
+        ProductFacetIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.search(query, afterProductId, limit));
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    private void refresh(Long productId) {
+        track(productId);
+        ProductFacetIndex current = index;
+        if (current != null) {
+            reload(current, productId);
+        }
+    }
+
+    private void track(Long productId) {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(productId);
+            }
+        }
+    }
+
+    private void reload(ProductFacetIndex target, Long productId) {
+        try {
+            Optional<ProductRepository.FacetRow> row = productRepository.findFacetRow(productId);
+            if (row.isEmpty()) {
+                target.remove(productId);
+                return;
+            }
+            FacetBuilder builder = new FacetBuilder(row.get());
+            productVariantRepository.findVariantFacetRows(productId).forEach(builder::add);
+            target.put(productId, builder.build());
+        } catch (Exception e) {
+            log.warn("Could not refresh facets of product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    // Gom product + các biến thể thành trạng thái facet; biến thể INACTIVE không tính size/color
+    private static final class FacetBuilder {
+        private final ProductRepository.FacetRow product;
+        private final Set<Long> sizeIds = new HashSet<>();
+        private final Set<Long> colorIds = new HashSet<>();
+        private boolean inStock;
+
+        FacetBuilder(ProductRepository.FacetRow product) {
+            this.product = product;
+        }
+
+        void add(ProductVariantRepository.VariantFacetRow variant) {
+            if (variant.getStatus() == ProductVariant.VariantStatus.INACTIVE) {
+                return;
+            }
+            if (variant.getSizeId() != null) {
+                sizeIds.add(variant.getSizeId());
+            }
+            if (variant.getColorId() != null) {
+                colorIds.add(variant.getColorId());
+            }
+            if (variant.getStatus() == ProductVariant.VariantStatus.ACTIVE
+                    && variant.getStock() != null && variant.getStock() > 0) {
+                inStock = true;
+            }
+        }
+
+        ProductFacetIndex.ProductFacets build() {
+            String status = product.getStatus() != null ? product.getStatus().name() : null;
+            return new ProductFacetIndex.ProductFacets(product.getCategoryId(), product.getBrandId(),
+                    product.getPrice(), status, Set.copyOf(sizeIds),
+                    Set.copyOf(colorIds), inStock);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.example.demo_store.service;
 
 import com.example.demo_store.entity.Product;
 import com.example.demo_store.entity.ProductImage;
+import com.example.demo_store.event.ProductChangedEvent;
 import com.example.demo_store.repository.ProductImageRepository;
 import com.example.demo_store.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,6 +26,9 @@ public class ProductImageService {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     private static final int MAX_IMAGES_PER_PRODUCT = 10;
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
     private static final String[] ALLOWED_EXTENSIONS = {".jpg", ".jpeg", ".png", ".gif", ".webp"};
@@ -91,6 +96,7 @@ public class ProductImageService {
             productRepository.save(product);
         }
         
+        eventPublisher.publishEvent(ProductChangedEvent.updated(productId));
         return uploadedImages;
     }
     
@@ -128,6 +134,7 @@ public class ProductImageService {
             productRepository.save(product);
         }
         
+        eventPublisher.publishEvent(ProductChangedEvent.updated(productId));
         return savedImage;
     }
     
@@ -149,6 +156,7 @@ public class ProductImageService {
             }
         }
         
+        eventPublisher.publishEvent(ProductChangedEvent.updated(productId));
         return productImageRepository.findByProductProductIdOrderBySortOrderAscImageIdAsc(productId);
     }
     
@@ -196,6 +204,7 @@ public class ProductImageService {
         
         // Xóa từ database
         productImageRepository.deleteById(imageId);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(productId));
     }
     
     // Xóa tất cả ảnh của sản phẩm
@@ -223,6 +232,7 @@ public class ProductImageService {
             product.setThumbnailUrl(null);
             productRepository.save(product);
         }
+        eventPublisher.publishEvent(ProductChangedEvent.updated(productId));
     }
     
     // Validate file
@@ -0,0 +1,470 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.controller.ProductController.ProductCreateRequest;
+import com.example.demo_store.dto.BulkImportResult;
+import com.example.demo_store.entity.Product;
+import com.example.demo_store.event.ProductSkusImportedEvent;
+import com.example.demo_store.event.ProductsImportedEvent;
+import com.example.demo_store.repository.BrandRepository;
+import com.example.demo_store.repository.CategoryRepository;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.service.importer.CsvReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Bulk import product: parse body theo từng dòng, validate bằng constraint của ProductCreateRequest,
+// resolve category / brand từ bảng tra trong bộ nhớ và insert bằng JDBC batch (mỗi batch một transaction)
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO Products (product_name, description, sku, price, image_url, stock_quantity, status, category_id, brand_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format fromParam(String format, String contentType) {
+            if (format != null && !format.isBlank()) {
+                for (Format value : values()) {
+                    if (value.name().equalsIgnoreCase(format)) {
+                        return value;
+                    }
+                }
+                throw new IllegalArgumentException("Unsupported import format: " + format);
+            }
+            return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/csv") ? CSV : NDJSON;
+        }
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${store.import.batch-size:1000}")
+    private int batchSize;
+
+    public BulkImportResult importProducts(InputStream body, Format format) throws IOException {
+        long start = System.currentTimeMillis();
+        BulkImportResult result = new BulkImportResult();
+        Lookups lookups = loadLookups();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+        Iterator<Map<String, String>> rows = format == Format.CSV ? csvRows(reader) : ndjsonRows(reader);
+
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        long rowNumber = 0;
+        try {
+            while (rows.hasNext()) {
+                rowNumber++;
+                Map<String, String> row;
+                try {
+                    row = rows.next();
+                } catch (RowParseException e) {
+                    addError(result, rowNumber, null, List.of(e.getMessage()));
+                    continue;
+                }
+                if (row.isEmpty()) {
+                    rowNumber--;
+                    continue;
+                }
+
+                PendingRow pending = toPendingRow(rowNumber, row, lookups, result);
+                if (pending != null) {
+                    batch.add(pending);
+                    if (batch.size() >= batchSize) {
+                        flush(batch, lookups, result);
+                    }
+                }
+            }
+        } catch (FatalParseException e) {
+            // CSV hỏng cấu trúc (vd. thiếu dấu nháy đóng): dừng đọc, giữ các batch đã ghi
+            addError(result, rowNumber, null, List.of(e.getMessage()));
+        }
+        flush(batch, lookups, result);
+
+        result.setTotalRows(rowNumber);
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        if (result.getInserted() > 0) {
+            eventPublisher.publishEvent(new ProductsImportedEvent((int) result.getInserted()));
+        }
+        log.info("Bulk product import: {} rows, {} inserted, {} failed in {} ms",
+                rowNumber, result.getInserted(), result.getFailed(), result.getElapsedMs());
+        return result;
+    }
+
+    private PendingRow toPendingRow(long rowNumber, Map<String, String> row, Lookups lookups, BulkImportResult result) {
+        List<String> messages = new ArrayList<>();
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setProductName(row.get("productname"));
+        request.setDescription(row.get("description"));
+        request.setSku(row.get("sku"));
+        request.setPrice(row.get("price"));
+        request.setStatus(row.get("status"));
+        request.setImageUrl(row.get("imageurl"));
+        request.setStockQuantity(parseInteger(row.get("stockquantity"), "stockQuantity", messages));
+        request.setCategoryId(resolve(row.get("categoryid"), row.get("categoryname"),
+                lookups.categoryIds, lookups.categoryIdsByName, "Category", messages));
+        request.setBrandId(resolve(row.get("brandid"), row.get("brandname"),
+                lookups.brandIds, lookups.brandIdsByName, "Brand", messages));
+
+        for (ConstraintViolation<ProductCreateRequest> violation : validator.validate(request)) {
+            messages.add(violation.getMessage());
+        }
+
+        BigDecimal price = null;
+        if (request.getPrice() != null && !request.getPrice().isBlank()) {
+            try {
+                price = new BigDecimal(request.getPrice().trim());
+                if (price.signum() <= 0) {
+                    messages.add("Price must be greater than 0");
+                }
+            } catch (NumberFormatException e) {
+                messages.add("Price must be a number");
+            }
+        }
+
+        Product.ProductStatus status = Product.ProductStatus.ACTIVE;
+        if (request.getStatus() != null && !request.getStatus().isBlank()) {
+            try {
+                status = Product.ProductStatus.valueOf(request.getStatus().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                messages.add("Invalid status: " + request.getStatus());
+            }
+        }
+
+        String sku = request.getSku() != null ? request.getSku().trim() : null;
+        // So trùng theo collation của database (không phân biệt hoa thường): "ab-1" và "AB-1" là một SKU
+        String skuKey = sku != null ? SkuIndexService.normalize(sku) : null;
+        if (skuKey != null && (lookups.skus.contains(skuKey) || lookups.pendingSkus.contains(skuKey))) {
+            messages.add("SKU already exists: " + sku);
+        }
+
+        if (!messages.isEmpty()) {
+            addError(result, rowNumber, sku, messages);
+            return null;
+        }
+        lookups.pendingSkus.add(skuKey);
+        return new PendingRow(rowNumber, request, sku, price, status);
+    }
+
+    // Mỗi batch một transaction: batch lỗi (vd. vi phạm ràng buộc DB) chỉ làm hỏng các dòng của batch đó.
+    // SKU của batch chỉ tính là đã tồn tại khi batch ghi thành công, nên dòng gửi lại sau batch lỗi không bị báo trùng
+    private void flush(List<PendingRow> batch, Lookups lookups, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, row) -> {
+                ProductCreateRequest request = row.request;
+                ps.setString(1, request.getProductName());
+                ps.setString(2, request.getDescription());
+                ps.setString(3, row.sku);
+                ps.setBigDecimal(4, row.price);
+                ps.setString(5, request.getImageUrl());
+                ps.setInt(6, request.getStockQuantity());
+                ps.setString(7, row.status.name());
+                ps.setLong(8, request.getCategoryId());
+                ps.setLong(9, request.getBrandId());
+            }));
+            result.setInserted(result.getInserted() + batch.size());
+            lookups.skus.addAll(lookups.pendingSkus);
+            List<String> imported = new ArrayList<>(batch.size());
+            batch.forEach(row -> imported.add(row.sku));
+            eventPublisher.publishEvent(new ProductSkusImportedEvent(imported));
+        } catch (DataAccessException e) {
+            String message = "Batch insert failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (PendingRow row : batch) {
+                addError(result, row.rowNumber, row.sku, List.of(message));
+            }
+        }
+        lookups.pendingSkus.clear();
+        batch.clear();
+    }
+
+    private Lookups loadLookups() {
+        Lookups lookups = new Lookups();
+        for (Object[] row : categoryRepository.findAllIdAndName()) {
+            Long id = ((Number) row[0]).longValue();
+            lookups.categoryIds.add(id);
+            if (row[1] != null) {
+                lookups.categoryIdsByName.put(normalizeName((String) row[1]), id);
+            }
+        }
+        for (Object[] row : brandRepository.findAllIdAndName()) {
+            Long id = ((Number) row[0]).longValue();
+            lookups.brandIds.add(id);
+            if (row[1] != null) {
+                lookups.brandIdsByName.put(normalizeName((String) row[1]), id);
+            }
+        }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.executeWithoutResult(status -> {
+            try (Stream<String> skus = productRepository.streamAllSkus()) {
+                skus.forEach(sku -> lookups.skus.add(SkuIndexService.normalize(sku)));
+            }
+        });
+        return lookups;
+    }
+
+    private static Long resolve(String idText, String name, Set<Long> ids, Map<String, Long> idsByName,
+                                String label, List<String> messages) {
+        if (idText != null && !idText.isBlank()) {
+            Long id = parseLong(idText, label + " ID", messages);
+            if (id != null && !ids.contains(id)) {
+                messages.add(label + " not found: " + id);
+                return null;
+            }
+            return id;
+        }
+        if (name != null && !name.isBlank()) {
+            Long id = idsByName.get(normalizeName(name));
+            if (id == null) {
+                messages.add(label + " not found: " + name);
+            }
+            return id;
+        }
+        return null;
+    }
+
+    private static Integer parseInteger(String text, String field, List<String> messages) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            messages.add(field + " must be an integer");
+            return null;
+        }
+    }
+
+    private static Long parseLong(String text, String field, List<String> messages) {
+        try {
+            return Long.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            messages.add(field + " must be an integer");
+            return null;
+        }
+    }
+
+    private static void addError(BulkImportResult result, long rowNumber, String sku, List<String> messages) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new BulkImportResult.RowError(rowNumber, sku, messages));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Tên cột không phân biệt kiểu viết: product_name, productName, Product Name đều thành "productname"
+    private static String normalizeKey(String key) {
+        StringBuilder normalized = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    private Iterator<Map<String, String>> ndjsonRows(BufferedReader reader) {
+        return new LineIterator<>(() -> {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            return line;
+        }, line -> {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new RowParseException("Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (node == null || !node.isObject()) {
+                throw new RowParseException("Each line must be a JSON object");
+            }
+            Map<String, String> row = new HashMap<>();
+            node.properties().forEach(field -> {
+                JsonNode value = field.getValue();
+                row.put(normalizeKey(field.getKey()), value.isNull() ? null : value.asText());
+            });
+            return row;
+        });
+    }
+
+    private Iterator<Map<String, String>> csvRows(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return List.<Map<String, String>>of().iterator();
+        }
+        List<String> columns = new ArrayList<>(header.size());
+        for (String column : header) {
+            // Bỏ BOM nếu file được lưu từ Excel
+            columns.add(normalizeKey(column.replace("\uFEFF", "")));
+        }
+        return new LineIterator<>(() -> {
+            try {
+                return csv.readRecord();
+            } catch (IOException e) {
+                throw new FatalParseException(e.getMessage());
+            }
+        }, record -> {
+            Map<String, String> row = new HashMap<>();
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                return row;
+            }
+            if (record.size() != columns.size()) {
+                throw new RowParseException("Expected " + columns.size() + " columns but found " + record.size());
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                String value = record.get(i);
+                row.put(columns.get(i), value.isEmpty() ? null : value);
+            }
+            return row;
+        });
+    }
+
+    private interface Source<T> {
+        T next() throws IOException;
+    }
+
+    private interface RowMapper<T> {
+        Map<String, String> map(T raw);
+    }
+
+    // Đọc trước một bản ghi thô; lỗi parse của từng dòng được ném ra ở next() để ghi nhận đúng số dòng
+    private static final class LineIterator<T> implements Iterator<Map<String, String>> {
+        private final Source<T> source;
+        private final RowMapper<T> mapper;
+        private T nextRaw;
+        private boolean done;
+
+        LineIterator(Source<T> source, RowMapper<T> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextRaw == null && !done) {
+                try {
+                    nextRaw = source.next();
+                } catch (IOException e) {
+                    throw new FatalParseException(e.getMessage());
+                }
+                done = nextRaw == null;
+            }
+            return nextRaw != null;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            T raw = nextRaw;
+            nextRaw = null;
+            return mapper.map(raw);
+        }
+    }
+
+    private static final class RowParseException extends RuntimeException {
+        RowParseException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class FatalParseException extends RuntimeException {
+        FatalParseException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Lookups {
+        private final Set<Long> categoryIds = new HashSet<>();
+        private final Map<String, Long> categoryIdsByName = new HashMap<>();
+        private final Set<Long> brandIds = new HashSet<>();
+        private final Map<String, Long> brandIdsByName = new HashMap<>();
+        // SKU đã có trong database (kể cả các batch đã ghi của lần import này), dạng SkuIndexService.normalize
+        private final Set<String> skus = new HashSet<>();
+        // SKU của batch đang chờ ghi, cùng dạng
+        private final Set<String> pendingSkus = new HashSet<>();
+    }
+
+    private static final class PendingRow {
+        private final long rowNumber;
+        private final ProductCreateRequest request;
+        private final String sku;
+        private final BigDecimal price;
+        private final Product.ProductStatus status;
+
+        PendingRow(long rowNumber, ProductCreateRequest request, String sku, BigDecimal price, Product.ProductStatus status) {
+            this.rowNumber = rowNumber;
+            this.request = request;
+            this.sku = sku;
+            this.price = price;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cache JSON đã serialize sẵn của product theo productId (và SKU -> productId).
+// Giới hạn theo số entry và tổng số byte, bỏ entry ít dùng nhất (LRU).
+// Mỗi lần invalidate tăng generation; put() mang generation lúc bắt đầu đọc DB nên
+// một request đọc bản cũ trước khi commit không thể ghi đè lại sau khi đã invalidate.
+@Service
+public class ProductResponseCache {
+
+    // Listener của cache chạy trước CatalogVersionService: tăng phiên bản (ETag mới) khi cache còn JSON cũ thì request
+    // xen giữa trả JSON cũ kèm ETag mới và client giữ bản cũ đó mãi
+    public static final int LISTENER_ORDER = 0;
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Long> productIdBySku = new HashMap<>();
+    private long totalBytes;
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long puts;
+    private long rejectedPuts;
+    private long evictions;
+    private long invalidations;
+
+    private static final class Entry {
+        private final String sku;
+        private final byte[] json;
+
+        Entry(String sku, byte[] json) {
+            this.sku = sku;
+            this.json = json;
+        }
+    }
+
+    public ProductResponseCache(@Value("${store.cache.product.max-entries:10000}") int maxEntries,
+                                @Value("${store.cache.product.max-bytes:67108864}") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] getById(Long productId) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.json;
+    }
+
+    // Multi-get: một lần lấy lock cho cả danh sách, chỉ trả về các id có trong cache
+    public synchronized Map<Long, byte[]> getAllById(Collection<Long> productIds) {
+        Map<Long, byte[]> found = new HashMap<>();
+        for (Long productId : productIds) {
+            Entry entry = entries.get(productId);
+            if (entry == null) {
+                misses++;
+            } else {
+                hits++;
+                found.put(productId, entry.json);
+            }
+        }
+        return found;
+    }
+
+    public synchronized byte[] getBySku(String sku) {
+        Long productId = productIdBySku.get(sku);
+        Entry entry = productId != null ? entries.get(productId) : null;
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.json;
+    }
+
+    // Gọi trước khi đọc DB; truyền lại giá trị này cho put()
+    public synchronized long currentGeneration() {
+        return generation;
+    }
+
+    public synchronized void put(Long productId, String sku, byte[] json, long loadedAtGeneration) {
+        if (loadedAtGeneration != generation || json.length > maxBytes) {
+            rejectedPuts++;
+            return;
+        }
+        removeEntry(productId);
+        entries.put(productId, new Entry(sku, json));
+        if (sku != null) {
+            productIdBySku.put(sku, productId);
+        }
+        totalBytes += json.length;
+        puts++;
+
+        while (entries.size() > maxEntries || totalBytes > maxBytes) {
+            Long eldest = entries.keySet().iterator().next();
+            removeEntry(eldest);
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(Long productId) {
+        generation++;
+        invalidations++;
+        removeEntry(productId);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations++;
+        entries.clear();
+        productIdBySku.clear();
+        totalBytes = 0;
+    }
+
+    // Chạy sau commit nên request kế tiếp sẽ đọc được dữ liệu mới
+    @Order(LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    @Order(LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.getType() == ReferenceDataChangedEvent.Type.CATEGORY
+                || event.getType() == ReferenceDataChangedEvent.Type.BRAND) {
+            invalidateAll();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        stats.put("entries", entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("puts", puts);
+        stats.put("rejectedPuts", rejectedPuts);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    private void removeEntry(Long productId) {
+        Entry removed = entries.remove(productId);
+        if (removed != null) {
+            totalBytes -= removed.json.length;
+            if (removed.sku != null) {
+                productIdBySku.remove(removed.sku, productId);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductsImportedEvent;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.service.search.InvertedIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Service
+public class ProductSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    // Trọng số field khi tính term frequency (tên sản phẩm quan trọng nhất)
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile InvertedIndex index;
+
+    // Các event đến trong lúc rebuild, phát lại lên index mới sau khi hoán đổi
+    private final Object rebuildLock = new Object();
+    private List<ProductChangedEvent> pendingDuringRebuild;
+    private boolean rebuildRequested;
+
+    // Build index khi ứng dụng khởi động xong, không chặn startup
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Bulk import ghi thẳng bằng JDBC nên rebuild một lần thay vì cập nhật từng product
+    @Async
+    @EventListener(ProductsImportedEvent.class)
+    public void onProductsImported() {
+        rebuild();
+    }
+
+    // Không chạy song song: gọi khi đang rebuild (vd. import commit trong lúc lần trước đang đọc database) thì
+    // lần đang chạy được đánh dấu để chạy thêm một lần sau khi hoán đổi, dữ liệu mới không bị bỏ qua
+    public void rebuild() {
+        while (rebuildOnce() && takeRebuildRequest()) {
+            // lặp lại cho tới khi không còn yêu cầu rebuild mới
+        }
+    }
+
+    private boolean takeRebuildRequest() {
+        synchronized (rebuildLock) {
+            boolean requested = rebuildRequested;
+            rebuildRequested = false;
+            return requested;
+        }
+    }
+
+    // false nếu đang có lần rebuild khác chạy (đã ghi nhận yêu cầu cho lần đó)
+    private boolean rebuildOnce() {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                rebuildRequested = true;
+                return false;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            InvertedIndex fresh = new InvertedIndex();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<ProductRepository.SearchDocument> documents = productRepository.streamSearchDocuments()) {
+                    documents.forEach(document -> fresh.index(document.getProductId(), fields(document)));
+                }
+            });
+
+            List<ProductChangedEvent> replay;
+            synchronized (rebuildLock) {
+                index = fresh;
+                replay = pendingDuringRebuild;
+                pendingDuringRebuild = null;
+            }
+            replay.forEach(event -> apply(fresh, event));
+            log.info("Product search index built: {} documents in {} ms", fresh.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (rebuildLock) {
+                pendingDuringRebuild = null;
+            }
+            log.warn("Could not build product search index, falling back to SQL search: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    // Cập nhật index sau khi create / update / delete product đã commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        }
+        InvertedIndex current = index;
+        if (current != null) {
+            apply(current, event);
+        }
+    }
+
+    // Tên brand / category nằm trong document của mọi product thuộc chúng: dựng lại index sau khi đổi tên / xoá
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.getType() == ReferenceDataChangedEvent.Type.CATEGORY
+                || event.getType() == ReferenceDataChangedEvent.Type.BRAND) {
+            rebuild();
+        }
+    }
+
+    // Trả về empty nếu index chưa sẵn sàng để caller fallback về SQL
+    public Optional<InvertedIndex.Hits> search(String keyword, int offset, int limit) {
+        InvertedIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.search(keyword, offset, limit));
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    public Map<String, Object> getStats() {
+        InvertedIndex current = index;
+        if (current == null) {
+            return Map.of("ready", false);
+        }
+        Map<String, Object> stats = current.stats();
+        stats.put("ready", true);
+        return stats;
+    }
+
+    private void apply(InvertedIndex target, ProductChangedEvent event) {
+        Long productId = event.getProductId();
+        if (event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+            target.remove(productId);
+            return;
+        }
+        try {
+            Optional<ProductRepository.SearchDocument> document = productRepository.findSearchDocument(productId);
+            if (document.isPresent()) {
+                target.index(productId, fields(document.get()));
+            } else {
+                target.remove(productId);
+            }
+        } catch (Exception e) {
+            log.warn("Could not re-index product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    private static List<InvertedIndex.Field> fields(ProductRepository.SearchDocument document) {
+        return List.of(
+                new InvertedIndex.Field(document.getProductName(), NAME_WEIGHT),
+                new InvertedIndex.Field(document.getBrandName(), BRAND_WEIGHT),
+                new InvertedIndex.Field(document.getCategoryName(), CATEGORY_WEIGHT),
+                new InvertedIndex.Field(document.getDescription(), DESCRIPTION_WEIGHT));
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductSkusImportedEvent;
+import com.example.demo_store.event.ProductsImportedEvent;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.service.sku.BloomFilter;
+import com.example.demo_store.service.sku.SkuHashIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// SKU -> productId trong bộ nhớ kèm Bloom filter để trả lời SKU không tồn tại mà không gọi SQL Server.
+// Kết quả tra cứu chỉ mang tính gợi ý: Bloom "không có" => chắc chắn 404; index "có" => đọc theo id;
+// còn lại (chưa build xong, dương tính giả) => fallback findBySku như cũ.
+// Khoá của index và Bloom filter được chuẩn hoá như collation của cột sku (không phân biệt hoa thường,
+// bỏ khoảng trắng cuối) nên mọi SKU mà database coi là bằng nhau đều cho cùng một kết quả.
+@Service
+public class SkuIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(SkuIndexService.class);
+
+    public enum Lookup {
+        // Bloom filter khẳng định SKU không tồn tại
+        ABSENT,
+        // Index có mapping, productId hợp lệ
+        FOUND,
+        // Không kết luận được, cần hỏi database
+        UNKNOWN
+    }
+
+    public static final class Result {
+        private final Lookup lookup;
+        private final Long productId;
+
+        private Result(Lookup lookup, Long productId) {
+            this.lookup = lookup;
+            this.productId = productId;
+        }
+
+        public Lookup getLookup() { return lookup; }
+
+        public Long getProductId() { return productId; }
+    }
+
+    private static final Result ABSENT = new Result(Lookup.ABSENT, null);
+    private static final Result UNKNOWN = new Result(Lookup.UNKNOWN, null);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${store.sku-index.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SkuHashIndex index;
+    private BloomFilter bloom;
+    // Số SKU đã thêm vào Bloom filter (gồm cả SKU đã xoá / đổi tên) kể từ lần dựng gần nhất
+    private int bloomInsertions;
+    // SKU của batch import đã commit nhưng chưa có trong index (chỉ nằm trong Bloom filter), đã chuẩn hoá
+    private final Set<String> importedSkus = new HashSet<>();
+
+    // Các event đến trong lúc rebuild, phát lại lên index mới sau khi hoán đổi
+    private final Object rebuildLock = new Object();
+    private List<ProductChangedEvent> pendingDuringRebuild;
+    private boolean rebuildRequested;
+    private List<String> pendingImportedSkus;
+
+    private final AtomicLong bloomNegatives = new AtomicLong();
+    private final AtomicLong indexHits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Bulk import ghi thẳng bằng JDBC nên dựng lại toàn bộ
+    @Async
+    @EventListener(ProductsImportedEvent.class)
+    public void onProductsImported() {
+        rebuild();
+    }
+
+    // Không chạy song song: gọi khi đang rebuild (vd. import commit trong lúc lần trước đang đọc database) thì
+    // lần đang chạy được đánh dấu để chạy thêm một lần sau khi hoán đổi, dữ liệu mới không bị bỏ qua
+    public void rebuild() {
+        while (rebuildOnce() && takeRebuildRequest()) {
+            // lặp lại cho tới khi không còn yêu cầu rebuild mới
+        }
+    }
+
+    private boolean takeRebuildRequest() {
+        synchronized (rebuildLock) {
+            boolean requested = rebuildRequested;
+            rebuildRequested = false;
+            return requested;
+        }
+    }
+
+    // false nếu đang có lần rebuild khác chạy (đã ghi nhận yêu cầu cho lần đó)
+    private boolean rebuildOnce() {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                rebuildRequested = true;
+                return false;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+            pendingImportedSkus = new ArrayList<>();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, Long> rows = new HashMap<>();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<ProductRepository.SkuRow> skus = productRepository.streamSkuRows()) {
+                    skus.forEach(row -> rows.put(normalize(row.getSku()), row.getProductId()));
+                }
+            });
+            SkuHashIndex fresh = new SkuHashIndex(rows.size());
+            rows.forEach(fresh::put);
+
+            List<ProductChangedEvent> replay;
+            List<String> imported;
+            lock.writeLock().lock();
+            try {
+                synchronized (rebuildLock) {
+                    index = fresh;
+                    importedSkus.clear();
+                    rebuildBloomLocked();
+                    replay = pendingDuringRebuild;
+                    imported = pendingImportedSkus;
+                    pendingDuringRebuild = null;
+                    pendingImportedSkus = null;
+                }
+                replay.forEach(this::applyLocked);
+                imported.forEach(this::addImportedLocked);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("SKU index built: {} SKUs in {} ms", fresh.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (rebuildLock) {
+                pendingDuringRebuild = null;
+                pendingImportedSkus = null;
+            }
+            log.warn("Could not build SKU index, lookups will go to the database: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    public Result lookup(String sku) {
+        String key = normalize(sku);
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                fallbacks.incrementAndGet();
+                return UNKNOWN;
+            }
+            if (!bloom.mightContain(key)) {
+                bloomNegatives.incrementAndGet();
+                return ABSENT;
+            }
+            long productId = index.get(key);
+            if (productId == SkuHashIndex.NOT_FOUND) {
+                fallbacks.incrementAndGet();
+                return UNKNOWN;
+            }
+            indexHits.incrementAndGet();
+            return new Result(Lookup.FOUND, productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getSku() == null && event.getPreviousSku() == null) {
+            // Thay đổi không đụng tới SKU (vd. ảnh sản phẩm)
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            synchronized (rebuildLock) {
+                if (pendingDuringRebuild != null) {
+                    pendingDuringRebuild.add(event);
+                }
+            }
+            if (index != null) {
+                applyLocked(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Batch import đã commit: chưa có productId nên chỉ thêm vào Bloom filter, tra cứu các SKU này
+    // rơi về database cho tới khi rebuild sau import xong (chạy đồng bộ trong thread import)
+    @EventListener
+    public void onSkusImported(ProductSkusImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            synchronized (rebuildLock) {
+                if (pendingImportedSkus != null) {
+                    pendingImportedSkus.addAll(event.getSkus());
+                }
+            }
+            if (index != null) {
+                event.getSkus().forEach(this::addImportedLocked);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Dạng so sánh của SKU theo collation của SQL Server (CI, bỏ khoảng trắng cuối khi so sánh bằng)
+    public static String normalize(String sku) {
+        int end = sku.length();
+        while (end > 0 && sku.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return sku.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("ready", index != null);
+            if (index != null) {
+                stats.put("skus", index.size());
+                stats.put("tableCapacity", index.capacity());
+                stats.put("bloomBits", bloom.getBitCount());
+                stats.put("bloomHashFunctions", bloom.getHashCount());
+                stats.put("bloomBytes", bloom.sizeInBytes());
+                stats.put("bloomInsertions", bloomInsertions);
+                stats.put("bloomCapacity", bloom.getExpectedInsertions());
+            }
+            stats.put("bloomNegatives", bloomNegatives.get());
+            stats.put("indexHits", indexHits.get());
+            stats.put("databaseFallbacks", fallbacks.get());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyLocked(ProductChangedEvent event) {
+        long productId = event.getProductId();
+        String sku = event.getSku() != null ? normalize(event.getSku()) : null;
+        if (event.getPreviousSku() != null && !normalize(event.getPreviousSku()).equals(sku)) {
+            index.remove(normalize(event.getPreviousSku()), productId);
+        }
+        if (event.getChangeType() != ProductChangedEvent.ChangeType.DELETED && sku != null) {
+            index.put(sku, productId);
+            addToBloomLocked(sku);
+        }
+    }
+
+    private void addImportedLocked(String sku) {
+        String key = normalize(sku);
+        if (importedSkus.add(key)) {
+            addToBloomLocked(key);
+        }
+    }
+
+    private void addToBloomLocked(String key) {
+        bloom.put(key);
+        bloomInsertions++;
+        // Bloom filter không xoá được: khi số lần thêm vượt sức chứa thì dựng lại từ index (không cần DB)
+        if (bloomInsertions > bloom.getExpectedInsertions()) {
+            rebuildBloomLocked();
+        }
+    }
+
+    // Dư 25% sức chứa để các SKU tạo mới sau đó không làm tăng tỉ lệ dương tính giả ngay lập tức
+    private void rebuildBloomLocked() {
+        int keys = index.size() + importedSkus.size();
+        BloomFilter fresh = BloomFilter.create(Math.max(1024, keys + keys / 4), falsePositiveRate);
+        index.forEachKey(fresh::put);
+        importedSkus.forEach(fresh::put);
+        bloom = fresh;
+        bloomInsertions = keys;
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.entity.ProductVariant;
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductVariantChangedEvent;
+import com.example.demo_store.event.StockAlertEvent;
+import com.example.demo_store.event.StockLevelChangedEvent;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.repository.ProductVariantRepository;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import com.example.demo_store.service.inventory.StockThresholdDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Cảnh báo sắp hết / hết hàng theo sự kiện thay vì quét findLowStockVariants / findOutOfStockVariants:
+// mọi thay đổi tồn trên sổ tồn kho (cập nhật tay, đặt hàng, huỷ đơn) phát StockLevelChangedEvent, ở đây so mức tồn mới
+// với ngưỡng của product và chỉ phát StockAlertEvent khi vượt ngưỡng. Hết hàng thì biến thể ACTIVE chuyển sang
+// OUT_OF_STOCK, có hàng lại thì chuyển về ACTIVE (biến thể INACTIVE do admin đặt không bị đụng tới).
+@Service
+public class StockAlertService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockAlertService.class);
+
+    private static final String MARK_OUT_OF_STOCK_SQL =
+            "UPDATE ProductVariants SET status = 'OUT_OF_STOCK', updated_at = CURRENT_TIMESTAMP " +
+            "WHERE variant_id = ? AND status = 'ACTIVE'";
+    private static final String MARK_ACTIVE_SQL =
+            "UPDATE ProductVariants SET status = 'ACTIVE', updated_at = CURRENT_TIMESTAMP " +
+            "WHERE variant_id = ? AND status = 'OUT_OF_STOCK'";
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${store.inventory.low-stock-threshold:5}")
+    private int defaultThreshold;
+
+    // Truy cập trong synchronized (this)
+    private StockThresholdDetector detector;
+    private long lowStockAlerts;
+    private long outOfStockAlerts;
+    private long backInStockAlerts;
+    private long statusChanges;
+
+    // Ghi trạng thái tuần tự và luôn theo mức hiện tại, nên hai lần vượt ngưỡng sát nhau không ghi đè lệch thứ tự
+    private final Object statusLock = new Object();
+
+    // Biến thể thay đổi trong lúc rebuild, đánh giá lại trên detector mới sau khi hoán đổi
+    private final Object rebuildLock = new Object();
+    private Set<Long> pendingDuringRebuild;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                return;
+            }
+            pendingDuringRebuild = new LinkedHashSet<>();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            StockThresholdDetector fresh = new StockThresholdDetector(defaultThreshold);
+            Map<Long, Long> mismatched = new HashMap<>();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                Set<Long> products = new HashSet<>();
+                try (Stream<ProductVariantRepository.StockAlertRow> rows = productVariantRepository.streamStockAlertRows()) {
+                    rows.forEach(row -> {
+                        if (products.add(row.getProductId()) && row.getLowStockThreshold() != null) {
+                            fresh.setThreshold(row.getProductId(), row.getLowStockThreshold());
+                        }
+                        fresh.track(row.getVariantId(), row.getProductId(), currentStock(row.getVariantId(), row.getStock()));
+                        if (statusMismatch(row.getStatus(), fresh.level(row.getVariantId()))) {
+                            mismatched.put(row.getVariantId(), row.getProductId());
+                        }
+                    });
+                }
+            });
+
+            Set<Long> replay;
+            synchronized (this) {
+                detector = fresh;
+                synchronized (rebuildLock) {
+                    replay = pendingDuringRebuild;
+                    pendingDuringRebuild = null;
+                }
+            }
+            replay.forEach(this::refresh);
+            // Trạng thái lệch với tồn (ghi trước khi có bộ phát hiện, hoặc lần chuyển trước bị lỗi)
+            mismatched.forEach(this::syncStatus);
+            log.info("Stock alerts loaded: {} variants, {} alerts, {} statuses corrected in {} ms",
+                    fresh.size(), fresh.alertCount(), mismatched.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (rebuildLock) {
+                pendingDuringRebuild = null;
+            }
+            log.warn("Could not load stock alerts: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        refresh(event.getVariantId());
+    }
+
+    // Biến thể mới / đã xoá; thay đổi tồn của biến thể đã theo dõi đến qua StockLevelChangedEvent
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVariantChanged(ProductVariantChangedEvent event) {
+        if (event.getVariantId() == null) {
+            return;
+        }
+        if (event.isDeleted()) {
+            synchronized (this) {
+                if (detector != null) {
+                    detector.untrack(event.getVariantId());
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            if (detector == null || detector.isTracked(event.getVariantId())) {
+                return;
+            }
+        }
+        refresh(event.getVariantId());
+    }
+
+    // Ngưỡng của product có thể đã đổi; product bị xoá thì bỏ theo dõi các biến thể của nó
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProductId() == null || event.getChangeType() == ProductChangedEvent.ChangeType.CREATED) {
+            return;
+        }
+        Integer threshold = event.getChangeType() == ProductChangedEvent.ChangeType.DELETED
+                ? null
+                : productRepository.findLowStockThresholdByProductId(event.getProductId()).orElse(null);
+        List<StockThresholdDetector.Crossing> crossings;
+        synchronized (this) {
+            if (detector == null) {
+                return;
+            }
+            if (event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+                detector.variantIds(event.getProductId()).forEach(detector::untrack);
+                detector.setThreshold(event.getProductId(), null);
+                return;
+            }
+            crossings = detector.setThreshold(event.getProductId(), threshold);
+        }
+        crossings.forEach(this::publish);
+    }
+
+    public synchronized boolean isReady() {
+        return detector != null;
+    }
+
+    // Biến thể đang sắp hết / hết hàng; empty nếu chưa nạp xong
+    public synchronized Optional<List<StockThresholdDetector.Alert>> alerts(StockAlertEvent.Level level, Long productId, int limit) {
+        if (detector == null) {
+            return Optional.empty();
+        }
+        List<StockThresholdDetector.Alert> alerts = detector.alerts(level, productId);
+        return Optional.of(alerts.size() > limit ? new ArrayList<>(alerts.subList(0, limit)) : alerts);
+    }
+
+    // Trạng thái của biến thể sau khi tự chuyển theo mức tồn hiện tại (dùng cho response sau khi đổi tồn)
+    public synchronized ProductVariant.VariantStatus effectiveStatus(Long variantId, ProductVariant.VariantStatus status) {
+        StockAlertEvent.Level level = detector != null ? detector.level(variantId) : null;
+        if (level == StockAlertEvent.Level.OUT_OF_STOCK && status == ProductVariant.VariantStatus.ACTIVE) {
+            return ProductVariant.VariantStatus.OUT_OF_STOCK;
+        }
+        if (level != null && level != StockAlertEvent.Level.OUT_OF_STOCK && status == ProductVariant.VariantStatus.OUT_OF_STOCK) {
+            return ProductVariant.VariantStatus.ACTIVE;
+        }
+        return status;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", detector != null);
+        if (detector != null) {
+            stats.put("variants", detector.size());
+            stats.put("activeAlerts", detector.alertCount());
+        }
+        stats.put("defaultThreshold", defaultThreshold);
+        stats.put("lowStockAlerts", lowStockAlerts);
+        stats.put("outOfStockAlerts", outOfStockAlerts);
+        stats.put("backInStockAlerts", backInStockAlerts);
+        stats.put("statusChanges", statusChanges);
+        return stats;
+    }
+
+    private void refresh(Long variantId) {
+        if (variantId == null) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(variantId);
+                return;
+            }
+        }
+
+        boolean tracked;
+        synchronized (this) {
+            if (detector == null) {
+                return;
+            }
+            tracked = detector.isTracked(variantId);
+        }
+        // Biến thể chưa theo dõi: đọc product và ngưỡng từ database (ngoài lock)
+        Optional<ProductVariantRepository.StockAlertRow> row = tracked
+                ? Optional.empty()
+                : productVariantRepository.findStockAlertRow(variantId);
+        if (!tracked && row.isEmpty()) {
+            return;
+        }
+
+        List<StockThresholdDetector.Crossing> crossings = new ArrayList<>();
+        synchronized (this) {
+            if (row.isPresent() && !detector.isTracked(variantId)) {
+                crossings.addAll(detector.setThreshold(row.get().getProductId(), row.get().getLowStockThreshold()));
+                add(crossings, detector.track(variantId, row.get().getProductId(),
+                        currentStock(variantId, row.get().getStock())));
+            } else {
+                Optional<InventoryLedger.Level> level = inventoryService.level(variantId);
+                if (level.isPresent()) {
+                    add(crossings, detector.update(variantId, level.get().getOnHand()));
+                }
+            }
+        }
+        crossings.forEach(this::publish);
+    }
+
+    private void publish(StockThresholdDetector.Crossing crossing) {
+        synchronized (this) {
+            switch (crossing.getCurrent()) {
+                case LOW_STOCK -> lowStockAlerts++;
+                case OUT_OF_STOCK -> outOfStockAlerts++;
+                case IN_STOCK -> backInStockAlerts++;
+            }
+        }
+        eventPublisher.publishEvent(new StockAlertEvent(crossing.getVariantId(), crossing.getProductId(),
+                crossing.getPrevious(), crossing.getCurrent(), crossing.getStock(), crossing.getThreshold()));
+        if (crossing.getPrevious() == StockAlertEvent.Level.OUT_OF_STOCK
+                || crossing.getCurrent() == StockAlertEvent.Level.OUT_OF_STOCK) {
+            syncStatus(crossing.getVariantId(), crossing.getProductId());
+        }
+    }
+
+    // Ghi ACTIVE <-> OUT_OF_STOCK theo mức hiện tại của detector
+    private void syncStatus(Long variantId, Long productId) {
+        synchronized (statusLock) {
+            StockAlertEvent.Level level;
+            synchronized (this) {
+                level = detector != null ? detector.level(variantId) : null;
+            }
+            if (level == null) {
+                return;
+            }
+            int updated = jdbcTemplate.update(
+                    level == StockAlertEvent.Level.OUT_OF_STOCK ? MARK_OUT_OF_STOCK_SQL : MARK_ACTIVE_SQL, variantId);
+            if (updated > 0) {
+                synchronized (this) {
+                    statusChanges++;
+                }
+                eventPublisher.publishEvent(new ProductVariantChangedEvent(variantId, productId));
+            }
+        }
+    }
+
+    // Tồn trên sổ tồn kho (gồm phần chưa ghi xuống database) nếu đã sẵn sàng, ngược lại tồn đọc từ database
+    private int currentStock(Long variantId, Integer databaseStock) {
+        if (inventoryService.isReady()) {
+            Optional<InventoryLedger.Level> level = inventoryService.level(variantId);
+            if (level.isPresent()) {
+                return level.get().getOnHand();
+            }
+        }
+        return databaseStock != null ? databaseStock : 0;
+    }
+
+    private static boolean statusMismatch(ProductVariant.VariantStatus status, StockAlertEvent.Level level) {
+        return (status == ProductVariant.VariantStatus.ACTIVE && level == StockAlertEvent.Level.OUT_OF_STOCK)
+                || (status == ProductVariant.VariantStatus.OUT_OF_STOCK && level != StockAlertEvent.Level.OUT_OF_STOCK);
+    }
+
+    private static void add(List<StockThresholdDetector.Crossing> crossings, StockThresholdDetector.Crossing crossing) {
+        if (crossing != null) {
+            crossings.add(crossing);
+        }
+    }
+}
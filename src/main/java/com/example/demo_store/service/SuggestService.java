@@ -0,0 +1,170 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.Suggestion;
+import com.example.demo_store.entity.Order;
+import com.example.demo_store.entity.Product;
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductsImportedEvent;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
+import com.example.demo_store.repository.BrandRepository;
+import com.example.demo_store.repository.CategoryRepository;
+import com.example.demo_store.repository.OrderItemRepository;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.service.suggest.SuggestTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Gợi ý typeahead cho product, brand, category từ trie trong bộ nhớ.
+// Trie bất biến nên người đọc không bao giờ bị chặn: rebuild dựng trie mới ở background rồi hoán đổi tham chiếu.
+// Thay đổi dữ liệu chỉ đánh dấu dirty, việc dựng lại được gom theo lịch để tránh rebuild liên tục khi ghi nhiều.
+@Service
+public class SuggestService {
+
+    private static final Logger log = LoggerFactory.getLogger(SuggestService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Doanh số thay đổi mà không có event nên vẫn dựng lại định kỳ dù không dirty
+    @Value("${store.suggest.refresh-interval-ms:900000}")
+    private long refreshIntervalMs;
+
+    private volatile SuggestTrie trie;
+    private volatile boolean dirty;
+    private volatile long builtAt;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${store.suggest.check-interval-ms:30000}",
+               initialDelayString = "${store.suggest.check-interval-ms:30000}")
+    public void refreshIfStale() {
+        if (trie == null || dirty || System.currentTimeMillis() - builtAt >= refreshIntervalMs) {
+            rebuild();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        dirty = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.getType() == ReferenceDataChangedEvent.Type.BRAND
+                || event.getType() == ReferenceDataChangedEvent.Type.CATEGORY) {
+            dirty = true;
+        }
+    }
+
+    @EventListener(ProductsImportedEvent.class)
+    public void onProductsImported() {
+        dirty = true;
+    }
+
+    public synchronized void rebuild() {
+        // Xoá cờ trước khi đọc: thay đổi xảy ra trong lúc dựng sẽ được gom vào lần sau
+        dirty = false;
+        try {
+            long start = System.currentTimeMillis();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            SuggestTrie fresh = tx.execute(status -> load());
+            trie = fresh;
+            builtAt = System.currentTimeMillis();
+            log.info("Suggest trie built: {} entries, {} keys in {} ms",
+                    fresh.size(), fresh.keyCount(), builtAt - start);
+        } catch (Exception e) {
+            dirty = true;
+            log.warn("Could not build suggest trie: {}", e.getMessage());
+        }
+    }
+
+    // Trả về empty nếu trie chưa sẵn sàng
+    public Optional<List<Suggestion>> suggest(String query, int limit) {
+        SuggestTrie current = trie;
+        if (current == null) {
+            return Optional.empty();
+        }
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (SuggestTrie.Entry entry : current.suggest(query, limit)) {
+            suggestions.add(new Suggestion(entry.getType().name(), entry.getId(), entry.getText(), entry.getWeight()));
+        }
+        return Optional.of(suggestions);
+    }
+
+    public Map<String, Object> stats() {
+        SuggestTrie current = trie;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", current != null);
+        stats.put("dirty", dirty);
+        if (current != null) {
+            stats.put("entries", current.size());
+            stats.put("keys", current.keyCount());
+            stats.put("precomputedNodes", current.precomputedNodeCount());
+            stats.put("builtAt", builtAt);
+        }
+        return stats;
+    }
+
+    // Độ phổ biến của brand / category là tổng doanh số các product đang bán của nó
+    private SuggestTrie load() {
+        Map<Long, Long> sold = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct(Order.OrderStatus.CANCELLED)) {
+            sold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        SuggestTrie.Builder builder = SuggestTrie.builder();
+        Map<Long, Long> brandWeights = new HashMap<>();
+        Map<Long, Long> categoryWeights = new HashMap<>();
+        try (Stream<ProductRepository.SuggestRow> rows = productRepository.streamSuggestRows(Product.ProductStatus.ACTIVE)) {
+            rows.forEach(row -> {
+                long weight = sold.getOrDefault(row.getProductId(), 0L);
+                builder.add(SuggestTrie.Type.PRODUCT, row.getProductId(), row.getProductName(), weight);
+                brandWeights.merge(row.getBrandId(), weight, Long::sum);
+                categoryWeights.merge(row.getCategoryId(), weight, Long::sum);
+            });
+        }
+        for (Object[] row : brandRepository.findAllIdAndName()) {
+            Long brandId = (Long) row[0];
+            builder.add(SuggestTrie.Type.BRAND, brandId, (String) row[1], brandWeights.getOrDefault(brandId, 0L));
+        }
+        for (Object[] row : categoryRepository.findAllIdAndName()) {
+            Long categoryId = (Long) row[0];
+            builder.add(SuggestTrie.Type.CATEGORY, categoryId, (String) row[1], categoryWeights.getOrDefault(categoryId, 0L));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.entity.Order;
+import com.example.demo_store.event.OrderCancelledEvent;
+import com.example.demo_store.event.OrderCreatedEvent;
+import com.example.demo_store.event.OrderLine;
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductsImportedEvent;
+import com.example.demo_store.repository.OrderItemRepository;
+import com.example.demo_store.repository.OrderRepository;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.service.topsellers.SalesBuckets;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+// Top sellers theo cửa sổ trượt 24h / 7d / 30d từ bộ đếm trong bộ nhớ, thay cho GROUP BY trên toàn bộ OrderItems.
+// Khởi động nạp một lượt stream các dòng đơn trong 30 ngày gần nhất; sau đó đơn tạo / huỷ được cộng / trừ trực tiếp.
+// Lọc theo category / brand dùng thuộc tính hiện tại của product, cập nhật theo ProductChangedEvent.
+@Service
+public class TopSellersService {
+
+    private static final Logger log = LoggerFactory.getLogger(TopSellersService.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SalesBuckets buckets;
+    private Map<Long, Long> categoryByProduct = new HashMap<>();
+    private Map<Long, Long> brandByProduct = new HashMap<>();
+    private long builtAt;
+
+    // Các đơn tạo / huỷ trong lúc rebuild, áp lên bucket mới sau khi hoán đổi
+    private final Object rebuildLock = new Object();
+    private List<PendingOrder> pendingDuringRebuild;
+    private boolean rebuildRequested;
+
+    private static final class PendingOrder {
+        private final long orderId;
+        private final LocalDateTime createdAt;
+        private final List<OrderLine> lines;
+        private final int sign;
+
+        private PendingOrder(long orderId, LocalDateTime createdAt, List<OrderLine> lines, int sign) {
+            this.orderId = orderId;
+            this.createdAt = createdAt;
+            this.lines = lines;
+            this.sign = sign;
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Bỏ bucket đã trượt khỏi cửa sổ; nếu lần nạp trước thất bại thì thử lại
+    @Scheduled(fixedDelayString = "${store.top-sellers.evict-interval-ms:60000}",
+               initialDelayString = "${store.top-sellers.evict-interval-ms:60000}")
+    public void evictExpired() {
+        lock.writeLock().lock();
+        try {
+            if (buckets != null) {
+                buckets.evict(LocalDateTime.now());
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuild();
+    }
+
+    // Không chạy song song: gọi khi đang rebuild (vd. import commit trong lúc lần trước đang đọc database) thì
+    // lần đang chạy được đánh dấu để chạy thêm một lần sau khi hoán đổi, dữ liệu mới không bị bỏ qua
+    public void rebuild() {
+        while (rebuildOnce() && takeRebuildRequest()) {
+            // lặp lại cho tới khi không còn yêu cầu rebuild mới
+        }
+    }
+
+    private boolean takeRebuildRequest() {
+        synchronized (rebuildLock) {
+            boolean requested = rebuildRequested;
+            rebuildRequested = false;
+            return requested;
+        }
+    }
+
+    // false nếu đang có lần rebuild khác chạy (đã ghi nhận yêu cầu cho lần đó)
+    private boolean rebuildOnce() {
+        synchronized (rebuildLock) {
+            if (pendingDuringRebuild != null) {
+                rebuildRequested = true;
+                return false;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            LocalDateTime since = SalesBuckets.retentionStart(LocalDateTime.now());
+            SalesBuckets fresh = new SalesBuckets();
+            Map<Long, Long> categories = new HashMap<>();
+            Map<Long, Long> brands = new HashMap<>();
+            // Các đơn lần đọc đã cộng vào bucket, để đối chiếu với đơn tạo / huỷ trong lúc rebuild
+            RoaringBitmap counted = new RoaringBitmap();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            Long maxOrderId = tx.execute(status -> {
+                Long max = orderRepository.findMaxOrderId();
+                if (max != null) {
+                    try (Stream<OrderItemRepository.SalesRow> rows =
+                                 orderItemRepository.streamSalesSince(since, max, Order.OrderStatus.CANCELLED)) {
+                        rows.forEach(row -> {
+                            fresh.add(row.getProductId(), row.getQuantity(), row.getCreatedAt());
+                            counted.add(Math.toIntExact(row.getOrderId()));
+                        });
+                    }
+                }
+                try (Stream<ProductRepository.FacetRow> rows = productRepository.streamFacetRows()) {
+                    rows.forEach(row -> {
+                        categories.put(row.getProductId(), row.getCategoryId());
+                        brands.put(row.getProductId(), row.getBrandId());
+                    });
+                }
+                return max;
+            });
+
+            lock.writeLock().lock();
+            try {
+                List<PendingOrder> replay;
+                synchronized (rebuildLock) {
+                    buckets = fresh;
+                    categoryByProduct = categories;
+                    brandByProduct = brands;
+                    replay = pendingDuringRebuild;
+                    pendingDuringRebuild = null;
+                }
+                // Đơn mới hơn maxOrderId áp toàn bộ. Đơn trong khoảng vừa đọc thì lần đọc có thể thấy trạng thái trước
+                // hoặc sau khi tạo / huỷ, nên chỉ áp sự kiện cuối cùng của đơn khi nó khác với việc lần đọc đã đếm đơn hay chưa
+                Map<Long, PendingOrder> lastInRange = new LinkedHashMap<>();
+                for (PendingOrder pending : replay) {
+                    if (maxOrderId == null || pending.orderId > maxOrderId) {
+                        apply(fresh, pending);
+                    } else {
+                        lastInRange.put(pending.orderId, pending);
+                    }
+                }
+                for (PendingOrder pending : lastInRange.values()) {
+                    if ((pending.sign < 0) == counted.contains(Math.toIntExact(pending.orderId))) {
+                        apply(fresh, pending);
+                    }
+                }
+                fresh.evict(LocalDateTime.now());
+                builtAt = System.currentTimeMillis();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Top sellers loaded: {} hourly / {} daily buckets in {} ms",
+                    fresh.hourlyBucketCount(), fresh.dailyBucketCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (rebuildLock) {
+                pendingDuringRebuild = null;
+            }
+            log.warn("Could not load top sellers: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        record(new PendingOrder(event.getOrderId(), event.getCreatedAt(), event.getLines(), 1));
+    }
+
+    // Trừ vào bucket của thời điểm đặt đơn, không phải thời điểm huỷ
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        record(new PendingOrder(event.getOrderId(), event.getCreatedAt(), event.getLines(), -1));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Optional<ProductRepository.FacetRow> row = event.getChangeType() == ProductChangedEvent.ChangeType.DELETED
+                ? Optional.empty()
+                : productRepository.findFacetRow(event.getProductId());
+        lock.writeLock().lock();
+        try {
+            if (row.isPresent()) {
+                categoryByProduct.put(event.getProductId(), row.get().getCategoryId());
+                brandByProduct.put(event.getProductId(), row.get().getBrandId());
+            } else {
+                categoryByProduct.remove(event.getProductId());
+                brandByProduct.remove(event.getProductId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Bulk import ghi thẳng bằng JDBC nên nạp lại toàn bộ
+    @Async
+    @EventListener(ProductsImportedEvent.class)
+    public void onProductsImported() {
+        rebuild();
+    }
+
+    // Trả về empty nếu bộ đếm chưa sẵn sàng; categoryId / brandId null = không lọc
+    public Optional<List<SalesBuckets.TopSeller>> topSellers(SalesBuckets.Window window, int limit,
+                                                             Long categoryId, Long brandId) {
+        lock.readLock().lock();
+        try {
+            if (buckets == null) {
+                return Optional.empty();
+            }
+            LongPredicate filter = null;
+            if (categoryId != null || brandId != null) {
+                filter = productId -> (categoryId == null || categoryId.equals(categoryByProduct.get(productId)))
+                        && (brandId == null || brandId.equals(brandByProduct.get(productId)));
+            }
+            return Optional.of(buckets.top(window, LocalDateTime.now(), limit, filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("ready", buckets != null);
+            if (buckets != null) {
+                stats.put("hourlyBuckets", buckets.hourlyBucketCount());
+                stats.put("dailyBuckets", buckets.dailyBucketCount());
+                stats.put("products", categoryByProduct.size());
+                stats.put("builtAt", builtAt);
+            }
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void record(PendingOrder order) {
+        lock.writeLock().lock();
+        try {
+            synchronized (rebuildLock) {
+                if (pendingDuringRebuild != null) {
+                    pendingDuringRebuild.add(order);
+                    return;
+                }
+            }
+            if (buckets != null) {
+                apply(buckets, order);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(SalesBuckets target, PendingOrder order) {
+        for (OrderLine line : order.lines) {
+            if (line.getProductId() != null) {
+                target.add(line.getProductId(), order.sign * line.getQuantity(), order.createdAt);
+            }
+        }
+    }
+}
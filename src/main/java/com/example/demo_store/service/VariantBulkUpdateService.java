@@ -0,0 +1,394 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.BulkVariantUpdateResult;
+import com.example.demo_store.entity.ProductVariant;
+import com.example.demo_store.event.ProductVariantChangedEvent;
+import com.example.demo_store.repository.ProductVariantRepository;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Cập nhật tồn / giá / trạng thái hàng loạt (đồng bộ kho): đọc mảng JSON bằng streaming parser từng phần tử,
+// mỗi batch resolve khoá bằng tối đa hai query IN (variantId, sku), so với giá trị hiện tại và chỉ ghi cột thay đổi:
+// giá / trạng thái bằng JDBC batch UPDATE theo thứ tự variant_id, tồn qua sổ tồn kho (một lần fsync WAL cho cả batch,
+// rồi được flush xuống database bằng batch UPDATE như mọi thay đổi tồn khác)
+@Service
+public class VariantBulkUpdateService {
+
+    private static final Logger log = LoggerFactory.getLogger(VariantBulkUpdateService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    // reference của biến động tồn trong nhật ký kho
+    private static final String BULK_REFERENCE = "bulk-update";
+
+    private static final String UPDATE_PRICE_SQL =
+            "UPDATE ProductVariants SET price = ?, updated_at = CURRENT_TIMESTAMP WHERE variant_id = ?";
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE ProductVariants SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE variant_id = ?";
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${store.variant-bulk.batch-size:1000}")
+    private int batchSize;
+
+    // Một phần tử của mảng: variantId hoặc sku + size + color, cùng ít nhất một trong stock / price / status
+    public static class RowRequest {
+        private Long variantId;
+        private String sku;
+        private String size;
+        private String color;
+        private Integer stock;
+        private BigDecimal price;
+        private String status;
+
+        public Long getVariantId() { return variantId; }
+        public void setVariantId(Long variantId) { this.variantId = variantId; }
+
+        public String getSku() { return sku; }
+        public void setSku(String sku) { this.sku = sku; }
+
+        public String getSize() { return size; }
+        public void setSize(String size) { this.size = size; }
+
+        public String getColor() { return color; }
+        public void setColor(String color) { this.color = color; }
+
+        public Integer getStock() { return stock; }
+        public void setStock(Integer stock) { this.stock = stock; }
+
+        public BigDecimal getPrice() { return price; }
+        public void setPrice(BigDecimal price) { this.price = price; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+    }
+
+    private static final class PendingRow {
+        private final long rowNumber;
+        private final RowRequest request;
+        private final ProductVariant.VariantStatus status;
+
+        private PendingRow(long rowNumber, RowRequest request, ProductVariant.VariantStatus status) {
+            this.rowNumber = rowNumber;
+            this.request = request;
+            this.status = status;
+        }
+    }
+
+    private static final class Change {
+        private final PendingRow row;
+        private final long variantId;
+        private final long productId;
+        private final BigDecimal price;
+        private final ProductVariant.VariantStatus status;
+        private final Integer stock;
+
+        private Change(PendingRow row, long variantId, long productId, BigDecimal price,
+                       ProductVariant.VariantStatus status, Integer stock) {
+            this.row = row;
+            this.variantId = variantId;
+            this.productId = productId;
+            this.price = price;
+            this.status = status;
+            this.stock = stock;
+        }
+    }
+
+    // Body là mảng JSON; JSON hỏng cấu trúc thì dừng đọc nhưng giữ các batch đã ghi
+    public BulkVariantUpdateResult update(InputStream body) throws IOException {
+        long start = System.currentTimeMillis();
+        BulkVariantUpdateResult result = new BulkVariantUpdateResult();
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        long rowNumber = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Body must be a JSON array");
+            }
+            try {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    rowNumber++;
+                    JsonNode node = parser.readValueAsTree();
+                    PendingRow pending = toPendingRow(rowNumber, node, result);
+                    if (pending != null) {
+                        batch.add(pending);
+                        if (batch.size() >= batchSize) {
+                            apply(batch, result);
+                        }
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                addError(result, rowNumber, null, List.of("Invalid JSON: " + e.getOriginalMessage()));
+            }
+        }
+        apply(batch, result);
+
+        result.setTotalRows(rowNumber);
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("Bulk variant update: {} rows, {} applied, {} partially applied, {} unchanged, {} rejected in {} ms",
+                rowNumber, result.getApplied(), result.getPartiallyApplied(), result.getUnchanged(), result.getRejected(),
+                result.getElapsedMs());
+        return result;
+    }
+
+    private PendingRow toPendingRow(long rowNumber, JsonNode node, BulkVariantUpdateResult result) {
+        if (node == null || !node.isObject()) {
+            addError(result, rowNumber, null, List.of("Each element must be a JSON object"));
+            return null;
+        }
+        RowRequest request;
+        try {
+            request = objectMapper.treeToValue(node, RowRequest.class);
+        } catch (JsonProcessingException e) {
+            addError(result, rowNumber, null, List.of("Invalid row: " + e.getOriginalMessage()));
+            return null;
+        }
+
+        List<String> messages = new ArrayList<>();
+        if (request.getVariantId() == null
+                && (isBlank(request.getSku()) || isBlank(request.getSize()) || isBlank(request.getColor()))) {
+            messages.add("variantId or sku + size + color is required");
+        }
+        if (request.getStock() == null && request.getPrice() == null && request.getStatus() == null) {
+            messages.add("Nothing to update: stock, price or status is required");
+        }
+        if (request.getStock() != null && request.getStock() < 0) {
+            messages.add("Stock must not be negative");
+        }
+        if (request.getPrice() != null && request.getPrice().signum() <= 0) {
+            messages.add("Price must be greater than 0");
+        }
+        ProductVariant.VariantStatus status = null;
+        if (request.getStatus() != null) {
+            try {
+                status = ProductVariant.VariantStatus.valueOf(request.getStatus().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                messages.add("Invalid status: " + request.getStatus());
+            }
+        }
+        if (!messages.isEmpty()) {
+            addError(result, rowNumber, key(request), messages);
+            return null;
+        }
+        return new PendingRow(rowNumber, request, status);
+    }
+
+    private void apply(List<PendingRow> batch, BulkVariantUpdateResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<Long, ProductVariantRepository.BulkKeyRow> byId = new HashMap<>();
+        Map<String, ProductVariantRepository.BulkKeyRow> byNaturalKey = new HashMap<>();
+        resolve(batch, byId, byNaturalKey);
+
+        List<Change> changes = new ArrayList<>();
+        for (PendingRow row : batch) {
+            RowRequest request = row.request;
+            ProductVariantRepository.BulkKeyRow current = request.getVariantId() != null
+                    ? byId.get(request.getVariantId())
+                    : byNaturalKey.get(naturalKey(request.getSku(), request.getSize(), request.getColor()));
+            if (current == null) {
+                addError(result, row.rowNumber, key(request), List.of("Variant not found"));
+                continue;
+            }
+            Integer stock = null;
+            if (request.getStock() != null) {
+                Optional<InventoryLedger.Level> level = inventoryService.level(current.getVariantId());
+                if (level.isEmpty() || level.get().getOnHand() != request.getStock()) {
+                    stock = request.getStock();
+                }
+            }
+            BigDecimal price = request.getPrice() != null
+                    && (current.getPrice() == null || current.getPrice().compareTo(request.getPrice()) != 0)
+                    ? request.getPrice() : null;
+            ProductVariant.VariantStatus status = row.status != null && row.status != current.getStatus() ? row.status : null;
+            if (stock == null && price == null && status == null) {
+                result.setUnchanged(result.getUnchanged() + 1);
+            } else {
+                changes.add(new Change(row, current.getVariantId(), current.getProductId(), price, status, stock));
+            }
+        }
+        batch.clear();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // Giá / trạng thái: một transaction cho batch, khoá dòng theo thứ tự variant_id
+        List<Change> ordered = new ArrayList<>(changes);
+        ordered.sort(Comparator.comparingLong(change -> change.variantId));
+        List<Object[]> prices = new ArrayList<>();
+        List<Object[]> statuses = new ArrayList<>();
+        for (Change change : ordered) {
+            if (change.price != null) {
+                prices.add(new Object[]{change.price, change.variantId});
+            }
+            if (change.status != null) {
+                statuses.add(new Object[]{change.status.name(), change.variantId});
+            }
+        }
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                if (!prices.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_PRICE_SQL, prices);
+                }
+                if (!statuses.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, statuses);
+                }
+            });
+        } catch (DataAccessException e) {
+            String message = "Batch update failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (Change change : changes) {
+                addError(result, change.row.rowNumber, key(change.row.request), List.of(message));
+            }
+            return;
+        }
+
+        // Tồn: sau khi giá / trạng thái đã commit, để trạng thái tự chuyển theo tồn (StockAlertService) không bị ghi đè
+        Map<Long, Integer> stocks = new LinkedHashMap<>();
+        for (Change change : changes) {
+            if (change.stock != null) {
+                stocks.put(change.variantId, change.stock);
+            }
+        }
+        Map<Long, InventoryLedger.Outcome> outcomes = Map.of();
+        String stockError = null;
+        if (!stocks.isEmpty()) {
+            try {
+                outcomes = inventoryService.setStocks(stocks, BULK_REFERENCE);
+            } catch (RuntimeException e) {
+                stockError = "Stock not applied: " + e.getMessage();
+            }
+        }
+
+        // Giá / trạng thái đã commit ở trên: dòng lỗi tồn vẫn báo các cột đã ghi
+        Set<Long> products = new HashSet<>();
+        for (Change change : changes) {
+            InventoryLedger.Outcome outcome = change.stock != null ? outcomes.get(change.variantId) : InventoryLedger.Outcome.OK;
+            if (outcome == InventoryLedger.Outcome.OK) {
+                result.setApplied(result.getApplied() + 1);
+            } else {
+                String message = stockError != null ? stockError : "Stock not applied: " + outcome;
+                List<String> appliedFields = appliedFields(change);
+                if (appliedFields.isEmpty()) {
+                    addError(result, change.row.rowNumber, key(change.row.request), List.of(message));
+                } else {
+                    result.setPartiallyApplied(result.getPartiallyApplied() + 1);
+                    addRowError(result, change.row.rowNumber, key(change.row.request), List.of(message), appliedFields);
+                }
+            }
+            if (change.price != null || change.status != null) {
+                products.add(change.productId);
+            }
+        }
+        // Một event cho mỗi product (facet index / cache lưới biến thể nạp lại theo product)
+        products.forEach(productId -> eventPublisher.publishEvent(new ProductVariantChangedEvent(null, productId)));
+    }
+
+    private void resolve(List<PendingRow> batch, Map<Long, ProductVariantRepository.BulkKeyRow> byId,
+                         Map<String, ProductVariantRepository.BulkKeyRow> byNaturalKey) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        for (PendingRow row : batch) {
+            if (row.request.getVariantId() != null) {
+                ids.add(row.request.getVariantId());
+            } else {
+                skus.add(row.request.getSku().trim());
+            }
+        }
+        if (!ids.isEmpty()) {
+            for (ProductVariantRepository.BulkKeyRow key : productVariantRepository.findBulkKeyRowsByIds(ids)) {
+                byId.put(key.getVariantId(), key);
+            }
+        }
+        if (!skus.isEmpty()) {
+            for (ProductVariantRepository.BulkKeyRow key : productVariantRepository.findBulkKeyRowsBySkus(skus)) {
+                byNaturalKey.put(naturalKey(key.getSku(), key.getSizeName(), key.getColorName()), key);
+            }
+        }
+    }
+
+    // SKU / size / màu không phân biệt hoa thường và khoảng trắng hai đầu (như collation của database khi tìm theo SKU)
+    private static String naturalKey(String sku, String size, String color) {
+        return sku.trim().toLowerCase(Locale.ROOT) + '\u0000' + size.trim().toLowerCase(Locale.ROOT) + '\u0000' + color.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(RowRequest request) {
+        if (request.getVariantId() != null) {
+            return String.valueOf(request.getVariantId());
+        }
+        return request.getSku() + "/" + request.getSize() + "/" + request.getColor();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static List<String> appliedFields(Change change) {
+        List<String> fields = new ArrayList<>(2);
+        if (change.price != null) {
+            fields.add("price");
+        }
+        if (change.status != null) {
+            fields.add("status");
+        }
+        return fields;
+    }
+
+    private static void addError(BulkVariantUpdateResult result, long rowNumber, String key, List<String> messages) {
+        result.setRejected(result.getRejected() + 1);
+        addRowError(result, rowNumber, key, messages, List.of());
+    }
+
+    private static void addRowError(BulkVariantUpdateResult result, long rowNumber, String key, List<String> messages,
+                                    List<String> appliedFields) {
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new BulkVariantUpdateResult.RowError(rowNumber, key, messages, appliedFields));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+}
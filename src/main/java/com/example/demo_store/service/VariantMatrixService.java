@@ -0,0 +1,277 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.VariantMatrix;
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductVariantChangedEvent;
+import com.example.demo_store.event.ReferenceDataChangedEvent;
+import com.example.demo_store.event.StockLevelChangedEvent;
+import com.example.demo_store.repository.ProductRepository;
+import com.example.demo_store.repository.ProductVariantRepository;
+import com.example.demo_store.util.Money;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+// Lưới size x màu của product dựng từ một query projection, cache JSON đã serialize theo productId (LRU).
+// Ghi biến thể (tạo / sửa / xoá, đổi tồn, đổi trạng thái) và đổi size / màu thì invalidate; như ProductResponseCache,
+// generation tăng mỗi lần invalidate nên lần đọc bắt đầu trước đó không ghi bản cũ vào cache.
+@Service
+public class VariantMatrixService {
+
+    // Thứ tự size quần áo thông dụng; size số xếp sau theo giá trị, còn lại theo tên
+    private static final List<String> SIZE_ORDER =
+            List.of("XXS", "XS", "S", "M", "L", "XL", "XXL", "2XL", "XXXL", "3XL", "4XL", "5XL");
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // Biến thể của các product đang có trong cache, để event chỉ mang variantId tìm được product
+    private final Map<Long, Long> productByVariant = new HashMap<>();
+    private long generation;
+    private int loading;
+
+    private long hits;
+    private long misses;
+    private long rejectedPuts;
+    private long evictions;
+    private long invalidations;
+
+    private static final class Entry {
+        private final byte[] json;
+        private final Long[] variantIds;
+
+        Entry(byte[] json, Long[] variantIds) {
+            this.json = json;
+            this.variantIds = variantIds;
+        }
+    }
+
+    private final Currency currency;
+
+    public VariantMatrixService(@Value("${store.cache.variant-matrix.max-entries:5000}") int maxEntries,
+                                @Value("${store.currency:VND}") String currencyCode) {
+        this.maxEntries = maxEntries;
+        this.currency = Currency.getInstance(currencyCode);
+    }
+
+    // JSON của lưới; empty nếu product không tồn tại
+    public Optional<byte[]> getMatrixJson(Long productId) throws JsonProcessingException {
+        long loadedAtGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                hits++;
+                return Optional.of(entry.json);
+            }
+            misses++;
+            loadedAtGeneration = generation;
+            loading++;
+        }
+        try {
+            List<ProductVariantRepository.MatrixRow> rows = productVariantRepository.findMatrixRows(productId);
+            if (rows.isEmpty() && !productRepository.existsById(productId)) {
+                return Optional.empty();
+            }
+            VariantMatrix matrix = build(productId, rows);
+            byte[] json = objectMapper.writeValueAsBytes(matrix);
+            put(productId, new Entry(json, matrix.getVariantIds()), loadedAtGeneration);
+            return Optional.of(json);
+        } finally {
+            synchronized (this) {
+                loading--;
+            }
+        }
+    }
+
+    // Dựng lưới: trục size / màu không trùng, có thứ tự; mỗi biến thể vào đúng một ô
+    public VariantMatrix build(Long productId, List<ProductVariantRepository.MatrixRow> rows) {
+        Map<Long, String> sizeNames = new HashMap<>();
+        Map<Long, String> colorNames = new HashMap<>();
+        for (ProductVariantRepository.MatrixRow row : rows) {
+            sizeNames.put(row.getSizeId(), row.getSizeName());
+            colorNames.put(row.getColorId(), row.getColorName());
+        }
+        List<VariantMatrix.Axis> sizes = axis(sizeNames, Comparator
+                .comparingInt((VariantMatrix.Axis axis) -> sizeRank(axis.getName()))
+                .thenComparingDouble(axis -> numericSize(axis.getName()))
+                .thenComparing(VariantMatrix.Axis::getName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(VariantMatrix.Axis::getId));
+        List<VariantMatrix.Axis> colors = axis(colorNames, Comparator
+                .comparing(VariantMatrix.Axis::getName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(VariantMatrix.Axis::getId));
+
+        Map<Long, Integer> sizeIndex = index(sizes);
+        Map<Long, Integer> colorIndex = index(colors);
+        int cells = sizes.size() * colors.size();
+        Long[] variantIds = new Long[cells];
+        Long[] prices = new Long[cells];
+        Integer[] stock = new Integer[cells];
+        String[] statuses = new String[cells];
+        for (ProductVariantRepository.MatrixRow row : rows) {
+            int cell = sizeIndex.get(row.getSizeId()) * colors.size() + colorIndex.get(row.getColorId());
+            variantIds[cell] = row.getVariantId();
+            prices[cell] = minorUnits(row.getPrice());
+            stock[cell] = row.getStock();
+            statuses[cell] = row.getStatus() != null ? row.getStatus().name() : null;
+        }
+        return new VariantMatrix(productId, Money.DECIMAL_SCALE, sizes, colors, variantIds, prices, stock, statuses);
+    }
+
+    public synchronized void invalidate(Long productId) {
+        generation++;
+        invalidations++;
+        Entry removed = entries.remove(productId);
+        if (removed != null) {
+            forgetVariants(removed);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations++;
+        entries.clear();
+        productByVariant.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVariantChanged(ProductVariantChangedEvent event) {
+        if (event.getProductId() != null) {
+            invalidate(event.getProductId());
+        } else {
+            invalidateVariant(event.getVariantId());
+        }
+    }
+
+    // Đổi tồn trên sổ tồn kho (đặt hàng, huỷ đơn, cập nhật tay) chỉ mang variantId
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        invalidateVariant(event.getVariantId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+            invalidate(event.getProductId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.getType() == ReferenceDataChangedEvent.Type.SIZE
+                || event.getType() == ReferenceDataChangedEvent.Type.COLOR) {
+            invalidateAll();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("rejectedPuts", rejectedPuts);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    private synchronized void put(Long productId, Entry entry, long loadedAtGeneration) {
+        if (loadedAtGeneration != generation) {
+            rejectedPuts++;
+            return;
+        }
+        Entry previous = entries.put(productId, entry);
+        if (previous != null) {
+            forgetVariants(previous);
+        }
+        for (Long variantId : entry.variantIds) {
+            if (variantId != null) {
+                productByVariant.put(variantId, productId);
+            }
+        }
+        while (entries.size() > maxEntries) {
+            Long eldest = entries.keySet().iterator().next();
+            forgetVariants(entries.remove(eldest));
+            evictions++;
+        }
+    }
+
+    private synchronized void invalidateVariant(Long variantId) {
+        Long productId = productByVariant.get(variantId);
+        if (productId != null) {
+            invalidate(productId);
+        } else if (loading > 0) {
+            // Không biết product của biến thể: chặn các lần đọc đang chạy ghi bản cũ vào cache
+            generation++;
+        }
+    }
+
+    private void forgetVariants(Entry entry) {
+        for (Long variantId : entry.variantIds) {
+            if (variantId != null) {
+                productByVariant.remove(variantId);
+            }
+        }
+    }
+
+    private static List<VariantMatrix.Axis> axis(Map<Long, String> names, Comparator<VariantMatrix.Axis> order) {
+        List<VariantMatrix.Axis> axis = new ArrayList<>(names.size());
+        names.forEach((id, name) -> axis.add(new VariantMatrix.Axis(id, name != null ? name : "")));
+        axis.sort(order);
+        return axis;
+    }
+
+    private static Map<Long, Integer> index(List<VariantMatrix.Axis> axis) {
+        Map<Long, Integer> index = new HashMap<>();
+        for (int i = 0; i < axis.size(); i++) {
+            index.put(axis.get(i).getId(), i);
+        }
+        return index;
+    }
+
+    private static int sizeRank(String name) {
+        int rank = SIZE_ORDER.indexOf(name.trim().toUpperCase(Locale.ROOT));
+        if (rank >= 0) {
+            return rank;
+        }
+        return Double.isNaN(numericSize(name)) ? SIZE_ORDER.size() + 1 : SIZE_ORDER.size();
+    }
+
+    // 38, 39.5...; NaN nếu không phải size số (NaN xếp sau mọi số trong comparingDouble)
+    private static double numericSize(String name) {
+        try {
+            return Double.parseDouble(name.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // Giá theo đơn vị nhỏ nhất như Money (giỏ hàng / đơn hàng), không làm tròn
+    private Long minorUnits(BigDecimal price) {
+        return price != null ? Money.of(price, currency).getMinorUnits() : null;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo_store.service.cart;
+
+import com.example.demo_store.dto.CartView;
+import com.example.demo_store.util.MoneyTotal;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Giỏ của một user trong bộ nhớ, khớp với Carts / CartItems. Chỉ sửa khi giữ lock của user trong CartService;
+// các dòng nằm trong ConcurrentHashMap để lúc bị đẩy khỏi cache vẫn đọc được danh sách cartItemId mà không cần lock đó.
+public final class CartState {
+
+    private final long userId;
+    private final long cartId;
+    private final LocalDateTime createdAt;
+    private final Currency currency;
+    private final Map<Long, CartView.Line> lines = new ConcurrentHashMap<>();
+
+    public CartState(long userId, long cartId, LocalDateTime createdAt, Currency currency) {
+        this.userId = userId;
+        this.cartId = cartId;
+        this.createdAt = createdAt;
+        this.currency = currency;
+    }
+
+    public long getUserId() { return userId; }
+
+    public long getCartId() { return cartId; }
+
+    public CartView.Line get(long cartItemId) {
+        return lines.get(cartItemId);
+    }
+
+    // Dòng của product + biến thể (variantId null = dòng không chọn biến thể)
+    public CartView.Line find(long productId, Long variantId) {
+        for (CartView.Line line : lines.values()) {
+            if (line.getProductId() == productId && Objects.equals(line.getVariantId(), variantId)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    public void put(CartView.Line line) {
+        lines.put(line.getCartItemId(), line);
+    }
+
+    public CartView.Line remove(long cartItemId) {
+        return lines.remove(cartItemId);
+    }
+
+    public void clear() {
+        lines.clear();
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    public Set<Long> cartItemIds() {
+        return lines.keySet();
+    }
+
+    // cart_item_id tăng dần theo lần thêm nên cũng là thứ tự thêm vào giỏ; tổng tiền cộng trên long (Money bất biến nên dùng chung)
+    public CartView view() {
+        List<CartView.Line> items = new ArrayList<>(lines.size());
+        MoneyTotal total = new MoneyTotal(currency);
+        for (CartView.Line line : lines.values()) {
+            CartView.Line copy = new CartView.Line(line.getCartItemId(), line.getProductId(), line.getVariantId(),
+                    line.getQuantity(), line.getPrice(), line.getCreatedAt(), line.getUpdatedAt());
+            items.add(copy);
+            total.add(line.getPrice(), line.getQuantity());
+        }
+        items.sort(Comparator.comparing(CartView.Line::getCartItemId));
+        return new CartView(new CartView.CartInfo(cartId, userId, createdAt), items, items.size(), total.toMoney());
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo_store.service.category;
+
+import com.example.demo_store.dto.CategorySummary;
+import com.example.demo_store.dto.CategoryTreeNode;
+import com.example.demo_store.repository.CategoryRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Snapshot bất biến của cây category. Breadcrumb (tổ tiên) và tập id con cháu được tính sẵn
+// lúc dựng cây nên mỗi lần tra cứu chỉ là một lần get trên HashMap.
+// Dữ liệu hỏng (parent không tồn tại hoặc vòng lặp) được đưa lên làm gốc thay vì làm treo vòng duyệt.
+public final class CategoryTree {
+
+    private final List<CategoryTreeNode> roots;
+    private final Map<Long, CategoryTreeNode> nodes;
+    private final Map<Long, List<CategorySummary>> breadcrumbs;
+    private final Map<Long, Set<Long>> descendantIds;
+
+    private CategoryTree(List<CategoryTreeNode> roots, Map<Long, CategoryTreeNode> nodes,
+                         Map<Long, List<CategorySummary>> breadcrumbs, Map<Long, Set<Long>> descendantIds) {
+        this.roots = roots;
+        this.nodes = nodes;
+        this.breadcrumbs = breadcrumbs;
+        this.descendantIds = descendantIds;
+    }
+
+    public static CategoryTree build(List<CategoryRepository.TreeRow> rows) {
+        Map<Long, CategoryRepository.TreeRow> byId = new HashMap<>();
+        for (CategoryRepository.TreeRow row : rows) {
+            byId.put(row.getCategoryId(), row);
+        }
+        Map<Long, List<Long>> childIds = new HashMap<>();
+        List<Long> rootIds = new ArrayList<>();
+        for (CategoryRepository.TreeRow row : rows) {
+            Long parentId = row.getParentId();
+            if (parentId == null || !byId.containsKey(parentId) || parentId.equals(row.getCategoryId())) {
+                rootIds.add(row.getCategoryId());
+            } else {
+                childIds.computeIfAbsent(parentId, k -> new ArrayList<>()).add(row.getCategoryId());
+            }
+        }
+        Comparator<Long> byName = Comparator.comparing((Long id) -> nullToEmpty(byId.get(id).getCategoryName()))
+                .thenComparing(Comparator.naturalOrder());
+        rootIds.sort(byName);
+        childIds.values().forEach(ids -> ids.sort(byName));
+
+        // Duyệt BFS từ gốc: thứ tự này đảm bảo cha luôn được xử lý trước con
+        Map<Long, Long> effectiveParent = new HashMap<>();
+        Map<Long, Integer> depth = new HashMap<>();
+        List<Long> order = new ArrayList<>(rows.size());
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        for (Long rootId : rootIds) {
+            depth.put(rootId, 0);
+            queue.add(rootId);
+        }
+        bfs(queue, childIds, depth, effectiveParent, order);
+        // Các node nằm trong vòng lặp không tới được từ gốc nào: cắt vòng và coi là gốc
+        if (order.size() < byId.size()) {
+            for (CategoryRepository.TreeRow row : rows) {
+                Long id = row.getCategoryId();
+                if (!depth.containsKey(id)) {
+                    rootIds.add(id);
+                    depth.put(id, 0);
+                    queue.add(id);
+                    bfs(queue, childIds, depth, effectiveParent, order);
+                }
+            }
+        }
+
+        Map<Long, List<CategorySummary>> breadcrumbs = new HashMap<>();
+        for (Long id : order) {
+            CategoryRepository.TreeRow row = byId.get(id);
+            Long parentId = effectiveParent.get(id);
+            List<CategorySummary> path = new ArrayList<>(parentId != null ? breadcrumbs.get(parentId) : List.of());
+            path.add(new CategorySummary(id, row.getCategoryName(), parentId, depth.get(id)));
+            breadcrumbs.put(id, Collections.unmodifiableList(path));
+        }
+
+        // Ngược thứ tự BFS: con được dựng xong trước cha
+        Map<Long, CategoryTreeNode> nodes = new HashMap<>();
+        Map<Long, Set<Long>> descendantIds = new HashMap<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Long id = order.get(i);
+            CategoryRepository.TreeRow row = byId.get(id);
+            List<CategoryTreeNode> children = new ArrayList<>();
+            Set<Long> descendants = new LinkedHashSet<>();
+            descendants.add(id);
+            for (Long childId : childIds.getOrDefault(id, List.of())) {
+                if (id.equals(effectiveParent.get(childId))) {
+                    children.add(nodes.get(childId));
+                    descendants.addAll(descendantIds.get(childId));
+                }
+            }
+            nodes.put(id, new CategoryTreeNode(id, row.getCategoryName(), row.getImageUrl(), row.getDescription(),
+                    effectiveParent.get(id), depth.get(id), Collections.unmodifiableList(children)));
+            descendantIds.put(id, Collections.unmodifiableSet(descendants));
+        }
+
+        List<CategoryTreeNode> roots = new ArrayList<>(rootIds.size());
+        for (Long rootId : rootIds) {
+            roots.add(nodes.get(rootId));
+        }
+        return new CategoryTree(Collections.unmodifiableList(roots), nodes, breadcrumbs, descendantIds);
+    }
+
+    public List<CategoryTreeNode> getRoots() {
+        return roots;
+    }
+
+    public CategoryTreeNode getNode(Long categoryId) {
+        return nodes.get(categoryId);
+    }
+
+    public boolean contains(Long categoryId) {
+        return nodes.containsKey(categoryId);
+    }
+
+    // Từ gốc tới chính category đó; rỗng nếu không tồn tại
+    public List<CategorySummary> getBreadcrumb(Long categoryId) {
+        return breadcrumbs.getOrDefault(categoryId, List.of());
+    }
+
+    // Gồm cả chính category đó; rỗng nếu không tồn tại
+    public Set<Long> getDescendantIds(Long categoryId) {
+        return descendantIds.getOrDefault(categoryId, Set.of());
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    private static void bfs(ArrayDeque<Long> queue, Map<Long, List<Long>> childIds, Map<Long, Integer> depth,
+                            Map<Long, Long> effectiveParent, List<Long> order) {
+        while (!queue.isEmpty()) {
+            Long id = queue.poll();
+            order.add(id);
+            for (Long childId : childIds.getOrDefault(id, List.of())) {
+                if (!depth.containsKey(childId)) {
+                    depth.put(childId, depth.get(id) + 1);
+                    effectiveParent.put(childId, id);
+                    queue.add(childId);
+                }
+            }
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo_store.service.copurchase;
+
+import com.example.demo_store.util.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Ma trận đồng mua thưa: với mỗi product, số đơn hàng có chứa đồng thời product đó và từng product khác.
+// Mỗi hàng là một LongIntHashMap nên chỉ lưu các cặp thực sự xuất hiện, không boxing theo từng cặp.
+// Không thread-safe: CoPurchaseService bọc bằng read/write lock; khi rebuild mỗi partition có ma trận riêng rồi merge.
+public final class CoPurchaseMatrix {
+
+    // Đơn quá nhiều sản phẩm (mua sỉ) tạo ra số cặp bậc hai và ít giá trị gợi ý nên bỏ qua
+    public static final int MAX_PRODUCTS_PER_ORDER = 100;
+
+    public static final class Neighbor {
+        private final long productId;
+        private final int orderCount;
+
+        Neighbor(long productId, int orderCount) {
+            this.productId = productId;
+            this.orderCount = orderCount;
+        }
+
+        public long getProductId() { return productId; }
+
+        public int getOrderCount() { return orderCount; }
+    }
+
+    private final Map<Long, LongIntHashMap> rows = new HashMap<>();
+    private long orderCount;
+    private long pairCount;
+
+    // Ghi nhận một đơn hàng; productIds có thể trùng (nhiều dòng cùng product)
+    public void addOrder(long[] productIds) {
+        apply(productIds, 1);
+    }
+
+    // Trừ lại một đơn đã ghi nhận (đơn bị huỷ hoặc xoá)
+    public void removeOrder(long[] productIds) {
+        apply(productIds, -1);
+    }
+
+    // Cộng dồn ma trận khác vào ma trận này (dùng khi gộp kết quả các partition)
+    public void merge(CoPurchaseMatrix other) {
+        for (Map.Entry<Long, LongIntHashMap> entry : other.rows.entrySet()) {
+            LongIntHashMap target = row(entry.getKey());
+            entry.getValue().forEach(target::addTo);
+        }
+        orderCount += other.orderCount;
+        pairCount += other.pairCount;
+    }
+
+    // Top limit product mua cùng nhiều nhất, số đơn giảm dần rồi productId tăng dần
+    public List<Neighbor> top(long productId, int limit) {
+        LongIntHashMap row = rows.get(productId);
+        if (row == null || limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Neighbor> heap = new PriorityQueue<>(limit + 1, CoPurchaseMatrix::worseFirst);
+        row.forEach((neighborId, count) -> {
+            if (count <= 0) {
+                return;
+            }
+            heap.add(new Neighbor(neighborId, count));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+        List<Neighbor> result = new ArrayList<>(heap);
+        result.sort((a, b) -> worseFirst(b, a));
+        return result;
+    }
+
+    public int count(long productId, long otherProductId) {
+        LongIntHashMap row = rows.get(productId);
+        return row != null ? row.get(otherProductId) : 0;
+    }
+
+    public int productCount() {
+        return rows.size();
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public long getPairCount() {
+        return pairCount;
+    }
+
+    private void apply(long[] productIds, int delta) {
+        long[] distinct = Arrays.stream(productIds).filter(id -> id > 0).distinct().toArray();
+        if (distinct.length > MAX_PRODUCTS_PER_ORDER) {
+            return;
+        }
+        orderCount += delta;
+        for (int i = 0; i < distinct.length; i++) {
+            for (int j = i + 1; j < distinct.length; j++) {
+                row(distinct[i]).addTo(distinct[j], delta);
+                row(distinct[j]).addTo(distinct[i], delta);
+                pairCount += delta;
+            }
+        }
+    }
+
+    private LongIntHashMap row(long productId) {
+        return rows.computeIfAbsent(productId, id -> new LongIntHashMap(8));
+    }
+
+    // Thứ tự "kém hơn trước" cho min-heap giữ top-K
+    private static int worseFirst(Neighbor a, Neighbor b) {
+        if (a.orderCount != b.orderCount) {
+            return Integer.compare(a.orderCount, b.orderCount);
+        }
+        return Long.compare(b.productId, a.productId);
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.demo_store.service.facet;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Facet index: mỗi giá trị facet giữ một RoaringBitmap các product_id.
+// Lọc = AND giữa các facet (OR trong cùng facet); count của một facet được tính trên
+// giao của các facet còn lại (disjunctive faceting) nên chọn một brand vẫn thấy số lượng brand khác.
+public class ProductFacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String SIZE = "size";
+    public static final String COLOR = "color";
+    public static final String PRICE_BAND = "priceBand";
+    public static final String IN_STOCK = "inStock";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BigDecimal[] priceBandBounds;
+
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byBrand = new HashMap<>();
+    private final Map<Long, RoaringBitmap> bySize = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byColor = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byPriceBand = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byInStock = new HashMap<>();
+    private final Map<String, RoaringBitmap> byStatus = new HashMap<>();
+    private final Map<Integer, ProductFacets> products = new HashMap<>();
+
+    // Trạng thái facet hiện tại của một product, dùng để gỡ khỏi bitmap cũ khi cập nhật
+    public static class ProductFacets {
+        private final Long categoryId;
+        private final Long brandId;
+        private final BigDecimal price;
+        private final String status;
+        private final Set<Long> sizeIds;
+        private final Set<Long> colorIds;
+        private final boolean inStock;
+
+        public ProductFacets(Long categoryId, Long brandId, BigDecimal price, String status,
+                             Set<Long> sizeIds, Set<Long> colorIds, boolean inStock) {
+            this.categoryId = categoryId;
+            this.brandId = brandId;
+            this.price = price;
+            this.status = status;
+            this.sizeIds = sizeIds;
+            this.colorIds = colorIds;
+            this.inStock = inStock;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+
+        public Long getBrandId() { return brandId; }
+
+        public String getStatus() { return status; }
+    }
+
+    public static class Query {
+        private Collection<Long> categoryIds;
+        private Collection<Long> brandIds;
+        private Collection<Long> sizeIds;
+        private Collection<Long> colorIds;
+        private Collection<Long> priceBands;
+        private Boolean inStock;
+        private String status;
+
+        public Collection<Long> getCategoryIds() { return categoryIds; }
+        public void setCategoryIds(Collection<Long> categoryIds) { this.categoryIds = categoryIds; }
+
+        public Collection<Long> getBrandIds() { return brandIds; }
+        public void setBrandIds(Collection<Long> brandIds) { this.brandIds = brandIds; }
+
+        public Collection<Long> getSizeIds() { return sizeIds; }
+        public void setSizeIds(Collection<Long> sizeIds) { this.sizeIds = sizeIds; }
+
+        public Collection<Long> getColorIds() { return colorIds; }
+        public void setColorIds(Collection<Long> colorIds) { this.colorIds = colorIds; }
+
+        public Collection<Long> getPriceBands() { return priceBands; }
+        public void setPriceBands(Collection<Long> priceBands) { this.priceBands = priceBands; }
+
+        public Boolean getInStock() { return inStock; }
+        public void setInStock(Boolean inStock) { this.inStock = inStock; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+    }
+
+    public static class Result {
+        private final List<Long> productIds;
+        private final long total;
+        private final Long nextAfter;
+        private final Map<String, Map<String, Integer>> facets;
+
+        Result(List<Long> productIds, long total, Long nextAfter, Map<String, Map<String, Integer>> facets) {
+            this.productIds = productIds;
+            this.total = total;
+            this.nextAfter = nextAfter;
+            this.facets = facets;
+        }
+
+        public List<Long> getProductIds() { return productIds; }
+
+        public long getTotal() { return total; }
+
+        public Long getNextAfter() { return nextAfter; }
+
+        public Map<String, Map<String, Integer>> getFacets() { return facets; }
+    }
+
+    public ProductFacetIndex(BigDecimal[] priceBandBounds) {
+        this.priceBandBounds = priceBandBounds;
+    }
+
+    public void put(long productId, ProductFacets facets) {
+        int id = Math.toIntExact(productId);
+        lock.writeLock().lock();
+        try {
+            ProductFacets previous = products.put(id, facets);
+            if (previous != null) {
+                apply(id, previous, false);
+            }
+            apply(id, facets, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        int id = Math.toIntExact(productId);
+        lock.writeLock().lock();
+        try {
+            ProductFacets previous = products.remove(id);
+            if (previous != null) {
+                apply(id, previous, false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ProductFacets get(long productId) {
+        lock.readLock().lock();
+        try {
+            return products.get(Math.toIntExact(productId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Trả về trang kết quả (keyset theo product_id) và count cho từng facet trong một lần duyệt
+    public Result search(Query query, Long afterProductId, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<String, RoaringBitmap> filters = new LinkedHashMap<>();
+            putFilter(filters, CATEGORY, byCategory, query.getCategoryIds());
+            putFilter(filters, BRAND, byBrand, query.getBrandIds());
+            putFilter(filters, SIZE, bySize, query.getSizeIds());
+            putFilter(filters, COLOR, byColor, query.getColorIds());
+            putFilter(filters, PRICE_BAND, byPriceBand, query.getPriceBands());
+            if (query.getInStock() != null) {
+                putFilter(filters, IN_STOCK, byInStock, List.of(query.getInStock() ? 1L : 0L));
+            }
+
+            RoaringBitmap universe = query.getStatus() != null
+                    ? byStatus.getOrDefault(query.getStatus(), new RoaringBitmap())
+                    : allProducts();
+
+            RoaringBitmap matches = universe.clone();
+            for (RoaringBitmap filter : filters.values()) {
+                matches.and(filter);
+            }
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put(CATEGORY, countFacet(CATEGORY, byCategory, universe, filters));
+            facets.put(BRAND, countFacet(BRAND, byBrand, universe, filters));
+            facets.put(SIZE, countFacet(SIZE, bySize, universe, filters));
+            facets.put(COLOR, countFacet(COLOR, byColor, universe, filters));
+            facets.put(PRICE_BAND, priceBandLabels(countFacet(PRICE_BAND, byPriceBand, universe, filters)));
+            facets.put(IN_STOCK, inStockLabels(countFacet(IN_STOCK, byInStock, universe, filters)));
+
+            List<Long> page = new ArrayList<>(limit);
+            PeekableIntIterator iterator = matches.getIntIterator();
+            if (afterProductId != null) {
+                iterator.advanceIfNeeded(Math.toIntExact(afterProductId) + 1);
+            }
+            while (iterator.hasNext() && page.size() < limit) {
+                page.add((long) iterator.next());
+            }
+            Long nextAfter = iterator.hasNext() && !page.isEmpty() ? page.get(page.size() - 1) : null;
+
+            return new Result(page, matches.getLongCardinality(), nextAfter, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int priceBandOf(BigDecimal price) {
+        int band = 0;
+        for (int i = 1; i < priceBandBounds.length; i++) {
+            if (price != null && price.compareTo(priceBandBounds[i]) >= 0) {
+                band = i;
+            }
+        }
+        return band;
+    }
+
+    private RoaringBitmap allProducts() {
+        RoaringBitmap all = new RoaringBitmap();
+        for (RoaringBitmap bitmap : byStatus.values()) {
+            all.or(bitmap);
+        }
+        return all;
+    }
+
+    private static void putFilter(Map<String, RoaringBitmap> filters, String facet,
+                                  Map<Long, RoaringBitmap> bitmaps, Collection<Long> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        RoaringBitmap union = new RoaringBitmap();
+        for (Long value : values) {
+            RoaringBitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        filters.put(facet, union);
+    }
+
+    private static Map<String, Integer> countFacet(String facet, Map<Long, RoaringBitmap> bitmaps,
+                                                   RoaringBitmap universe, Map<String, RoaringBitmap> filters) {
+        RoaringBitmap base = universe;
+        for (Map.Entry<String, RoaringBitmap> filter : filters.entrySet()) {
+            if (!filter.getKey().equals(facet)) {
+                base = base == universe ? RoaringBitmap.and(universe, filter.getValue()) : andInPlace(base, filter.getValue());
+            }
+        }
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<Long, RoaringBitmap> entry : bitmaps.entrySet()) {
+            int count = RoaringBitmap.andCardinality(base, entry.getValue());
+            if (count > 0) {
+                counts.put(String.valueOf(entry.getKey()), count);
+            }
+        }
+        return counts;
+    }
+
+    private static RoaringBitmap andInPlace(RoaringBitmap target, RoaringBitmap other) {
+        target.and(other);
+        return target;
+    }
+
+    private Map<String, Integer> priceBandLabels(Map<String, Integer> counts) {
+        Map<String, Integer> labelled = new LinkedHashMap<>();
+        for (int band = 0; band < priceBandBounds.length; band++) {
+            Integer count = counts.get(String.valueOf(band));
+            if (count != null) {
+                String upper = band + 1 < priceBandBounds.length ? priceBandBounds[band + 1].toPlainString() : "";
+                labelled.put(band + ":" + priceBandBounds[band].toPlainString() + "-" + upper, count);
+            }
+        }
+        return labelled;
+    }
+
+    private static Map<String, Integer> inStockLabels(Map<String, Integer> counts) {
+        Map<String, Integer> labelled = new LinkedHashMap<>();
+        labelled.put("true", counts.getOrDefault("1", 0));
+        labelled.put("false", counts.getOrDefault("0", 0));
+        return labelled;
+    }
+
+    private void apply(int id, ProductFacets facets, boolean add) {
+        update(byCategory, facets.categoryId, id, add);
+        update(byBrand, facets.brandId, id, add);
+        update(byPriceBand, (long) priceBandOf(facets.price), id, add);
+        update(byInStock, facets.inStock ? 1L : 0L, id, add);
+        for (Long sizeId : facets.sizeIds) {
+            update(bySize, sizeId, id, add);
+        }
+        for (Long colorId : facets.colorIds) {
+            update(byColor, colorId, id, add);
+        }
+        RoaringBitmap status = byStatus.computeIfAbsent(facets.status, k -> new RoaringBitmap());
+        if (add) {
+            status.add(id);
+        } else {
+            status.remove(id);
+        }
+    }
+
+    private static void update(Map<Long, RoaringBitmap> bitmaps, Long value, int id, boolean add) {
+        if (value == null) {
+            return;
+        }
+        if (add) {
+            bitmaps.computeIfAbsent(value, k -> new RoaringBitmap()).add(id);
+        } else {
+            RoaringBitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(value);
+                }
+            }
+        }
+    }
+}
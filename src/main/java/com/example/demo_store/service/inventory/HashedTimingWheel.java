@@ -0,0 +1,104 @@
+package com.example.demo_store.service.inventory;
+
+import java.util.function.Consumer;
+
+// Hashed timing wheel: mảng vòng các bucket, mỗi tick quét một bucket và hết hạn các timeout đã tới hạn.
+// Đặt / huỷ timeout là O(1) (danh sách liên kết đôi trong bucket), không cần thread hay query riêng cho từng timeout;
+// timeout xa hơn một vòng nằm chung bucket và được bỏ qua cho tới vòng của nó. Không thread-safe.
+public final class HashedTimingWheel<T> {
+
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int bucket = -1;
+
+        private Timeout(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() { return payload; }
+    }
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        int capacity = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickMillis = tickMillis;
+        this.startMillis = nowMillis;
+        this.buckets = new Timeout[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // Hết hạn sau delayMillis tính từ nowMillis (làm tròn lên theo tick, ít nhất một tick sau tick hiện tại)
+    public Timeout<T> schedule(T payload, long delayMillis, long nowMillis) {
+        long deadline = nowMillis + Math.max(0, delayMillis) - startMillis;
+        long deadlineTick = Math.max(currentTick + 1, (deadline + tickMillis - 1) / tickMillis);
+        Timeout<T> timeout = new Timeout<>(payload, deadlineTick);
+        link(timeout, (int) (deadlineTick & mask));
+        return timeout;
+    }
+
+    // false nếu timeout đã hết hạn hoặc đã huỷ
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.bucket < 0) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    // Chạy các tick tới nowMillis, gọi onExpired cho từng timeout tới hạn
+    public void advance(long nowMillis, Consumer<T> onExpired) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            Timeout<T> timeout = buckets[(int) (currentTick & mask)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= currentTick) {
+                    unlink(timeout);
+                    onExpired.accept(timeout.payload);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void link(Timeout<T> timeout, int bucket) {
+        timeout.bucket = bucket;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+        size++;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+}
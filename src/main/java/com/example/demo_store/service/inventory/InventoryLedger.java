@@ -0,0 +1,370 @@
+package com.example.demo_store.service.inventory;
+
+import java.io.IOException;
+
+// Tồn kho theo variant trong bộ nhớ: onHand (tồn thực tế, đã trừ các lần bán đã commit), reserved (đang giữ chỗ)
+// và pending (delta của onHand chưa ghi xuống ProductVariants.stock).
+// Chia thành STRIPES phần theo hash của variantId, mỗi phần là một bảng open addressing (mảng song song, không boxing)
+// với lock riêng, nên các variant khác stripe cập nhật song song và mỗi thao tác là kiểm tra + ghi nguyên tử.
+public final class InventoryLedger {
+
+    public enum Outcome {
+        OK,
+        // Ledger chưa nạp xong (InventoryService trả về trước khi khôi phục từ database / WAL)
+        NOT_READY,
+        UNKNOWN_VARIANT,
+        INSUFFICIENT_STOCK,
+        NOT_RESERVED
+    }
+
+    // Ghi delta vào WAL; gọi trong lock của stripe trước khi thay đổi, ném lỗi thì ledger giữ nguyên
+    public interface Journal {
+        void append(long variantId, int delta) throws IOException;
+    }
+
+    public interface DeltaVisitor {
+        void visit(long variantId, int delta);
+    }
+
+    public static final class Level {
+        private final long variantId;
+        private final int onHand;
+        private final int reserved;
+
+        Level(long variantId, int onHand, int reserved) {
+            this.variantId = variantId;
+            this.onHand = onHand;
+            this.reserved = reserved;
+        }
+
+        public long getVariantId() { return variantId; }
+
+        public int getOnHand() { return onHand; }
+
+        public int getReserved() { return reserved; }
+
+        public int getAvailable() { return onHand - reserved; }
+    }
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public InventoryLedger(int expectedVariants) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(16, expectedVariants / STRIPES));
+        }
+    }
+
+    // Nạp / đặt lại tồn đã ghi trong database cho variant chưa có trong ledger
+    public void putIfAbsent(long variantId, int onHand) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            if (stripe.find(variantId) < 0) {
+                int i = stripe.insert(variantId);
+                stripe.onHand[i] = onHand;
+            }
+        }
+    }
+
+    public void remove(long variantId) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            stripe.remove(variantId);
+        }
+    }
+
+    public Level get(long variantId) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            return i < 0 ? null : new Level(variantId, stripe.onHand[i], stripe.reserved[i]);
+        }
+    }
+
+    // Giữ quantity đơn vị nếu còn đủ hàng chưa bị giữ
+    public Outcome reserve(long variantId, int quantity) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i < 0) {
+                return Outcome.UNKNOWN_VARIANT;
+            }
+            if (stripe.onHand[i] - stripe.reserved[i] < quantity) {
+                return Outcome.INSUFFICIENT_STOCK;
+            }
+            stripe.reserved[i] += quantity;
+            return Outcome.OK;
+        }
+    }
+
+    // Trả lại phần đang giữ (không trả quá số đang giữ)
+    public Outcome release(long variantId, int quantity) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i < 0) {
+                return Outcome.UNKNOWN_VARIANT;
+            }
+            stripe.reserved[i] -= Math.min(quantity, stripe.reserved[i]);
+            return Outcome.OK;
+        }
+    }
+
+    // Chuyển phần đang giữ thành đã bán: giảm cả reserved và onHand
+    public Outcome commit(long variantId, int quantity, Journal journal) throws IOException {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i < 0) {
+                return Outcome.UNKNOWN_VARIANT;
+            }
+            if (stripe.reserved[i] < quantity) {
+                return Outcome.NOT_RESERVED;
+            }
+            journal.append(variantId, -quantity);
+            stripe.reserved[i] -= quantity;
+            stripe.onHand[i] -= quantity;
+            stripe.pending[i] -= quantity;
+            return Outcome.OK;
+        }
+    }
+
+    // Phần đang giữ đã được bán bằng một lệnh trừ stock trong database (transaction ghi đơn đã commit):
+    // giảm reserved và onHand, không thêm pending và không ghi WAL vì database đã có thay đổi này
+    public Outcome sold(long variantId, int quantity) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i < 0) {
+                return Outcome.UNKNOWN_VARIANT;
+            }
+            stripe.reserved[i] -= Math.min(quantity, stripe.reserved[i]);
+            stripe.onHand[i] -= quantity;
+            return Outcome.OK;
+        }
+    }
+
+    // Hàng đã được cộng lại vào stock trong database (huỷ / xoá đơn đã commit): chỉ tăng onHand, không thêm pending
+    public Outcome returned(long variantId, int quantity) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i < 0) {
+                return Outcome.UNKNOWN_VARIANT;
+            }
+            stripe.onHand[i] += quantity;
+            return Outcome.OK;
+        }
+    }
+
+    // Delta chưa ghi xuống database của variant (0 nếu không có trong ledger)
+    public int pending(long variantId) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            return i < 0 ? 0 : stripe.pending[i];
+        }
+    }
+
+    // Cộng thêm vào tồn thực tế (nhập hàng, hàng trả lại khi huỷ đơn)
+    public Outcome restock(long variantId, int quantity, Journal journal) throws IOException {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i < 0) {
+                return Outcome.UNKNOWN_VARIANT;
+            }
+            journal.append(variantId, quantity);
+            stripe.onHand[i] += quantity;
+            stripe.pending[i] += quantity;
+            return Outcome.OK;
+        }
+    }
+
+    // Đặt tồn thực tế về giá trị tuyệt đối (kiểm kê / nhập tay), ghi nhận dưới dạng delta
+    public Outcome setOnHand(long variantId, int onHand, Journal journal) throws IOException {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i < 0) {
+                return Outcome.UNKNOWN_VARIANT;
+            }
+            int delta = onHand - stripe.onHand[i];
+            if (delta != 0) {
+                journal.append(variantId, delta);
+                stripe.onHand[i] = onHand;
+                stripe.pending[i] += delta;
+            }
+            return Outcome.OK;
+        }
+    }
+
+    // Áp lại delta đọc từ WAL khi khôi phục: chưa có trong database nên vẫn là pending
+    public void applyRecovered(long variantId, int delta) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i >= 0) {
+                stripe.onHand[i] += delta;
+                stripe.pending[i] += delta;
+            }
+        }
+    }
+
+    // Lấy và xoá toàn bộ pending khác 0 (để ghi xuống database)
+    public void drainPending(DeltaVisitor visitor) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.keys.length; i++) {
+                    if (stripe.keys[i] != 0 && stripe.pending[i] != 0) {
+                        visitor.visit(stripe.keys[i], stripe.pending[i]);
+                        stripe.pending[i] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    // Cộng lại pending đã lấy ra khi ghi database thất bại
+    public void restorePending(long variantId, int delta) {
+        Stripe stripe = stripe(variantId);
+        synchronized (stripe) {
+            int i = stripe.find(variantId);
+            if (i >= 0) {
+                stripe.pending[i] += delta;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    public long reservedTotal() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.keys.length; i++) {
+                    total += stripe.reserved[i];
+                }
+            }
+        }
+        return total;
+    }
+
+    private Stripe stripe(long variantId) {
+        long h = variantId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 58)];
+    }
+
+    // Một phần của ledger: linear probing, key 0 là ô trống (variantId luôn dương)
+    private static final class Stripe {
+        private long[] keys;
+        private int[] onHand;
+        private int[] reserved;
+        private int[] pending;
+        private int size;
+        private int mask;
+
+        Stripe(int expectedSize) {
+            allocate(Integer.highestOneBit(Math.max(expectedSize * 2, 4) - 1) << 1);
+        }
+
+        int find(long key) {
+            int slot = slot(key);
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        int insert(long key) {
+            // Load factor tối đa 0.5
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int slot = slot(key);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+
+        // Xoá rồi dời các ô phía sau lên để chuỗi probe không bị đứt
+        void remove(long key) {
+            int hole = find(key);
+            if (hole < 0) {
+                return;
+            }
+            int slot = hole;
+            while (true) {
+                slot = (slot + 1) & mask;
+                if (keys[slot] == 0) {
+                    break;
+                }
+                int home = slot(keys[slot]);
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    move(slot, hole);
+                    hole = slot;
+                }
+            }
+            keys[hole] = 0;
+            onHand[hole] = 0;
+            reserved[hole] = 0;
+            pending[hole] = 0;
+            size--;
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            onHand[to] = onHand[from];
+            reserved[to] = reserved[from];
+            pending[to] = pending[from];
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            onHand = new int[capacity];
+            reserved = new int[capacity];
+            pending = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        private void rehash(int newCapacity) {
+            long[] oldKeys = keys;
+            int[] oldOnHand = onHand;
+            int[] oldReserved = reserved;
+            int[] oldPending = pending;
+            allocate(newCapacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(oldKeys[i]);
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    onHand[slot] = oldOnHand[i];
+                    reserved[slot] = oldReserved[i];
+                    pending[slot] = oldPending[i];
+                }
+            }
+        }
+    }
+}
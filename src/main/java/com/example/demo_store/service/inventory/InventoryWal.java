@@ -0,0 +1,177 @@
+package com.example.demo_store.service.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Write-ahead log của các delta tồn kho chưa ghi xuống database.
+// File append-only chia thành segment "inventory-<sequence đầu>.wal"; mỗi bản ghi 24 byte: sequence, variantId, delta, CRC32.
+// Bản ghi ghi dở khi crash bị CRC loại ở lần đọc lại. fsync theo nhóm: một lần force phủ mọi bản ghi đã append trước đó.
+public final class InventoryWal implements Closeable {
+
+    private static final int RECORD_SIZE = 24;
+    private static final String PREFIX = "inventory-";
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    // Lock ngoài cho force / rotate, lock trong (this) cho append
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long segmentFirstSequence;
+    private long lastSequence;
+    private long durableSequence;
+
+    private InventoryWal(Path directory, long lastSequence) {
+        this.directory = directory;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+    }
+
+    // Đọc lại các segment, áp các bản ghi có sequence > checkpointSequence rồi mở segment mới để ghi tiếp
+    public static InventoryWal open(Path directory, long checkpointSequence, InventoryLedger.DeltaVisitor replay) throws IOException {
+        Files.createDirectories(directory);
+        long lastSequence = checkpointSequence;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        CRC32 crc = new CRC32();
+        for (Path segment : segments(directory)) {
+            try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+                while (true) {
+                    record.clear();
+                    while (record.hasRemaining()) {
+                        if (in.read(record) < 0) {
+                            break;
+                        }
+                    }
+                    // Hết file hoặc bản ghi cuối ghi dở
+                    if (record.hasRemaining()) {
+                        break;
+                    }
+                    record.flip();
+                    long sequence = record.getLong();
+                    long variantId = record.getLong();
+                    int delta = record.getInt();
+                    crc.reset();
+                    crc.update(record.array(), 0, RECORD_SIZE - 4);
+                    if ((int) crc.getValue() != record.getInt()) {
+                        break;
+                    }
+                    if (sequence > checkpointSequence) {
+                        replay.visit(variantId, delta);
+                    }
+                    lastSequence = Math.max(lastSequence, sequence);
+                }
+            }
+        }
+        InventoryWal wal = new InventoryWal(directory, lastSequence);
+        wal.openSegment();
+        return wal;
+    }
+
+    // Trả về sequence của bản ghi; chưa bền vững cho tới khi sync(sequence)
+    public synchronized long append(long variantId, int delta) throws IOException {
+        long sequence = lastSequence + 1;
+        buffer.clear();
+        buffer.putLong(sequence).putLong(variantId).putInt(delta);
+        crc.reset();
+        crc.update(buffer.array(), 0, RECORD_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    public void sync(long sequence) throws IOException {
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = lastSequence;
+                current = channel;
+            }
+            current.force(false);
+            durableSequence = target;
+        }
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    // Đóng segment hiện tại (nếu đã có bản ghi) và mở segment mới bắt đầu từ lastSequence + 1
+    public void rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (segmentFirstSequence > lastSequence) {
+                    return;
+                }
+                channel.force(false);
+                durableSequence = lastSequence;
+                channel.close();
+                openSegment();
+            }
+        }
+    }
+
+    // Xoá các segment mà mọi bản ghi đều đã nằm trong database (sequence <= checkpointSequence)
+    public void deleteSegmentsUpTo(long checkpointSequence) throws IOException {
+        List<Path> segments = segments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequence(segments.get(i + 1)) <= checkpointSequence + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                durableSequence = lastSequence;
+                channel.close();
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentFirstSequence = lastSequence + 1;
+        Path segment = directory.resolve(String.format("%s%020d%s", PREFIX, segmentFirstSequence, SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).forEach(segments::add);
+        }
+        // Tên đã đệm số 0 nên thứ tự tên cũng là thứ tự sequence
+        segments.sort(null);
+        return segments;
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo_store.service.inventory;
+
+import com.example.demo_store.entity.InventoryMovement;
+
+// Biến động tồn chưa ghi vào InventoryMovements (gom lại rồi ghi bằng batch INSERT)
+public final class StockMovement {
+
+    private final long variantId;
+    private final InventoryMovement.MovementType type;
+    private final int quantity;
+    private final String reference;
+
+    public StockMovement(long variantId, InventoryMovement.MovementType type, int quantity, String reference) {
+        this.variantId = variantId;
+        this.type = type;
+        this.quantity = quantity;
+        this.reference = reference;
+    }
+
+    public long getVariantId() { return variantId; }
+
+    public InventoryMovement.MovementType getType() { return type; }
+
+    public int getQuantity() { return quantity; }
+
+    public String getReference() { return reference; }
+}
@@ -0,0 +1,204 @@
+package com.example.demo_store.service.inventory;
+
+import com.example.demo_store.event.StockAlertEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Mức tồn (còn hàng / sắp hết / hết) của từng biến thể; mỗi lần tồn thay đổi chỉ so với ngưỡng của product
+// và trả về Crossing khi mức đổi. Các biến thể đang sắp hết / hết hàng nằm riêng trong alerts nên xem cảnh báo
+// không phải duyệt mọi biến thể. Không thread-safe.
+public final class StockThresholdDetector {
+
+    public static final class Crossing {
+        private final long variantId;
+        private final long productId;
+        private final StockAlertEvent.Level previous;
+        private final StockAlertEvent.Level current;
+        private final int stock;
+        private final int threshold;
+
+        Crossing(long variantId, long productId, StockAlertEvent.Level previous, StockAlertEvent.Level current,
+                 int stock, int threshold) {
+            this.variantId = variantId;
+            this.productId = productId;
+            this.previous = previous;
+            this.current = current;
+            this.stock = stock;
+            this.threshold = threshold;
+        }
+
+        public long getVariantId() { return variantId; }
+
+        public long getProductId() { return productId; }
+
+        public StockAlertEvent.Level getPrevious() { return previous; }
+
+        public StockAlertEvent.Level getCurrent() { return current; }
+
+        public int getStock() { return stock; }
+
+        public int getThreshold() { return threshold; }
+    }
+
+    public static final class Alert {
+        private final long variantId;
+        private final long productId;
+        private final StockAlertEvent.Level level;
+        private final int stock;
+        private final int threshold;
+
+        Alert(long variantId, long productId, StockAlertEvent.Level level, int stock, int threshold) {
+            this.variantId = variantId;
+            this.productId = productId;
+            this.level = level;
+            this.stock = stock;
+            this.threshold = threshold;
+        }
+
+        public long getVariantId() { return variantId; }
+
+        public long getProductId() { return productId; }
+
+        public StockAlertEvent.Level getLevel() { return level; }
+
+        public int getStock() { return stock; }
+
+        public int getThreshold() { return threshold; }
+    }
+
+    private static final class Tracked {
+        private final long productId;
+        private int stock;
+        private StockAlertEvent.Level level;
+
+        private Tracked(long productId) {
+            this.productId = productId;
+        }
+    }
+
+    private final int defaultThreshold;
+    private final Map<Long, Tracked> variants = new HashMap<>();
+    private final Map<Long, Set<Long>> variantsByProduct = new HashMap<>();
+    // Chỉ chứa product có ngưỡng riêng
+    private final Map<Long, Integer> thresholds = new HashMap<>();
+    private final Map<Long, Tracked> alerts = new HashMap<>();
+
+    public StockThresholdDetector(int defaultThreshold) {
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    // Theo dõi biến thể (mới hoặc đã có); biến thể mới coi như đang còn hàng
+    public Crossing track(long variantId, long productId, int stock) {
+        Tracked tracked = variants.get(variantId);
+        if (tracked == null) {
+            tracked = new Tracked(productId);
+            tracked.level = StockAlertEvent.Level.IN_STOCK;
+            variants.put(variantId, tracked);
+            variantsByProduct.computeIfAbsent(productId, id -> new HashSet<>()).add(variantId);
+        }
+        return evaluate(variantId, tracked, stock);
+    }
+
+    // null nếu biến thể chưa được theo dõi hoặc mức không đổi
+    public Crossing update(long variantId, int stock) {
+        Tracked tracked = variants.get(variantId);
+        return tracked == null ? null : evaluate(variantId, tracked, stock);
+    }
+
+    public void untrack(long variantId) {
+        Tracked tracked = variants.remove(variantId);
+        if (tracked == null) {
+            return;
+        }
+        alerts.remove(variantId);
+        Set<Long> siblings = variantsByProduct.get(tracked.productId);
+        if (siblings != null) {
+            siblings.remove(variantId);
+            if (siblings.isEmpty()) {
+                variantsByProduct.remove(tracked.productId);
+            }
+        }
+    }
+
+    // Đổi ngưỡng của product (null = mặc định) rồi đánh giá lại các biến thể của nó
+    public List<Crossing> setThreshold(long productId, Integer threshold) {
+        if (threshold == null) {
+            thresholds.remove(productId);
+        } else {
+            thresholds.put(productId, threshold);
+        }
+        List<Crossing> crossings = new ArrayList<>();
+        for (long variantId : variantIds(productId)) {
+            Tracked tracked = variants.get(variantId);
+            Crossing crossing = evaluate(variantId, tracked, tracked.stock);
+            if (crossing != null) {
+                crossings.add(crossing);
+            }
+        }
+        return crossings;
+    }
+
+    public List<Long> variantIds(long productId) {
+        Set<Long> ids = variantsByProduct.get(productId);
+        return ids == null ? List.of() : new ArrayList<>(ids);
+    }
+
+    public boolean isTracked(long variantId) {
+        return variants.containsKey(variantId);
+    }
+
+    public StockAlertEvent.Level level(long variantId) {
+        Tracked tracked = variants.get(variantId);
+        return tracked == null ? null : tracked.level;
+    }
+
+    // Biến thể đang sắp hết / hết hàng (level null = cả hai), tồn thấp nhất trước
+    public List<Alert> alerts(StockAlertEvent.Level level, Long productId) {
+        List<Alert> result = new ArrayList<>();
+        alerts.forEach((variantId, tracked) -> {
+            if ((level == null || tracked.level == level) && (productId == null || tracked.productId == productId)) {
+                result.add(new Alert(variantId, tracked.productId, tracked.level, tracked.stock, threshold(tracked.productId)));
+            }
+        });
+        result.sort(Comparator.comparingInt(Alert::getStock).thenComparingLong(Alert::getVariantId));
+        return result;
+    }
+
+    public int size() {
+        return variants.size();
+    }
+
+    public int alertCount() {
+        return alerts.size();
+    }
+
+    private Crossing evaluate(long variantId, Tracked tracked, int stock) {
+        int threshold = threshold(tracked.productId);
+        StockAlertEvent.Level level = stock <= 0 ? StockAlertEvent.Level.OUT_OF_STOCK
+                : stock <= threshold ? StockAlertEvent.Level.LOW_STOCK
+                : StockAlertEvent.Level.IN_STOCK;
+        tracked.stock = stock;
+        if (level == StockAlertEvent.Level.IN_STOCK) {
+            alerts.remove(variantId);
+        } else {
+            alerts.put(variantId, tracked);
+        }
+        if (level == tracked.level) {
+            return null;
+        }
+        StockAlertEvent.Level previous = tracked.level;
+        tracked.level = level;
+        return new Crossing(variantId, tracked.productId, previous, level, stock, threshold);
+    }
+
+    private int threshold(long productId) {
+        Integer threshold = thresholds.get(productId);
+        return threshold != null ? threshold : defaultThreshold;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.demo_store.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index trong bộ nhớ với xếp hạng BM25.
+// Mỗi lần index (hoặc re-index) một document sẽ cấp ordinal mới tăng dần, nên posting list
+// chỉ cần append; bản cũ được đánh dấu xoá và dọn bằng compact() khi tỉ lệ xoá lớn.
+// Giống Lucene, document frequency vẫn tính cả bản đã xoá cho tới lần compact kế tiếp.
+// Term được giữ theo thứ tự (TreeMap) để term cuối của câu truy vấn khớp được theo tiền tố.
+public class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int COMPACT_MIN_DELETED = 1024;
+    // Số term tối đa được gộp khi mở rộng tiền tố (term ngắn như "a" có thể khớp hàng nghìn term)
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Integer> ordinalByDocId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private long[] docIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private int nextOrdinal;
+    private int deletedCount;
+    private long totalLength;
+
+    public static class Field {
+        private final String text;
+        private final int weight;
+
+        public Field(String text, int weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+    }
+
+    public static class Hits {
+        private final List<Long> docIds;
+        private final int totalHits;
+
+        Hits(List<Long> docIds, int totalHits) {
+            this.docIds = docIds;
+            this.totalHits = totalHits;
+        }
+
+        public List<Long> getDocIds() { return docIds; }
+
+        public int getTotalHits() { return totalHits; }
+    }
+
+    public void index(long docId, List<Field> fields) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int length = 0;
+        for (Field field : fields) {
+            for (String token : TextNormalizer.tokenize(field.text)) {
+                termFrequencies.merge(token, field.weight, Integer::sum);
+                length += field.weight;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(docId);
+            int ordinal = nextOrdinal++;
+            ensureCapacity(ordinal + 1);
+            docIds[ordinal] = docId;
+            docLengths[ordinal] = length;
+            totalLength += length;
+            ordinalByDocId.put(docId, ordinal);
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new PostingList())
+                        .append(ordinal, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    public void remove(long docId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalByDocId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Tìm theo ngữ nghĩa AND: document phải chứa mọi term của câu truy vấn.
+    // Term cuối là tiền tố khi câu truy vấn chưa kết thúc bằng khoảng trắng / dấu câu (đang gõ dở: "ao kho" khớp "áo khoác")
+    public Hits search(String query, int offset, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        Set<String> terms = new LinkedHashSet<>(tokens);
+        if (terms.isEmpty() || limit <= 0) {
+            return new Hits(List.of(), 0);
+        }
+        String prefix = Character.isLetterOrDigit(query.charAt(query.length() - 1)) ? tokens.get(tokens.size() - 1) : null;
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = ordinalByDocId.size();
+            if (liveDocs == 0) {
+                return new Hits(List.of(), 0);
+            }
+            float avgLength = (float) totalLength / Math.max(1, nextOrdinal);
+
+            PostingList.Cursor[] cursors = new PostingList.Cursor[terms.size()];
+            int i = 0;
+            for (String term : terms) {
+                PostingList list = term.equals(prefix) ? prefixPostingsLocked(term) : postings.get(term);
+                if (list == null) {
+                    return new Hits(List.of(), 0);
+                }
+                cursors[i++] = list.cursor();
+            }
+            // Duyệt theo posting list ngắn nhất trước để leapfrog nhanh hơn
+            Arrays.sort(cursors, Comparator.comparingInt(PostingList.Cursor::docCount));
+            float[] idf = new float[cursors.length];
+            for (int t = 0; t < cursors.length; t++) {
+                int df = cursors[t].docCount();
+                idf[t] = (float) Math.log(1 + (nextOrdinal - df + 0.5) / (df + 0.5));
+            }
+
+            int topK = offset + limit;
+            PriorityQueue<ScoredDoc> heap = new PriorityQueue<>(Math.min(topK, 1024) + 1);
+            int totalHits = 0;
+
+            PostingList.Cursor lead = cursors[0];
+            int doc = lead.nextDoc();
+            outer:
+            while (doc != PostingList.NO_MORE_DOCS) {
+                for (int t = 1; t < cursors.length; t++) {
+                    int other = cursors[t].advance(doc);
+                    if (other == PostingList.NO_MORE_DOCS) {
+                        break outer;
+                    }
+                    if (other > doc) {
+                        doc = lead.advance(other);
+                        continue outer;
+                    }
+                }
+
+                if (!deleted.get(doc)) {
+                    totalHits++;
+                    float norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+                    float score = 0;
+                    for (int t = 0; t < cursors.length; t++) {
+                        int tf = cursors[t].termFrequency();
+                        score += idf[t] * (tf * (K1 + 1)) / (tf + norm);
+                    }
+                    if (heap.size() < topK) {
+                        heap.add(new ScoredDoc(doc, score));
+                    } else if (score > heap.peek().score) {
+                        heap.poll();
+                        heap.add(new ScoredDoc(doc, score));
+                    }
+                }
+                doc = lead.nextDoc();
+            }
+
+            List<ScoredDoc> ranked = new ArrayList<>(heap);
+            ranked.sort(null);
+            List<Long> page = new ArrayList<>(limit);
+            for (int r = ranked.size() - 1 - offset; r >= 0 && page.size() < limit; r--) {
+                page.add(docIds[ranked.get(r).ordinal]);
+            }
+            return new Hits(page, totalHits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long postingBytes = 0;
+            for (PostingList list : postings.values()) {
+                postingBytes += list.sizeInBytes();
+            }
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("documents", ordinalByDocId.size());
+            stats.put("deletedDocuments", deletedCount);
+            stats.put("terms", postings.size());
+            stats.put("postingBytes", postingBytes);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Gộp posting list của các term bắt đầu bằng prefix (kể cả chính nó) thành một danh sách, term frequency cộng dồn
+    private PostingList prefixPostingsLocked(String prefix) {
+        SortedMap<String, PostingList> matches = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (matches.size() <= 1) {
+            return matches.isEmpty() ? null : matches.values().iterator().next();
+        }
+        PriorityQueue<PostingList.Cursor> queue = new PriorityQueue<>(Comparator.comparingInt(PostingList.Cursor::doc));
+        int expanded = 0;
+        for (PostingList list : matches.values()) {
+            if (expanded++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            PostingList.Cursor cursor = list.cursor();
+            if (cursor.nextDoc() != PostingList.NO_MORE_DOCS) {
+                queue.add(cursor);
+            }
+        }
+        PostingList merged = new PostingList();
+        while (!queue.isEmpty()) {
+            int doc = queue.peek().doc();
+            int termFrequency = 0;
+            while (!queue.isEmpty() && queue.peek().doc() == doc) {
+                PostingList.Cursor cursor = queue.poll();
+                termFrequency += cursor.termFrequency();
+                if (cursor.nextDoc() != PostingList.NO_MORE_DOCS) {
+                    queue.add(cursor);
+                }
+            }
+            merged.append(doc, termFrequency);
+        }
+        return merged;
+    }
+
+    private void removeLocked(long docId) {
+        Integer ordinal = ordinalByDocId.remove(docId);
+        if (ordinal != null) {
+            deleted.set(ordinal);
+            deletedCount++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (deletedCount < COMPACT_MIN_DELETED || deletedCount * 4 < nextOrdinal) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (deletedCount < COMPACT_MIN_DELETED || deletedCount * 4 < nextOrdinal) {
+                return;
+            }
+            int[] remap = new int[nextOrdinal];
+            int live = 0;
+            long newTotalLength = 0;
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                if (deleted.get(ordinal)) {
+                    remap[ordinal] = -1;
+                } else {
+                    remap[ordinal] = live;
+                    docIds[live] = docIds[ordinal];
+                    docLengths[live] = docLengths[ordinal];
+                    newTotalLength += docLengths[ordinal];
+                    live++;
+                }
+            }
+            postings.replaceAll((term, list) -> list.remap(remap));
+            postings.values().removeIf(list -> list.docCount() == 0);
+            ordinalByDocId.replaceAll((docId, ordinal) -> remap[ordinal]);
+            deleted.clear();
+            deletedCount = 0;
+            nextOrdinal = live;
+            totalLength = newTotalLength;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > docIds.length) {
+            int newLength = Math.max(docIds.length * 2, capacity);
+            docIds = Arrays.copyOf(docIds, newLength);
+            docLengths = Arrays.copyOf(docLengths, newLength);
+        }
+    }
+
+    private static final class ScoredDoc implements Comparable<ScoredDoc> {
+        private final int ordinal;
+        private final float score;
+
+        ScoredDoc(int ordinal, float score) {
+            this.ordinal = ordinal;
+            this.score = score;
+        }
+
+        // Thứ tự tăng dần theo score; hoà điểm thì ordinal nhỏ (index sớm hơn) xếp trên
+        @Override
+        public int compareTo(ScoredDoc other) {
+            int byScore = Float.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(other.ordinal, ordinal);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo_store.service.search;
+
+import java.util.Arrays;
+
+// Danh sách posting nén: mỗi phần tử là (delta ordinal, term frequency) mã hoá varint.
+// Ordinal luôn tăng dần nên chỉ cần append vào cuối mảng byte.
+final class PostingList {
+
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int docCount;
+    private int lastOrdinal = -1;
+
+    void append(int ordinal, int termFrequency) {
+        if (ordinal <= lastOrdinal) {
+            throw new IllegalStateException("Ordinals must be appended in increasing order");
+        }
+        ensureCapacity(10);
+        writeVarInt(ordinal - lastOrdinal);
+        writeVarInt(termFrequency);
+        lastOrdinal = ordinal;
+        docCount++;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    int sizeInBytes() {
+        return length;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Viết lại posting list bỏ các ordinal đã bị xoá (remap[ordinal] < 0)
+    PostingList remap(int[] remap) {
+        PostingList compacted = new PostingList();
+        Cursor cursor = cursor();
+        for (int doc = cursor.nextDoc(); doc != NO_MORE_DOCS; doc = cursor.nextDoc()) {
+            int mapped = remap[doc];
+            if (mapped >= 0) {
+                compacted.append(mapped, cursor.termFrequency());
+            }
+        }
+        compacted.data = Arrays.copyOf(compacted.data, Math.max(compacted.length, 1));
+        return compacted;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    final class Cursor {
+        private int position;
+        private int doc = -1;
+        private int termFrequency;
+        private final int end = length;
+
+        int nextDoc() {
+            if (position >= end) {
+                doc = NO_MORE_DOCS;
+                return doc;
+            }
+            doc += readVarInt();
+            termFrequency = readVarInt();
+            return doc;
+        }
+
+        int advance(int target) {
+            while (doc < target) {
+                nextDoc();
+            }
+            return doc;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int termFrequency() {
+            return termFrequency;
+        }
+
+        int docCount() {
+            return docCount;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
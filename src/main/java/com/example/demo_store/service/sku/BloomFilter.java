@@ -0,0 +1,66 @@
+package com.example.demo_store.service.sku;
+
+// Bloom filter cho SKU: trả lời "chắc chắn không có" mà không cần tra map hay database.
+// Dùng double hashing (h1 + i * h2) từ một hash 64-bit nên mỗi lần kiểm tra chỉ hash chuỗi một lần.
+// Không hỗ trợ xoá: SKU đã xoá chỉ làm tăng tỉ lệ dương tính giả cho tới lần dựng lại kế tiếp.
+public final class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final int expectedInsertions;
+
+    private BloomFilter(long bitCount, int hashCount, int expectedInsertions) {
+        this.bits = new long[(int) ((bitCount + 63) >>> 6)];
+        this.bitCount = (long) bits.length << 6;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    // m = -n ln p / (ln 2)^2, k = m / n * ln 2
+    public static BloomFilter create(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(Math.max(m, 64), k, n);
+    }
+
+    public void put(String value) {
+        long hash = SkuHash.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = SkuHash.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+}
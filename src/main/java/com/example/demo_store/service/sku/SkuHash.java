@@ -0,0 +1,30 @@
+package com.example.demo_store.service.sku;
+
+// Hash 64-bit cho SKU: FNV-1a trên từng ký tự rồi trộn bằng bước finalize của MurmurHash3
+// để các SKU gần giống nhau (chỉ khác số cuối) vẫn phân tán đều
+final class SkuHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SkuHash() {
+    }
+
+    static long hash64(String value) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo_store.service.sku;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Map SKU -> productId dạng open addressing (linear probing) trên hai mảng song song.
+// So với HashMap<String, Long> không có object Entry và Long boxing cho mỗi phần tử.
+// Không thread-safe: SkuIndexService bọc bằng read/write lock.
+public final class SkuHashIndex {
+
+    public static final long NOT_FOUND = -1L;
+
+    // Đánh dấu ô đã xoá để chuỗi probe phía sau vẫn tìm được
+    private static final String TOMBSTONE = new String("<deleted>");
+
+    private String[] keys;
+    private long[] values;
+    private int size;
+    private int tombstones;
+    private int mask;
+
+    public SkuHashIndex(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public long get(String sku) {
+        int slot = (int) SkuHash.hash64(sku) & mask;
+        while (true) {
+            String key = keys[slot];
+            if (key == null) {
+                return NOT_FOUND;
+            }
+            if (key != TOMBSTONE && key.equals(sku)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public void put(String sku, long productId) {
+        if ((size + tombstones + 1) * 2 > keys.length) {
+            // Nhiều tombstone thì chỉ cần dọn, không cần tăng kích thước
+            rehash(size + 1 > keys.length / 4 ? keys.length * 2 : keys.length);
+        }
+        int slot = (int) SkuHash.hash64(sku) & mask;
+        int firstTombstone = -1;
+        while (true) {
+            String key = keys[slot];
+            if (key == null) {
+                break;
+            }
+            if (key == TOMBSTONE) {
+                if (firstTombstone < 0) {
+                    firstTombstone = slot;
+                }
+            } else if (key.equals(sku)) {
+                values[slot] = productId;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (firstTombstone >= 0) {
+            slot = firstTombstone;
+            tombstones--;
+        }
+        keys[slot] = sku;
+        values[slot] = productId;
+        size++;
+    }
+
+    // Chỉ xoá khi SKU vẫn trỏ tới đúng product (tránh xoá mapping mới của product khác)
+    public boolean remove(String sku, long productId) {
+        int slot = (int) SkuHash.hash64(sku) & mask;
+        while (true) {
+            String key = keys[slot];
+            if (key == null) {
+                return false;
+            }
+            if (key != TOMBSTONE && key.equals(sku)) {
+                if (values[slot] != productId) {
+                    return false;
+                }
+                keys[slot] = TOMBSTONE;
+                size--;
+                tombstones++;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public void forEachKey(Consumer<String> action) {
+        for (String key : keys) {
+            if (key != null && key != TOMBSTONE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            String key = oldKeys[i];
+            if (key != null && key != TOMBSTONE) {
+                int slot = (int) SkuHash.hash64(key) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, NOT_FOUND);
+        mask = capacity - 1;
+        size = 0;
+        tombstones = 0;
+    }
+
+    // Lũy thừa của 2, load factor tối đa 0.5
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 16) - 1) << 1;
+        return Math.max(capacity, 16);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.demo_store.service.suggest;
+
+import com.example.demo_store.service.search.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Trie gợi ý (typeahead) bất biến, dựng lại toàn bộ mỗi lần dữ liệu đổi.
+// Trie được lưu phẳng: các key (tên đã bỏ dấu, tính từ đầu mỗi từ) sắp xếp tăng dần nên mỗi node
+// ứng với một khoảng liên tiếp [lo, hi) trong mảng, tìm bằng hai lần binary search.
+// Node có nhiều key (prefix ngắn như "a", "ao") được tính sẵn top-K theo trọng số;
+// node nhỏ thì quét trực tiếp khoảng của nó.
+public final class SuggestTrie {
+
+    public enum Type {
+        PRODUCT, BRAND, CATEGORY
+    }
+
+    public static final class Entry {
+        private final Type type;
+        private final long id;
+        private final String text;
+        private final long weight;
+
+        Entry(Type type, long id, String text, long weight) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.weight = weight;
+        }
+
+        public Type getType() { return type; }
+
+        public long getId() { return id; }
+
+        public String getText() { return text; }
+
+        public long getWeight() { return weight; }
+    }
+
+    // Số gợi ý tối đa cho một truy vấn (cũng là K của top-K tính sẵn)
+    public static final int MAX_LIMIT = 50;
+
+    // Chỉ index tối đa từng này từ đầu tiên và từng này ký tự của mỗi key
+    private static final int MAX_WORDS = 8;
+    private static final int MAX_KEY_LENGTH = 48;
+    // Node có nhiều key hơn ngưỡng này thì tính sẵn top-K thay vì quét lúc truy vấn
+    private static final int SCAN_LIMIT = 256;
+
+    // Entry sắp xếp theo thứ hạng: trọng số giảm dần, rồi tới tên
+    private final Entry[] entries;
+    private final String[] keys;
+    // Thứ hạng (index trong entries) của entry sở hữu từng key
+    private final int[] keyEntry;
+    private final Map<String, int[]> topByPrefix;
+
+    private SuggestTrie(Entry[] entries, String[] keys, int[] keyEntry, Map<String, int[]> topByPrefix) {
+        this.entries = entries;
+        this.keys = keys;
+        this.keyEntry = keyEntry;
+        this.topByPrefix = topByPrefix;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder add(Type type, long id, String text, long weight) {
+            if (text != null && !normalize(text).isEmpty()) {
+                entries.add(new Entry(type, id, text, weight));
+            }
+            return this;
+        }
+
+        public SuggestTrie build() {
+            Entry[] ranked = entries.toArray(new Entry[0]);
+            Arrays.sort(ranked, Comparator.comparingLong((Entry e) -> e.weight).reversed()
+                    .thenComparing(e -> e.text)
+                    .thenComparing(e -> e.type)
+                    .thenComparingLong(e -> e.id));
+
+            List<KeyRef> refs = new ArrayList<>();
+            for (int rank = 0; rank < ranked.length; rank++) {
+                String folded = normalize(ranked[rank].text);
+                int words = 0;
+                for (int start = 0; start < folded.length() && words < MAX_WORDS; start++) {
+                    if (start == 0 || folded.charAt(start - 1) == ' ') {
+                        refs.add(new KeyRef(folded.substring(start, Math.min(folded.length(), start + MAX_KEY_LENGTH)), rank));
+                        words++;
+                    }
+                }
+            }
+
+            // Cùng key thì entry hạng cao đứng trước
+            refs.sort(null);
+            String[] keys = new String[refs.size()];
+            int[] keyEntry = new int[refs.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = refs.get(i).key;
+                keyEntry[i] = refs.get(i).rank;
+            }
+
+            Map<String, int[]> topByPrefix = new HashMap<>();
+            precompute(keys, keyEntry, 0, keys.length, 0, topByPrefix);
+            return new SuggestTrie(ranked, keys, keyEntry, topByPrefix);
+        }
+    }
+
+    private static final class KeyRef implements Comparable<KeyRef> {
+        private final String key;
+        private final int rank;
+
+        private KeyRef(String key, int rank) {
+            this.key = key;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(KeyRef other) {
+            int c = key.compareTo(other.key);
+            return c != 0 ? c : Integer.compare(rank, other.rank);
+        }
+    }
+
+    // Các entry khớp prefix, tối đa limit phần tử, theo thứ hạng
+    public List<Entry> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (prefix.length() > MAX_KEY_LENGTH) {
+            prefix = prefix.substring(0, MAX_KEY_LENGTH);
+        }
+        int lo = lowerBound(keys, prefix);
+        int hi = lowerBound(keys, prefix + Character.MAX_VALUE);
+        int[] top = hi - lo > SCAN_LIMIT ? topByPrefix.get(prefix) : topRanks(keyEntry, lo, hi);
+        int count = Math.min(Math.min(limit, MAX_LIMIT), top.length);
+        List<Entry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(entries[top[i]]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public int keyCount() {
+        return keys.length;
+    }
+
+    public int precomputedNodeCount() {
+        return topByPrefix.size();
+    }
+
+    // Cùng quy tắc bỏ dấu với tìm kiếm; mọi ký tự không phải chữ / số gộp thành một dấu cách
+    static String normalize(String text) {
+        String folded = TextNormalizer.fold(text);
+        StringBuilder sb = new StringBuilder(folded.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Các key trong [lo, hi) có chung prefix độ dài depth; tính top-K cho node lớn rồi đi xuống con
+    private static void precompute(String[] keys, int[] keyEntry, int lo, int hi, int depth, Map<String, int[]> topByPrefix) {
+        if (hi - lo <= SCAN_LIMIT) {
+            return;
+        }
+        if (depth > 0) {
+            topByPrefix.put(keys[lo].substring(0, depth), topRanks(keyEntry, lo, hi));
+        }
+        int i = lo;
+        // Key đúng bằng prefix đứng đầu khoảng, không có node con
+        while (i < hi && keys[i].length() == depth) {
+            i++;
+        }
+        while (i < hi) {
+            char c = keys[i].charAt(depth);
+            int j = i + 1;
+            while (j < hi && keys[j].charAt(depth) == c) {
+                j++;
+            }
+            precompute(keys, keyEntry, i, j, depth + 1, topByPrefix);
+            i = j;
+        }
+    }
+
+    // Thứ hạng nhỏ nhất, không trùng entry (một entry có thể khớp qua nhiều từ)
+    private static int[] topRanks(int[] keyEntry, int lo, int hi) {
+        int[] ranks = Arrays.copyOfRange(keyEntry, lo, hi);
+        Arrays.sort(ranks);
+        int[] top = new int[Math.min(MAX_LIMIT, ranks.length)];
+        int count = 0;
+        for (int i = 0; i < ranks.length && count < top.length; i++) {
+            if (i == 0 || ranks[i] != ranks[i - 1]) {
+                top[count++] = ranks[i];
+            }
+        }
+        return count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.demo_store.service.topsellers;
+
+import com.example.demo_store.util.LongIntHashMap;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+// Số lượng bán theo product gom theo bucket thời gian: bucket giờ cho cửa sổ 24h, bucket ngày cho 7d / 30d.
+// Mỗi bucket là một LongIntHashMap productId -> số lượng; bán thì cộng, huỷ thì trừ vào đúng bucket của thời điểm đặt.
+// Bucket quá cửa sổ dài nhất bị bỏ khi evict nên bộ nhớ giới hạn theo số product bán được trong 30 ngày.
+// Không thread-safe: TopSellersService bọc bằng read/write lock.
+public final class SalesBuckets {
+
+    public enum Window {
+        LAST_24_HOURS("24h"), LAST_7_DAYS("7d"), LAST_30_DAYS("30d");
+
+        private final String code;
+
+        Window(String code) {
+            this.code = code;
+        }
+
+        public String getCode() { return code; }
+
+        // null nếu code không hợp lệ
+        public static Window fromCode(String code) {
+            for (Window window : values()) {
+                if (window.code.equalsIgnoreCase(code)) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final class TopSeller {
+        private final long productId;
+        private final long quantity;
+
+        TopSeller(long productId, long quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+
+        public long getProductId() { return productId; }
+
+        public long getQuantity() { return quantity; }
+    }
+
+    private static final int HOURLY_BUCKETS = 24;
+    private static final int DAILY_BUCKETS = 30;
+
+    // Khoá là số giờ / số ngày kể từ epoch (theo giờ hệ thống, như createdAt của đơn)
+    private final TreeMap<Long, LongIntHashMap> hourly = new TreeMap<>();
+    private final TreeMap<Long, LongIntHashMap> daily = new TreeMap<>();
+
+    // Cộng (hoặc trừ với quantity âm) số lượng bán của product tại thời điểm at
+    public void add(long productId, int quantity, LocalDateTime at) {
+        if (productId <= 0 || quantity == 0 || at == null) {
+            return;
+        }
+        long epochSecond = at.toEpochSecond(ZoneOffset.UTC);
+        hourly.computeIfAbsent(Math.floorDiv(epochSecond, 3600L), h -> new LongIntHashMap(64)).addTo(productId, quantity);
+        daily.computeIfAbsent(Math.floorDiv(epochSecond, 86400L), d -> new LongIntHashMap(256)).addTo(productId, quantity);
+    }
+
+    // Bỏ các bucket đã nằm ngoài mọi cửa sổ tính tới thời điểm now
+    public void evict(LocalDateTime now) {
+        long epochSecond = now.toEpochSecond(ZoneOffset.UTC);
+        hourly.headMap(Math.floorDiv(epochSecond, 3600L) - HOURLY_BUCKETS + 1).clear();
+        daily.headMap(Math.floorDiv(epochSecond, 86400L) - DAILY_BUCKETS + 1).clear();
+    }
+
+    // Thời điểm sớm nhất còn được tính trong cửa sổ dài nhất, dùng làm mốc khi nạp lại từ lịch sử
+    public static LocalDateTime retentionStart(LocalDateTime now) {
+        long day = Math.floorDiv(now.toEpochSecond(ZoneOffset.UTC), 86400L) - DAILY_BUCKETS + 1;
+        return LocalDateTime.ofEpochSecond(day * 86400L, 0, ZoneOffset.UTC);
+    }
+
+    // Top limit product trong cửa sổ, số lượng giảm dần rồi productId tăng dần; filter null = không lọc.
+    // 24h gồm giờ hiện tại và 23 giờ trước; 7d / 30d gồm hôm nay và các ngày trước đó.
+    public List<TopSeller> top(Window window, LocalDateTime now, int limit, LongPredicate filter) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        long epochSecond = now.toEpochSecond(ZoneOffset.UTC);
+        Map<Long, LongIntHashMap> buckets;
+        switch (window) {
+            case LAST_24_HOURS -> {
+                long hour = Math.floorDiv(epochSecond, 3600L);
+                buckets = hourly.subMap(hour - HOURLY_BUCKETS + 1, true, hour, true);
+            }
+            case LAST_7_DAYS -> {
+                long day = Math.floorDiv(epochSecond, 86400L);
+                buckets = daily.subMap(day - 6, true, day, true);
+            }
+            default -> {
+                long day = Math.floorDiv(epochSecond, 86400L);
+                buckets = daily.subMap(day - DAILY_BUCKETS + 1, true, day, true);
+            }
+        }
+
+        LongIntHashMap totals;
+        if (buckets.size() == 1) {
+            totals = buckets.values().iterator().next();
+        } else {
+            totals = new LongIntHashMap(1024);
+            for (LongIntHashMap bucket : buckets.values()) {
+                bucket.forEach(totals::addTo);
+            }
+        }
+
+        PriorityQueue<TopSeller> heap = new PriorityQueue<>(limit + 1, SalesBuckets::worseFirst);
+        totals.forEach((productId, quantity) -> {
+            if (quantity <= 0 || (filter != null && !filter.test(productId))) {
+                return;
+            }
+            heap.add(new TopSeller(productId, quantity));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+        List<TopSeller> result = new ArrayList<>(heap);
+        result.sort((a, b) -> worseFirst(b, a));
+        return result;
+    }
+
+    public int hourlyBucketCount() {
+        return hourly.size();
+    }
+
+    public int dailyBucketCount() {
+        return daily.size();
+    }
+
+    // Thứ tự "kém hơn trước" cho min-heap giữ top-K
+    private static int worseFirst(TopSeller a, TopSeller b) {
+        if (a.quantity != b.quantity) {
+            return Long.compare(a.quantity, b.quantity);
+        }
+        return Long.compare(b.productId, a.productId);
+    }
+}
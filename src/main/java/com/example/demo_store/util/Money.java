@@ -0,0 +1,93 @@
+package com.example.demo_store.util;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Objects;
+
+// Số tiền bằng long theo 1/100 (minorUnits, khớp các cột DECIMAL(18,2)) kèm loại tiền.
+// Scale cố định theo cột database, không theo Currency.getDefaultFractionDigits(): VND (0 chữ số thập phân) vẫn lưu
+// dạng 1250000.00, nên minorUnits là 1/100 của số tiền chứ không phải đơn vị nhỏ nhất của loại tiền.
+// Tính tổng trên long (tràn số thì ArithmeticException), chỉ đổi qua lại BigDecimal ở mép:
+// đọc / ghi database và JSON. Phép đổi luôn chính xác: số có hơn 2 chữ số thập phân bị từ chối, không làm tròn
+public final class Money implements Comparable<Money> {
+
+    // Scale của các cột tiền DECIMAL(18,2)
+    public static final int DECIMAL_SCALE = 2;
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    // ArithmeticException nếu amount có hơn DECIMAL_SCALE chữ số thập phân hoặc vượt quá long
+    public static Money of(BigDecimal amount, Currency currency) {
+        return new Money(amount.setScale(DECIMAL_SCALE).unscaledValue().longValueExact(), currency);
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+
+    public Currency getCurrency() { return currency; }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(int quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    // JSON giữ nguyên dạng số như khi dùng BigDecimal (ví dụ 1250000.00)
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, DECIMAL_SCALE);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+}
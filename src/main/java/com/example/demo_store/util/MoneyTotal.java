@@ -0,0 +1,29 @@
+package com.example.demo_store.util;
+
+import java.util.Currency;
+
+// Cộng dồn đơn giá * số lượng của các dòng (giỏ hàng, đơn hàng) trên một long:
+// không tạo object nào cho từng dòng, chỉ tạo Money khi lấy kết quả. Không thread-safe
+public final class MoneyTotal {
+
+    private final Currency currency;
+    private long minorUnits;
+
+    public MoneyTotal(Currency currency) {
+        this.currency = currency;
+    }
+
+    public MoneyTotal add(Money unitPrice, int quantity) {
+        if (!unitPrice.getCurrency().equals(currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + unitPrice.getCurrency());
+        }
+        minorUnits = Math.addExact(minorUnits, Math.multiplyExact(unitPrice.getMinorUnits(), quantity));
+        return this;
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+
+    public Money toMoney() {
+        return Money.ofMinor(minorUnits, currency);
+    }
+}
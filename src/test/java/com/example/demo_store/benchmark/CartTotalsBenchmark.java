@@ -0,0 +1,114 @@
+package com.example.demo_store.benchmark;
+
+import com.example.demo_store.util.Money;
+import com.example.demo_store.util.MoneyTotal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Tổng tiền giỏ hàng: cách cũ (stream BigDecimal multiply / add) so với Money (long theo đơn vị 1/100).
+// Không phải test (surefire bỏ qua); chạy: mvn test-compile rồi chạy main() với classpath test, thêm -prof gc
+// qua OptionsBuilder.addProfiler nếu muốn xem số byte cấp phát mỗi lần tính
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    private static final Currency VND = Currency.getInstance("VND");
+
+    @Param({"50"})
+    private int lines;
+
+    private List<BigDecimalLine> bigDecimalLines;
+    private List<MoneyLine> moneyLines;
+
+    static final class BigDecimalLine {
+        final BigDecimal price;
+        final int quantity;
+
+        BigDecimalLine(BigDecimal price, int quantity) {
+            this.price = price;
+            this.quantity = quantity;
+        }
+    }
+
+    static final class MoneyLine {
+        final Money price;
+        final int quantity;
+
+        MoneyLine(Money price, int quantity) {
+            this.price = price;
+            this.quantity = quantity;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        bigDecimalLines = new ArrayList<>(lines);
+        moneyLines = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            // Giá 49.000 - 2.000.000 VND, có phần lẻ như dữ liệu DECIMAL(18,2)
+            BigDecimal price = BigDecimal.valueOf(4_900_000L + random.nextInt(195_100_000), Money.DECIMAL_SCALE);
+            int quantity = 1 + random.nextInt(5);
+            bigDecimalLines.add(new BigDecimalLine(price, quantity));
+            moneyLines.add(new MoneyLine(Money.of(price, VND), quantity));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalStreamReduction() {
+        return bigDecimalLines.stream()
+                .map(line -> line.price.multiply(BigDecimal.valueOf(line.quantity)))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public Money moneyPlusTimes() {
+        Money total = Money.zero(VND);
+        for (MoneyLine line : moneyLines) {
+            total = total.plus(line.price.times(line.quantity));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money moneyTotal() {
+        MoneyTotal total = new MoneyTotal(VND);
+        for (MoneyLine line : moneyLines) {
+            total.add(line.price, line.quantity);
+        }
+        return total.toMoney();
+    }
+
+    // Đổi về BigDecimal ở mép JSON: tính cả phép đổi để so sánh công bằng với bigDecimalStreamReduction
+    @Benchmark
+    public BigDecimal moneyTotalToBigDecimal() {
+        return moneyTotal().toBigDecimal();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CartTotalsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
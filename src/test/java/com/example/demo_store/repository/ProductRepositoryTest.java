@@ -0,0 +1,105 @@
+package com.example.demo_store.repository;
+
+import com.example.demo_store.entity.Brand;
+import com.example.demo_store.entity.Category;
+import com.example.demo_store.entity.Product;
+import com.example.demo_store.entity.ProductImage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProductRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // Như ObjectMapper của Spring: LocalDateTime của entity cần module jsr310
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private Category category;
+    private Brand brand;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setCategoryName("Áo thun");
+        entityManager.persist(category);
+        brand = new Brand();
+        brand.setBrandName("Coolmate");
+        entityManager.persist(brand);
+    }
+
+    // /api/products/batch serialize từng product (kể cả images) ngay sau query IN
+    @Test
+    void batchLookupSerializesTwentyProductsWithImagesInOneQuery() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(persistProduct("BT-" + i, 2).getProductId());
+        }
+        // Product không có ảnh vẫn được trả về (LEFT JOIN)
+        ids.add(persistProduct("BT-NO-IMAGE", 0).getProductId());
+
+        Statistics statistics = clearAndResetStatistics();
+        List<Product> products = productRepository.findAllWithCategoryAndBrandByProductIdIn(ids);
+        for (Product product : products) {
+            objectMapper.writeValueAsBytes(product);
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(products).hasSize(21);
+        assertThat(products).filteredOn(product -> !product.getSku().equals("BT-NO-IMAGE"))
+                .allSatisfy(product -> assertThat(product.getImages()).hasSize(2));
+    }
+
+    private Product persistProduct(String sku, int imageCount) {
+        Product product = new Product();
+        product.setProductName("Áo thun " + sku);
+        product.setSku(sku);
+        product.setPrice(new BigDecimal("199000"));
+        product.setStockQuantity(10);
+        product.setCategory(category);
+        product.setBrand(brand);
+        entityManager.persist(product);
+
+        for (int i = 0; i < imageCount; i++) {
+            ProductImage image = new ProductImage();
+            image.setProduct(product);
+            image.setImageUrl("/uploads/" + sku + "-" + i + ".jpg");
+            image.setSortOrder(i);
+            entityManager.persist(image);
+        }
+        return product;
+    }
+
+    private Statistics clearAndResetStatistics() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
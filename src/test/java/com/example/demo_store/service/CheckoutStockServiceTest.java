@@ -0,0 +1,369 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.entity.Brand;
+import com.example.demo_store.entity.Category;
+import com.example.demo_store.entity.Color;
+import com.example.demo_store.entity.Product;
+import com.example.demo_store.entity.ProductVariant;
+import com.example.demo_store.entity.Size;
+import com.example.demo_store.service.inventory.InventoryLedger;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Không bọc test trong transaction: mỗi lần đặt hàng phải commit thật.
+// Giữ nguyên tên bảng của @Table (ProductVariants) như database thật để SQL của InventoryService chạy được;
+// đơn hàng ghi stock ngay trong transaction, các test vẫn flush trước khi đọc để gồm cả giữ hàng / nhập hàng
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.hibernate.naming.physical-strategy=org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+// InventoryJournalService chỉ để flush của InventoryService ghi nhật ký; test nhật ký nằm ở InventoryJournalServiceTest
+@Import({CheckoutStockService.class, InventoryService.class, InventoryJournalService.class, CartHoldService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutStockServiceTest {
+
+    @Autowired
+    private CheckoutStockService checkoutStockService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CartHoldService cartHoldService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private Product product;
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    // WAL riêng cho mỗi lần chạy: bản ghi của lần chạy trước không được áp lên database mới
+    @DynamicPropertySource
+    static void walDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String walDir = Files.createTempDirectory("inventory-wal").toString();
+        registry.add("store.inventory.wal-dir", () -> walDir);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Bảng checkpoint chỉ có trong ClothingStoreDB.sql (không có entity)
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS InventoryLedgerCheckpoints (ledger_name VARCHAR(50) PRIMARY KEY, "
+                + "last_sequence BIGINT NOT NULL DEFAULT 0, updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        inventoryService.recover();
+        assertThat(inventoryService.isReady()).isTrue();
+        tx = new TransactionTemplate(transactionManager);
+        product = tx.execute(status -> {
+            Category category = new Category();
+            category.setCategoryName("Flash sale " + sequence.incrementAndGet());
+            entityManager.persist(category);
+            Brand brand = new Brand();
+            brand.setBrandName("Coolmate " + sequence.get());
+            entityManager.persist(brand);
+
+            Product p = new Product();
+            p.setProductName("Áo thun flash sale");
+            p.setSku("FS-" + sequence.get() + "-" + System.nanoTime());
+            p.setPrice(new BigDecimal("199000"));
+            p.setStockQuantity(0);
+            p.setCategory(category);
+            p.setBrand(brand);
+            entityManager.persist(p);
+            return p;
+        });
+    }
+
+    @Test
+    void fiveHundredBuyersNeverOversellOneVariant() throws Exception {
+        long variantId = persistVariant(100);
+        int buyers = 500;
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(buyers, i -> {
+            try {
+                checkoutStockService.placeWithStock(Map.of(variantId, 1), () -> sold.incrementAndGet());
+            } catch (CheckoutStockService.InsufficientStockException e) {
+                assertThat(e.getVariantId()).isEqualTo(variantId);
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(sold.get()).isEqualTo(100);
+        assertThat(rejected.get()).isEqualTo(buyers - 100);
+        inventoryService.flush();
+        assertThat(stockOf(variantId)).isZero();
+        // Mỗi đơn thành công để lại đúng một biến động SALE, đơn bị từ chối không để lại gì
+        assertThat(saleMovementsOf(variantId)).isEqualTo(100);
+    }
+
+    @Test
+    void oppositeLineOrderDoesNotDeadlock() throws Exception {
+        long first = persistVariant(1000);
+        long second = persistVariant(1000);
+
+        runConcurrently(200, i -> {
+            // Nửa số đơn liệt kê dòng theo thứ tự ngược lại
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            lines.put(i % 2 == 0 ? first : second, 1);
+            lines.put(i % 2 == 0 ? second : first, 1);
+            checkoutStockService.placeWithStock(lines, () -> null);
+        });
+
+        inventoryService.flush();
+        assertThat(stockOf(first)).isEqualTo(800);
+        assertThat(stockOf(second)).isEqualTo(800);
+    }
+
+    @Test
+    void insufficientLineRollsBackWholeOrder() {
+        long plenty = persistVariant(10);
+        long scarce = persistVariant(1);
+        AtomicInteger placed = new AtomicInteger();
+
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(plenty, 3);
+        lines.put(scarce, 2);
+        assertThatThrownBy(() -> checkoutStockService.placeWithStock(lines, placed::incrementAndGet))
+                .isInstanceOf(CheckoutStockService.InsufficientStockException.class);
+
+        assertThat(placed.get()).isZero();
+        inventoryService.flush();
+        assertThat(stockOf(plenty)).isEqualTo(10);
+        assertThat(stockOf(scarce)).isEqualTo(1);
+        assertThat(saleMovementsOf(plenty)).isZero();
+        // Phần đã giữ cho dòng đủ hàng được trả lại
+        assertThat(inventoryService.level(plenty)).hasValueSatisfying(level -> assertThat(level.getReserved()).isZero());
+    }
+
+    @Test
+    void cartHoldsAreNotSoldToOtherBuyers() {
+        long variantId = persistVariant(3);
+        long holder = 7L;
+        assertThat(cartHoldService.set(holder, variantId, 2)).isEqualTo(InventoryLedger.Outcome.OK);
+
+        // Chỉ còn một đơn vị chưa bị giữ cho người mua khác
+        assertThatThrownBy(() -> checkoutStockService.placeWithStock(Map.of(variantId, 2), () -> null))
+                .isInstanceOf(CheckoutStockService.InsufficientStockException.class);
+        checkoutStockService.placeWithStock(Map.of(variantId, 1), () -> null);
+
+        // Người giữ hàng đặt được đúng phần đã giữ, hold được dùng hết
+        checkoutStockService.placeWithStock(holder, Map.of(variantId, 2), () -> 1L, orderId -> "order:" + orderId);
+        assertThat(cartHoldService.holds(holder)).isEmpty();
+        assertThat(inventoryService.level(variantId)).hasValueSatisfying(level -> {
+            assertThat(level.getOnHand()).isZero();
+            assertThat(level.getReserved()).isZero();
+        });
+        inventoryService.flush();
+        assertThat(stockOf(variantId)).isZero();
+        assertThat(saleMovementsOf(variantId)).isEqualTo(2);
+    }
+
+    @Test
+    void failedCheckoutRestoresCartHold() {
+        long variantId = persistVariant(5);
+        long holder = 8L;
+        cartHoldService.set(holder, variantId, 2);
+
+        assertThatThrownBy(() -> checkoutStockService.placeWithStock(holder, Map.of(variantId, 3), () -> {
+            throw new IllegalStateException("order insert failed");
+        }, result -> null)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cartHoldService.holds(holder)).containsEntry(variantId, 2);
+        assertThat(inventoryService.level(variantId)).hasValueSatisfying(level -> {
+            assertThat(level.getOnHand()).isEqualTo(5);
+            assertThat(level.getReserved()).isEqualTo(2);
+        });
+        cartHoldService.releaseAll(holder);
+    }
+
+    @Test
+    void failedOrderWriteRestoresStock() {
+        long variantId = persistVariant(5);
+
+        assertThatThrownBy(() -> checkoutStockService.placeWithStock(Map.of(variantId, 2), () -> {
+            throw new IllegalStateException("order insert failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        inventoryService.flush();
+        assertThat(stockOf(variantId)).isEqualTo(5);
+        assertThat(inventoryService.level(variantId)).hasValueSatisfying(level -> assertThat(level.getReserved()).isZero());
+    }
+
+    @Test
+    void cancellationReturnsStockWithTheOrderWrite() {
+        long variantId = persistVariant(5);
+        checkoutStockService.placeWithStock(Map.of(variantId, 3), () -> 1L, orderId -> "order:" + orderId);
+
+        assertThat(checkoutStockService.cancelWithStock(Map.of(variantId, 3), () -> true, () -> "cancelled", "order:1")).isEqualTo("cancelled");
+
+        inventoryService.flush();
+        assertThat(stockOf(variantId)).isEqualTo(5);
+        assertThat(cancellationMovementsOf(variantId)).isEqualTo(1);
+    }
+
+    @Test
+    void lostCancellationClaimDoesNotRestockTwice() throws Exception {
+        long variantId = persistVariant(5);
+        checkoutStockService.placeWithStock(Map.of(variantId, 3), () -> 1L, orderId -> "order:" + orderId);
+        // Như UPDATE ... WHERE status <> 'CANCELLED': chỉ request đầu tiên đổi được trạng thái
+        AtomicInteger claims = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        runConcurrently(8, i -> {
+            try {
+                checkoutStockService.cancelWithStock(Map.of(variantId, 3), () -> claims.incrementAndGet() == 1,
+                        () -> "cancelled", "order:1");
+            } catch (CheckoutStockService.ConcurrentChangeException e) {
+                conflicts.incrementAndGet();
+            }
+        });
+
+        assertThat(conflicts.get()).isEqualTo(7);
+        assertThat(stockOf(variantId)).isEqualTo(5);
+        assertThat(cancellationMovementsOf(variantId)).isEqualTo(1);
+        assertThat(inventoryService.level(variantId)).hasValueSatisfying(level -> assertThat(level.getOnHand()).isEqualTo(5));
+    }
+
+    @Test
+    void saleIsWrittenWithTheOrderNotThroughTheWal() {
+        long variantId = persistVariant(5);
+        Object walSequence = inventoryService.stats().get("walSequence");
+
+        checkoutStockService.placeWithStock(Map.of(variantId, 2), () -> 1L, orderId -> "order:" + orderId);
+
+        // Không cần flush: stock và biến động SALE đã commit cùng đơn, WAL không có bản ghi nào để áp lại khi khởi động
+        assertThat(stockOf(variantId)).isEqualTo(3);
+        assertThat(saleMovementsOf(variantId)).isEqualTo(1);
+        assertThat(inventoryService.stats().get("walSequence")).isEqualTo(walSequence);
+        assertThat(inventoryService.level(variantId)).hasValueSatisfying(level -> {
+            assertThat(level.getOnHand()).isEqualTo(3);
+            assertThat(level.getReserved()).isZero();
+        });
+        inventoryService.flush();
+        assertThat(stockOf(variantId)).isEqualTo(3);
+    }
+
+    @Test
+    void unflushedReceiptIsWrittenBeforeSellingIt() {
+        long variantId = persistVariant(0);
+        inventoryService.receive(variantId, 2, "po:1");
+
+        // Database còn 0 cho tới khi phần nhập hàng được ghi xuống trước lệnh trừ stock
+        checkoutStockService.placeWithStock(Map.of(variantId, 2), () -> null);
+
+        assertThat(stockOf(variantId)).isZero();
+        inventoryService.flush();
+        assertThat(stockOf(variantId)).isZero();
+    }
+
+    @Test
+    void failedCancellationWriteKeepsStockSold() {
+        long variantId = persistVariant(5);
+        checkoutStockService.placeWithStock(Map.of(variantId, 3), () -> 1L, orderId -> "order:" + orderId);
+
+        assertThatThrownBy(() -> checkoutStockService.cancelWithStock(Map.of(variantId, 3), () -> true, () -> {
+            throw new IllegalStateException("order update failed");
+        }, "order:1")).isInstanceOf(IllegalStateException.class);
+
+        inventoryService.flush();
+        assertThat(stockOf(variantId)).isEqualTo(2);
+        assertThat(cancellationMovementsOf(variantId)).isZero();
+    }
+
+    private interface Buyer {
+        void buy(int index) throws Exception;
+    }
+
+    private void runConcurrently(int buyers, Buyer buyer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < buyers; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    buyer.buy(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long saleMovementsOf(long variantId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM InventoryMovements WHERE variant_id = ? AND movement_type = 'SALE'", Long.class, variantId);
+    }
+
+    private long cancellationMovementsOf(long variantId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM InventoryMovements WHERE variant_id = ? AND movement_type = 'CANCELLATION'", Long.class, variantId);
+    }
+
+    private long persistVariant(int stock) {
+        return tx.execute(status -> {
+            int n = sequence.incrementAndGet();
+            Size size = new Size();
+            size.setSizeName("S" + n);
+            entityManager.persist(size);
+            Color color = new Color();
+            color.setColorName("Color " + n);
+            entityManager.persist(color);
+
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(entityManager.merge(product));
+            variant.setSize(size);
+            variant.setColor(color);
+            variant.setPrice(new BigDecimal("199000"));
+            variant.setStock(stock);
+            entityManager.persist(variant);
+            return variant.getVariantId();
+        });
+    }
+
+    private int stockOf(long variantId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM ProductVariants WHERE variant_id = ?", Integer.class, variantId);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.CursorPage;
+import com.example.demo_store.entity.Brand;
+import com.example.demo_store.entity.Category;
+import com.example.demo_store.entity.Color;
+import com.example.demo_store.entity.InventoryMovement;
+import com.example.demo_store.entity.Product;
+import com.example.demo_store.entity.ProductVariant;
+import com.example.demo_store.entity.Size;
+import com.example.demo_store.service.inventory.StockMovement;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Không bọc test trong transaction: compaction đọc nhật ký đã commit trong transaction riêng.
+// Grace = 0 để biến động vừa ghi được gộp ngay vào snapshot
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.hibernate.naming.physical-strategy=org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "store.inventory.snapshot-grace-seconds=0"
+})
+@Import(InventoryJournalService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryJournalServiceTest {
+
+    @Autowired
+    private InventoryJournalService inventoryJournalService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private long variantId;
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        int n = sequence.incrementAndGet();
+        variantId = tx.execute(status -> {
+            Category category = new Category();
+            category.setCategoryName("Journal " + n);
+            entityManager.persist(category);
+            Brand brand = new Brand();
+            brand.setBrandName("Journal " + n);
+            entityManager.persist(brand);
+            Product product = new Product();
+            product.setProductName("Áo khoác");
+            product.setSku("JR-" + n + "-" + System.nanoTime());
+            product.setPrice(new BigDecimal("499000"));
+            product.setStockQuantity(0);
+            product.setCategory(category);
+            product.setBrand(brand);
+            entityManager.persist(product);
+            Size size = new Size();
+            size.setSizeName("M" + n);
+            entityManager.persist(size);
+            Color color = new Color();
+            color.setColorName("Đen " + n);
+            entityManager.persist(color);
+
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSize(size);
+            variant.setColor(color);
+            variant.setPrice(new BigDecimal("499000"));
+            variant.setStock(20);
+            entityManager.persist(variant);
+            return variant.getVariantId();
+        });
+    }
+
+    @Test
+    void stockIsRebuiltFromLatestSnapshotAndTail() throws InterruptedException {
+        LocalDateTime beforeJournal = LocalDateTime.now();
+        pause();
+        record(InventoryMovement.MovementType.SALE, -3, "order:1");
+        pause();
+        LocalDateTime betweenSales = LocalDateTime.now();
+        pause();
+        // Giữ hàng không đổi tồn thực tế: không được cộng vào snapshot
+        record(InventoryMovement.MovementType.RESERVATION, 2, null);
+        record(InventoryMovement.MovementType.SALE, -4, "order:2");
+        pause();
+
+        // Snapshot mở đầu (tồn trước biến động đầu tiên) và snapshot thứ hai gộp cả hai lần bán
+        inventoryJournalService.compact();
+        assertThat(snapshotStocks()).containsExactly(20, 13);
+        pause();
+        LocalDateTime afterCompaction = LocalDateTime.now();
+        pause();
+        record(InventoryMovement.MovementType.RECEIPT, 10, "po:7");
+
+        // Hiện tại: snapshot thứ hai + phần đuôi (nhập hàng)
+        assertThat(inventoryJournalService.stockAsOf(variantId, LocalDateTime.now())).hasValueSatisfying(asOf -> {
+            assertThat(asOf.getStock()).isEqualTo(23);
+            assertThat(asOf.getSnapshotMovementId()).isEqualTo(lastMovementId("SALE"));
+        });
+        // Quá khứ: snapshot thứ hai chưa có phần nhập hàng sau nó
+        assertThat(inventoryJournalService.stockAsOf(variantId, afterCompaction))
+                .hasValueSatisfying(asOf -> assertThat(asOf.getStock()).isEqualTo(13));
+        // Trước snapshot thứ hai: snapshot mở đầu + lần bán đầu tiên
+        assertThat(inventoryJournalService.stockAsOf(variantId, betweenSales)).hasValueSatisfying(asOf -> {
+            assertThat(asOf.getStock()).isEqualTo(17);
+            assertThat(asOf.getSnapshotMovementId()).isZero();
+        });
+        assertThat(inventoryJournalService.stockAsOf(variantId, beforeJournal)).isEmpty();
+
+        // Lần gộp sau chỉ cộng phần đuôi vào snapshot mới nhất
+        pause();
+        inventoryJournalService.compact();
+        assertThat(snapshotStocks()).containsExactly(20, 13, 23);
+    }
+
+    @Test
+    void historyPagesNewestFirst() {
+        record(InventoryMovement.MovementType.SALE, -3, "order:1");
+        record(InventoryMovement.MovementType.SALE, -4, "order:2");
+
+        CursorPage<InventoryMovement> page = inventoryJournalService.history(variantId, null, 1);
+        assertThat(page.getItems()).singleElement().satisfies(movement -> {
+            assertThat(movement.getQuantity()).isEqualTo(-4);
+            assertThat(movement.getReference()).isEqualTo("order:2");
+        });
+        assertThat(page.isHasMore()).isTrue();
+        CursorPage<InventoryMovement> next = inventoryJournalService.history(variantId, Long.valueOf(page.getNextCursor()), 1);
+        assertThat(next.getItems()).singleElement().satisfies(movement -> assertThat(movement.getQuantity()).isEqualTo(-3));
+        assertThat(next.isHasMore()).isFalse();
+    }
+
+    // Như flush của InventoryService: đổi stock và ghi biến động trong cùng transaction
+    private void record(InventoryMovement.MovementType type, int quantity, String reference) {
+        tx.executeWithoutResult(status -> {
+            if (type.affectsOnHand()) {
+                jdbcTemplate.update("UPDATE ProductVariants SET stock = stock + ? WHERE variant_id = ?", quantity, variantId);
+            }
+            inventoryJournalService.append(List.of(new StockMovement(variantId, type, quantity, reference)));
+        });
+    }
+
+    private List<Integer> snapshotStocks() {
+        return jdbcTemplate.queryForList(
+                "SELECT stock FROM InventorySnapshots WHERE variant_id = ? ORDER BY last_movement_id", Integer.class, variantId);
+    }
+
+    private long lastMovementId(String type) {
+        return jdbcTemplate.queryForObject(
+                "SELECT MAX(movement_id) FROM InventoryMovements WHERE variant_id = ? AND movement_type = ?", Long.class, variantId, type);
+    }
+
+    // Mốc thời gian của các bước phải khác nhau
+    private static void pause() throws InterruptedException {
+        Thread.sleep(20);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.dto.ProductDetailResponse;
+import com.example.demo_store.entity.Brand;
+import com.example.demo_store.entity.Category;
+import com.example.demo_store.entity.Color;
+import com.example.demo_store.entity.Product;
+import com.example.demo_store.entity.ProductImage;
+import com.example.demo_store.entity.ProductVariant;
+import com.example.demo_store.entity.Size;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(ProductDetailService.class)
+class ProductDetailServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductDetailService productDetailService;
+
+    private Category category;
+    private Brand brand;
+
+    @BeforeEach
+    void setUp() {
+        Category parent = new Category();
+        parent.setCategoryName("Thời trang nam");
+        entityManager.persist(parent);
+        category = new Category();
+        category.setCategoryName("Áo thun");
+        category.setParent(parent);
+        entityManager.persist(category);
+        brand = new Brand();
+        brand.setBrandName("Coolmate");
+        entityManager.persist(brand);
+    }
+
+    @Test
+    void loadsProductImagesAndVariantsInThreeQueries() {
+        Product product = persistProduct("TS-001", 3, 4);
+
+        Statistics statistics = clearAndResetStatistics();
+        Optional<ProductDetailResponse> detail = productDetailService.getProductDetail(product.getProductId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(detail).isPresent();
+        assertThat(detail.get().getProduct().getSku()).isEqualTo("TS-001");
+        assertThat(detail.get().getProduct().getCategoryName()).isEqualTo("Áo thun");
+        assertThat(detail.get().getProduct().getBrandName()).isEqualTo("Coolmate");
+        assertThat(detail.get().getImages()).extracting(ProductDetailResponse.Image::getSortOrder)
+                .containsExactly(0, 1, 2);
+        assertThat(detail.get().getVariants()).hasSize(4);
+        assertThat(detail.get().getVariants()).allSatisfy(variant -> {
+            assertThat(variant.getSizeName()).isNotNull();
+            assertThat(variant.getColorName()).isNotNull();
+        });
+    }
+
+    @Test
+    void queryCountDoesNotGrowWithVariantCount() {
+        Product small = persistProduct("TS-SMALL", 1, 1);
+        Product large = persistProduct("TS-LARGE", 10, 40);
+
+        Statistics statistics = clearAndResetStatistics();
+        productDetailService.getProductDetail(small.getProductId());
+        long smallCount = statistics.getPrepareStatementCount();
+
+        statistics = clearAndResetStatistics();
+        Optional<ProductDetailResponse> detail = productDetailService.getProductDetail(large.getProductId());
+        long largeCount = statistics.getPrepareStatementCount();
+
+        assertThat(detail).isPresent();
+        assertThat(detail.get().getVariants()).hasSize(40);
+        assertThat(largeCount).isEqualTo(smallCount).isEqualTo(3);
+    }
+
+    @Test
+    void missingProductStopsAfterOneQuery() {
+        Statistics statistics = clearAndResetStatistics();
+
+        assertThat(productDetailService.getProductDetail(999_999L)).isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    // Mỗi biến thể dùng một size / màu riêng để lazy loading (nếu có) lộ ra thành nhiều query
+    private Product persistProduct(String sku, int imageCount, int variantCount) {
+        Product product = new Product();
+        product.setProductName("Áo thun " + sku);
+        product.setSku(sku);
+        product.setPrice(new BigDecimal("199000"));
+        product.setStockQuantity(10);
+        product.setCategory(category);
+        product.setBrand(brand);
+        entityManager.persist(product);
+
+        for (int i = imageCount - 1; i >= 0; i--) {
+            ProductImage image = new ProductImage();
+            image.setProduct(product);
+            image.setImageUrl("/uploads/" + sku + "-" + i + ".jpg");
+            image.setSortOrder(i);
+            image.setIsPrimary(i == 0);
+            entityManager.persist(image);
+        }
+
+        for (int i = 0; i < variantCount; i++) {
+            Size size = new Size();
+            size.setSizeName(sku.substring(sku.length() - 3) + i);
+            entityManager.persist(size);
+            Color color = new Color();
+            color.setColorName(sku + "-color-" + i);
+            entityManager.persist(color);
+
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSize(size);
+            variant.setColor(color);
+            variant.setPrice(new BigDecimal("199000"));
+            variant.setStock(5);
+            entityManager.persist(variant);
+        }
+        return product;
+    }
+
+    private Statistics clearAndResetStatistics() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo_store.service;
+
+import com.example.demo_store.entity.Brand;
+import com.example.demo_store.entity.Category;
+import com.example.demo_store.entity.Product;
+import com.example.demo_store.event.ProductChangedEvent;
+import com.example.demo_store.event.ProductSkusImportedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import(SkuIndexService.class)
+class SkuIndexServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SkuIndexService skuIndexService;
+
+    private final List<String> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setCategoryName("Áo thun");
+        entityManager.persist(category);
+        Brand brand = new Brand();
+        brand.setBrandName("Coolmate");
+        entityManager.persist(brand);
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product();
+            product.setProductName("Áo thun " + i);
+            product.setSku("TS-" + i);
+            product.setPrice(new BigDecimal("199000"));
+            product.setStockQuantity(10);
+            product.setCategory(category);
+            product.setBrand(brand);
+            entityManager.persist(product);
+            stored.add(product.getSku());
+        }
+        entityManager.flush();
+        skuIndexService.rebuild();
+    }
+
+    // Bloom filter dựng từ database có sức chứa tối thiểu 1024: thêm SKU tạo mới và SKU import quá sức chứa
+    // buộc dựng lại từ index + SKU import, không SKU nào bị báo "chắc chắn không có"
+    @Test
+    void overflowRebuildKeepsEveryKnownSku() {
+        int bloomCapacity = (int) skuIndexService.stats().get("bloomCapacity");
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            String sku = "NEW-" + i;
+            skuIndexService.onProductChanged(ProductChangedEvent.created(100_000L + i, sku));
+            created.add(sku);
+        }
+        List<String> imported = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            imported.add("IMP-" + i);
+        }
+        skuIndexService.onSkusImported(new ProductSkusImportedEvent(imported));
+
+        assertThat((int) skuIndexService.stats().get("bloomCapacity")).isGreaterThan(bloomCapacity);
+        for (String sku : stored) {
+            assertThat(skuIndexService.lookup(sku.toLowerCase() + " ").getLookup()).as(sku).isEqualTo(SkuIndexService.Lookup.FOUND);
+        }
+        for (int i = 0; i < created.size(); i++) {
+            SkuIndexService.Result result = skuIndexService.lookup(created.get(i));
+            assertThat(result.getLookup()).as(created.get(i)).isEqualTo(SkuIndexService.Lookup.FOUND);
+            assertThat(result.getProductId()).isEqualTo(100_000L + i);
+        }
+        // SKU import chưa có productId: chỉ được hỏi database, không được báo là không tồn tại
+        for (String sku : imported) {
+            assertThat(skuIndexService.lookup(sku).getLookup()).as(sku).isEqualTo(SkuIndexService.Lookup.UNKNOWN);
+        }
+    }
+
+    @Test
+    void renamedSkuMovesToTheNewKey() {
+        Long productId = skuIndexService.lookup("TS-1").getProductId();
+
+        skuIndexService.onProductChanged(ProductChangedEvent.updated(productId, "TS-1-NEW", "TS-1"));
+
+        assertThat(skuIndexService.lookup("ts-1-new").getProductId()).isEqualTo(productId);
+        assertThat(skuIndexService.lookup("TS-1").getLookup()).isNotEqualTo(SkuIndexService.Lookup.FOUND);
+    }
+}
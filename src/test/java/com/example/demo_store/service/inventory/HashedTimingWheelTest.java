@@ -0,0 +1,92 @@
+package com.example.demo_store.service.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Đồng hồ do test điều khiển: mọi lời gọi nhận nowMillis tường minh
+class HashedTimingWheelTest {
+
+    private static final long START = 1_000;
+    private static final long TICK = 100;
+
+    private final HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 8, START);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void expiresOnTheFirstTickAtOrAfterTheDeadline() {
+        wheel.schedule("hold", 250, START);
+
+        // 250 ms làm tròn lên 3 tick
+        advanceTo(START + 299);
+        assertThat(expired).isEmpty();
+        advanceTo(START + 300);
+        assertThat(expired).containsExactly("hold");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void zeroDelayExpiresOnTheNextTick() {
+        advanceTo(START + 450);
+        wheel.schedule("now", 0, START + 450);
+
+        advanceTo(START + 499);
+        assertThat(expired).isEmpty();
+        advanceTo(START + 500);
+        assertThat(expired).containsExactly("now");
+    }
+
+    @Test
+    void deadlineSeveralRoundsAwayIsSkippedUntilItsRound() {
+        // 17 tick trên bánh xe 8 ô: cùng bucket với tick 1 và 9
+        wheel.schedule("far", 17 * TICK, START);
+        wheel.schedule("near", TICK, START);
+
+        advanceTo(START + 9 * TICK);
+        assertThat(expired).containsExactly("near");
+        assertThat(wheel.size()).isEqualTo(1);
+        advanceTo(START + 16 * TICK);
+        assertThat(expired).containsExactly("near");
+        advanceTo(START + 17 * TICK);
+        assertThat(expired).containsExactly("near", "far");
+    }
+
+    @Test
+    void longJumpExpiresInDeadlineOrder() {
+        wheel.schedule("late", 500, START);
+        wheel.schedule("early", 200, START);
+        wheel.schedule("after-two-rounds", 2_000, START);
+
+        advanceTo(START + 10_000);
+
+        assertThat(expired).containsExactly("early", "late", "after-two-rounds");
+    }
+
+    @Test
+    void cancelledTimeoutNeverExpires() {
+        HashedTimingWheel.Timeout<String> first = wheel.schedule("first", 300, START);
+        HashedTimingWheel.Timeout<String> middle = wheel.schedule("middle", 300, START);
+        HashedTimingWheel.Timeout<String> last = wheel.schedule("last", 300, START);
+
+        advanceTo(START + 200);
+        // Huỷ phần tử giữa danh sách của bucket: hai phần tử còn lại vẫn nối đúng
+        assertThat(wheel.cancel(middle)).isTrue();
+        assertThat(wheel.cancel(middle)).isFalse();
+        assertThat(wheel.size()).isEqualTo(2);
+
+        advanceTo(START + 300);
+        assertThat(expired).containsExactlyInAnyOrder("first", "last");
+        // Đã hết hạn thì không huỷ được nữa
+        assertThat(wheel.cancel(first)).isFalse();
+        assertThat(wheel.cancel(last)).isFalse();
+        assertThat(wheel.cancel(null)).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    private void advanceTo(long nowMillis) {
+        wheel.advance(nowMillis, expired::add);
+    }
+}
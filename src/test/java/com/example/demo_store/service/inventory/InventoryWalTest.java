@@ -0,0 +1,119 @@
+package com.example.demo_store.service.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryWalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tornTailIsDroppedAndSequenceContinuesAfterLastWholeRecord() throws IOException {
+        try (InventoryWal wal = InventoryWal.open(directory, 0, (variantId, delta) -> { })) {
+            wal.append(1, 5);
+            wal.append(2, -3);
+            wal.sync(wal.append(1, 7));
+        }
+        // Crash giữa lúc ghi bản ghi thứ tư: chỉ 10 / 24 byte xuống đĩa
+        appendBytes(firstSegment(), new byte[10]);
+
+        List<long[]> replayed = new ArrayList<>();
+        try (InventoryWal wal = InventoryWal.open(directory, 0, (variantId, delta) -> replayed.add(new long[]{variantId, delta}))) {
+            assertThat(wal.lastSequence()).isEqualTo(3);
+            assertThat(replayed).containsExactly(new long[]{1, 5}, new long[]{2, -3}, new long[]{1, 7});
+            assertThat(wal.append(3, 2)).isEqualTo(4);
+        }
+
+        replayed.clear();
+        try (InventoryWal wal = InventoryWal.open(directory, 0, (variantId, delta) -> replayed.add(new long[]{variantId, delta}))) {
+            assertThat(wal.lastSequence()).isEqualTo(4);
+            assertThat(replayed).containsExactly(new long[]{1, 5}, new long[]{2, -3}, new long[]{1, 7}, new long[]{3, 2});
+        }
+    }
+
+    @Test
+    void corruptedRecordStopsReplayOfItsSegment() throws IOException {
+        try (InventoryWal wal = InventoryWal.open(directory, 0, (variantId, delta) -> { })) {
+            wal.append(1, 5);
+            wal.append(1, 6);
+            wal.append(1, 7);
+        }
+        // Lật một byte trong delta của bản ghi thứ hai: CRC không khớp
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 24 + 17);
+        }
+
+        List<long[]> replayed = new ArrayList<>();
+        try (InventoryWal wal = InventoryWal.open(directory, 0, (variantId, delta) -> replayed.add(new long[]{variantId, delta}))) {
+            assertThat(replayed).containsExactly(new long[]{1, 5});
+            assertThat(wal.lastSequence()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void rotatedSegmentsReplayOnlyAfterCheckpoint() throws IOException {
+        try (InventoryWal wal = InventoryWal.open(directory, 0, (variantId, delta) -> { })) {
+            wal.append(1, 10);
+            wal.append(2, 20);
+            wal.rotate();
+            wal.append(1, -4);
+            wal.append(3, 30);
+            wal.rotate();
+            wal.append(2, -5);
+            // Checkpoint 2: segment đầu (sequence 1..2) đã nằm trọn trong database
+            wal.deleteSegmentsUpTo(2);
+        }
+        assertThat(segments()).hasSize(2);
+
+        List<long[]> replayed = new ArrayList<>();
+        try (InventoryWal wal = InventoryWal.open(directory, 2, (variantId, delta) -> replayed.add(new long[]{variantId, delta}))) {
+            assertThat(replayed).containsExactly(new long[]{1, -4}, new long[]{3, 30}, new long[]{2, -5});
+            assertThat(wal.lastSequence()).isEqualTo(5);
+        }
+
+        // Checkpoint nằm giữa segment: bản ghi đã checkpoint trong cùng segment bị bỏ qua
+        replayed.clear();
+        try (InventoryWal wal = InventoryWal.open(directory, 3, (variantId, delta) -> replayed.add(new long[]{variantId, delta}))) {
+            assertThat(replayed).containsExactly(new long[]{3, 30}, new long[]{2, -5});
+        }
+    }
+
+    private Path firstSegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).isNotEmpty();
+        // Mỗi lần open mở thêm một segment rỗng cho bản ghi mới: bản ghi nằm ở segment đầu
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> Files.isRegularFile(path) && sizeOf(path) > 0).sorted().toList();
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendBytes(Path segment, byte[] bytes) throws IOException {
+        Files.write(segment, bytes, StandardOpenOption.APPEND);
+    }
+}
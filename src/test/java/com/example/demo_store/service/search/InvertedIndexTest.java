@@ -0,0 +1,85 @@
+package com.example.demo_store.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTest {
+
+    @Test
+    void everyTermMustMatchAndHigherTermFrequencyRanksFirst() {
+        InvertedIndex index = new InvertedIndex();
+        index.index(1, fields("Áo thun nam"));
+        index.index(2, fields("Áo khoác"));
+        index.index(3, fields("Áo thun thun"));
+        index.index(4, fields("Quần thun"));
+
+        // Khoảng trắng cuối: không mở rộng tiền tố, chỉ khớp nguyên term
+        // Cùng độ dài với document 1 nên chỉ term frequency của "thun" quyết định thứ tự
+        InvertedIndex.Hits hits = index.search("ao thun ", 0, 10);
+
+        assertThat(hits.getDocIds()).containsExactly(3L, 1L);
+        assertThat(hits.getTotalHits()).isEqualTo(2);
+    }
+
+    @Test
+    void rarerTermWeighsMoreAndTiesKeepIndexOrder() {
+        InvertedIndex index = new InvertedIndex();
+        index.index(10, fields("ao len"));
+        index.index(11, fields("ao len"));
+        index.index(12, fields("ao"));
+        index.index(13, fields("ao"));
+        index.index(14, fields("ao"));
+
+        // "len" hiếm hơn "ao" nên document có cả "len" xếp trên; hoà điểm thì document index trước đứng trước
+        assertThat(index.search("ao ", 0, 10).getDocIds()).containsExactly(12L, 13L, 14L, 10L, 11L);
+        assertThat(index.search("len ", 0, 10).getDocIds()).containsExactly(10L, 11L);
+        assertThat(index.search("ao ", 1, 2).getDocIds()).containsExactly(13L, 14L);
+    }
+
+    @Test
+    void lastTermMatchesAsPrefixWhileTyping() {
+        InvertedIndex index = new InvertedIndex();
+        index.index(1, fields("Áo khoác gió"));
+        index.index(2, fields("Áo khoác dạ khoác"));
+        index.index(3, fields("Áo thun"));
+        index.index(4, fields("Khăn len"));
+
+        assertThat(index.search("ao kho", 0, 10).getDocIds()).containsExactlyInAnyOrder(1L, 2L);
+        // Chỉ term cuối là tiền tố
+        assertThat(index.search("a khoac", 0, 10).getTotalHits()).isZero();
+        assertThat(index.search("kh", 0, 10).getTotalHits()).isEqualTo(3);
+        assertThat(index.search("ao kho ", 0, 10).getTotalHits()).isZero();
+    }
+
+    @Test
+    void reindexReplacesOldTermsAndCompactionRenumbersOrdinals() {
+        InvertedIndex index = new InvertedIndex();
+        int documents = 1100;
+        for (long docId = 1; docId <= documents; docId++) {
+            index.index(docId, fields("ao cu " + docId));
+        }
+        // Re-index đủ nhiều để số bản đã xoá vượt ngưỡng compact
+        for (long docId = 1; docId <= documents; docId++) {
+            index.index(docId, fields(docId % 2 == 0 ? "ao moi" : "ao cu"));
+        }
+        index.index(5000, fields("ao moi"));
+        index.remove(1);
+
+        assertThat(index.size()).isEqualTo(documents);
+        // Compact chạy khi đủ 1024 bản xoá: chỉ còn 76 bản re-index sau đó và document 1
+        assertThat(index.stats().get("deletedDocuments")).isEqualTo(documents - 1024 + 1);
+        assertThat(index.search("moi ", 0, 2000).getTotalHits()).isEqualTo(documents / 2 + 1);
+        assertThat(index.search("cu ", 0, 2000).getTotalHits()).isEqualTo(documents / 2 - 1);
+        assertThat(index.search("cu ", 0, 2000).getDocIds()).doesNotContain(1L);
+        // Term chỉ còn trong các bản cũ đã bị dọn
+        assertThat(index.search("7 ", 0, 10).getTotalHits()).isZero();
+        assertThat(index.search("moi ", 0, 2000).getDocIds()).contains(5000L, 2L, 1100L);
+    }
+
+    private static List<InvertedIndex.Field> fields(String name) {
+        return List.of(new InvertedIndex.Field(name, 1));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo_store.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostingListTest {
+
+    @Test
+    void varIntRoundTripAcrossByteBoundaries() {
+        // Delta và term frequency quanh các mốc 1 / 2 / 3 / 4 byte của varint
+        int[] ordinals = {0, 127, 255, 16_638, 2_113_790, Integer.MAX_VALUE - 1};
+        int[] frequencies = {1, 127, 128, 16_384, 2_097_152, 300_000_000};
+        PostingList list = new PostingList();
+        for (int i = 0; i < ordinals.length; i++) {
+            list.append(ordinals[i], frequencies[i]);
+        }
+
+        List<int[]> read = new ArrayList<>();
+        PostingList.Cursor cursor = list.cursor();
+        for (int doc = cursor.nextDoc(); doc != PostingList.NO_MORE_DOCS; doc = cursor.nextDoc()) {
+            read.add(new int[]{doc, cursor.termFrequency()});
+        }
+        assertThat(read).containsExactly(new int[]{0, 1}, new int[]{127, 127}, new int[]{255, 128},
+                new int[]{16_638, 16_384}, new int[]{2_113_790, 2_097_152}, new int[]{Integer.MAX_VALUE - 1, 300_000_000});
+        assertThat(list.docCount()).isEqualTo(6);
+        // Phần tử đầu: delta 1 và tf 1, mỗi số một byte
+        PostingList small = new PostingList();
+        small.append(0, 1);
+        assertThat(small.sizeInBytes()).isEqualTo(2);
+    }
+
+    @Test
+    void ordinalsMustIncrease() {
+        PostingList list = new PostingList();
+        list.append(5, 1);
+
+        assertThatThrownBy(() -> list.append(5, 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void advanceStopsAtFirstDocNotBeforeTarget() {
+        PostingList list = new PostingList();
+        for (int ordinal = 0; ordinal < 100; ordinal += 10) {
+            list.append(ordinal, ordinal + 1);
+        }
+
+        PostingList.Cursor cursor = list.cursor();
+        assertThat(cursor.advance(35)).isEqualTo(40);
+        assertThat(cursor.termFrequency()).isEqualTo(41);
+        // Đã ở target thì không đi tiếp
+        assertThat(cursor.advance(40)).isEqualTo(40);
+        assertThat(cursor.advance(91)).isEqualTo(PostingList.NO_MORE_DOCS);
+    }
+
+    @Test
+    void remapDropsDeletedOrdinalsAndKeepsFrequencies() {
+        PostingList list = new PostingList();
+        list.append(0, 3);
+        list.append(2, 5);
+        list.append(3, 7);
+        int[] remap = {0, -1, -1, 1};
+
+        PostingList compacted = list.remap(remap);
+
+        PostingList.Cursor cursor = compacted.cursor();
+        assertThat(cursor.nextDoc()).isZero();
+        assertThat(cursor.termFrequency()).isEqualTo(3);
+        assertThat(cursor.nextDoc()).isEqualTo(1);
+        assertThat(cursor.termFrequency()).isEqualTo(7);
+        assertThat(cursor.nextDoc()).isEqualTo(PostingList.NO_MORE_DOCS);
+        assertThat(compacted.docCount()).isEqualTo(2);
+    }
+}
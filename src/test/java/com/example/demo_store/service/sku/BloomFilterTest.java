@@ -0,0 +1,38 @@
+package com.example.demo_store.service.sku;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverReportsAnInsertedValueAsAbsent() {
+        BloomFilter bloom = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloom.put("sku-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(bloom.mightContain("sku-" + i)).as("sku-%d", i).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTargetAtCapacity() {
+        BloomFilter bloom = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloom.put("sku-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloom.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        // k = round(m / n * ln 2) = 7 hàm hash cho 1%; cho phép gấp đôi tỉ lệ mục tiêu
+        assertThat(bloom.getHashCount()).isEqualTo(7);
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+}
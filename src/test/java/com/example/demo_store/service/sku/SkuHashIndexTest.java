@@ -0,0 +1,106 @@
+package com.example.demo_store.service.sku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SkuHashIndexTest {
+
+    @Test
+    void putOverwritesAndRemoveNeedsTheSameProduct() {
+        SkuHashIndex index = new SkuHashIndex(4);
+        index.put("ts-001", 1);
+        index.put("ts-001", 2);
+
+        assertThat(index.get("ts-001")).isEqualTo(2);
+        assertThat(index.size()).isEqualTo(1);
+        // Mapping đã chuyển sang product 2: xoá theo product cũ không được làm mất nó
+        assertThat(index.remove("ts-001", 1)).isFalse();
+        assertThat(index.remove("ts-001", 2)).isTrue();
+        assertThat(index.get("ts-001")).isEqualTo(SkuHashIndex.NOT_FOUND);
+        assertThat(index.remove("ts-001", 2)).isFalse();
+    }
+
+    @Test
+    void probeChainSurvivesTombstonesAndReusesThem() {
+        SkuHashIndex index = new SkuHashIndex(4);
+        List<String> chain = collidingKeys(index.capacity(), 4);
+        index.put(chain.get(0), 10);
+        index.put(chain.get(1), 11);
+        index.put(chain.get(2), 12);
+
+        // Ô giữa chuỗi probe thành tombstone: key phía sau vẫn tìm được
+        assertThat(index.remove(chain.get(1), 11)).isTrue();
+        assertThat(index.get(chain.get(2))).isEqualTo(12);
+        assertThat(index.get(chain.get(1))).isEqualTo(SkuHashIndex.NOT_FOUND);
+
+        // Key đã có phía sau tombstone được cập nhật tại chỗ, không thêm bản thứ hai
+        index.put(chain.get(2), 22);
+        assertThat(index.size()).isEqualTo(2);
+        index.remove(chain.get(2), 22);
+        assertThat(index.get(chain.get(2))).isEqualTo(SkuHashIndex.NOT_FOUND);
+
+        index.put(chain.get(3), 13);
+        assertThat(index.get(chain.get(0))).isEqualTo(10);
+        assertThat(index.get(chain.get(3))).isEqualTo(13);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void churnRehashesInPlaceWithoutGrowing() {
+        SkuHashIndex index = new SkuHashIndex(4);
+        int capacity = index.capacity();
+        index.put("giu-lai", 1);
+
+        // Mỗi vòng thêm một SKU và xoá SKU trước đó: tombstone tích luỹ buộc phải dọn nhiều lần
+        for (int i = 0; i < 1000; i++) {
+            index.put("sku-" + i, i);
+            if (i > 0) {
+                assertThat(index.remove("sku-" + (i - 1), i - 1)).isTrue();
+            }
+        }
+
+        assertThat(index.capacity()).isEqualTo(capacity);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.get("giu-lai")).isEqualTo(1);
+        assertThat(index.get("sku-999")).isEqualTo(999);
+        assertThat(index.get("sku-998")).isEqualTo(SkuHashIndex.NOT_FOUND);
+        Set<String> keys = new HashSet<>();
+        index.forEachKey(keys::add);
+        assertThat(keys).containsExactlyInAnyOrder("giu-lai", "sku-999");
+    }
+
+    @Test
+    void growsPastHalfFullAndKeepsEveryKey() {
+        SkuHashIndex index = new SkuHashIndex(4);
+        int capacity = index.capacity();
+        for (int i = 0; i < 5000; i++) {
+            index.put("sku-" + i, i);
+        }
+
+        assertThat(index.capacity()).isGreaterThan(capacity).isGreaterThanOrEqualTo(2 * 5000);
+        assertThat(index.size()).isEqualTo(5000);
+        for (int i = 0; i < 5000; i++) {
+            assertThat(index.get("sku-" + i)).isEqualTo(i);
+        }
+    }
+
+    // Các key có cùng ô gốc trong bảng capacity ô
+    private static List<String> collidingKeys(int capacity, int count) {
+        int mask = capacity - 1;
+        int home = (int) SkuHash.hash64("sku-0") & mask;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; keys.size() < count; i++) {
+            String key = "sku-" + i;
+            if (((int) SkuHash.hash64(key) & mask) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
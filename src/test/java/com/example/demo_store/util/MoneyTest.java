@@ -0,0 +1,53 @@
+package com.example.demo_store.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private static final Currency VND = Currency.getInstance("VND");
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @Test
+    void conversionIsExactAtColumnScale() {
+        // VND không có chữ số thập phân nhưng vẫn theo scale của cột DECIMAL(18,2)
+        Money price = Money.of(new BigDecimal("1250000"), VND);
+        assertThat(price.getMinorUnits()).isEqualTo(125_000_000L);
+        assertThat(price.toBigDecimal()).isEqualByComparingTo("1250000").hasScaleOf(2);
+        assertThat(Money.of(new BigDecimal("19.900"), USD).getMinorUnits()).isEqualTo(1990);
+    }
+
+    @Test
+    void moreThanTwoDecimalsIsRejectedNotRounded() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("199000.005"), VND)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("0.001"), USD)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void amountBeyondLongIsRejected() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("100000000000000000000"), VND)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void totalOverflowThrowsInsteadOfWrapping() {
+        Money unitPrice = Money.ofMinor(Long.MAX_VALUE / 4, VND);
+        MoneyTotal total = new MoneyTotal(VND).add(unitPrice, 3);
+        assertThat(total.getMinorUnits()).isEqualTo(Long.MAX_VALUE / 4 * 3);
+
+        // Nhân tràn ở một dòng và cộng tràn giữa các dòng
+        assertThatThrownBy(() -> new MoneyTotal(VND).add(unitPrice, 5)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> total.add(unitPrice, 2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> unitPrice.times(5)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void currenciesDoNotMix() {
+        assertThatThrownBy(() -> new MoneyTotal(VND).add(Money.ofMinor(100, USD), 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.zero(VND).plus(Money.zero(USD))).isInstanceOf(IllegalArgumentException.class);
+    }
+}